@@ -22,8 +22,12 @@ package org.artifactory.download;
 
 
 import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.artifactory.api.archive.ArchiveType;
@@ -37,6 +41,7 @@ import org.artifactory.io.checksum.policy.ChecksumPolicy;
 import org.artifactory.repo.RepoPath;
 import org.artifactory.repo.RepoPathFactory;
 import org.artifactory.resource.ResourceStreamHandle;
+import org.artifactory.schedule.CachedThreadPoolTaskExecutor;
 import org.artifactory.security.AccessLogger;
 import org.artifactory.storage.fs.service.StatsService;
 import org.artifactory.storage.fs.tree.ItemNode;
@@ -47,21 +52,41 @@ import org.artifactory.traffic.TrafficService;
 import org.artifactory.traffic.entry.DownloadEntry;
 import org.artifactory.util.ArchiveUtils;
 import org.artifactory.util.HttpUtils;
+import org.artifactory.util.ParallelGzipOutputStream;
 import org.jfrog.client.util.PathUtils;
 import org.jfrog.storage.common.StorageUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 /**
  * Traverses the tree under the requested path recursively and writes each file into the stream serially.
  * The stream itself is an {@link ArchiveOutputStream} based on the selected {@link ArchiveType}
+ * <p/>
+ * While a file is written, the binaries of the next files are opened on the shared async executor. Small files are
+ * read into memory (and deflated for zip archives) by the executor as well. Tar.gz archives are compressed in parallel
+ * blocks by a {@link ParallelGzipOutputStream}.
  *
  * @author Dan Feldman
  * @author Yossi Shaul
@@ -77,6 +102,9 @@ class FolderArchiveStreamer {
     private final boolean includeChecksumFiles;
     private final ChecksumPolicy repoChecksumPolicy;
     private final RepositoryService repoService;
+    private final int prefetchCount;
+    private final long prefetchMaxInMemoryBytes;
+    private CachedThreadPoolTaskExecutor executor;
     private long filesCount;
     private long totalSizeInBytes;
     private ArchiveOutputStream archiveOutputStream = null;
@@ -93,15 +121,20 @@ class FolderArchiveStreamer {
         this.includeChecksumFiles = includeChecksumFiles;
         this.repoChecksumPolicy = repoChecksumPolicy;
         this.repoService = ContextHelper.get().beanForType(RepositoryService.class);
+        this.prefetchCount = Math.max(0, ConstantValues.folderDownloadPrefetchCount.getInt());
+        this.prefetchMaxInMemoryBytes = (long) StorageUnit.KB.toBytes(
+                ConstantValues.folderDownloadPrefetchMaxInMemoryKb.getInt());
     }
 
     public void go(OutputStream out) {
         try {
             long start = System.currentTimeMillis();
-            archiveOutputStream = ArchiveUtils.createArchiveOutputStream(out, archiveType);
+            archiveOutputStream = createArchiveOutputStream(out);
             ItemTree tree = new ItemTree(rootFolder, getTreeCriteria());
             ItemNode rootNode = tree.getRootNode();
-            writeRecursive(rootNode);
+            List<FileInfo> files = Lists.newArrayList();
+            collectRecursive(rootNode, files);
+            writeFiles(files);
             archiveOutputStream.finish();
             archiveOutputStream.flush();
             String path = rootNode == null ? "" : rootNode.getRepoPath().toPath();
@@ -118,17 +151,32 @@ class FolderArchiveStreamer {
 
     private TreeBrowsingCriteria getTreeCriteria() {
         return new TreeBrowsingCriteriaBuilder().applyRepoIncludeExclude().applySecurity()
-                .applyRepoXrayFilter().cacheChildren(false).build();
+                .applyRepoXrayFilter().cacheChildren(false).bulkLoad().build();
     }
 
-    private void writeRecursive(ItemNode currentNode) throws IOException {
+    private ArchiveOutputStream createArchiveOutputStream(OutputStream out) throws IOException {
+        int gzipBlockKb = ConstantValues.folderDownloadParallelGzipBlockKb.getInt();
+        if ((archiveType == ArchiveType.TARGZ || archiveType == ArchiveType.TGZ) && gzipBlockKb > 0) {
+            int blockSize = (int) StorageUnit.KB.toBytes(Math.max(32, gzipBlockKb));
+            TarArchiveOutputStream result = new TarArchiveOutputStream(new ParallelGzipOutputStream(out,
+                    getExecutor(), blockSize, Runtime.getRuntime().availableProcessors()));
+            result.setLongFileMode(TarArchiveOutputStream.LONGFILE_GNU);
+            return result;
+        }
+        return ArchiveUtils.createArchiveOutputStream(out, archiveType);
+    }
+
+    /**
+     * Collects the files to write in traversal order, up to the download limits
+     */
+    private void collectRecursive(ItemNode currentNode, List<FileInfo> files) {
         if (limitsReached()) {
             return;
         }
         if (currentNode.isFolder()) {
             for (ItemNode child : currentNode.getChildren()) {
                 if (!limitsReached()) {
-                    writeRecursive(child);
+                    collectRecursive(child, files);
                 }
             }
         } else {
@@ -136,14 +184,57 @@ class FolderArchiveStreamer {
             totalSizeInBytes += fileInfo.getSize();
             filesCount++;
             if (!limitsReached()) {
-                writeArtifact(fileInfo.getRepoPath(), fileInfo.getSize());
+                files.add(fileInfo);
+            }
+        }
+    }
+
+    /**
+     * Writes the files in order while the next {@link #prefetchCount} files are prefetched
+     */
+    private void writeFiles(List<FileInfo> files) throws IOException {
+        Deque<Prefetch> window = new ArrayDeque<>();
+        int next = 0;
+        try {
+            for (FileInfo fileInfo : files) {
+                while (next < files.size() && window.size() <= prefetchCount) {
+                    window.add(submitPrefetch(files.get(next++)));
+                }
+                try (PrefetchedFile prefetched = window.poll().await()) {
+                    writeArtifact(fileInfo.getRepoPath(), fileInfo.getSize(), prefetched);
+                }
                 if (includeChecksumFiles) {
                     findAndAddChecksumFiles(fileInfo);
                 }
             }
+        } finally {
+            // release the binaries prefetched for files that will not be written
+            window.forEach(Prefetch::abandon);
         }
     }
 
+    private Prefetch submitPrefetch(FileInfo fileInfo) {
+        Prefetch prefetch = new Prefetch(fileInfo);
+        if (prefetchCount == 0) {
+            prefetch.future = new FutureTask<>(prefetch);
+            return prefetch;
+        }
+        try {
+            prefetch.future = getExecutor().submit(prefetch);
+        } catch (TaskRejectedException e) {
+            log.debug("Prefetch of {} was rejected, it will run in the request thread", fileInfo.getRepoPath());
+            prefetch.future = new FutureTask<>(prefetch);
+        }
+        return prefetch;
+    }
+
+    private CachedThreadPoolTaskExecutor getExecutor() {
+        if (executor == null) {
+            executor = ContextHelper.get().beanForType(CachedThreadPoolTaskExecutor.class);
+        }
+        return executor;
+    }
+
     /**
      * Checksum artifacts (.sha1 & .md5) are not persisted as nodes, so we need an extra logic to add them
      */
@@ -173,12 +264,13 @@ class FolderArchiveStreamer {
         return false;
     }
 
-    private void writeArtifact(RepoPath filePath, long size) throws IOException {
+    private void writeArtifact(RepoPath filePath, long size, PrefetchedFile prefetched) throws IOException {
         String relativePath = PathUtils.getRelativePath(rootFolder.getPath(), filePath.getPath());
         log.debug("Writing path {} to output stream", filePath.toPath());
-        //Ok to go through the non-strict getHandle(), the tree browsing criteria takes security, xray etc. into account
-        try (ResourceStreamHandle handle = repoService.getResourceStreamHandle(filePath)) {
-            writeToStream(relativePath, size, handle.getInputStream(), filePath);
+        if (prefetched.deflated) {
+            writeDeflatedToStream(relativePath, size, prefetched, filePath);
+        } else {
+            writeToStream(relativePath, size, prefetched.getInputStream(), filePath);
         }
     }
 
@@ -209,6 +301,22 @@ class FolderArchiveStreamer {
         logAccessTrafficAndStatsForSinglePath(pathToLog, size, start);
     }
 
+    /**
+     * Writes a zip entry that was already deflated by the prefetch
+     */
+    private void writeDeflatedToStream(String relativePath, long size, PrefetchedFile prefetched, RepoPath pathToLog)
+            throws IOException {
+        long start = System.currentTimeMillis();
+        ZipArchiveEntry archiveEntry = new ZipArchiveEntry(relativePath);
+        archiveEntry.setMethod(ZipArchiveEntry.DEFLATED);
+        archiveEntry.setSize(prefetched.size);
+        archiveEntry.setCompressedSize(prefetched.content.length);
+        archiveEntry.setCrc(prefetched.crc);
+        ((ZipArchiveOutputStream) archiveOutputStream).addRawArchiveEntry(archiveEntry, prefetched.getInputStream());
+        archiveOutputStream.flush();
+        logAccessTrafficAndStatsForSinglePath(pathToLog, size, start);
+    }
+
     private void logAccessTrafficAndStatsForSinglePath(RepoPath path, long size, long start) {
         AccessLogger.downloaded(path);
         DownloadEntry downloadEntry = new DownloadEntry(path.getId(), size, System.currentTimeMillis() - start,
@@ -220,4 +328,135 @@ class FolderArchiveStreamer {
                     false);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Fetches the binary of a single file on the executor. A prefetch that is abandoned (the download failed or was
+     * aborted before the file was written) releases its binary once it completes.
+     */
+    private class Prefetch implements Callable<PrefetchedFile> {
+        private final FileInfo fileInfo;
+        private Future<PrefetchedFile> future;
+        private PrefetchedFile result;
+        private boolean abandoned;
+
+        private Prefetch(FileInfo fileInfo) {
+            this.fileInfo = fileInfo;
+        }
+
+        @Override
+        public PrefetchedFile call() throws IOException {
+            synchronized (this) {
+                if (abandoned) {
+                    return null;
+                }
+            }
+            PrefetchedFile prefetched = fetch();
+            synchronized (this) {
+                if (abandoned) {
+                    prefetched.close();
+                    return null;
+                }
+                result = prefetched;
+                return prefetched;
+            }
+        }
+
+        private PrefetchedFile fetch() throws IOException {
+            //Ok to go through the non-strict getHandle(), the tree browsing criteria takes security, xray etc. into account
+            ResourceStreamHandle handle = repoService.getResourceStreamHandle(fileInfo.getRepoPath());
+            if (prefetchCount == 0 || fileInfo.getSize() > prefetchMaxInMemoryBytes) {
+                // the content is streamed from the handle while the entry is written
+                return new PrefetchedFile(handle);
+            }
+            try {
+                byte[] content = IOUtils.toByteArray(handle.getInputStream());
+                return archiveType == ArchiveType.ZIP ? PrefetchedFile.deflate(content) : new PrefetchedFile(content);
+            } finally {
+                handle.close();
+            }
+        }
+
+        private PrefetchedFile await() throws IOException {
+            if (future instanceof RunnableFuture) {
+                // Run the prefetch in the request thread if no pool thread picked it up yet (no-op otherwise)
+                ((RunnableFuture<PrefetchedFile>) future).run();
+            }
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while fetching " + fileInfo.getRepoPath());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException(cause.getMessage(), cause);
+            }
+        }
+
+        private synchronized void abandon() {
+            abandoned = true;
+            future.cancel(false);
+            if (result != null) {
+                result.close();
+            }
+        }
+    }
+
+    /**
+     * The binary of a file, either as an open handle or as the (possibly deflated) content
+     */
+    private static class PrefetchedFile implements Closeable {
+        private final ResourceStreamHandle handle;
+        private final byte[] content;
+        private final boolean deflated;
+        private final long size;
+        private final long crc;
+
+        private PrefetchedFile(ResourceStreamHandle handle) {
+            this(handle, null, false, -1, 0);
+        }
+
+        private PrefetchedFile(byte[] content) {
+            this(null, content, false, content.length, 0);
+        }
+
+        private PrefetchedFile(ResourceStreamHandle handle, byte[] content, boolean deflated, long size, long crc) {
+            this.handle = handle;
+            this.content = content;
+            this.deflated = deflated;
+            this.size = size;
+            this.crc = crc;
+        }
+
+        private static PrefetchedFile deflate(byte[] content) throws IOException {
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 2 + 64);
+                try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater)) {
+                    out.write(content);
+                }
+                return new PrefetchedFile(null, compressed.toByteArray(), true, content.length, crc.getValue());
+            } finally {
+                deflater.end();
+            }
+        }
+
+        private InputStream getInputStream() {
+            return handle != null ? handle.getInputStream() : new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public void close() {
+            if (handle != null) {
+                handle.close();
+            }
+        }
+    }
+}
@@ -57,6 +57,7 @@ import org.artifactory.service.SmartRepoService;
 import org.artifactory.spring.InternalContextHelper;
 import org.artifactory.spring.Reloadable;
 import org.artifactory.storage.StorageException;
+import org.artifactory.storage.binstore.service.InternalBinaryService;
 import org.artifactory.traffic.TrafficService;
 import org.artifactory.util.HttpUtils;
 import org.artifactory.version.CompoundVersionDetails;
@@ -106,11 +107,14 @@ public class DownloadServiceImpl implements InternalDownloadService {
     @Autowired
     private SmartRepoService smartRepoService;
 
+    @Autowired
+    private InternalBinaryService binaryService;
+
     private RequestResponseHelper requestResponseHelper;
 
     @Override
     public void init() {
-        requestResponseHelper = new RequestResponseHelper(trafficService);
+        requestResponseHelper = new RequestResponseHelper(trafficService, binaryService);
     }
 
     @Override
@@ -0,0 +1,289 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.maven;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Snapshot;
+import org.apache.maven.artifact.repository.metadata.SnapshotVersion;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+import org.artifactory.api.context.ContextHelper;
+import org.artifactory.api.maven.MavenArtifactInfo;
+import org.artifactory.api.module.ModuleInfo;
+import org.artifactory.aql.AqlService;
+import org.artifactory.aql.api.domain.sensitive.AqlApiItem;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.descriptor.repo.SnapshotVersionBehavior;
+import org.artifactory.maven.snapshot.SnapshotComparator;
+import org.artifactory.maven.versioning.MavenVersionComparator;
+import org.artifactory.maven.versioning.VersionNameMavenMetadataVersionComparator;
+import org.artifactory.mime.MavenNaming;
+import org.artifactory.model.common.RepoPathImpl;
+import org.artifactory.repo.LocalRepo;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.sapi.fs.MutableVfsFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.artifactory.aql.api.domain.sensitive.AqlApiItem.*;
+import static org.artifactory.aql.api.internal.AqlBase.and;
+
+/**
+ * Applies a single deployed or deleted file to the stored maven metadata of a folder, instead of recalculating it from
+ * all the children of the folder like the {@link MavenMetadataCalculator} does.
+ * <p/>
+ * Supports a pom added to or removed from a version folder (updates the versions metadata of the artifact folder) and
+ * a unique snapshot file added to a snapshot folder (updates the snapshot metadata of the snapshot folder). The stored
+ * metadata is trusted only if it passes the consistency checks, otherwise the caller should fall back to the full
+ * calculation. Must be called inside a transaction: the stored metadata is write locked before it is read.
+ */
+public class IncrementalMavenMetadataCalculator extends AbstractMetadataCalculator {
+    private static final Logger log = LoggerFactory.getLogger(IncrementalMavenMetadataCalculator.class);
+
+    private static final MavenVersionComparator versionComparator = new MavenVersionComparator();
+
+    enum Result {
+        UPDATED, UP_TO_DATE, INCONSISTENT
+    }
+
+    private final LocalRepo localRepo;
+    private final RepoPath baseFolder;
+    private final RepoPath changedItem;
+    private final boolean deleted;
+
+    IncrementalMavenMetadataCalculator(LocalRepo localRepo, RepoPath baseFolder, RepoPath changedItem,
+            boolean deleted) {
+        this.localRepo = localRepo;
+        this.baseFolder = baseFolder;
+        this.changedItem = changedItem;
+        this.deleted = deleted;
+    }
+
+    /**
+     * @return True if the stored metadata is up to date with the change, false if a full calculation is required
+     */
+    public boolean calculate() {
+        RepoPath metadataPath = new RepoPathImpl(baseFolder, MavenNaming.MAVEN_METADATA_NAME);
+        Metadata metadata = readMetadataForUpdate(metadataPath);
+        if (metadata == null) {
+            log.debug("No valid maven metadata to update incrementally in '{}'", baseFolder);
+            return false;
+        }
+        Result result;
+        if (MavenNaming.isSnapshot(baseFolder.getPath())) {
+            result = applySnapshotChange(metadata);
+        } else {
+            result = applyVersionChange(metadata);
+        }
+        log.debug("Incremental maven metadata calculation of '{}' with '{}' (deleted={}): {}", baseFolder,
+                changedItem, deleted, result);
+        if (result == Result.UPDATED) {
+            metadata.getVersioning().setLastUpdatedTimestamp(new Date());
+            saveMetadata(baseFolder, metadata);
+            return !status.isError();
+        }
+        return result == Result.UP_TO_DATE;
+    }
+
+    private Metadata readMetadataForUpdate(RepoPath metadataPath) {
+        // the write lock is held until the end of the transaction and serializes concurrent updates of the metadata
+        MutableVfsFile metadataFile = localRepo.getMutableFile(metadataPath);
+        if (metadataFile == null) {
+            return null;
+        }
+        InputStream stream = metadataFile.getStream();
+        try {
+            return MavenModelUtils.toMavenMetadata(stream);
+        } catch (IOException e) {
+            log.debug("Failed to read maven metadata '{}': {}", metadataPath, e.getMessage());
+            return null;
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    private Result applyVersionChange(Metadata metadata) {
+        RepoPath versionFolder = changedItem.getParent();
+        if (versionFolder == null || !baseFolder.equals(versionFolder.getParent())
+                || !MavenNaming.isPom(changedItem.getPath())) {
+            return Result.INCONSISTENT;
+        }
+        if (StringUtils.isNotBlank(ConstantValues.mvnMetadataVersionsComparator.getString()) &&
+                !VersionNameMavenMetadataVersionComparator.class.getName().equals(
+                        ConstantValues.mvnMetadataVersionsComparator.getString())) {
+            // custom comparators may order by attributes that are not kept in the metadata (e.g. creation date)
+            return Result.INCONSISTENT;
+        }
+        MavenArtifactInfo artifactInfo = MavenArtifactInfo.fromRepoPath(changedItem);
+        if (!artifactInfo.isValid() || !StringUtils.equals(artifactInfo.getGroupId(), metadata.getGroupId())
+                || !StringUtils.equals(artifactInfo.getArtifactId(), metadata.getArtifactId())) {
+            return Result.INCONSISTENT;
+        }
+        return applyVersion(metadata, versionFolder.getName(), versionFolderContainsPom(versionFolder));
+    }
+
+    private boolean versionFolderContainsPom(RepoPath versionFolder) {
+        AqlApiItem query = AqlApiItem.createWithEmptyResults().filter(
+                and(
+                        repo().equal(versionFolder.getRepoKey()),
+                        path().equal(versionFolder.getPath()),
+                        name().matches("*.pom")
+                )
+        ).include(name()).limit(1);
+        AqlService aqlService = ContextHelper.get().beanForType(AqlService.class);
+        return aqlService.executeQueryEager(query).getSize() > 0;
+    }
+
+    private Result applySnapshotChange(Metadata metadata) {
+        if (deleted || !baseFolder.equals(changedItem.getParent())
+                || !MavenNaming.isUniqueSnapshot(changedItem.getPath())
+                || !SnapshotVersionBehavior.UNIQUE.equals(localRepo.getMavenSnapshotVersionBehavior())) {
+            return Result.INCONSISTENT;
+        }
+        ModuleInfo moduleInfo = MavenMetadataCalculator.uniqueSnapshotModuleInfo(changedItem.getPath());
+        if (!moduleInfo.isValid() || !moduleInfo.isIntegration()) {
+            return Result.INCONSISTENT;
+        }
+        return applySnapshot(metadata, changedItem.getName(), moduleInfo,
+                ConstantValues.mvnMetadataVersion3Enabled.getBoolean(),
+                MavenMetadataCalculator.createSnapshotComparator());
+    }
+
+    /**
+     * Adds or removes a version from the versions metadata of an artifact folder.
+     *
+     * @param version The changed version
+     * @param present True if the version folder still contains a pom
+     */
+    static Result applyVersion(Metadata metadata, String version, boolean present) {
+        Versioning versioning = metadata.getVersioning();
+        if (versioning == null || !isConsistent(metadata, versioning)) {
+            return Result.INCONSISTENT;
+        }
+        List<String> versions = Lists.newArrayList(versioning.getVersions());
+        int index = Collections.binarySearch(versions, version, versionComparator);
+        if (index >= 0 && !versions.get(index).equals(version)) {
+            // a different version name with the same order, let the full calculation decide
+            return Result.INCONSISTENT;
+        }
+        if (present == index >= 0) {
+            return Result.UP_TO_DATE;
+        }
+        if (present) {
+            versions.add(-index - 1, version);
+        } else {
+            versions.remove(index);
+            if (versions.isEmpty()) {
+                // the full calculation removes the metadata
+                return Result.INCONSISTENT;
+            }
+        }
+        String latest = versions.get(versions.size() - 1);
+        versioning.setVersions(versions);
+        versioning.setLatest(latest);
+        versioning.setRelease(findRelease(versions));
+        metadata.setVersion(latest);
+        return Result.UPDATED;
+    }
+
+    private static boolean isConsistent(Metadata metadata, Versioning versioning) {
+        List<String> versions = versioning.getVersions();
+        if (versions == null || versions.isEmpty()) {
+            return false;
+        }
+        for (int i = 1; i < versions.size(); i++) {
+            if (versionComparator.compare(versions.get(i - 1), versions.get(i)) >= 0) {
+                return false;
+            }
+        }
+        String latest = versions.get(versions.size() - 1);
+        return latest.equals(versioning.getLatest()) && latest.equals(metadata.getVersion())
+                && StringUtils.equals(findRelease(versions), StringUtils.defaultIfEmpty(versioning.getRelease(), null));
+    }
+
+    private static String findRelease(List<String> sortedVersions) {
+        for (int i = sortedVersions.size() - 1; i >= 0; i--) {
+            if (!MavenNaming.isSnapshot(sortedVersions.get(i))) {
+                return sortedVersions.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Applies a new unique snapshot file to the snapshot metadata of a snapshot folder.
+     *
+     * @param fileName   Name of the new unique snapshot file
+     * @param moduleInfo Module info of the new unique snapshot file
+     */
+    static Result applySnapshot(Metadata metadata, String fileName, ModuleInfo moduleInfo, boolean version3,
+            SnapshotComparator comparator) {
+        Versioning versioning = metadata.getVersioning();
+        if (versioning == null || versioning.getSnapshot() == null ||
+                StringUtils.isBlank(versioning.getSnapshot().getTimestamp())) {
+            // not a unique snapshot metadata
+            return Result.INCONSISTENT;
+        }
+        boolean updated = false;
+        if (MavenNaming.isPom(fileName)) {
+            Snapshot snapshot = new Snapshot();
+            snapshot.setBuildNumber(MavenNaming.getUniqueSnapshotVersionBuildNumber(fileName));
+            snapshot.setTimestamp(MavenNaming.getUniqueSnapshotVersionTimestamp(fileName));
+            if (comparator.compare(snapshot, versioning.getSnapshot()) > 0) {
+                versioning.setSnapshot(snapshot);
+                updated = true;
+            }
+        }
+        if (version3) {
+            List<SnapshotVersion> snapshotVersions = versioning.getSnapshotVersions();
+            if (snapshotVersions == null || snapshotVersions.isEmpty()) {
+                return Result.INCONSISTENT;
+            }
+            SnapshotVersion candidate = MavenMetadataCalculator.toSnapshotVersion(moduleInfo);
+            SnapshotVersion existing = null;
+            for (SnapshotVersion snapshotVersion : snapshotVersions) {
+                if (StringUtils.equals(StringUtils.defaultString(snapshotVersion.getExtension()),
+                        StringUtils.defaultString(candidate.getExtension())) &&
+                        StringUtils.equals(StringUtils.defaultString(snapshotVersion.getClassifier()),
+                                StringUtils.defaultString(candidate.getClassifier()))) {
+                    existing = snapshotVersion;
+                    break;
+                }
+            }
+            if (existing == null) {
+                versioning.addSnapshotVersion(candidate);
+                updated = true;
+            } else if (comparator.compare(candidate, existing) > 0) {
+                snapshotVersions.set(snapshotVersions.indexOf(existing), candidate);
+                updated = true;
+            }
+        }
+        return updated ? Result.UPDATED : Result.UP_TO_DATE;
+    }
+}
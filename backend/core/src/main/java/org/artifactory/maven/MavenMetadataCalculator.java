@@ -49,6 +49,7 @@ import org.artifactory.repo.RepoPath;
 import org.artifactory.storage.db.fs.entity.NodePath;
 import org.artifactory.storage.fs.tree.ItemNode;
 import org.artifactory.storage.fs.tree.ItemTree;
+import org.artifactory.storage.fs.tree.TreeBrowsingCriteriaBuilder;
 import org.artifactory.util.RepoLayoutUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -140,13 +141,18 @@ public class MavenMetadataCalculator extends AbstractMetadataCalculator {
         log.debug("Started {} maven metadata calculation on '{}'",
                 (recursive ? "recursive" : "non recursive"), baseFolder);
 
-        ItemTree itemTree = new ItemTree(baseFolder, item -> {
+        TreeBrowsingCriteriaBuilder criteria = new TreeBrowsingCriteriaBuilder().addFilter(item -> {
             if (item.isFolder()) {
                 return true;
             }
             String path = item.getRepoPath().getPath();
             return MavenNaming.isPom(path) || MavenNaming.isUniqueSnapshot(path);
         });
+        if (recursive) {
+            // the whole tree is visited, load it at once instead of a query per folder
+            criteria.bulkLoad();
+        }
+        ItemTree itemTree = new ItemTree(baseFolder, criteria.build());
         ItemNode rootNode = itemTree.getRootNode();
         if (rootNode != null) {
             calculateAndSet(rootNode);
@@ -263,14 +269,7 @@ public class MavenMetadataCalculator extends AbstractMetadataCalculator {
         for (ItemNode folderItem : folderItems) {
             String folderItemPath = folderItem.getItemInfo().getRelPath();
             if (MavenNaming.isUniqueSnapshot(folderItemPath)) {
-                ModuleInfo folderItemModuleInfo;
-                if (MavenNaming.isPom(folderItemPath)) {
-                    folderItemModuleInfo = ModuleInfoUtils.moduleInfoFromDescriptorPath(folderItemPath,
-                            RepoLayoutUtils.MAVEN_2_DEFAULT);
-                } else {
-                    folderItemModuleInfo = ModuleInfoUtils.moduleInfoFromArtifactPath(folderItemPath,
-                            RepoLayoutUtils.MAVEN_2_DEFAULT);
-                }
+                ModuleInfo folderItemModuleInfo = uniqueSnapshotModuleInfo(folderItemPath);
                 if (!folderItemModuleInfo.isValid() || !folderItemModuleInfo.isIntegration()) {
                     continue;
                 }
@@ -289,19 +288,34 @@ public class MavenMetadataCalculator extends AbstractMetadataCalculator {
         }
 
         for (ModuleInfo latestSnapshotVersion : latestSnapshotVersions.values()) {
-            SnapshotVersion snapshotVersion = new SnapshotVersion();
-            snapshotVersion.setClassifier(latestSnapshotVersion.getClassifier());
-            snapshotVersion.setExtension(latestSnapshotVersion.getExt());
-
-            String fileItegRev = latestSnapshotVersion.getFileIntegrationRevision();
-            snapshotVersion.setVersion(latestSnapshotVersion.getBaseRevision() + "-" + fileItegRev);
-            snapshotVersion.setUpdated(StringUtils.remove(StringUtils.substringBefore(fileItegRev, "-"), '.'));
-            snapshotVersionsToReturn.add(snapshotVersion);
+            snapshotVersionsToReturn.add(toSnapshotVersion(latestSnapshotVersion));
         }
 
         return snapshotVersionsToReturn;
     }
 
+    /**
+     * @param path Relative path of a unique snapshot file
+     * @return Module info of the file according to the default maven layout
+     */
+    static ModuleInfo uniqueSnapshotModuleInfo(String path) {
+        if (MavenNaming.isPom(path)) {
+            return ModuleInfoUtils.moduleInfoFromDescriptorPath(path, RepoLayoutUtils.MAVEN_2_DEFAULT);
+        }
+        return ModuleInfoUtils.moduleInfoFromArtifactPath(path, RepoLayoutUtils.MAVEN_2_DEFAULT);
+    }
+
+    static SnapshotVersion toSnapshotVersion(ModuleInfo moduleInfo) {
+        SnapshotVersion snapshotVersion = new SnapshotVersion();
+        snapshotVersion.setClassifier(moduleInfo.getClassifier());
+        snapshotVersion.setExtension(moduleInfo.getExt());
+
+        String fileItegRev = moduleInfo.getFileIntegrationRevision();
+        snapshotVersion.setVersion(moduleInfo.getBaseRevision() + "-" + fileItegRev);
+        snapshotVersion.setUpdated(StringUtils.remove(StringUtils.substringBefore(fileItegRev, "-"), '.'));
+        return snapshotVersion;
+    }
+
     private void createVersionsMetadata(RepoPath repoPath, List<MavenMetaDataInfo> mavenPathInfos) {
 
         // get artifact info from the first pom
@@ -23,6 +23,7 @@ package org.artifactory.maven;
 import org.artifactory.api.maven.MavenMetadataPluginWorkItem;
 import org.artifactory.api.maven.MavenMetadataService;
 import org.artifactory.api.maven.MavenMetadataWorkItem;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.descriptor.repo.RepoLayout;
 import org.artifactory.descriptor.repo.RepoType;
 import org.artifactory.repo.InternalRepoPathFactory;
@@ -78,11 +79,36 @@ public class MavenMetadataServiceImpl implements MavenMetadataService {
             return;
         }
 
-        new MavenMetadataCalculator(baseFolderPath, workItem.isRecursive()).calculate();
+        if (!calculateIncrementally(workItem)) {
+            new MavenMetadataCalculator(baseFolderPath, workItem.isRecursive()).calculate();
+        }
         // Calculate maven plugins metadata asynchronously
         getTransactionalMe().calculateMavenPluginsMetadataAsync(new MavenMetadataPluginWorkItem(localRepo.getKey()));
     }
 
+    private boolean calculateIncrementally(MavenMetadataWorkItem workItem) {
+        return workItem.isIncremental() && ConstantValues.mvnMetadataCalculationIncremental.getBoolean() &&
+                getTransactionalMe().updateMavenMetadataIncrementally(workItem);
+    }
+
+    @Override
+    public boolean updateMavenMetadataIncrementally(MavenMetadataWorkItem workItem) {
+        LocalRepo localRepo = repoService.localRepositoryByKey(workItem.getRepoPath().getRepoKey());
+        if (localRepo == null || workItem.getChangedItem() == null) {
+            return false;
+        }
+        try {
+            return new IncrementalMavenMetadataCalculator(localRepo, workItem.getRepoPath(),
+                    workItem.getChangedItem(), workItem.isDeleted()).calculate();
+        } catch (Exception e) {
+            // don't fail the (possibly outer) transaction, the full calculation will fix the metadata
+            log.warn("Incremental maven metadata calculation on '{}' failed, falling back to full calculation: {}",
+                    workItem.getRepoPath(), e.getMessage());
+            log.debug("Incremental maven metadata calculation failed", e);
+            return false;
+        }
+    }
+
     // get all folders marked for maven metadata calculation and execute the metadata calculation
     @Override
     public void calculateMavenPluginsMetadataAsync(MavenMetadataPluginWorkItem workItem) {
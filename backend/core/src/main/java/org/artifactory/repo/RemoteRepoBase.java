@@ -20,7 +20,6 @@
 
 package org.artifactory.repo;
 
-import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.common.io.Closeables;
 import org.apache.commons.io.IOUtils;
@@ -48,6 +47,7 @@ import org.artifactory.api.request.InternalArtifactoryRequest;
 import org.artifactory.checksum.ChecksumInfo;
 import org.artifactory.checksum.ChecksumType;
 import org.artifactory.checksum.ChecksumsInfo;
+import org.artifactory.common.ArtifactoryHome;
 import org.artifactory.common.ConstantValues;
 import org.artifactory.common.StatusHolder;
 import org.artifactory.descriptor.delegation.ContentSynchronisation;
@@ -64,10 +64,13 @@ import org.artifactory.io.checksum.policy.ChecksumPolicy;
 import org.artifactory.io.checksum.policy.ChecksumPolicyBase;
 import org.artifactory.md.Properties;
 import org.artifactory.mime.NamingUtils;
+import org.artifactory.repo.cache.RemotePathCache;
 import org.artifactory.repo.db.DbCacheRepo;
 import org.artifactory.repo.db.DbStoringRepoMixin;
 import org.artifactory.repo.local.ValidDeployPathContext;
 import org.artifactory.repo.remote.browse.RemoteItem;
+import org.artifactory.repo.remote.download.InFlightDownload;
+import org.artifactory.repo.remote.download.InFlightDownloads;
 import org.artifactory.repo.remote.interceptor.RemoteRepoInterceptor;
 import org.artifactory.repo.service.InternalRepositoryService;
 import org.artifactory.request.*;
@@ -107,6 +110,10 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
     private final static List<Integer> offlineStatusCodes = Lists.newArrayList(502, 503, 504, 505);
     private static final Logger log = LoggerFactory.getLogger(RemoteRepoBase.class);
     private static final Logger debLog = LoggerFactory.getLogger("DEBLOG");
+    /**
+     * Remote downloads currently being saved on this node, shared by all remote repositories (keyed by cache path)
+     */
+    private static final InFlightDownloads inFlightDownloads = new InFlightDownloads();
     private final ChecksumPolicy checksumPolicy;
     /**
      * Flags this repository as assumed offline. The repository enters this state when a download request fails with
@@ -123,13 +130,13 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
     /**
      * Cache of resources not found on the remote machine. Keyed by resource path.
      */
-    private Map<String, RepoResource> missedRetrievalsCache;
+    private RemotePathCache<RepoResource> missedRetrievalsCache;
 
     /**
      * Cache of remote directories listing.
      */
 
-    private Map<String, List<RemoteItem>> remoteResourceCache;
+    private RemotePathCache<List<RemoteItem>> remoteResourceCache;
     private boolean globalOfflineMode;
     // List of interceptors for various download resolution points
     private Collection<RemoteRepoInterceptor> interceptors;
@@ -177,20 +184,22 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
     }
 
     protected void initCaches() {
-        missedRetrievalsCache = initCache(500, getDescriptor().getMissedRetrievalCachePeriodSecs(), false);
-        remoteResourceCache = initCache(1000, getDescriptor().getRetrievalCachePeriodSecs(), true);
+        missedRetrievalsCache = new RemotePathCache<>(getDescriptor().getMissedRetrievalCachePeriodSecs(), false);
+        remoteResourceCache = new RemotePathCache<>(getDescriptor().getRetrievalCachePeriodSecs(), true);
     }
 
-    private <V> Map<String, V> initCache(int initialCapacity, long expirationSeconds, boolean softValues) {
-        CacheBuilder cacheBuilder = CacheBuilder.newBuilder().initialCapacity(initialCapacity);
-        if (expirationSeconds >= 0) {
-            cacheBuilder.expireAfterWrite(expirationSeconds, TimeUnit.SECONDS);
-        }
-        if (softValues) {
-            cacheBuilder.softValues();
-        }
-        //noinspection unchecked
-        return cacheBuilder.build().asMap();
+    /**
+     * @return Cache of resources not found on the remote machine
+     */
+    public RemotePathCache<RepoResource> getMissedRetrievalsCache() {
+        return missedRetrievalsCache;
+    }
+
+    /**
+     * @return Cache of remote directories listing
+     */
+    public RemotePathCache<List<RemoteItem>> getRemoteResourceCache() {
+        return remoteResourceCache;
     }
 
     private void logCacheInfo() {
@@ -555,6 +564,12 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
             // Only 1 remote downloader is allowed
             String pathToLock = cachedResource.getRepoPath().toPath();
 
+            // If the resource is already being downloaded on this node, stream it as it arrives instead of waiting
+            ResourceStreamHandle inFlightHandle = followInFlightDownload(pathToLock);
+            if (inFlightHandle != null) {
+                return inFlightHandle;
+            }
+
             boolean lockAcquired = false;
             try {
                 try {
@@ -591,7 +606,7 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
                     return null;
                 }
                 RepoRequests.logToContext("Found no cached resource - starting download");
-                cachedResource = doDownloadAndSave(requestContext, remoteResource);
+                cachedResource = doDownloadAndSave(requestContext, remoteResource, pathToLock);
                 if (foundExpiredResourceAndNewerRemote) {
                     debLog.debug("IP '{}' refreshed expired file '{}'", HttpUtils.getRemoteClientAddress(), pathToLock);
                 }
@@ -616,6 +631,34 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
         return localCacheRepo.getResourceStreamHandle(requestContext, cachedResource);
     }
 
+    @Nullable
+    private ResourceStreamHandle followInFlightDownload(String pathToLock) {
+        if (!ConstantValues.repoConcurrentDownloadTeeEnabled.getBoolean()) {
+            return null;
+        }
+        try {
+            long idleTimeoutMillis = TimeUnit.SECONDS.toMillis(
+                    ConstantValues.repoConcurrentDownloadSyncTimeoutSecs.getLong());
+            ResourceStreamHandle handle = inFlightDownloads.follow(pathToLock, idleTimeoutMillis);
+            if (handle != null) {
+                RepoRequests.logToContext("Found in-flight concurrent download - streaming it while it is saved");
+            }
+            return handle;
+        } catch (IOException e) {
+            log.debug("Could not follow in-flight download of '{}': {}", pathToLock, e.getMessage());
+            RepoRequests.logToContext("Could not follow in-flight download: %s", e.getMessage());
+            return null;
+        }
+    }
+
+    @Nullable
+    private InFlightDownload beginInFlightDownload(String pathToLock, RepoResource remoteResource) {
+        if (!ConstantValues.repoConcurrentDownloadTeeEnabled.getBoolean()) {
+            return null;
+        }
+        return inFlightDownloads.begin(pathToLock, remoteResource.getSize(), ArtifactoryHome.get().getTempWorkDir());
+    }
+
     private ConflictsGuard getRemoteDownloaderLockingMap() {
         HaAddon haAddon = ContextHelper.get().beanForType(AddonsManager.class).addonByType(HaAddon.class);
         return haAddon.getConflictsGuard(REMOTE_DOWNLOADERS);
@@ -678,11 +721,13 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
     }
 
     // this is the actual download of the resource
-    private RepoResource doDownloadAndSave(InternalRequestContext requestContext, RepoResource remoteResource)
-            throws RepoRejectException, IOException {
+    private RepoResource doDownloadAndSave(InternalRequestContext requestContext, RepoResource remoteResource,
+            String pathToLock) throws RepoRejectException, IOException {
         RepoRequests.logToContext("Downloading and saving");
         RepoPath remoteRepoPath = remoteResource.getRepoPath();
         ResourceStreamHandle handle = null;
+        InFlightDownload inFlightDownload = null;
+        Throwable inFlightFailure = new IOException("Download of '" + remoteRepoPath + "' was aborted");
         try {
             beforeResourceDownload(remoteResource, requestContext.getProperties(), requestContext.getRequest());
 
@@ -744,9 +789,17 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
                 properties.put(DbStoringRepoMixin.ETAG_PROP_KEY, etag);
             }
 
+            // Let concurrent requests for the same resource stream the bytes while they are being saved
+            ResourceStreamHandle saveHandle = handle;
+            inFlightDownload = beginInFlightDownload(pathToLock, remoteResource);
+            if (inFlightDownload != null) {
+                saveHandle = new SimpleResourceStreamHandle(inFlightDownload.tee(handle.getInputStream()),
+                        handle.getSize());
+            }
+
             //Create/override the resource in the storage cache
             RepoRequests.logToContext("Saving resource to " + localCacheRepo);
-            SaveResourceContext saveResourceContext = new SaveResourceContext.Builder(remoteResource, handle)
+            SaveResourceContext saveResourceContext = new SaveResourceContext.Builder(remoteResource, saveHandle)
                     .properties(properties).build();
             RepoResource cachedResource = getRepositoryService().saveResource(localCacheRepo, saveResourceContext);
             if (remoteRequestStartTime > 0) {
@@ -764,8 +817,10 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
             }
 
             unexpire(cachedResource);
+            inFlightFailure = null;
             return cachedResource;
         } catch (Exception e) {
+            inFlightFailure = e;
             // set exception here before the remote stream is closed to signal an error
             Throwable ioCause = ExceptionUtils.getCauseOfTypes(e, IOException.class);
             if (ioCause != null) {
@@ -783,6 +838,9 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
             setExceptionOnHandle(handle, e);
             throw e;
         } finally {
+            if (inFlightDownload != null) {
+                inFlightDownloads.end(inFlightDownload, inFlightFailure);
+            }
             Closeables.close(handle, false);
         }
     }
@@ -1285,35 +1343,26 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
         return null;
     }
 
-    private void clearCaches(Map<String, ?>... caches) {
-        for (Map<String, ?> cache : caches) {
+    private void clearCaches(RemotePathCache<?>... caches) {
+        for (RemotePathCache<?> cache : caches) {
             if (cache != null) {
                 cache.clear();
             }
         }
     }
 
-    private void removeFromCaches(String path, boolean removeSubPaths, Map<String, ?>... caches) {
-        for (Map<String, ?> cache : caches) {
+    private void removeFromCaches(String path, boolean removeSubPaths, RemotePathCache<?>... caches) {
+        for (RemotePathCache<?> cache : caches) {
             if (cache != null && !cache.isEmpty()) {
-                cache.remove(path);
                 if (removeSubPaths) {
-                    removeSubPathsFromCache(path, cache);
+                    cache.removeSubPaths(path);
+                } else {
+                    cache.remove(path);
                 }
             }
         }
     }
 
-    private void removeSubPathsFromCache(String basePath, Map<String, ?> cache) {
-        Iterator<String> cachedPaths = cache.keySet().iterator();
-        while (cachedPaths.hasNext()) {
-            String key = cachedPaths.next();
-            if (key.startsWith(basePath)) {
-                cachedPaths.remove();
-            }
-        }
-    }
-
     /**
      * Constructs a matrix params string from the given properties ready to attach to an HTTP request
      *
@@ -0,0 +1,241 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.repo.cache;
+
+import javax.annotation.Nullable;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A concurrent cache keyed by repository relative paths, kept sorted so that all the entries under a path prefix can
+ * be removed in O(log n + k) instead of scanning every key.
+ * <p/>
+ * Supports the subset of Guava cache features used by the remote repositories: expire-after-write and (optionally)
+ * soft values. Expired and garbage collected entries are purged lazily on reads and writes and are counted as
+ * evictions, alongside the hit and miss counters.
+ *
+ * @param <V> The cached value type
+ */
+public class RemotePathCache<V> {
+
+    private final ConcurrentSkipListMap<String, Entry<V>> entries = new ConcurrentSkipListMap<>();
+    /**
+     * Entries by write sequence. Since all entries share the same time to live this is also their expiration order.
+     * Removed and replaced entries are dropped from here as well, so it never holds more than the live entries.
+     */
+    private final ConcurrentSkipListMap<Long, Entry<V>> writeOrder = new ConcurrentSkipListMap<>();
+    private final AtomicLong writeSequence = new AtomicLong();
+    private final ReferenceQueue<V> collectedValues = new ReferenceQueue<>();
+    private final long expireAfterWriteNanos;
+    private final boolean softValues;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * @param expirationSeconds Time to live of every entry after it was written, negative value means no expiration
+     * @param softValues        True to hold the values with soft references
+     */
+    public RemotePathCache(long expirationSeconds, boolean softValues) {
+        this.expireAfterWriteNanos = expirationSeconds < 0 ? -1 : TimeUnit.SECONDS.toNanos(expirationSeconds);
+        this.softValues = softValues;
+    }
+
+    /**
+     * @return The cached value of the path or null if not cached or expired. Counted as a hit or a miss.
+     */
+    @Nullable
+    public V get(String path) {
+        V value = getIfPresent(path);
+        if (value == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * @return True if the path has a live value in the cache. Does not affect the hit and miss counters.
+     */
+    public boolean containsKey(String path) {
+        return getIfPresent(path) != null;
+    }
+
+    private V getIfPresent(String path) {
+        Entry<V> entry = entries.get(path);
+        if (entry == null) {
+            return null;
+        }
+        V value = entry.getValue();
+        if (value == null || isExpired(entry, System.nanoTime())) {
+            evict(entry);
+            return null;
+        }
+        return value;
+    }
+
+    public void put(String path, V value) {
+        purge();
+        Entry<V> entry = new Entry<>(path, value, writeSequence.incrementAndGet(), System.nanoTime(),
+                softValues ? collectedValues : null);
+        if (expireAfterWriteNanos >= 0) {
+            writeOrder.put(entry.sequence, entry);
+        }
+        Entry<V> replaced = entries.put(path, entry);
+        if (replaced != null) {
+            writeOrder.remove(replaced.sequence);
+        }
+    }
+
+    public void remove(String path) {
+        Entry<V> removed = entries.remove(path);
+        if (removed != null) {
+            writeOrder.remove(removed.sequence);
+        }
+    }
+
+    /**
+     * Removes all the entries which paths start with the given base path (including the base path itself).
+     */
+    public void removeSubPaths(String basePath) {
+        Iterator<String> paths = entries.tailMap(basePath, true).keySet().iterator();
+        while (paths.hasNext()) {
+            String path = paths.next();
+            if (!path.startsWith(basePath)) {
+                break;
+            }
+            Entry<V> removed = entries.remove(path);
+            if (removed != null) {
+                writeOrder.remove(removed.sequence);
+            }
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        writeOrder.clear();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * @return Number of entries in the cache, including expired entries that were not purged yet
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return Number of entries tracked for expiration, exposed for tests
+     */
+    int writeOrderSize() {
+        return writeOrder.size();
+    }
+
+    /**
+     * Removes the expired entries from the head of the write order and the entries which values were collected.
+     */
+    private void purge() {
+        long now = System.nanoTime();
+        Map.Entry<Long, Entry<V>> oldest;
+        while ((oldest = writeOrder.firstEntry()) != null && isExpired(oldest.getValue(), now)) {
+            evict(oldest.getValue());
+        }
+        SoftValue<V> collected;
+        //noinspection unchecked
+        while ((collected = (SoftValue<V>) collectedValues.poll()) != null) {
+            evict(collected.entry);
+        }
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return expireAfterWriteNanos >= 0 && now - entry.writeNanos >= expireAfterWriteNanos;
+    }
+
+    private void evict(Entry<V> entry) {
+        // Only remove the exact entry - the path might have been re-written meanwhile
+        if (entries.remove(entry.path, entry)) {
+            evictionCount.incrementAndGet();
+        }
+        writeOrder.remove(entry.sequence, entry);
+    }
+
+    @Override
+    public String toString() {
+        return "RemotePathCache{size=" + entries.size() + ", hits=" + hitCount + ", misses=" + missCount +
+                ", evictions=" + evictionCount + "}";
+    }
+
+    private static class Entry<V> {
+        private final String path;
+        private final long sequence;
+        private final long writeNanos;
+        private final V value;
+        private final SoftValue<V> softValue;
+
+        private Entry(String path, V value, long sequence, long writeNanos, @Nullable ReferenceQueue<V> queue) {
+            this.path = path;
+            this.sequence = sequence;
+            this.writeNanos = writeNanos;
+            if (queue == null) {
+                this.value = value;
+                this.softValue = null;
+            } else {
+                this.value = null;
+                this.softValue = new SoftValue<>(value, queue, this);
+            }
+        }
+
+        private V getValue() {
+            return softValue == null ? value : softValue.get();
+        }
+    }
+
+    private static class SoftValue<V> extends SoftReference<V> {
+        private final Entry<V> entry;
+
+        private SoftValue(V referent, ReferenceQueue<V> queue, Entry<V> entry) {
+            super(referent, queue);
+            this.entry = entry;
+        }
+    }
+}
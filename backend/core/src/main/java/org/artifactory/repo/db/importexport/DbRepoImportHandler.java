@@ -20,17 +20,23 @@
 
 package org.artifactory.repo.db.importexport;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.commons.lang.StringUtils;
 import org.artifactory.addon.AddonsManager;
 import org.artifactory.addon.yum.YumAddon;
+import org.artifactory.api.common.BasicStatusHolder;
 import org.artifactory.api.config.ImportSettingsImpl;
+import org.artifactory.api.context.ArtifactoryContext;
 import org.artifactory.api.context.ContextHelper;
 import org.artifactory.api.maven.MavenMetadataService;
 import org.artifactory.api.maven.MavenMetadataWorkItem;
 import org.artifactory.api.repo.exception.RepoRejectException;
 import org.artifactory.checksum.ChecksumType;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.common.MutableStatusHolder;
+import org.artifactory.concurrent.ArtifactoryRunnable;
 import org.artifactory.descriptor.repo.LocalRepoDescriptor;
 import org.artifactory.descriptor.repo.RepoType;
 import org.artifactory.fs.*;
@@ -54,7 +60,9 @@ import org.artifactory.schedule.TaskService;
 import org.artifactory.security.AccessLogger;
 import org.artifactory.spring.InternalContextHelper;
 import org.artifactory.storage.BinaryInsertRetryException;
+import org.artifactory.storage.binstore.service.BinaryInfo;
 import org.artifactory.storage.binstore.service.BinaryService;
+import org.artifactory.storage.binstore.service.InternalBinaryService;
 import org.artifactory.storage.fs.MutableVfsFile;
 import org.artifactory.storage.fs.MutableVfsFolder;
 import org.artifactory.storage.fs.MutableVfsItem;
@@ -70,11 +78,15 @@ import org.joda.time.DateTime;
 import org.joda.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.AbstractPlatformTransactionManager;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
 
+import javax.annotation.Nullable;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -83,6 +95,14 @@ import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static org.artifactory.repo.db.importexport.ImportExportAccumulator.ProgressAccumulatorType.IMPORT;
 
@@ -90,23 +110,30 @@ import static org.artifactory.repo.db.importexport.ImportExportAccumulator.Progr
  * Imports a single repository from the file system while managing transactions.
  * This handler is used in two phases: import and finalize. Import does the actual import, after which there might be
  * recoverable failures that can be retried. This breakdown allows the import to be externally synchronized.
+ * <p/>
+ * If more than one partition worker is configured ({@link ConstantValues#importPartitionWorkers}) the repository is
+ * partitioned by its top level folders, and the partitions are imported concurrently by the workers, each in its own
+ * transactions. In this mode the binaries of the files are hashed and stored by separate binary threads ahead of the
+ * creation of the nodes (see {@link ImportBinaryPrefetcher}).
  *
  * @author Yossi Shaul
  */
 public class DbRepoImportHandler extends DbRepoImportExportBase {
     private static final Logger log = LoggerFactory.getLogger(DbRepoImportHandler.class);
-    private static final int MAX_ITEMS_PER_TRANSACTION = 1000;
     private static final Duration MAX_TIME_PER_TRANSACTION = Duration.standardMinutes(3);
     private final LocalRepo<? extends LocalRepoDescriptor> repo;
     private final ImportSettings settings;
     private final String parentTaskToken;
     private final String extFilestoreDir;
+    private final int maxItemsPerTransaction;
+    private final int partitionWorkers;
+    private final int prefetchFiles;
     private ImportExportAccumulator progressAccumulator;
     private MutableStatusHolder status;
-    private TransactionStatus transactionStatus;
-    private Set<ImportItem> itemsToRetry = Sets.newHashSet();
-    private DateTime transactionStartTime;
+    private Set<ImportItem> itemsToRetry = Sets.newConcurrentHashSet();
     private File fileSystemBaseDir;
+    private ImportBinaryPrefetcher binaryPrefetcher;
+    private volatile boolean stopped;
 
     public DbRepoImportHandler(LocalRepo<? extends LocalRepoDescriptor> repo, ImportSettings settings,
                                String parentTaskToken) {
@@ -117,6 +144,9 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
         BinaryService binaryService = StorageContextHelper.get().beanForType(BinaryService.class);
         BinaryProvidersInfo<Map<String, String>> binaryProvidersInfo = binaryService.getBinaryProvidersInfo(false);
         extFilestoreDir = getFirstExternalFileStoreDirInternal(binaryProvidersInfo.rootTreeElement);
+        maxItemsPerTransaction = Math.max(ConstantValues.importMaxItemsPerTransaction.getInt(), 1);
+        partitionWorkers = ConstantValues.importPartitionWorkers.getInt();
+        prefetchFiles = ConstantValues.importPartitionPrefetchFiles.getInt();
     }
 
     /**
@@ -153,7 +183,11 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
             }
 
             progressAccumulator = new ImportExportAccumulator(repo.getKey(), IMPORT);
-            executeRecursiveImport(fileSystemBaseDir);
+            if (partitionWorkers > 1) {
+                executePartitionedImport(fileSystemBaseDir);
+            } else {
+                executeRecursiveImport(fileSystemBaseDir);
+            }
             if (hasRetries()) {
                 importFromRetryList();
             }
@@ -186,12 +220,112 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
 
     private void executeRecursiveImport(File fileSystemBaseDir) {
         RepoPath rootRepoPath = InternalRepoPathFactory.repoRootPath(repo.getKey());
-        startTransaction();
+        ImportTransaction transaction = new ImportTransaction();
+        startTransaction(transaction);
+        try {
+            importRecursive(fileSystemBaseDir, rootRepoPath, transaction);
+        } finally {
+            commitTransaction(transaction);
+        }
+    }
+
+    /**
+     * Imports the root folder and the files directly under it in the current thread, then imports each top level
+     * folder as a partition on the worker threads.
+     */
+    private void executePartitionedImport(File fileSystemBaseDir) {
+        RepoPath rootRepoPath = InternalRepoPathFactory.repoRootPath(repo.getKey());
+        String threadsPrefix = "art-import-" + repo.getKey() + "-";
+        ExecutorService workers = newImportExecutor(threadsPrefix, partitionWorkers);
+        ExecutorService binaryThreads =
+                prefetchFiles > 0 ? newImportExecutor(threadsPrefix + "binary-", partitionWorkers) : null;
+        ArtifactoryContext context = ContextHelper.get();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (binaryThreads != null && !settings.isExcludeContent()) {
+            binaryPrefetcher = new ImportBinaryPrefetcher(
+                    StorageContextHelper.get().beanForType(InternalBinaryService.class),
+                    task -> submit(binaryThreads, task, context, authentication), prefetchFiles);
+        }
+        try {
+            List<File> partitions = Lists.newArrayList();
+            ImportTransaction transaction = new ImportTransaction();
+            startTransaction(transaction);
+            try {
+                if (!importFolderMetaData(fileSystemBaseDir, rootRepoPath)) {
+                    return;
+                }
+                File[] filesToImport = fileSystemBaseDir.listFiles();
+                if (filesToImport == null) {
+                    return;
+                }
+                Set<String> fileNames = collectFileNamesForImport(filesToImport);
+                progressAccumulator.accumulateDiscoveredItems(fileNames.size());
+                List<File> rootFiles = Lists.newArrayList();
+                for (String fileName : fileNames) {
+                    File child = new File(fileSystemBaseDir, fileName);
+                    if (child.isDirectory() && isStorableFolder(fileName)) {
+                        partitions.add(child);
+                    } else {
+                        rootFiles.add(child);
+                    }
+                }
+                importChildren(rootFiles, rootRepoPath, transaction);
+            } finally {
+                // The partitions are imported in other transactions, the root folder must be committed first
+                commitTransaction(transaction);
+            }
+            log.info("{}: Importing {} partitions using {} workers", repo.getKey(), partitions.size(),
+                    partitionWorkers);
+            importPartitions(partitions, rootRepoPath, workers, context, authentication);
+        } finally {
+            workers.shutdown();
+            if (binaryThreads != null) {
+                binaryThreads.shutdown();
+            }
+        }
+    }
+
+    private void importPartitions(List<File> partitions, RepoPath rootRepoPath, ExecutorService workers,
+            ArtifactoryContext context, Authentication authentication) {
+        List<Future<Void>> futures = Lists.newArrayListWithCapacity(partitions.size());
+        for (File partition : partitions) {
+            RepoPath target = new RepoPathImpl(rootRepoPath, partition.getName());
+            futures.add(submit(workers, () -> importPartition(partition, target), context, authentication));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                Uninterruptibles.getUninterruptibly(futures.get(i));
+            } catch (ExecutionException e) {
+                status.error("Failed to import partition '" + partitions.get(i).getAbsolutePath() + "' of " +
+                        repo.getKey(), e.getCause(), log);
+            }
+        }
+    }
+
+    private Void importPartition(File partition, RepoPath target) {
+        log.debug("{}: Importing partition '{}'", repo.getKey(), target);
+        ImportTransaction transaction = new ImportTransaction();
+        startTransaction(transaction);
         try {
-            importRecursive(fileSystemBaseDir, rootRepoPath);
+            importRecursive(partition, target, transaction);
         } finally {
-            commitTransaction(transactionStatus);
+            commitTransaction(transaction);
         }
+        return null;
+    }
+
+    private ExecutorService newImportExecutor(String threadNamePrefix, int threads) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+        threadFactory.setDaemon(true);
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                threadFactory);
+    }
+
+    private static <T> Future<T> submit(ExecutorService executor, Callable<T> task, ArtifactoryContext context,
+            Authentication authentication) {
+        FutureTask<T> future = new FutureTask<>(task);
+        executor.execute(new ArtifactoryRunnable(future, context, authentication));
+        return future;
     }
 
     private void reportEndOfImport(File fileSystemBaseDir) {
@@ -226,25 +360,31 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
         log.info("{}: Retrying import of {} items", repo.getKey(), itemsToRetry.size());
         for (ImportItem toRetry : itemsToRetry) {
             itemsToRetry.remove(toRetry);
-            startTransaction();
+            ImportTransaction transaction = new ImportTransaction();
+            startTransaction(transaction);
             try {
                 importFile(toRetry.getSource(), toRetry.getDestination());
             } finally {
-                commitTransaction(transactionStatus);
+                commitTransaction(transaction);
             }
         }
     }
 
-    private void importRecursive(final File fileToImport, final RepoPath target) {
+    private void importRecursive(final File fileToImport, final RepoPath target, ImportTransaction transaction) {
+        if (stopped) {
+            return;
+        }
         if (shouldPauseOrBreak()) {
+            stopped = true;
             status.error("Import of " + repo.getKey() + " was stopped", log);
             return;
         }
 
-        if (shouldStartNewTransaction()) {
-            commitTransaction(transactionStatus);
-            startTransaction();
+        if (shouldStartNewTransaction(transaction)) {
+            commitTransaction(transaction);
+            startTransaction(transaction);
         }
+        transaction.items++;
 
         if (!fileToImport.exists()) {
             // skeleton import? looks for file metadata
@@ -266,10 +406,30 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
             File[] filesToImport = fileToImport.listFiles();
             if (filesToImport != null && filesToImport.length > 0) {
                 Set<String> fileNames = collectFileNamesForImport(filesToImport);
+                progressAccumulator.accumulateDiscoveredItems(fileNames.size());
+                List<File> children = Lists.newArrayListWithCapacity(fileNames.size());
                 for (String fileName : fileNames) {
-                    RepoPathImpl targetChild = new RepoPathImpl(target, fileName);
-                    importRecursive(new File(fileToImport, fileName), targetChild);
+                    children.add(new File(fileToImport, fileName));
+                }
+                importChildren(children, target, transaction);
+            }
+        }
+    }
+
+    private void importChildren(List<File> children, RepoPath parent, ImportTransaction transaction) {
+        try {
+            for (int i = 0; i < children.size() && !stopped; i++) {
+                if (binaryPrefetcher != null) {
+                    binaryPrefetcher.prefetch(children, i,
+                            file -> shouldPrefetch(file, new RepoPathImpl(parent, file.getName())));
                 }
+                File child = children.get(i);
+                importRecursive(child, new RepoPathImpl(parent, child.getName()), transaction);
+            }
+        } finally {
+            if (binaryPrefetcher != null) {
+                // release binaries that were prefetched but not used (skipped files, existing binaries etc.)
+                binaryPrefetcher.discard(children);
             }
         }
     }
@@ -287,10 +447,9 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
         }
     }
 
-    private boolean shouldStartNewTransaction() {
-        boolean reachedMaxFiles = progressAccumulator.getSuccessfulItemsCount() > 0 &&
-                progressAccumulator.getSuccessfulItemsCount() % MAX_ITEMS_PER_TRANSACTION == 0;
-        boolean transactionTimeMaxed = transactionStartTime.plus(MAX_TIME_PER_TRANSACTION).isBeforeNow();
+    private boolean shouldStartNewTransaction(ImportTransaction transaction) {
+        boolean reachedMaxFiles = transaction.items >= maxItemsPerTransaction;
+        boolean transactionTimeMaxed = transaction.startTime.plus(MAX_TIME_PER_TRANSACTION).isBeforeNow();
         return reachedMaxFiles || transactionTimeMaxed;
     }
 
@@ -321,14 +480,7 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
 
     private boolean isDeployPathValid(File fileToImport, RepoPath target) {
         try {
-            long length = -1L;
-            if (fileToImport.exists()) {
-                length = fileToImport.length();
-            }
-            InternalRepositoryService repositoryService = StorageContextHelper.get().beanForType(
-                    InternalRepositoryService.class);
-            repositoryService.assertValidDeployPath(
-                    new ValidDeployPathContext.Builder(repo, target).contentLength(length).build());
+            assertValidDeployPath(fileToImport, target);
         } catch (Exception e) {
             addErrorMessage(fileToImport, target, "Artifact rejected: " + e.getMessage());
             log.debug("Import of {} as {} rejected, reason: {}", fileToImport, target, e.getMessage(), e);
@@ -338,6 +490,64 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
         return true;
     }
 
+    private void assertValidDeployPath(File fileToImport, RepoPath target) throws Exception {
+        long length = -1L;
+        if (fileToImport.exists()) {
+            length = fileToImport.length();
+        }
+        InternalRepositoryService repositoryService = StorageContextHelper.get().beanForType(
+                InternalRepositoryService.class);
+        repositoryService.assertValidDeployPath(
+                new ValidDeployPathContext.Builder(repo, target).contentLength(length).build());
+    }
+
+    /**
+     * Called on the binary threads to decide if the binary of a file should be stored ahead of its node: only files
+     * that will be deployed and whose binary is not already in the binary store (by the sha1 of their metadata) are
+     * prefetched. Reports nothing, the import of the file reports as usual.
+     */
+    private boolean shouldPrefetch(File fileToImport, RepoPath target) {
+        try {
+            assertValidDeployPath(fileToImport, target);
+        } catch (Exception e) {
+            return false;
+        }
+        String metadataSha1 = getMetadataSha1(fileToImport, target);
+        return !ChecksumType.sha1.isValid(metadataSha1) ||
+                StorageContextHelper.get().beanForType(BinaryService.class)
+                        .findBinary(ChecksumType.sha1, metadataSha1) == null;
+    }
+
+    /**
+     * @return The sha1 of the file from its imported metadata, null if metadata is excluded or could not be read
+     */
+    @Nullable
+    private String getMetadataSha1(File sourceFile, RepoPath target) {
+        if (!settings.isIncludeMetadata()) {
+            return null;
+        }
+        File metadataFolder = getMetadataContainerFolder(sourceFile);
+        if (!metadataFolder.exists()) {
+            return null;
+        }
+        try {
+            List<MetadataEntryInfo> metadataEntries = findBestMatchMetadataReader(settings, metadataFolder)
+                    .getMetadataEntries(metadataFolder, new BasicStatusHolder());
+            if (metadataEntries != null) {
+                for (MetadataEntryInfo entry : metadataEntries) {
+                    if (FileInfo.ROOT.equals(entry.getMetadataName())) {
+                        MetadataDefinition definition =
+                                getMetadataDefinitionService().getMetadataDefinition(FileInfo.ROOT, true);
+                        return ((FileInfo) definition.getXmlProvider().fromXml(entry.getXmlContent())).getSha1();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Failed to read the metadata sha1 of '{}' for '{}'", sourceFile, target, e);
+        }
+        return null;
+    }
+
     private void deployImportedFile(File fileToImport, RepoPath target) {
         ArtifactoryStorageContext context = StorageContextHelper.get();
         MutableVfsFile mutableFile = null;
@@ -405,6 +615,10 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
             }
             binaryInfoExists = tryUsingExistingBinary(sourceFile, mutableFile, importedFileInfo);
         }
+        if (!binaryInfoExists) {
+            binaryInfoExists = tryUsingPrefetchedBinary(sourceFile, mutableFile, expectedSha1, expectedSha2,
+                    expectedMd5);
+        }
         if (!binaryInfoExists) {
             fillBinaryDataFromFile(sourceFile, mutableFile);
         }
@@ -477,6 +691,37 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
         return binaryInfoExists;
     }
 
+    /**
+     * Uses the binary prefetched for the source file. A prefetched binary that doesn't match the expected checksums
+     * is not used, the file is then stored inline and validated by the checksum policy of the repository.
+     */
+    private boolean tryUsingPrefetchedBinary(File sourceFile, MutableVfsFile mutableFile, String expectedSha1,
+            String expectedSha2, String expectedMd5) {
+        if (binaryPrefetcher == null) {
+            return false;
+        }
+        BinaryInfo binary = binaryPrefetcher.take(sourceFile);
+        if (binary == null) {
+            return false;
+        }
+        try {
+            if (!matchesExpected(expectedSha1, binary.getSha1()) || !matchesExpected(expectedSha2, binary.getSha2())
+                    || !matchesExpected(expectedMd5, binary.getMd5())) {
+                log.debug("Prefetched binary of '{}' doesn't match the expected checksums", sourceFile);
+                return false;
+            }
+            return mutableFile.tryUsingExistingBinary(binary.getSha1(), binary.getSha2(), binary.getMd5(),
+                    binary.getLength());
+        } finally {
+            // the file holds its own delete protection from now on
+            binaryPrefetcher.release(binary);
+        }
+    }
+
+    private boolean matchesExpected(String expected, String actual) {
+        return !PathUtils.hasText(expected) || expected.equals(actual);
+    }
+
     private void fillBinaryDataFromFile(File sourceFile, MutableVfsFile mutableFile) throws IOException {
         if (!sourceFile.exists()) {
             throw new FileNotFoundException(sourceFile.getAbsolutePath() + ": File doesn't exist and matching " +
@@ -657,25 +902,35 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
         return InternalContextHelper.get().getAuthorizationService().currentUsername();
     }
 
-    private void startTransaction() {
+    private void startTransaction(ImportTransaction transaction) {
         DefaultTransactionDefinition def = new DefaultTransactionDefinition();
         def.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
         AbstractPlatformTransactionManager txManager = getTransactionManager();
-        transactionStartTime = DateTime.now();
-        this.transactionStatus = txManager.getTransaction(def);
+        transaction.startTime = DateTime.now();
+        transaction.items = 0;
+        transaction.status = txManager.getTransaction(def);
     }
 
-    private void commitTransaction(TransactionStatus status) {
+    private void commitTransaction(ImportTransaction transaction) {
         log.debug("{}: Committing transaction artifacts count: {} after {} seconds", repo.getKey(),
                 progressAccumulator.getSuccessfulItemsCount(),
-                new Duration(transactionStartTime, DateTime.now()).getStandardSeconds());
-        getTransactionManager().commit(status);
+                new Duration(transaction.startTime, DateTime.now()).getStandardSeconds());
+        getTransactionManager().commit(transaction.status);
     }
 
     private AbstractPlatformTransactionManager getTransactionManager() {
         return (AbstractPlatformTransactionManager) ContextHelper.get().getBean("artifactoryTransactionManager");
     }
 
+    /**
+     * The current transaction of an importing thread
+     */
+    private static class ImportTransaction {
+        private TransactionStatus status;
+        private DateTime startTime;
+        private int items;
+    }
+
     /**
      * Represents an importable item of source (file) and destination (repo path)
      */
@@ -0,0 +1,144 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.repo.db.importexport;
+
+import org.artifactory.storage.binstore.service.BinaryInfo;
+import org.artifactory.storage.binstore.service.InternalBinaryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Hashes and stores the binaries of imported files ahead of the creation of their nodes.
+ * <p/>
+ * While a worker creates the node of a file, the binaries of the next files of the same folder are already being
+ * added to the binary store by the binary threads. Only the files accepted by the caller are stored, the check runs on
+ * the binary threads as well. A prefetched binary is protected from the garbage collector (with a no-delete lock)
+ * until the node that uses it takes its own lock, or until the prefetched binary is discarded.
+ */
+class ImportBinaryPrefetcher {
+    private static final Logger log = LoggerFactory.getLogger(ImportBinaryPrefetcher.class);
+
+    private final InternalBinaryService binaryService;
+    private final Function<Callable<BinaryInfo>, Future<BinaryInfo>> submitter;
+    private final int lookAhead;
+    private final Map<File, Future<BinaryInfo>> prefetched = new ConcurrentHashMap<>();
+
+    /**
+     * @param submitter Submits the binary tasks to the binary threads
+     * @param lookAhead Max number of files of a folder to prefetch ahead of the file being imported
+     */
+    ImportBinaryPrefetcher(InternalBinaryService binaryService,
+            Function<Callable<BinaryInfo>, Future<BinaryInfo>> submitter, int lookAhead) {
+        this.binaryService = binaryService;
+        this.submitter = submitter;
+        this.lookAhead = lookAhead;
+    }
+
+    /**
+     * Makes sure the binaries of the files following (and including) the given index are being prefetched
+     *
+     * @param files        The children of a folder in import order
+     * @param from         Index of the child about to be imported
+     * @param prefetchable Accepts the files which binaries should be stored ahead, called on the binary threads
+     */
+    void prefetch(List<File> files, int from, Predicate<File> prefetchable) {
+        int to = Math.min(files.size(), from + lookAhead);
+        for (int i = from; i < to; i++) {
+            File file = files.get(i);
+            if (!prefetched.containsKey(file) && file.isFile()) {
+                prefetched.put(file, submitter.apply(() -> prefetchable.test(file) ? store(file) : null));
+            }
+        }
+    }
+
+    private BinaryInfo store(File file) throws Exception {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            BinaryInfo binary = binaryService.addBinary(binaryService.createBinaryStream(in, null));
+            binaryService.incrementNoDeleteLock(binary.getSha1());
+            return binary;
+        }
+    }
+
+    /**
+     * Takes the prefetched binary of the given file. The caller must {@link #release(BinaryInfo)} it.
+     *
+     * @return The prefetched binary or null if the file wasn't prefetched, wasn't accepted or its prefetch failed (in
+     * which case it should be stored inline, reporting the failure as usual)
+     */
+    @Nullable
+    BinaryInfo take(File file) {
+        Future<BinaryInfo> future = prefetched.remove(file);
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // The binary task might still complete and hold its lock, make sure it is released
+            discardWhenDone(future);
+        } catch (ExecutionException e) {
+            log.debug("Failed to prefetch the binary of '{}'", file, e.getCause());
+        }
+        return null;
+    }
+
+    void release(BinaryInfo binary) {
+        binaryService.decrementNoDeleteLock(binary.getSha1());
+    }
+
+    /**
+     * Releases the binaries prefetched for the given files that were not taken
+     */
+    void discard(Collection<File> files) {
+        for (File file : files) {
+            BinaryInfo binary = take(file);
+            if (binary != null) {
+                release(binary);
+            }
+        }
+    }
+
+    private void discardWhenDone(Future<BinaryInfo> future) {
+        submitter.apply(() -> {
+            BinaryInfo binary = future.get();
+            if (binary != null) {
+                release(binary);
+            }
+            return binary;
+        });
+    }
+}
@@ -27,9 +27,13 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nonnull;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Progress notifier, logs out import export progress.
+ * The counters are thread safe, an import may accumulate the progress of several workers.
  *
  * @author Gidi Shabat
  */
@@ -41,16 +45,17 @@ public class ImportExportAccumulator {
         IMPORT, EXPORT
     }
 
-    private final NumberFormat numberFormat = new DecimalFormat("###.##");
+    private final ThreadLocal<NumberFormat> numberFormat = ThreadLocal.withInitial(() -> new DecimalFormat("###.##"));
     private final String repositoryKey;
     private final ProgressAccumulatorType type;
     private final long startTime;
-    private long endTime;
+    private volatile long endTime;
 
-    private int skippedFilesCount = 0;
-    private int skippedFoldersCount = 0;
-    private int successfulFilesCount = 0;
-    private int successfulFoldersCount = 0;
+    private final AtomicInteger skippedFilesCount = new AtomicInteger();
+    private final AtomicInteger skippedFoldersCount = new AtomicInteger();
+    private final AtomicInteger successfulFilesCount = new AtomicInteger();
+    private final AtomicInteger successfulFoldersCount = new AtomicInteger();
+    private final AtomicLong discoveredItemsCount = new AtomicLong();
 
     public ImportExportAccumulator(String repositoryKey, @Nonnull ProgressAccumulatorType type) {
         this.emitMessageValueEvery = ProgressAccumulatorType.EXPORT.equals(type) ? 3000 : 1000;
@@ -60,31 +65,42 @@ public class ImportExportAccumulator {
     }
 
     public void accumulateSuccessfulFile() {
-        successfulFilesCount++;
+        successfulFilesCount.incrementAndGet();
         printProgress();
     }
 
     public void accumulateSkippedFile() {
-        skippedFilesCount++;
+        skippedFilesCount.incrementAndGet();
         printProgress();
     }
 
 
     public void accumulateSuccessfulFolder() {
-        successfulFoldersCount++;
+        successfulFoldersCount.incrementAndGet();
         printProgress();
     }
 
     public void accumulateSkippedFolder() {
-        skippedFoldersCount++;
+        skippedFoldersCount.incrementAndGet();
         printProgress();
     }
 
+    /**
+     * Accumulates items found while walking the source tree, used to estimate the import progress
+     */
+    public void accumulateDiscoveredItems(int count) {
+        discoveredItemsCount.addAndGet(count);
+    }
+
     public void finished() {
         this.endTime = System.nanoTime();
     }
 
     private void printProgress() {
+        int successfulFilesCount = getSuccessfulFilesCount();
+        int successfulFoldersCount = getSuccessfulFoldersCount();
+        int skippedFilesCount = getSkippedFilesCount();
+        int skippedFoldersCount = getSkippedFoldersCount();
         int totalSuccessfulItemsCount = successfulFilesCount + successfulFoldersCount;
         int totalSkippedItemsCount = skippedFilesCount + skippedFoldersCount;
         if (totalSuccessfulItemsCount % emitMessageValueEvery == 0) {
@@ -96,9 +112,10 @@ public class ImportExportAccumulator {
                         skippedFilesCount, skippedFoldersCount);
             } else {
                 log.info("{} imported {} items ({} files {} folders {} ips) " +
-                        "{} skipped items ({} files {} folders)...", repositoryKey, totalSuccessfulItemsCount,
-                        successfulFilesCount, successfulFoldersCount, getItemsPerSecond(), totalSkippedItemsCount,
-                        skippedFilesCount, skippedFoldersCount);
+                        "{} skipped items ({} files {} folders) {} of discovered items, ETA {}...", repositoryKey,
+                        totalSuccessfulItemsCount, successfulFilesCount, successfulFoldersCount, getItemsPerSecond(),
+                        totalSkippedItemsCount, skippedFilesCount, skippedFoldersCount, getProgressPercent() + "%",
+                        getEstimatedRemainingTimeString());
             }
         }
     }
@@ -112,19 +129,56 @@ public class ImportExportAccumulator {
     }
 
     public int getSkippedFilesCount() {
-        return skippedFilesCount;
+        return skippedFilesCount.get();
     }
 
     public int getSkippedFoldersCount() {
-        return skippedFoldersCount;
+        return skippedFoldersCount.get();
     }
 
     public int getSuccessfulFilesCount() {
-        return successfulFilesCount;
+        return successfulFilesCount.get();
     }
 
     public int getSuccessfulFoldersCount() {
-        return successfulFoldersCount;
+        return successfulFoldersCount.get();
+    }
+
+    public long getDiscoveredItemsCount() {
+        return discoveredItemsCount.get();
+    }
+
+    /**
+     * @return The percentage of the discovered items that were already handled (imported or skipped). Since items are
+     * discovered while the source tree is walked this is an upper bound of the real progress.
+     */
+    public int getProgressPercent() {
+        long discovered = getDiscoveredItemsCount();
+        if (discovered <= 0) {
+            return endTime > 0 ? 100 : 0;
+        }
+        long handled = getSuccessfulItemsCount() + getSkippedItemsCount();
+        return (int) Math.min(100, handled * 100 / discovered);
+    }
+
+    /**
+     * @return Estimated time to handle the remaining discovered items at the current rate, -1 if unknown
+     */
+    public long getEstimatedRemainingNanos() {
+        long handled = getSuccessfulItemsCount() + getSkippedItemsCount();
+        if (handled <= 0) {
+            return -1;
+        }
+        long remaining = Math.max(0, getDiscoveredItemsCount() - handled);
+        return (long) (getDurationNanos() * ((double) remaining / handled));
+    }
+
+    public String getEstimatedRemainingTimeString() {
+        long remainingNanos = getEstimatedRemainingNanos();
+        if (remainingNanos < 0) {
+            return "unknown";
+        }
+        return TimeUnitFormat.getTimeString(Math.max(remainingNanos, TimeUnit.SECONDS.toNanos(1)));
     }
 
     public String getDurationString() {
@@ -137,8 +191,8 @@ public class ImportExportAccumulator {
     public String getItemsPerSecond() {
         long duration = getDurationNanos();
         double durationSecs = duration / 1_000_000_000.0;
-        double itemsPerSecond = (successfulFilesCount + successfulFoldersCount) / durationSecs;
-        return numberFormat.format(itemsPerSecond);
+        double itemsPerSecond = getSuccessfulItemsCount() / durationSecs;
+        return numberFormat.get().format(itemsPerSecond);
     }
 
     private long getDurationNanos() {
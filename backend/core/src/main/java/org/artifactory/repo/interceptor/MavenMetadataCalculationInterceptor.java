@@ -69,7 +69,8 @@ public class MavenMetadataCalculationInterceptor extends StorageInterceptorAdapt
                 // this is also done for any kind of file to support classifier snapshot version introduced in Maven 3
                 // we also instantly calculate if non-unique pom is deployed for simplicity
                 RepoPath parentFolder = fsItem.getRepoPath().getParent();
-                mmService.calculateMavenMetadata(new MavenMetadataWorkItem(parentFolder, false));
+                mmService.calculateMavenMetadata(
+                        new MavenMetadataWorkItem(parentFolder, fsItem.getRepoPath(), false));
             }
 
             if (isPomFile(fsItem)) {
@@ -77,7 +78,8 @@ public class MavenMetadataCalculationInterceptor extends StorageInterceptorAdapt
                 // potential new version and snapshot.
                 // this can be done asynchronously since it doesn't require instant update
                 RepoPath grandparentFolder = RepoPathUtils.getAncestor(fsItem.getRepoPath(), 2);
-                mmService.calculateMavenMetadataAsync(new MavenMetadataWorkItem(grandparentFolder, false));
+                mmService.calculateMavenMetadataAsync(
+                        new MavenMetadataWorkItem(grandparentFolder, fsItem.getRepoPath(), false));
             }
         }
     }
@@ -96,7 +98,8 @@ public class MavenMetadataCalculationInterceptor extends StorageInterceptorAdapt
                     RepoPath grandParent = parent.getParent();
                     // ISSUE RTFACT - 10257
                     if( ! ConstantValues.mvnMetadataCalculationSkipDeleteEvent.getBoolean()) {
-                        mmService.calculateMavenMetadataAsync(new MavenMetadataWorkItem(grandParent, false));
+                        mmService.calculateMavenMetadataAsync(
+                                new MavenMetadataWorkItem(grandParent, fsItem.getRepoPath(), true));
                     }
                 }
             }
@@ -0,0 +1,110 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.repo.mbean;
+
+import org.artifactory.api.context.ContextHelper;
+import org.artifactory.repo.RemoteRepo;
+import org.artifactory.repo.RemoteRepoBase;
+import org.artifactory.repo.cache.RemotePathCache;
+import org.artifactory.repo.service.InternalRepositoryService;
+
+/**
+ * An MBean to expose the remote repository retrieval caches statistics.
+ * <p/>
+ * The repository is looked up on every call since remote repositories are re-created on configuration changes.
+ */
+public class ManagedRemoteRepositoryCaches implements ManagedRemoteRepositoryCachesMBean {
+    private final String repoKey;
+    private final InternalRepositoryService repositoryService;
+
+    public ManagedRemoteRepositoryCaches(String repoKey) {
+        this.repoKey = repoKey;
+        repositoryService = ContextHelper.get().beanForType(InternalRepositoryService.class);
+    }
+
+    @Override
+    public String getRepositoryKey() {
+        return repoKey;
+    }
+
+    @Override
+    public long getMissedRetrievalsCacheSize() {
+        RemotePathCache<?> cache = missedRetrievalsCache();
+        return cache == null ? 0 : cache.size();
+    }
+
+    @Override
+    public long getMissedRetrievalsCacheHits() {
+        RemotePathCache<?> cache = missedRetrievalsCache();
+        return cache == null ? 0 : cache.getHitCount();
+    }
+
+    @Override
+    public long getMissedRetrievalsCacheMisses() {
+        RemotePathCache<?> cache = missedRetrievalsCache();
+        return cache == null ? 0 : cache.getMissCount();
+    }
+
+    @Override
+    public long getMissedRetrievalsCacheEvictions() {
+        RemotePathCache<?> cache = missedRetrievalsCache();
+        return cache == null ? 0 : cache.getEvictionCount();
+    }
+
+    @Override
+    public long getRemoteListingCacheSize() {
+        RemotePathCache<?> cache = remoteListingCache();
+        return cache == null ? 0 : cache.size();
+    }
+
+    @Override
+    public long getRemoteListingCacheHits() {
+        RemotePathCache<?> cache = remoteListingCache();
+        return cache == null ? 0 : cache.getHitCount();
+    }
+
+    @Override
+    public long getRemoteListingCacheMisses() {
+        RemotePathCache<?> cache = remoteListingCache();
+        return cache == null ? 0 : cache.getMissCount();
+    }
+
+    @Override
+    public long getRemoteListingCacheEvictions() {
+        RemotePathCache<?> cache = remoteListingCache();
+        return cache == null ? 0 : cache.getEvictionCount();
+    }
+
+    private RemotePathCache<?> missedRetrievalsCache() {
+        RemoteRepoBase repo = remoteRepo();
+        return repo == null ? null : repo.getMissedRetrievalsCache();
+    }
+
+    private RemotePathCache<?> remoteListingCache() {
+        RemoteRepoBase repo = remoteRepo();
+        return repo == null ? null : repo.getRemoteResourceCache();
+    }
+
+    private RemoteRepoBase remoteRepo() {
+        RemoteRepo remoteRepo = repositoryService.remoteRepositoryByKey(repoKey);
+        return remoteRepo instanceof RemoteRepoBase ? (RemoteRepoBase) remoteRepo : null;
+    }
+}
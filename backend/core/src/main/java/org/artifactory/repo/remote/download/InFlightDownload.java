@@ -0,0 +1,273 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.repo.remote.download;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single remote download that is currently being fetched and saved by one (leading) thread.
+ * <p/>
+ * The leader reads the remote stream through {@link #tee(InputStream)}, which copies every byte it reads into a spool
+ * file. Concurrent requests for the same path attach to the download with {@link #follow(long)} and stream the bytes
+ * already spooled, blocking only when they catch up with the leader.
+ * <p/>
+ * Followers never see the end of the stream before the leader reports the resource as successfully saved: if the
+ * leader fails (I/O error, checksum policy rejection etc.) the followers get an {@link IOException} instead of a
+ * truncated or unverified stream.
+ * <p/>
+ * The spool file is deleted once the leader and all followers have released it.
+ */
+public class InFlightDownload {
+    private static final Logger log = LoggerFactory.getLogger(InFlightDownload.class);
+
+    private final String key;
+    private final File spoolFile;
+    private final long size;
+    private final Object monitor = new Object();
+
+    // All the fields below are guarded by the monitor
+    private OutputStream spoolOut;
+    private long spooled;
+    private boolean done;
+    private Throwable failure;
+    private int references = 1;
+
+    InFlightDownload(String key, File spoolFile, long size) throws IOException {
+        this.key = key;
+        this.spoolFile = spoolFile;
+        this.size = size;
+        this.spoolOut = new FileOutputStream(spoolFile);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return The expected size of the downloaded resource or -1 if unknown
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return Number of bytes spooled so far
+     */
+    public long getSpooled() {
+        synchronized (monitor) {
+            return spooled;
+        }
+    }
+
+    /**
+     * Wraps the leader's remote stream so that everything read from it is also written to the spool file.
+     * Failing to write the spool never fails the leader - it only fails the followers.
+     *
+     * @param source The remote stream consumed by the leader
+     * @return A stream to be used by the leader instead of the original remote stream
+     */
+    public InputStream tee(InputStream source) {
+        return new FilterInputStream(source) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b != -1) {
+                    spool(new byte[]{(byte) b}, 0, 1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if (read > 0) {
+                    spool(b, off, read);
+                }
+                return read;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                // Skipped bytes must reach the followers as well
+                byte[] buffer = new byte[(int) Math.min(n, IOUtils.DEFAULT_BUFFER_SIZE)];
+                int read = read(buffer, 0, buffer.length);
+                return read < 0 ? 0 : read;
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        };
+    }
+
+    private void spool(byte[] b, int off, int len) {
+        synchronized (monitor) {
+            if (spoolOut == null) {
+                return;
+            }
+            try {
+                spoolOut.write(b, off, len);
+                spoolOut.flush();
+                spooled += len;
+            } catch (IOException e) {
+                log.warn("Failed to spool in-flight download of '{}': {}", key, e.getMessage());
+                log.debug("Failed to spool in-flight download of '" + key + "'", e);
+                failLocked(e);
+            }
+            monitor.notifyAll();
+        }
+    }
+
+    /**
+     * Signals that the leader has successfully saved the resource. Followers will receive the end of the stream once
+     * they consume all the spooled bytes.
+     */
+    public void complete() {
+        synchronized (monitor) {
+            if (!done) {
+                closeSpoolOut();
+                done = true;
+            }
+            monitor.notifyAll();
+        }
+    }
+
+    /**
+     * Signals that the leader has failed to download or save the resource. Followers will receive an
+     * {@link IOException} on their next read.
+     */
+    public void fail(Throwable cause) {
+        synchronized (monitor) {
+            failLocked(cause);
+        }
+    }
+
+    private void failLocked(Throwable cause) {
+        if (!done) {
+            closeSpoolOut();
+            failure = cause;
+            done = true;
+        }
+        monitor.notifyAll();
+    }
+
+    private void closeSpoolOut() {
+        IOUtils.closeQuietly(spoolOut);
+        spoolOut = null;
+    }
+
+    /**
+     * Attaches a follower to this download.
+     *
+     * @param idleTimeoutMillis Max time a follower waits for the leader to make progress before giving up
+     * @return A stream of the downloaded bytes or null if the download is already done and cannot be followed
+     */
+    public InputStream follow(long idleTimeoutMillis) throws IOException {
+        synchronized (monitor) {
+            if (done) {
+                return null;
+            }
+            references++;
+        }
+        try {
+            return new InFlightDownloadInputStream(this, spoolFile, idleTimeoutMillis);
+        } catch (IOException e) {
+            release();
+            throw e;
+        }
+    }
+
+    /**
+     * Blocks until there are bytes beyond the given position or until the download is done.
+     *
+     * @return Number of bytes available to read from the given position, 0 if the download completed and all bytes
+     * were consumed
+     * @throws IOException If the leader failed or did not make any progress within the idle timeout
+     */
+    long awaitAvailable(long position, long idleTimeoutMillis) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        synchronized (monitor) {
+            long lastSpooled = spooled;
+            while (true) {
+                if (failure != null) {
+                    throw new IOException("Concurrent download of '" + key + "' failed: " + failure.getMessage(),
+                            failure);
+                }
+                if (spooled > position) {
+                    return spooled - position;
+                }
+                if (done) {
+                    return 0;
+                }
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    throw new IOException("Timed-out waiting on concurrent download of '" + key + "'");
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(monitor, remainingNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting on concurrent download of '" + key + "'", e);
+                }
+                if (spooled != lastSpooled) {
+                    // The leader made progress - restart the idle timeout
+                    lastSpooled = spooled;
+                    deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases a reference held by the leader or a follower. The spool file is deleted with the last reference.
+     */
+    void release() {
+        boolean delete;
+        synchronized (monitor) {
+            references--;
+            delete = references == 0;
+            if (delete && !done) {
+                // Should not happen - the leader always completes or fails before releasing
+                failLocked(new IOException("Download released before completion"));
+            }
+        }
+        if (delete) {
+            FileUtils.deleteQuietly(spoolFile);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
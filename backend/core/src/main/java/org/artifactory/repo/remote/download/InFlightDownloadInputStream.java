@@ -0,0 +1,93 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.repo.remote.download;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * A follower's view of an {@link InFlightDownload}: reads the spool file from the beginning and blocks whenever it
+ * catches up with the bytes written so far by the leader.
+ */
+class InFlightDownloadInputStream extends InputStream {
+
+    private final InFlightDownload download;
+    private final RandomAccessFile spool;
+    private final long idleTimeoutMillis;
+    private long position;
+    private boolean closed;
+
+    InFlightDownloadInputStream(InFlightDownload download, File spoolFile, long idleTimeoutMillis)
+            throws IOException {
+        this.download = download;
+        this.spool = new RandomAccessFile(spoolFile, "r");
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int read = read(b, 0, 1);
+        return read == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        long available = download.awaitAvailable(position, idleTimeoutMillis);
+        if (available == 0) {
+            return -1;
+        }
+        spool.seek(position);
+        int read = spool.read(b, off, (int) Math.min(len, available));
+        if (read > 0) {
+            position += read;
+        }
+        return read;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (closed) {
+            return 0;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, download.getSpooled() - position));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            try {
+                spool.close();
+            } finally {
+                download.release();
+            }
+        }
+    }
+}
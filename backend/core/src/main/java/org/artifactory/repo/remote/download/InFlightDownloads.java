@@ -0,0 +1,116 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.repo.remote.download;
+
+import org.artifactory.io.SimpleResourceStreamHandle;
+import org.artifactory.resource.ResourceStreamHandle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the remote downloads currently in progress on this node, keyed by the cache repo path being populated.
+ * <p/>
+ * The thread that holds the remote downloaders lock for a path registers the download with {@link #begin}; requests
+ * for the same path that arrive while it is running can then {@link #follow} it and stream the spooled bytes instead
+ * of waiting on the lock for the whole download to finish.
+ */
+public class InFlightDownloads {
+    private static final Logger log = LoggerFactory.getLogger(InFlightDownloads.class);
+
+    private final ConcurrentMap<String, InFlightDownload> downloads = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a new in-flight download. Must be called by the thread holding the download lock of the key.
+     *
+     * @param key      The cache repo path being downloaded
+     * @param size     The expected size or -1 if unknown
+     * @param spoolDir The directory to create the spool file in
+     * @return The registered download, or null if the spool file could not be created (in which case concurrent
+     * requests will just wait for the download to complete)
+     */
+    @Nullable
+    public InFlightDownload begin(String key, long size, File spoolDir) {
+        try {
+            File spoolFile = File.createTempFile("inflight-download-", ".spool", spoolDir);
+            InFlightDownload download = new InFlightDownload(key, spoolFile, size);
+            InFlightDownload previous = downloads.put(key, download);
+            if (previous != null) {
+                // Left over by a leader that died without ending its download
+                log.debug("Replacing stale in-flight download of '{}'", key);
+                previous.fail(new IOException("Download was superseded"));
+            }
+            return download;
+        } catch (IOException e) {
+            log.warn("Could not create spool file for in-flight download of '{}': {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Attaches to an in-flight download of the given key, if there is one.
+     *
+     * @param key               The cache repo path
+     * @param idleTimeoutMillis Max time to wait for the leader to make progress before failing the follower
+     * @return A handle streaming the download as it progresses, or null if there is no download to follow
+     */
+    @Nullable
+    public ResourceStreamHandle follow(String key, long idleTimeoutMillis) throws IOException {
+        InFlightDownload download = downloads.get(key);
+        if (download == null) {
+            return null;
+        }
+        InputStream stream = download.follow(idleTimeoutMillis);
+        if (stream == null) {
+            return null;
+        }
+        return new SimpleResourceStreamHandle(stream, download.getSize());
+    }
+
+    /**
+     * Ends the download: marks it completed or failed, unregisters it and releases the leader's reference to the spool.
+     *
+     * @param download The download returned by {@link #begin}
+     * @param failure  The failure of the leader or null if the resource was successfully saved
+     */
+    public void end(InFlightDownload download, @Nullable Throwable failure) {
+        if (failure == null) {
+            download.complete();
+        } else {
+            download.fail(failure);
+        }
+        downloads.remove(download.getKey(), download);
+        download.release();
+    }
+
+    /**
+     * @return Number of downloads currently in progress
+     */
+    public int size() {
+        return downloads.size();
+    }
+}
@@ -76,6 +76,12 @@ public interface InternalRepositoryService extends RepositoryService, Reloadable
     @Nullable
     LocalRepo localOrCachedRepositoryByKey(String key);
 
+    /**
+     * @return Version of the repositories runtime state, changed whenever repositories are added, removed or
+     * reconfigured
+     */
+    long getRepositoriesVersion();
+
     /**
      * Get the holder object that holds the actual repository as well as the path.
      *
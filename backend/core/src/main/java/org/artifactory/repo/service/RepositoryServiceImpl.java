@@ -47,6 +47,7 @@ import org.artifactory.api.jackson.JacksonReader;
 import org.artifactory.api.maven.MavenMetadataService;
 import org.artifactory.api.maven.MavenMetadataWorkItem;
 import org.artifactory.api.module.ModuleInfo;
+import org.artifactory.api.module.ModuleInfoUtils;
 import org.artifactory.api.module.VersionUnit;
 import org.artifactory.api.repo.ArchiveFileContent;
 import org.artifactory.api.repo.Async;
@@ -96,6 +97,7 @@ import org.artifactory.repo.db.importexport.DbRepoExportSearchHandler;
 import org.artifactory.repo.interceptor.StorageInterceptors;
 import org.artifactory.repo.local.PathDeletionContext;
 import org.artifactory.repo.local.ValidDeployPathContext;
+import org.artifactory.repo.mbean.ManagedRemoteRepositoryCaches;
 import org.artifactory.repo.mbean.ManagedRepository;
 import org.artifactory.repo.service.flexible.context.MoveCopyContext;
 import org.artifactory.repo.service.flexible.interfaces.FlatMoveCopyService;
@@ -190,6 +192,7 @@ public class RepositoryServiceImpl implements InternalRepositoryService {
     private static final Logger log = LoggerFactory.getLogger(RepositoryServiceImpl.class);
 
     private static final String REPOSITORIES_MBEAN_TYPE = "Repositories";
+    private static final String REMOTE_REPOSITORIES_CACHES_MBEAN_TYPE = "Remote Repositories Caches";
 
     @Autowired
     private AclService aclService;
@@ -292,6 +295,7 @@ public class RepositoryServiceImpl implements InternalRepositoryService {
     @Override
     public void reload(CentralConfigDescriptor oldDescriptor) {
         HttpUtils.resetArtifactoryUserAgent();
+        ModuleInfoUtils.clearLayoutParsersCache();
         deleteOrphanRepos(oldDescriptor);
         cleanAndPromote();
         checkAndCleanChangedVirtualPomCleanupPolicy(oldDescriptor);
@@ -1429,6 +1433,11 @@ public class RepositoryServiceImpl implements InternalRepositoryService {
         return zappedItems;
     }
 
+    @Override
+    public long getRepositoriesVersion() {
+        return cache.get().getVersion();
+    }
+
     @Override
     public Set<String> getAllRepoKeys() {
         return cache.get().allRepoKeysCache;
@@ -2400,6 +2409,11 @@ public class RepositoryServiceImpl implements InternalRepositoryService {
             registrationService.register(new ManagedRepository(descriptor), REPOSITORIES_MBEAN_TYPE,
                     descriptor.getKey());
         }
+        registrationService.unregisterAll(REMOTE_REPOSITORIES_CACHES_MBEAN_TYPE);
+        for (RemoteRepoDescriptor descriptor : getRemoteRepoDescriptors()) {
+            registrationService.register(new ManagedRemoteRepositoryCaches(descriptor.getKey()),
+                    REMOTE_REPOSITORIES_CACHES_MBEAN_TYPE, descriptor.getKey());
+        }
     }
 
     private void startSha2CalculationJob() {
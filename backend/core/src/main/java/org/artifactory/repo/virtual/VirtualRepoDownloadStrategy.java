@@ -32,6 +32,8 @@ import org.artifactory.api.module.ModuleInfo;
 import org.artifactory.api.repo.exception.FileExpectedException;
 import org.artifactory.api.repo.exception.RepoRejectException;
 import org.artifactory.api.request.TranslatedArtifactoryRequest;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.concurrent.ArtifactoryRunnable;
 import org.artifactory.descriptor.repo.LocalRepoDescriptor;
 import org.artifactory.descriptor.repo.RemoteRepoDescriptor;
 import org.artifactory.descriptor.repo.RepoLayout;
@@ -47,9 +49,22 @@ import org.artifactory.resource.UnfoundRepoResource;
 import org.jfrog.storage.binstore.exceptions.BinaryRejectedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Default download strategy of a virtual repository.
@@ -65,9 +80,16 @@ public class VirtualRepoDownloadStrategy {
 
     private final VirtualRepo virtualRepo;
     private LayoutsCoreAddon layoutsCoreAddon;
+    // Null to use the executor shared by all the virtual repositories
+    private final Executor lookupExecutor;
 
     public VirtualRepoDownloadStrategy(VirtualRepo virtualRepo) {
+        this(virtualRepo, null);
+    }
+
+    VirtualRepoDownloadStrategy(VirtualRepo virtualRepo, Executor lookupExecutor) {
         this.virtualRepo = virtualRepo;
+        this.lookupExecutor = lookupExecutor;
         ArtifactoryContext artifactoryContext = ContextHelper.get();
         centralConfig = artifactoryContext.getCentralConfig();
         repositoryService = artifactoryContext.beanForType(InternalRepositoryService.class);
@@ -249,42 +271,35 @@ public class VirtualRepoDownloadStrategy {
      * @param validModuleInfo Whether the module info is valid, if not we will pass the request to the aggregated
      *                        repos even if they do not handle releases
      */
-    private RepoResource processStandard(InternalRequestContext context, RepoPath repoPath, List<RealRepo> repositories,
+    RepoResource processStandard(InternalRequestContext context, RepoPath repoPath, List<RealRepo> repositories,
             boolean validModuleInfo) throws IOException {
+        // Since we are in process standard, repositories that does not process releases should be skipped.
+        // Now, checksums are always considered standard, even if executed against a snapshot repository.
+        // So, we should not skip snapshots repositories for checksums.
+        List<RealRepo> candidates = Lists.newArrayList();
+        for (RealRepo repo : repositories) {
+            if (validModuleInfo && !repo.isHandleReleases() && !NamingUtils.isChecksum(repoPath.getPath())) {
+                RepoRequests.logToContext("Skipping %s - doesn't handle releases", repo.getKey());
+            } else {
+                candidates.add(repo);
+            }
+        }
+        if (ConstantValues.virtualParallelLookupEnabled.getBoolean() && candidates.size() > 1 &&
+                candidates.stream().anyMatch(repo -> !repo.isLocal())) {
+            return processStandardInParallel(context, repoPath, candidates);
+        }
+
         // save forbidden unfound response
         UnfoundRepoResource forbidden = null;
         //Locate the resource matching the request
         RepoResource closestMatch = null;
 
-        for (RealRepo repo : repositories) {
-            RepoRequests.logToContext("Searching for the resource within %s", repo.getKey());
-            // Since we are in process standard, repositories that does not process releases should be skipped.
-            // Now, checksums are always considered standard, even if executed against a snapshot repository.
-            // So, we should not skip snapshots repositories for checksums.
-            String path = repoPath.getPath();
-            if (validModuleInfo && !repo.isHandleReleases() && !NamingUtils.isChecksum(path)) {
-                RepoRequests.logToContext("Skipping %s - doesn't handle releases", repo.getKey());
-                continue;
-            }
-
+        for (RealRepo repo : candidates) {
             if (closestMatch != null && isNotSynchronizeProperties(repo)) {
                 continue;
             }
 
-            InternalRequestContext translatedContext = translateRepoRequestContext(virtualRepo, repo, context);
-            if (translatedContext instanceof TranslatedArtifactoryRequest) {
-                RepoRequests.logToContext("Request path was translated to %s due to repository layout differences",
-                        translatedContext.getResourcePath());
-            }
-            RepoResource res = repo.getInfo(translatedContext);
-
-            //Retry the original path if the path was translated and failed (RTFACT-4329)
-            if (!res.isFound() && !translatedContext.getResourcePath().equals(context.getResourcePath())) {
-                RepoRequests.logToContext("Unable to find the resource in the translated path - " +
-                        "retrying with the original");
-                res = repo.getInfo(context);
-            }
-
+            RepoResource res = lookup(repo, context);
             if (res.isFound()) {
                 RepoRequests.logToContext("Resource was found in %s", repo.getKey());
                 updateResponseRepoPath(repo, res);
@@ -304,6 +319,140 @@ public class VirtualRepoDownloadStrategy {
             }
         }
 
+        return closestMatchOrUnfound(repoPath, closestMatch, forbidden);
+    }
+
+    /**
+     * Same as the serial lookup of {@link #processStandard}, but the next repositories are already queried while
+     * waiting for the result of the current one (up to a bounded fan-out per request). Results are still consumed
+     * in the repositories order, so the highest priority repository that has the resource wins, and all the
+     * lookups that are still pending are cancelled once an exact match is found.
+     */
+    private RepoResource processStandardInParallel(InternalRequestContext context, RepoPath repoPath,
+            List<RealRepo> candidates) throws IOException {
+        RepoRequests.logToContext("Searching for the resource concurrently in %s repositories", candidates.size());
+        int fanOut = Math.max(1, ConstantValues.virtualParallelLookupMaxConcurrency.getInt());
+        List<Future<RepoResource>> lookups = Lists.newArrayListWithCapacity(candidates.size());
+        UnfoundRepoResource forbidden = null;
+        RepoResource closestMatch = null;
+        try {
+            for (int i = 0; i < candidates.size(); i++) {
+                // Keep the lookups window full
+                while (lookups.size() < Math.min(candidates.size(), i + fanOut)) {
+                    RealRepo next = candidates.get(lookups.size());
+                    boolean skip = closestMatch != null && isNotSynchronizeProperties(next);
+                    lookups.add(skip ? null : submitLookup(next, context));
+                }
+                RealRepo repo = candidates.get(i);
+                Future<RepoResource> lookup = lookups.get(i);
+                if (lookup == null || (closestMatch != null && isNotSynchronizeProperties(repo))) {
+                    continue;
+                }
+                RepoResource res = awaitLookup(lookup);
+                if (res.isFound()) {
+                    RepoRequests.logToContext("Resource was found in %s", repo.getKey());
+                    updateResponseRepoPath(repo, res);
+                    if (res.isExactQueryMatch()) {
+                        RepoRequests.logToContext("Resource is an exact match - returning");
+                        return res;
+                    } else {
+                        RepoRequests.logToContext("Resource is not an exact match - keeping as closest match");
+                        closestMatch = res;
+                    }
+                } else if (forbidden == null) {
+                    forbidden = checkIfForbidden(res);
+                    if (forbidden != null) {
+                        RepoRequests.logToContext("Request is forbidden by %s", repo.getKey());
+                    }
+                }
+            }
+        } finally {
+            // Lookups already running are left to complete, interrupting them might break their remote or
+            // database connections
+            for (Future<RepoResource> lookup : lookups) {
+                if (lookup != null) {
+                    lookup.cancel(false);
+                }
+            }
+        }
+
+        return closestMatchOrUnfound(repoPath, closestMatch, forbidden);
+    }
+
+    /**
+     * Submits the lookup to the lookups executor. If the executor is saturated the returned lookup is not started,
+     * and it runs in the request thread once it is awaited.
+     */
+    private Future<RepoResource> submitLookup(RealRepo repo, InternalRequestContext context) {
+        RepoRequestContext requestContext = RepoRequests.get();
+        Callable<RepoResource> callable = () -> {
+            if (requestContext == null || RepoRequests.get() == requestContext) {
+                return lookup(repo, context);
+            }
+            // Log to the request context and send its originated headers from the pool thread as well
+            RepoRequests.bind(requestContext);
+            try {
+                return lookup(repo, context);
+            } finally {
+                RepoRequests.unbind();
+            }
+        };
+        FutureTask<RepoResource> lookup = new FutureTask<>(callable);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        try {
+            getLookupExecutor().execute(new ArtifactoryRunnable(lookup, ContextHelper.get(), authentication));
+        } catch (RejectedExecutionException e) {
+            log.debug("Concurrent lookup in {} was rejected, it will run in the request thread", repo.getKey());
+        }
+        return lookup;
+    }
+
+    private RepoResource awaitLookup(Future<RepoResource> lookup) throws IOException {
+        if (lookup instanceof RunnableFuture) {
+            // Run the lookup in the request thread if no pool thread picked it up yet (no-op otherwise)
+            ((RunnableFuture<RepoResource>) lookup).run();
+        }
+        try {
+            return lookup.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while searching aggregated repositories", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    private Executor getLookupExecutor() {
+        return lookupExecutor != null ? lookupExecutor : SharedLookupExecutor.EXECUTOR;
+    }
+
+    private RepoResource lookup(RealRepo repo, InternalRequestContext context) {
+        RepoRequests.logToContext("Searching for the resource within %s", repo.getKey());
+        InternalRequestContext translatedContext = translateRepoRequestContext(virtualRepo, repo, context);
+        if (translatedContext instanceof TranslatedArtifactoryRequest) {
+            RepoRequests.logToContext("Request path was translated to %s due to repository layout differences",
+                    translatedContext.getResourcePath());
+        }
+        RepoResource res = repo.getInfo(translatedContext);
+
+        //Retry the original path if the path was translated and failed (RTFACT-4329)
+        if (!res.isFound() && !translatedContext.getResourcePath().equals(context.getResourcePath())) {
+            RepoRequests.logToContext("Unable to find the resource in the translated path - " +
+                    "retrying with the original");
+            res = repo.getInfo(context);
+        }
+        return res;
+    }
+
+    private RepoResource closestMatchOrUnfound(RepoPath repoPath, RepoResource closestMatch,
+            UnfoundRepoResource forbidden) {
         //If we didn't find an exact match return the first found resource (closest match)
         if (closestMatch != null) {
             RepoRequests.logToContext("Unable to find an exact matching resource - returning closest match");
@@ -469,4 +618,22 @@ public class VirtualRepoDownloadStrategy {
     private boolean isNotSynchronizeProperties(RealRepo repo) {
         return !repo.isLocal() && !((RemoteRepoDescriptor) repo.getDescriptor()).isSynchronizeProperties();
     }
+
+    /**
+     * The bounded pool of the concurrent lookups of all the virtual repositories, separate from the async executor so
+     * that slow remote lookups don't delay the async tasks. Lookups it rejects run in the request thread.
+     */
+    private static class SharedLookupExecutor {
+        private static final Executor EXECUTOR = create();
+
+        private static Executor create() {
+            int threads = Math.max(1, ConstantValues.virtualParallelLookupThreads.getInt());
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("art-virtual-lookup-");
+            threadFactory.setDaemon(true);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(threads), threadFactory);
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
 }
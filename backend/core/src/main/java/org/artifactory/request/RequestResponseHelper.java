@@ -20,6 +20,7 @@
 
 package org.artifactory.request;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpStatus;
@@ -27,6 +28,7 @@ import org.artifactory.api.context.ContextHelper;
 import org.artifactory.api.repo.RepositoryService;
 import org.artifactory.api.request.ArtifactoryResponse;
 import org.artifactory.api.rest.constant.ArtifactRestConstants;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.descriptor.repo.RealRepoDescriptor;
 import org.artifactory.descriptor.repo.RepoDescriptor;
 import org.artifactory.fs.RepoResource;
@@ -38,16 +40,21 @@ import org.artifactory.resource.RepoResourceInfo;
 import org.artifactory.resource.ResourceStreamHandle;
 import org.artifactory.resource.ZipEntryResource;
 import org.artifactory.security.AccessLogger;
+import org.artifactory.storage.binstore.service.InternalBinaryService;
 import org.artifactory.traffic.TrafficService;
 import org.artifactory.traffic.entry.DownloadEntry;
 import org.artifactory.util.HttpUtils;
+import org.jfrog.storage.binstore.common.ReaderTrackingInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.MediaType;
 
+import javax.annotation.Nullable;
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
 
 import static org.artifactory.api.rest.constant.ArtifactRestConstants.MT_ITEM_PROPERTIES;
 import static org.artifactory.request.range.ResponseWithRangeSupportHelper.createRangeAwareContext;
@@ -59,9 +66,11 @@ public final class RequestResponseHelper {
     private static final Logger log = LoggerFactory.getLogger(RequestResponseHelper.class);
 
     private TrafficService trafficService;
+    private InternalBinaryService binaryService;
 
-    public RequestResponseHelper(TrafficService service) {
+    public RequestResponseHelper(TrafficService service, InternalBinaryService binaryService) {
         trafficService = service;
+        this.binaryService = binaryService;
     }
 
     private static void addDebugLog(long actualLength, long resLenght, RepoPath repoPath) {
@@ -121,11 +130,45 @@ public final class RequestResponseHelper {
         inputStream = context.getInputStream();
         // Get current time for logs
         long start = System.currentTimeMillis();
-        // Send range aware input stream
-        response.sendStream(inputStream);
+        File binaryFile = findFileForSendfile(response, res, handle, context, actualLength);
+        if (binaryFile != null) {
+            // The container opens the file only after the request returns, so protect it from deletion until then
+            // instead of through the binary stream. Once open, the file stays readable even if it is deleted.
+            binaryService.holdNoDeleteLock(sha1,
+                    TimeUnit.SECONDS.toMillis(ConstantValues.httpSendfileDeleteProtectionSecs.getLong()));
+            IOUtils.closeQuietly(inputStream);
+            ((ArtifactoryResponseBase) response).sendFile(binaryFile, context.getContentOffset(),
+                    context.getContentLength());
+        } else {
+            // Send range aware input stream
+            response.sendStream(inputStream);
+        }
         fireDownloadTrafficEvent(response, res.getRepoPath(), context.getContentLength(), start);
     }
 
+    /**
+     * Returns the local filestore file of the resource if the container can send the body directly from it: the
+     * container supports sendfile, the body is the whole binary or a single range of it, and the handle streams the
+     * stored binary as-is (not an archive entry, filtered or remote content).
+     */
+    @Nullable
+    private File findFileForSendfile(ArtifactoryResponse response, RepoResource res, ResourceStreamHandle handle,
+            RangeAwareContext context, long actualLength) {
+        if (!ConstantValues.httpSendfileEnabled.getBoolean() || binaryService == null ||
+                !(response instanceof ArtifactoryResponseBase) ||
+                !((ArtifactoryResponseBase) response).isSendfileSupported() ||
+                context.getContentOffset() < 0 || res instanceof ZipEntryResource ||
+                !(handle.getInputStream() instanceof ReaderTrackingInputStream)) {
+            return null;
+        }
+        File file = binaryService.getBinaryFile(res.getInfo().getSha1());
+        if (file == null || file.length() != actualLength) {
+            return null;
+        }
+        log.debug("Sending '{}' with sendfile from filestore file '{}'", res.getRepoPath(), file);
+        return file;
+    }
+
     public String getModifiedMimeType(String filePath, String repoKey, Request request) {
         boolean browserRequest = BrowserRequestHelper.isBrowserRequest(request);
         if (browserRequest && !contentBrowsingDisabled(repoKey)) {
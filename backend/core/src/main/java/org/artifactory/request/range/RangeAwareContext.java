@@ -33,6 +33,7 @@ public class RangeAwareContext {
     private int status = -1;
     private String contentType;
     private String contentRange;
+    private long contentOffset = -1;
 
     public long getContentLength() {
         return contentLength;
@@ -73,4 +74,16 @@ public class RangeAwareContext {
     public void setContentRange(String contentRange) {
         this.contentRange = contentRange;
     }
+
+    /**
+     * @return The offset in the original entity of the first byte sent, or -1 if the content is not a single
+     * contiguous region of the entity (e.g. multi range response)
+     */
+    public long getContentOffset() {
+        return contentOffset;
+    }
+
+    public void setContentOffset(long contentOffset) {
+        this.contentOffset = contentOffset;
+    }
 }
@@ -77,6 +77,7 @@ public class ResponseWithRangeSupportHelper {
         // Update headers, content type, content length and logs
         context.setContentLength(length);
         context.setContentType(mimeType);
+        context.setContentOffset(0);
         context.setInputStream(in);
     }
 
@@ -99,6 +100,7 @@ public class ResponseWithRangeSupportHelper {
         context.setContentType(mimeType);
         context.setContentRange(contentRange);
         context.setContentLength(end - range.getStart() + 1L);
+        context.setContentOffset(range.getStart());
         if(isSkippable(in)){
             context.setInputStream(new SingleRangeSkipInputStream(range, in));
         }else {
@@ -23,6 +23,7 @@ package org.artifactory.search;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.commons.lang.StringUtils;
+import org.artifactory.api.context.ContextHelper;
 import org.artifactory.api.search.ItemSearchResults;
 import org.artifactory.api.search.artifact.ArtifactSearchControls;
 import org.artifactory.api.search.artifact.ArtifactSearchResult;
@@ -36,6 +37,10 @@ import org.artifactory.sapi.search.VfsQuery;
 import org.artifactory.sapi.search.VfsQueryResult;
 import org.artifactory.sapi.search.VfsQueryResultType;
 import org.artifactory.sapi.search.VfsQueryRow;
+import org.artifactory.storage.fs.VfsItemNotFoundException;
+import org.artifactory.storage.fs.service.FileService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
 import java.util.EnumMap;
@@ -46,6 +51,9 @@ import java.util.Map;
  * User: freds Date: Jul 27, 2008 Time: 6:04:39 PM
  */
 public class ArtifactSearcher extends SearcherBase<ArtifactSearchControls, ArtifactSearchResult> {
+    private static final Logger log = LoggerFactory.getLogger(ArtifactSearcher.class);
+
+    private final FileService fileService = ContextHelper.get().beanForType(FileService.class);
 
     @Override
     public ItemSearchResults<ArtifactSearchResult> doSearch(ArtifactSearchControls controls) {
@@ -54,6 +62,13 @@ public class ArtifactSearcher extends SearcherBase<ArtifactSearchControls, Artif
         List<ArtifactSearchResult> results = Lists.newArrayList();
         int limit = getLimit(controls);
 
+        if (StringUtils.isBlank(relativePath) && StringUtils.containsAny(providedQuery, "*?%_")) {
+            ItemSearchResults<ArtifactSearchResult> indexResults = searchNameIndex(controls, limit);
+            if (indexResults != null) {
+                return indexResults;
+            }
+        }
+
         VfsQuery query = createQuery(controls);
         if (StringUtils.isNotBlank(relativePath)) {
             query.addPathFilter(relativePath);
@@ -74,6 +89,33 @@ public class ArtifactSearcher extends SearcherBase<ArtifactSearchControls, Artif
         return new ItemSearchResults<>(results, queryResult.getCount());
     }
 
+    /**
+     * Searches the file names index for the files matching the query name pattern
+     *
+     * @return The search results or null if the file names index cannot answer the query
+     */
+    private ItemSearchResults<ArtifactSearchResult> searchNameIndex(ArtifactSearchControls controls, int limit) {
+        Collection<String> repoKeys = controls.isSpecificRepoSearch() ? controls.getSelectedRepoForSearch() : null;
+        List<RepoPath> matches = fileService.searchFilesByNamePattern(controls.getQuery(), repoKeys);
+        if (matches == null) {
+            return null;
+        }
+        List<ArtifactSearchResult> results = Lists.newArrayList();
+        for (RepoPath repoPath : matches) {
+            if (limit > 0 && results.size() >= limit) {
+                break;
+            }
+            if (isResultAcceptable(repoPath)) {
+                try {
+                    results.add(new ArtifactSearchResult(fileService.loadItem(repoPath)));
+                } catch (VfsItemNotFoundException e) {
+                    log.debug("Indexed file '{}' not found: {}", repoPath, e.getMessage());
+                }
+            }
+        }
+        return new ItemSearchResults<>(results, matches.size());
+    }
+
     /**
      * Searches for artifacts by their checksum values
      *
@@ -20,9 +20,9 @@
 
 package org.artifactory.search.archive;
 
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
-import org.apache.commons.compress.archivers.ArchiveEntry;
+import com.google.common.collect.Maps;
 import org.artifactory.addon.AddonsManager;
 import org.artifactory.addon.HaAddon;
 import org.artifactory.addon.ha.HaCommonAddon;
@@ -31,7 +31,6 @@ import org.artifactory.common.ConstantValues;
 import org.artifactory.descriptor.repo.LocalRepoDescriptor;
 import org.artifactory.fs.FileInfo;
 import org.artifactory.fs.ItemInfo;
-import org.artifactory.fs.ZipEntryInfo;
 import org.artifactory.mime.MimeType;
 import org.artifactory.mime.NamingUtils;
 import org.artifactory.model.xstream.fs.ArchiveEntryImpl;
@@ -47,6 +46,7 @@ import org.artifactory.sapi.fs.VfsItem;
 import org.artifactory.schedule.*;
 import org.artifactory.schedule.quartz.QuartzCommand;
 import org.artifactory.spring.InternalContextHelper;
+import org.artifactory.storage.StorageException;
 import org.artifactory.storage.db.DbService;
 import org.artifactory.storage.fs.VfsArchiveFile;
 import org.artifactory.storage.fs.VfsItemNotFoundException;
@@ -61,12 +61,22 @@ import org.quartz.JobExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import javax.annotation.PostConstruct;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import static org.artifactory.schedule.StopStrategy.IMPOSSIBLE;
@@ -101,6 +111,8 @@ public class ArchiveIndexerImpl implements InternalArchiveIndexer {
     @Autowired
     private TaskService taskService;
 
+    private CachedThreadPoolTaskExecutor executor;
+
     // a semaphore to guard against parallel indexing
     private ConflictGuard conflictGuard;
 
@@ -144,13 +156,10 @@ public class ArchiveIndexerImpl implements InternalArchiveIndexer {
             // start indexing ...
             log.info("Indexing archive: {}", vfsFile);
             try (VfsArchiveFile archive = new VfsArchiveFile(vfsFile)) {
-                List<? extends ArchiveEntry> entries = archive.entries();
-                Set<ZipEntryInfo> zipEntryInfos = Sets.newHashSet();
-                for (ArchiveEntry zipEntry : entries) {
-                    if (!zipEntry.isDirectory()) {
-                        zipEntryInfos.add(new ArchiveEntryImpl(zipEntry));
-                    }
-                }
+                // stream the entries to the archive entries service which adds them in batches
+                Iterator<ArchiveEntryImpl> zipEntryInfos = Iterators.transform(
+                        Iterators.filter(archive.entriesIterator(), zipEntry -> !zipEntry.isDirectory()),
+                        zipEntry -> new ArchiveEntryImpl(zipEntry));
 
                 ArchiveEntriesService archiveEntriesService = ContextHelper.get().beanForType(
                         ArchiveEntriesService.class);
@@ -161,6 +170,13 @@ public class ArchiveIndexerImpl implements InternalArchiveIndexer {
                 log.error("Failed to index '{}': {}", archiveRepoPath, e.getMessage());
                 log.debug("Failed to index:", e);
                 return false;
+            } catch (UncheckedIOException e) {
+                // some of the entries are already added, don't leave a partial index
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                forceArchiveIndexerTaskDeletion(archiveRepoPath);
+                log.error("Failed to index '{}': {}", archiveRepoPath, e.getCause().getMessage());
+                log.debug("Failed to index:", e);
+                return false;
             }
         } finally {
             // remove the task in any case if it exists
@@ -186,17 +202,25 @@ public class ArchiveIndexerImpl implements InternalArchiveIndexer {
             log.debug("Indexing {} queued items", indexingQueue.size());
 
             final InternalArchiveIndexer advisedMe = getAdvisedMe();
-            for (RepoPath repoPath : indexingQueue) {
+            int workers = Math.max(1, ConstantValues.archiveIndexerWorkers.getInt());
+            Queue<List<RepoPath>> groups = new ConcurrentLinkedQueue<>(workers > 1 ?
+                    groupByChecksum(indexingQueue) : Collections.singletonList(indexingQueue));
+            int helpersCount = Math.min(workers, groups.size()) - 1;
+            List<Future<Object>> helpers = Lists.newArrayList();
+            for (int i = 0; i < helpersCount; i++) {
                 try {
-                    if (shouldStop()) {
-                        break;  // stop execution if the context is not ready (shutting down, refreshing conf etc.)
-                    }
-                    advisedMe.index(repoPath);
-                } catch (Exception e) {
-                    log.error("Exception indexing " + repoPath, e);
-                    forceArchiveIndexerTaskDeletion(repoPath);
+                    helpers.add(getExecutor().submit(() -> {
+                        indexGroups(advisedMe, groups);
+                        return null;
+                    }));
+                } catch (TaskRejectedException e) {
+                    log.debug("Archive indexing worker was rejected, indexing with {} workers", i + 1);
+                    break;
                 }
             }
+            // the current thread is a worker as well
+            indexGroups(advisedMe, groups);
+            awaitWorkers(helpers);
             log.debug("Finished indexing {} queued items", indexingQueue.size());
         } catch (InterruptedException e) {
             log.error("Failed to acquire lock for archive index",e);
@@ -205,6 +229,72 @@ public class ArchiveIndexerImpl implements InternalArchiveIndexer {
         }
     }
 
+    /**
+     * Groups the queued paths by the checksum of their file. The paths of a group are indexed one after the other by
+     * the same worker: the first indexes the archive and the rest find it already indexed.
+     */
+    private Collection<List<RepoPath>> groupByChecksum(List<RepoPath> indexingQueue) {
+        Map<String, List<RepoPath>> groups = Maps.newLinkedHashMap();
+        for (RepoPath repoPath : indexingQueue) {
+            String key = repoPath.toPath();
+            try {
+                ItemInfo itemInfo = fileService.loadItem(repoPath);
+                if (!itemInfo.isFolder()) {
+                    key = ((FileInfo) itemInfo).getSha1();
+                }
+            } catch (VfsItemNotFoundException e) {
+                // the index will only remove the task
+            }
+            groups.computeIfAbsent(key, k -> Lists.newArrayList()).add(repoPath);
+        }
+        return groups.values();
+    }
+
+    private void indexGroups(InternalArchiveIndexer advisedMe, Queue<List<RepoPath>> groups) {
+        List<RepoPath> group;
+        while ((group = groups.poll()) != null) {
+            for (RepoPath repoPath : group) {
+                if (shouldStop()) {
+                    return;  // stop execution if the context is not ready (shutting down, refreshing conf etc.)
+                }
+                try {
+                    advisedMe.index(repoPath);
+                } catch (StorageException e) {
+                    // the archive entries service drops its cached path and name ids on failure, one of them might
+                    // have been removed by the garbage collector meanwhile
+                    log.debug("Failed to index {}, retrying: {}", repoPath, e.getMessage());
+                    retryIndex(advisedMe, repoPath);
+                } catch (Exception e) {
+                    log.error("Exception indexing " + repoPath, e);
+                    forceArchiveIndexerTaskDeletion(repoPath);
+                }
+            }
+        }
+    }
+
+    private void retryIndex(InternalArchiveIndexer advisedMe, RepoPath repoPath) {
+        try {
+            advisedMe.index(repoPath);
+        } catch (Exception e) {
+            log.error("Exception indexing " + repoPath, e);
+            forceArchiveIndexerTaskDeletion(repoPath);
+        }
+    }
+
+    private void awaitWorkers(List<Future<Object>> helpers) {
+        for (Future<Object> helper : helpers) {
+            try {
+                helper.get();
+            } catch (ExecutionException e) {
+                log.error("Archive indexing worker failed", e.getCause());
+            } catch (InterruptedException e) {
+                log.warn("Interrupted while waiting for archive indexing workers");
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
     private boolean shouldStop() {
         return !InternalContextHelper.get().isReady() || taskService.pauseOrBreak();
     }
@@ -300,6 +390,13 @@ public class ArchiveIndexerImpl implements InternalArchiveIndexer {
         return ContextHelper.get().beanForType(InternalArchiveIndexer.class);
     }
 
+    private CachedThreadPoolTaskExecutor getExecutor() {
+        if (executor == null) {
+            executor = ContextHelper.get().beanForType(CachedThreadPoolTaskExecutor.class);
+        }
+        return executor;
+    }
+
     private ConflictGuard getConflictGuard() {
         if (conflictGuard == null) {
             synchronized (this) {
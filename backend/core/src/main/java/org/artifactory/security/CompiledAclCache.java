@@ -0,0 +1,154 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.storage.security.service.AclCache;
+import org.artifactory.util.CompiledPathMatcher;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Compiled form of the {@link AclCache} used for repo path permission checks.
+ * <p/>
+ * Holds the include/exclude patterns of the permission targets compiled into {@link CompiledPathMatcher}s and a
+ * bounded cache of the permission decisions per security identities, repo path and permission. Both belong to a
+ * snapshot bound to the user and group maps of a single {@link AclCache} version and to a single version of the
+ * repositories runtime state (decisions of the "any local" and "any remote" targets depend on the repository types).
+ * Once either of them changes a new snapshot is atomically swapped in and the previous one is discarded as a whole.
+ */
+class CompiledAclCache {
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+
+    /**
+     * @param repositoriesVersion Version of the repositories runtime state, read before evaluating any decision
+     * @return The compiled snapshot of the given acl cache and repositories version, creating a new one if either of
+     * them has changed
+     */
+    Snapshot snapshotOf(AclCache aclCache, long repositoriesVersion) {
+        Snapshot snapshot = current.get();
+        if (snapshot != null && snapshot.isOf(aclCache, repositoriesVersion)) {
+            return snapshot;
+        }
+        Snapshot fresh = new Snapshot(aclCache, repositoriesVersion);
+        // Lost races are harmless: the caller uses its own fresh snapshot, which is equivalent
+        current.compareAndSet(snapshot, fresh);
+        return fresh;
+    }
+
+    void invalidate() {
+        current.set(null);
+    }
+
+    static class Snapshot {
+        private final Map<String, Map<String, Set<AclInfo>>> userResultMap;
+        private final Map<String, Map<String, Set<AclInfo>>> groupResultMap;
+        private final long repositoriesVersion;
+        // Weak keys use identity equality: permission targets of this acl cache version are immutable
+        private final Cache<PermissionTargetInfo, CompiledPathMatcher> matchers = CacheBuilder.newBuilder()
+                .weakKeys().build();
+        private final Cache<Decision, Boolean> decisions = CacheBuilder.newBuilder()
+                .maximumSize(ConstantValues.securityPermissionDecisionCacheSize.getLong()).build();
+
+        private Snapshot(AclCache aclCache, long repositoriesVersion) {
+            this.userResultMap = aclCache.getUserResultMap();
+            this.groupResultMap = aclCache.getGroupResultMap();
+            this.repositoriesVersion = repositoriesVersion;
+        }
+
+        private boolean isOf(AclCache aclCache, long repositoriesVersion) {
+            return userResultMap == aclCache.getUserResultMap() && groupResultMap == aclCache.getGroupResultMap() &&
+                    this.repositoriesVersion == repositoriesVersion;
+        }
+
+        boolean matches(PermissionTargetInfo permissionTarget, String path, boolean folder) {
+            CompiledPathMatcher matcher = matchers.getIfPresent(permissionTarget);
+            if (matcher == null) {
+                matcher = CompiledPathMatcher.compile(permissionTarget.getIncludes(), permissionTarget.getExcludes());
+                matchers.put(permissionTarget, matcher);
+            }
+            return matcher.matches(path, folder);
+        }
+
+        /**
+         * @param evaluation Evaluates the decision on a cache miss
+         */
+        boolean isGranted(Set<ArtifactorySid> sids, RepoPath repoPath, ArtifactoryPermission permission,
+                BooleanSupplier evaluation) {
+            Decision decision = new Decision(sids, repoPath, permission);
+            Boolean granted = decisions.getIfPresent(decision);
+            if (granted == null) {
+                granted = evaluation.getAsBoolean();
+                decisions.put(decision, granted);
+            }
+            return granted;
+        }
+    }
+
+    private static class Decision {
+        private final Set<ArtifactorySid> sids;
+        private final String repoKey;
+        private final String path;
+        private final boolean folder;
+        private final int mask;
+        private final int hashCode;
+
+        private Decision(Set<ArtifactorySid> sids, RepoPath repoPath, ArtifactoryPermission permission) {
+            this.sids = ImmutableSet.copyOf(sids);
+            this.repoKey = repoPath.getRepoKey();
+            this.path = repoPath.getPath();
+            this.folder = repoPath.isFolder();
+            this.mask = permission.getMask();
+            int result = this.sids.hashCode();
+            result = 31 * result + repoKey.hashCode();
+            result = 31 * result + path.hashCode();
+            result = 31 * result + (folder ? 1 : 0);
+            result = 31 * result + mask;
+            this.hashCode = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Decision decision = (Decision) o;
+            return hashCode == decision.hashCode && folder == decision.folder && mask == decision.mask &&
+                    repoKey.equals(decision.repoKey) && path.equals(decision.path) && sids.equals(decision.sids);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
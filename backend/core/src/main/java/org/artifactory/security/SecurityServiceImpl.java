@@ -51,6 +51,7 @@ import org.artifactory.config.ConfigurationException;
 import org.artifactory.config.InternalCentralConfigService;
 import org.artifactory.descriptor.config.CentralConfigDescriptor;
 import org.artifactory.descriptor.repo.LocalCacheRepoDescriptor;
+import org.artifactory.descriptor.repo.distribution.DistributionRepoDescriptor;
 import org.artifactory.descriptor.security.*;
 import org.artifactory.descriptor.security.ldap.LdapSetting;
 import org.artifactory.descriptor.security.oauth.OAuthSettings;
@@ -202,6 +203,8 @@ public class SecurityServiceImpl implements InternalSecurityService {
 
     private TreeSet<SecurityListener> securityListeners = new TreeSet<>();
 
+    private final CompiledAclCache compiledAclCache = new CompiledAclCache();
+
     /**
      * @param user The authentication token.
      * @return An array of sids of the current user and all it's groups.
@@ -230,10 +233,6 @@ public class SecurityServiceImpl implements InternalSecurityService {
         return (SimpleUser) authentication.getPrincipal();
     }
 
-    private static boolean matches(PermissionTargetInfo aclPermissionTarget, String path, boolean folder) {
-        return PathMatcher.matches(path, aclPermissionTarget.getIncludes(), aclPermissionTarget.getExcludes(), folder);
-    }
-
     @Autowired
     private void setApplicationContext(ApplicationContext context) throws BeansException {
         this.context = (InternalArtifactoryContext) context;
@@ -274,6 +273,8 @@ public class SecurityServiceImpl implements InternalSecurityService {
 
     @Override
     public void reload(CentralConfigDescriptor oldDescriptor) {
+        // Cached permission decisions of the security configuration being replaced are dropped
+        compiledAclCache.invalidate();
         // Need to check if security conf changed then clear security caches
         if (!centralConfig.getDescriptor().getSecurity().equals(oldDescriptor.getSecurity())) {
             clearSecurityListeners();
@@ -2071,6 +2072,48 @@ public class SecurityServiceImpl implements InternalSecurityService {
         return bestScore;
     }
 
+    @Override
+    @Nullable
+    public Set<String> getReadableRepoKeys() {
+        Authentication authentication = AuthenticationHelper.getAuthentication();
+        if (!isAuthenticated(authentication) || (isAnonymous() && !isAnonAccessEnabled())) {
+            return Collections.emptySet();
+        }
+        if (isAdmin(authentication) || authentication instanceof AccessTokenAuthentication) {
+            return null;
+        }
+        AclCache aclCache = aclStoreService.getAclCache();
+        Set<String> aclRepoKeys = new HashSet<>();
+        for (ArtifactorySid sid : getUserEffectiveSids(getSimpleUser(authentication))) {
+            Map<String, Set<AclInfo>> repoSidAcls = getAclCacheRelevantMap(aclCache, sid).get(sid.getPrincipal());
+            if (repoSidAcls == null) {
+                continue;
+            }
+            for (Map.Entry<String, Set<AclInfo>> repoAcls : repoSidAcls.entrySet()) {
+                if (repoAcls.getValue().stream().anyMatch(acl -> isGranted(acl, ArtifactoryPermission.READ, sid))) {
+                    aclRepoKeys.add(repoAcls.getKey());
+                }
+            }
+        }
+        if (aclRepoKeys.contains(PermissionTargetInfo.ANY_REPO)) {
+            return null;
+        }
+        Set<String> readableRepoKeys = new HashSet<>(aclRepoKeys);
+        readableRepoKeys.remove(PermissionTargetInfo.ANY_LOCAL_REPO);
+        readableRepoKeys.remove(PermissionTargetInfo.ANY_REMOTE_REPO);
+        if (aclRepoKeys.contains(PermissionTargetInfo.ANY_LOCAL_REPO)) {
+            repositoryService.getLocalRepoDescriptors().stream()
+                    .filter(localRepo -> !(localRepo instanceof DistributionRepoDescriptor))
+                    .forEach(localRepo -> readableRepoKeys.add(localRepo.getKey()));
+        }
+        if (aclRepoKeys.contains(PermissionTargetInfo.ANY_REMOTE_REPO)) {
+            repositoryService.getRemoteRepoDescriptors().forEach(remoteRepo ->
+                    readableRepoKeys.add(remoteRepo.getKey() + LocalCacheRepoDescriptor.PATH_SUFFIX));
+        }
+        readableRepoKeys.remove(TrashService.TRASH_KEY);
+        return readableRepoKeys;
+    }
+
     /**
      * Aggregate all aclInfo of a repo + Any_Repo + Any_Local_Repo into one set
      */
@@ -2271,31 +2314,39 @@ public class SecurityServiceImpl implements InternalSecurityService {
     private boolean isGranted(
             RepoPath repoPath, ArtifactoryPermission permission, Set<ArtifactorySid> sids) {
         AclCache aclCache = aclStoreService.getAclCache();
-        for (ArtifactorySid sid : sids) {
-            Map<String, Map<String, Set<AclInfo>>> map = getAclCacheRelevantMap(aclCache, sid);
-            if (getAndCheckAllUserAcls(repoPath, permission, sid, map)) {
-                return true;
+        // The repositories version is read before any repository is looked up, so decisions evaluated against a
+        // newer repositories state can only be cached in an older snapshot, never the other way around
+        CompiledAclCache.Snapshot compiled = compiledAclCache.snapshotOf(aclCache,
+                repositoryService.getRepositoriesVersion());
+        return compiled.isGranted(sids, repoPath, permission, () -> {
+            for (ArtifactorySid sid : sids) {
+                Map<String, Map<String, Set<AclInfo>>> map = getAclCacheRelevantMap(aclCache, sid);
+                if (getAndCheckAllUserAcls(repoPath, permission, sid, map, compiled)) {
+                    return true;
+                }
             }
-        }
-        return false;
+            return false;
+        });
     }
 
     private boolean getAndCheckAllUserAcls(RepoPath repoPath, ArtifactoryPermission permission, ArtifactorySid sid,
-            Map<String, Map<String, Set<AclInfo>>> map) {
+            Map<String, Map<String, Set<AclInfo>>> map, CompiledAclCache.Snapshot compiled) {
         Map<String, Set<AclInfo>> repoSidAcls = map.get(sid.getPrincipal());
         if (repoSidAcls != null) {
-            if (getAndCheckAcl(repoPath.getRepoKey(), repoSidAcls, repoPath, permission, sid)) {
+            if (getAndCheckAcl(repoPath.getRepoKey(), repoSidAcls, repoPath, permission, sid, compiled)) {
                 return true;
             }
             // check if user has any local repo permission
-            if (getAndCheckAcl(PermissionTargetInfo.ANY_LOCAL_REPO, repoSidAcls, repoPath, permission, sid)) {
+            if (getAndCheckAcl(PermissionTargetInfo.ANY_LOCAL_REPO, repoSidAcls, repoPath, permission, sid,
+                    compiled)) {
                 return true;
             }
             // check if user has any remote repo permission
-            if (getAndCheckAcl(PermissionTargetInfo.ANY_REMOTE_REPO, repoSidAcls, repoPath, permission, sid)) {
+            if (getAndCheckAcl(PermissionTargetInfo.ANY_REMOTE_REPO, repoSidAcls, repoPath, permission, sid,
+                    compiled)) {
                 return true;
             }
-            if (getAndCheckAcl(PermissionTargetInfo.ANY_REPO, repoSidAcls, repoPath, permission, sid)) {
+            if (getAndCheckAcl(PermissionTargetInfo.ANY_REPO, repoSidAcls, repoPath, permission, sid, compiled)) {
                 return true;
             }
         }
@@ -2303,7 +2354,7 @@ public class SecurityServiceImpl implements InternalSecurityService {
     }
 
     private boolean getAndCheckAcl(String checkedRepo, Map<String, Set<AclInfo>> repoSidAcls, RepoPath repoPath,
-            ArtifactoryPermission permission, ArtifactorySid sid) {
+            ArtifactoryPermission permission, ArtifactorySid sid, CompiledAclCache.Snapshot compiled) {
         Collection<AclInfo> allItemAcls = repoSidAcls.get(checkedRepo);
         // cached remote repos can still produce null maps (RTFACT-6939). check on remote compatible repos instead.
         if (allItemAcls == null) {
@@ -2311,7 +2362,7 @@ public class SecurityServiceImpl implements InternalSecurityService {
             allItemAcls = repoSidAcls.get(remoteRepoKey);
         }
         if (allItemAcls != null) {
-            if (permissionCheckOnAcl(allItemAcls, repoPath, permission, sid)) {
+            if (permissionCheckOnAcl(allItemAcls, repoPath, permission, sid, compiled)) {
                 return true;
             }
         }
@@ -2319,7 +2370,7 @@ public class SecurityServiceImpl implements InternalSecurityService {
     }
 
     private boolean permissionCheckOnAcl(Collection<AclInfo> allAcls, RepoPath repoPath,
-            ArtifactoryPermission permission, ArtifactorySid sid) {
+            ArtifactoryPermission permission, ArtifactorySid sid, CompiledAclCache.Snapshot compiled) {
         for (AclInfo acl : allAcls) {
 
             if (!(acl instanceof ImmutableAclInfo)) {
@@ -2338,7 +2389,7 @@ public class SecurityServiceImpl implements InternalSecurityService {
                 boolean checkPartialPath = (permission.getMask() &
                         (ArtifactoryPermission.READ.getMask() | ArtifactoryPermission.DEPLOY.getMask())) != 0;
                 boolean behaveAsFolder = folder && checkPartialPath;
-                boolean match = matches(aclPermissionTarget, path, behaveAsFolder);
+                boolean match = compiled.matches(aclPermissionTarget, path, behaveAsFolder);
                 if (match) {
                     if (isGranted(acl, permission, sid)) {
                         return true;
@@ -109,6 +109,9 @@ public class StatsDelegatingServiceImpl extends AbstractStatsService implements
 
         StatsEvent statsEvent = getStatsEvents().get(repoPath);
         if (statsEvent == null) {
+            if (!acceptNewEvent(repoPath)) {
+                return;
+            }
             getStatsEvents().put(repoPath, statsEvent = new StatsEvent(repoPath, null));
         }
         statsEvent.update(downloadedBy, null, null, downloadedTime, 1);
@@ -135,6 +138,9 @@ public class StatsDelegatingServiceImpl extends AbstractStatsService implements
 
         StatsEvent statsEvent = getStatsEvents().get(repoPath);
         if (statsEvent == null) {
+            if (!acceptNewEvent(repoPath)) {
+                return;
+            }
             getStatsEvents().put(repoPath, statsEvent = new StatsEvent(repoPath, origin));
         }
         statsEvent.update(downloadedBy, origin, path, downloadedTime, count);
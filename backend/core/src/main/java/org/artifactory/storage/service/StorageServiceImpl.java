@@ -50,6 +50,14 @@ import org.artifactory.storage.binstore.service.BinaryService;
 import org.artifactory.storage.binstore.service.BinaryStoreGarbageCollectorJob;
 import org.artifactory.storage.binstore.service.InternalBinaryService;
 import org.artifactory.storage.db.DbService;
+import org.artifactory.storage.db.aql.service.AqlServiceImpl;
+import org.artifactory.storage.db.fs.service.FileServiceImpl;
+import org.artifactory.storage.db.fs.service.StatsPersistingServiceImpl;
+import org.artifactory.storage.db.locks.service.DbLocksServiceImpl;
+import org.artifactory.storage.db.mbean.ManagedAqlPlanCache;
+import org.artifactory.storage.db.mbean.ManagedDbLocks;
+import org.artifactory.storage.db.mbean.ManagedNodesCache;
+import org.artifactory.storage.db.mbean.ManagedStatsBacklog;
 import org.artifactory.storage.fs.repo.RepoStorageSummary;
 import org.artifactory.storage.fs.service.FileService;
 import org.artifactory.storage.mbean.ManagedStorage;
@@ -274,8 +282,16 @@ public class StorageServiceImpl implements InternalStorageService {
     public void init() {
         derbyUsed = dbService.getDatabaseType() == DbType.DERBY;
 
-        ContextHelper.get().beanForType(MBeanRegistrationService.class).
-                register(new ManagedStorage(binaryStore), "Storage", "Binary Storage");
+        MBeanRegistrationService mbeansService = ContextHelper.get().beanForType(MBeanRegistrationService.class);
+        mbeansService.register(new ManagedStorage(binaryStore), "Storage", "Binary Storage");
+        mbeansService.register(new ManagedStatsBacklog(
+                ContextHelper.get().beanForType(StatsPersistingServiceImpl.class)), "Storage", "Download Statistics");
+        mbeansService.register(new ManagedNodesCache(
+                ContextHelper.get().beanForType(FileServiceImpl.class).getNodesCache()), "Storage", "Nodes Cache");
+        mbeansService.register(new ManagedAqlPlanCache(
+                ContextHelper.get().beanForType(AqlServiceImpl.class).getPlanCache()), "Storage", "AQL Plan Cache");
+        mbeansService.register(new ManagedDbLocks(
+                ContextHelper.get().beanForType(DbLocksServiceImpl.class).getContentionStats()), "Storage", "DB Locks");
 
         CentralConfigDescriptor descriptor = centralConfigService.getDescriptor();
         new GcSchedulerHandler(descriptor.getGcConfig(), null).reschedule();
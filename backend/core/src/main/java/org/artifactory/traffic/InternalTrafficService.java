@@ -27,4 +27,13 @@ import org.artifactory.spring.ReloadableBean;
  */
 public interface InternalTrafficService extends ReloadableBean, TrafficService {
 
+    /**
+     * Returns the transfer traffic of this node aggregated in memory, without reading the traffic log files.
+     * Only the traffic of the recent aggregation window is available.
+     *
+     * @param resolution The interval of the summary buckets, at least a minute
+     * @param from       Start of the window in millis (inclusive)
+     * @param to         End of the window in millis (exclusive)
+     */
+    TrafficSummary getTrafficSummary(TrafficCollectorResolution resolution, long from, long to);
 }
\ No newline at end of file
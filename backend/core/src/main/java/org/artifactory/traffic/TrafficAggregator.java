@@ -0,0 +1,193 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.traffic;
+
+import org.artifactory.traffic.entry.TransferEntry;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free in-memory aggregation of transfer traffic per repository, per user and per minute.
+ * <p/>
+ * Every minute of the aggregation window is a slot in a fixed size ring. A slot is replaced (CAS) by a fresh one
+ * when its ring position is reused for a newer minute. Counters are {@link LongAdder}s, which stripe concurrent
+ * updates over per-CPU cells, so recording a transfer never blocks the request thread.
+ * <p/>
+ * Each minute keeps a bounded number of repository and user keys, any traffic beyond that is accounted to the
+ * {@link #OTHER_KEY}.
+ */
+public class TrafficAggregator {
+
+    static final String OTHER_KEY = "_other";
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final AtomicReferenceArray<MinuteSlot> slots;
+    private final int maxKeysPerMinute;
+
+    public TrafficAggregator(int windowMinutes, int maxKeysPerMinute) {
+        this.slots = new AtomicReferenceArray<>(Math.max(1, windowMinutes));
+        this.maxKeysPerMinute = Math.max(1, maxKeysPerMinute);
+    }
+
+    /**
+     * @return The number of minutes kept by the aggregator
+     */
+    public int getWindowMinutes() {
+        return slots.length();
+    }
+
+    public void record(TransferEntry entry, String username, long timeMillis) {
+        record(entry.getAction(), repoKeyOf(entry.getRepoPath()), username, entry.getContentLength(), timeMillis);
+    }
+
+    public void record(TrafficAction action, String repoKey, String username, long bytes, long timeMillis) {
+        MinuteSlot slot = slotForWrite(timeMillis / MINUTE_MILLIS);
+        if (slot == null) {
+            // Older than the aggregation window
+            return;
+        }
+        boolean download = action == TrafficAction.DOWNLOAD;
+        slot.total.add(download, bytes);
+        slot.counters(slot.repositories, repoKey, maxKeysPerMinute).add(download, bytes);
+        slot.counters(slot.users, username, maxKeysPerMinute).add(download, bytes);
+    }
+
+    /**
+     * Sums the minutes of the given time window into intervals of the given resolution. Intervals are aligned to
+     * the epoch and the window is truncated to the minutes still kept by the aggregator.
+     *
+     * @param resolution The interval of the summary buckets, at least a minute
+     * @param from       Start of the window in millis (inclusive)
+     * @param to         End of the window in millis (exclusive)
+     */
+    public TrafficSummary summarize(TrafficCollectorResolution resolution, long from, long to) {
+        if (resolution.getSecs() < TrafficCollectorResolution.MINUTE.getSecs()) {
+            throw new IllegalArgumentException("Traffic is aggregated by minutes, cannot summarize by " +
+                    resolution.getName());
+        }
+        long resolutionMillis = TimeUnit.SECONDS.toMillis(resolution.getSecs());
+        TrafficSummary summary = new TrafficSummary();
+        summary.setResolution(resolution.getName());
+        summary.setStart(from);
+        summary.setEnd(to);
+        TreeMap<Long, TrafficSummary.Bucket> buckets = new TreeMap<>();
+        for (int i = 0; i < slots.length(); i++) {
+            MinuteSlot slot = slots.get(i);
+            if (slot == null) {
+                continue;
+            }
+            long slotStart = slot.minute * MINUTE_MILLIS;
+            if (slotStart < from || slotStart >= to) {
+                continue;
+            }
+            TrafficCounts slotTotal = slot.total.snapshot();
+            summary.getTotal().add(slotTotal);
+            long bucketStart = slotStart - slotStart % resolutionMillis;
+            buckets.computeIfAbsent(bucketStart, TrafficSummary.Bucket::new).add(slotTotal);
+            addAll(summary.getRepositories(), slot.repositories);
+            addAll(summary.getUsers(), slot.users);
+        }
+        summary.getBuckets().addAll(buckets.values());
+        return summary;
+    }
+
+    private void addAll(Map<String, TrafficCounts> target, ConcurrentMap<String, Counters> source) {
+        for (Map.Entry<String, Counters> entry : source.entrySet()) {
+            target.computeIfAbsent(entry.getKey(), key -> new TrafficCounts()).add(entry.getValue().snapshot());
+        }
+    }
+
+    private MinuteSlot slotForWrite(long minute) {
+        int index = (int) (minute % slots.length());
+        while (true) {
+            MinuteSlot slot = slots.get(index);
+            if (slot != null && slot.minute >= minute) {
+                return slot.minute == minute ? slot : null;
+            }
+            MinuteSlot fresh = new MinuteSlot(minute);
+            if (slots.compareAndSet(index, slot, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    static String repoKeyOf(String repoPathId) {
+        if (repoPathId == null) {
+            return OTHER_KEY;
+        }
+        int separator = repoPathId.indexOf(':');
+        return separator < 0 ? repoPathId : repoPathId.substring(0, separator);
+    }
+
+    private static class MinuteSlot {
+        private final long minute;
+        private final Counters total = new Counters();
+        private final ConcurrentMap<String, Counters> repositories = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Counters> users = new ConcurrentHashMap<>();
+
+        private MinuteSlot(long minute) {
+            this.minute = minute;
+        }
+
+        private Counters counters(ConcurrentMap<String, Counters> map, String key, int maxKeys) {
+            if (key == null) {
+                key = OTHER_KEY;
+            }
+            Counters counters = map.get(key);
+            if (counters != null) {
+                return counters;
+            }
+            if (map.size() >= maxKeys) {
+                key = OTHER_KEY;
+            }
+            counters = new Counters();
+            Counters existing = map.putIfAbsent(key, counters);
+            return existing != null ? existing : counters;
+        }
+    }
+
+    private static class Counters {
+        private final LongAdder downloadBytes = new LongAdder();
+        private final LongAdder downloadCount = new LongAdder();
+        private final LongAdder uploadBytes = new LongAdder();
+        private final LongAdder uploadCount = new LongAdder();
+
+        private void add(boolean download, long bytes) {
+            if (download) {
+                downloadBytes.add(bytes);
+                downloadCount.increment();
+            } else {
+                uploadBytes.add(bytes);
+                uploadCount.increment();
+            }
+        }
+
+        private TrafficCounts snapshot() {
+            return new TrafficCounts(downloadBytes.sum(), downloadCount.sum(), uploadBytes.sum(), uploadCount.sum());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.traffic;
+
+/**
+ * Download and upload totals (bytes and number of transfers) of a single traffic aggregation key
+ */
+public class TrafficCounts {
+
+    private long downloadBytes;
+    private long downloadCount;
+    private long uploadBytes;
+    private long uploadCount;
+
+    public TrafficCounts() {
+    }
+
+    public TrafficCounts(long downloadBytes, long downloadCount, long uploadBytes, long uploadCount) {
+        this.downloadBytes = downloadBytes;
+        this.downloadCount = downloadCount;
+        this.uploadBytes = uploadBytes;
+        this.uploadCount = uploadCount;
+    }
+
+    public long getDownloadBytes() {
+        return downloadBytes;
+    }
+
+    public void setDownloadBytes(long downloadBytes) {
+        this.downloadBytes = downloadBytes;
+    }
+
+    public long getDownloadCount() {
+        return downloadCount;
+    }
+
+    public void setDownloadCount(long downloadCount) {
+        this.downloadCount = downloadCount;
+    }
+
+    public long getUploadBytes() {
+        return uploadBytes;
+    }
+
+    public void setUploadBytes(long uploadBytes) {
+        this.uploadBytes = uploadBytes;
+    }
+
+    public long getUploadCount() {
+        return uploadCount;
+    }
+
+    public void setUploadCount(long uploadCount) {
+        this.uploadCount = uploadCount;
+    }
+
+    void add(TrafficCounts other) {
+        downloadBytes += other.downloadBytes;
+        downloadCount += other.downloadCount;
+        uploadBytes += other.uploadBytes;
+        uploadCount += other.uploadCount;
+    }
+}
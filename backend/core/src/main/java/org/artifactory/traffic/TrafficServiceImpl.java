@@ -24,6 +24,7 @@ import com.google.common.collect.Lists;
 import org.artifactory.addon.AddonsManager;
 import org.artifactory.addon.ha.HaCommonAddon;
 import org.artifactory.api.context.ContextHelper;
+import org.artifactory.api.security.AuthorizationService;
 import org.artifactory.common.ConstantValues;
 import org.artifactory.config.CentralConfigKey;
 import org.artifactory.descriptor.config.CentralConfigDescriptor;
@@ -60,10 +61,14 @@ import java.util.List;
 public class TrafficServiceImpl implements InternalTrafficService, ReloadableBean {
 
     private boolean active;
+    private TrafficAggregator aggregator;
 
     @Autowired
     private ArtifactoryServersCommonService serversService;
 
+    @Autowired
+    private AuthorizationService authorizationService;
+
     @Override
     public void init() {
         //Register a mbean
@@ -71,6 +76,10 @@ public class TrafficServiceImpl implements InternalTrafficService, ReloadableBea
         Traffic traffic = new Traffic(context.beanForType(InternalTrafficService.class));
         ContextHelper.get().beanForType(MBeanRegistrationService.class).register(traffic);
         active = ConstantValues.trafficCollectionActive.getBoolean();
+        if (ConstantValues.trafficAggregationEnabled.getBoolean()) {
+            aggregator = new TrafficAggregator(ConstantValues.trafficAggregationWindowMinutes.getInt(),
+                    ConstantValues.trafficAggregationMaxKeysPerMinute.getInt());
+        }
     }
 
     @Override
@@ -90,13 +99,27 @@ public class TrafficServiceImpl implements InternalTrafficService, ReloadableBea
 
     @Override
     public void handleTrafficEntry(TrafficEntry entry) {
-        if (active) {
-            if (entry instanceof TransferEntry) {
+        if (entry instanceof TransferEntry) {
+            if (aggregator != null) {
+                aggregator.record((TransferEntry) entry, authorizationService.currentUsername(), entry.getTime());
+            }
+            if (active) {
                 TrafficLogger.logTransferEntry((TransferEntry) entry);
             }
         }
     }
 
+    @Override
+    public TrafficSummary getTrafficSummary(TrafficCollectorResolution resolution, long from, long to) {
+        if (from > to) {
+            throw new IllegalArgumentException("The start date cannot be later than the end date");
+        }
+        if (aggregator == null) {
+            throw new IllegalStateException("In-memory traffic aggregation is disabled");
+        }
+        return aggregator.summarize(resolution, from, to);
+    }
+
     @Override
     public void validateDateRange(Calendar startDate, Calendar endDate) {
         if (startDate.after(endDate)) {
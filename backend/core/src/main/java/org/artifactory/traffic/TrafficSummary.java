@@ -0,0 +1,134 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.traffic;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Traffic aggregated in memory by {@link TrafficAggregator} for a time window, rolled up to a collection resolution.
+ */
+public class TrafficSummary {
+
+    private String resolution;
+    private long start;
+    private long end;
+    private TrafficCounts total = new TrafficCounts();
+    private Map<String, TrafficCounts> repositories = Maps.newTreeMap();
+    private Map<String, TrafficCounts> users = Maps.newTreeMap();
+    private List<Bucket> buckets = Lists.newArrayList();
+
+    public String getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(String resolution) {
+        this.resolution = resolution;
+    }
+
+    /**
+     * @return Start of the summarized window in millis (inclusive)
+     */
+    public long getStart() {
+        return start;
+    }
+
+    public void setStart(long start) {
+        this.start = start;
+    }
+
+    /**
+     * @return End of the summarized window in millis (exclusive)
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    public void setEnd(long end) {
+        this.end = end;
+    }
+
+    public TrafficCounts getTotal() {
+        return total;
+    }
+
+    public void setTotal(TrafficCounts total) {
+        this.total = total;
+    }
+
+    /**
+     * @return Traffic of the whole window per repository key
+     */
+    public Map<String, TrafficCounts> getRepositories() {
+        return repositories;
+    }
+
+    public void setRepositories(Map<String, TrafficCounts> repositories) {
+        this.repositories = repositories;
+    }
+
+    /**
+     * @return Traffic of the whole window per username
+     */
+    public Map<String, TrafficCounts> getUsers() {
+        return users;
+    }
+
+    public void setUsers(Map<String, TrafficCounts> users) {
+        this.users = users;
+    }
+
+    /**
+     * @return Traffic totals per resolution interval, ordered by time. Intervals without traffic are omitted.
+     */
+    public List<Bucket> getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(List<Bucket> buckets) {
+        this.buckets = buckets;
+    }
+
+    public static class Bucket extends TrafficCounts {
+        private long start;
+
+        public Bucket() {
+        }
+
+        public Bucket(long start) {
+            this.start = start;
+        }
+
+        /**
+         * @return Start of the resolution interval in millis
+         */
+        public long getStart() {
+            return start;
+        }
+
+        public void setStart(long start) {
+            this.start = start;
+        }
+    }
+}
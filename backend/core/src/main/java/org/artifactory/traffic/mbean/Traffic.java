@@ -20,22 +20,28 @@
 
 package org.artifactory.traffic.mbean;
 
+import com.google.common.collect.Maps;
+import org.artifactory.traffic.InternalTrafficService;
 import org.artifactory.traffic.TrafficAction;
-import org.artifactory.traffic.TrafficService;
+import org.artifactory.traffic.TrafficCollectorResolution;
+import org.artifactory.traffic.TrafficCounts;
+import org.artifactory.traffic.TrafficSummary;
 import org.artifactory.traffic.entry.TrafficEntry;
 import org.artifactory.traffic.entry.TransferEntry;
 
 import java.util.Calendar;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Noam Tenne
  */
 public class Traffic implements TrafficMBean {
 
-    private final TrafficService trafficService;
+    private final InternalTrafficService trafficService;
 
-    public Traffic(TrafficService service) {
+    public Traffic(InternalTrafficService service) {
         trafficService = service;
     }
 
@@ -51,6 +57,51 @@ public class Traffic implements TrafficMBean {
         return sumTransfer(entries, TrafficAction.UPLOAD);
     }
 
+    @Override
+    public long getRecentDownloadSize(String resolution) {
+        return getRecentSummary(resolution).getTotal().getDownloadBytes();
+    }
+
+    @Override
+    public long getRecentUploadSize(String resolution) {
+        return getRecentSummary(resolution).getTotal().getUploadBytes();
+    }
+
+    @Override
+    public long getRecentDownloadCount(String resolution) {
+        return getRecentSummary(resolution).getTotal().getDownloadCount();
+    }
+
+    @Override
+    public long getRecentUploadCount(String resolution) {
+        return getRecentSummary(resolution).getTotal().getUploadCount();
+    }
+
+    @Override
+    public Map<String, Long> getRecentDownloadSizePerRepository(String resolution) {
+        Map<String, Long> result = Maps.newTreeMap();
+        for (Map.Entry<String, TrafficCounts> entry : getRecentSummary(resolution).getRepositories().entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getDownloadBytes());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getRecentUploadSizePerRepository(String resolution) {
+        Map<String, Long> result = Maps.newTreeMap();
+        for (Map.Entry<String, TrafficCounts> entry : getRecentSummary(resolution).getRepositories().entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getUploadBytes());
+        }
+        return result;
+    }
+
+    private TrafficSummary getRecentSummary(String resolutionName) {
+        TrafficCollectorResolution resolution = TrafficCollectorResolution.valueOf(resolutionName.toUpperCase());
+        long now = System.currentTimeMillis();
+        return trafficService.getTrafficSummary(resolution,
+                now - TimeUnit.SECONDS.toMillis(resolution.getSecs()), now + 1);
+    }
+
     private long sumTransfer(List<TrafficEntry> entries, TrafficAction action) {
         long sum = 0;
         for (TrafficEntry entry : entries) {
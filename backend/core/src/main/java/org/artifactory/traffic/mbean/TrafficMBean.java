@@ -20,6 +20,8 @@
 
 package org.artifactory.traffic.mbean;
 
+import java.util.Map;
+
 /**
  * @author Noam Tenne
  */
@@ -28,4 +30,32 @@ public interface TrafficMBean {
     long getAccumulatedDownloadSize(long from, long to);
 
     long getAccumulatedUploadSize(long from, long to);
+
+    /**
+     * @param resolution A traffic collection resolution name (minute, hour, day...)
+     * @return Bytes downloaded from this node during the last resolution interval
+     */
+    long getRecentDownloadSize(String resolution);
+
+    /**
+     * @param resolution A traffic collection resolution name (minute, hour, day...)
+     * @return Bytes uploaded to this node during the last resolution interval
+     */
+    long getRecentUploadSize(String resolution);
+
+    long getRecentDownloadCount(String resolution);
+
+    long getRecentUploadCount(String resolution);
+
+    /**
+     * @param resolution A traffic collection resolution name (minute, hour, day...)
+     * @return Bytes downloaded from this node during the last resolution interval per repository key
+     */
+    Map<String, Long> getRecentDownloadSizePerRepository(String resolution);
+
+    /**
+     * @param resolution A traffic collection resolution name (minute, hour, day...)
+     * @return Bytes uploaded to this node during the last resolution interval per repository key
+     */
+    Map<String, Long> getRecentUploadSizePerRepository(String resolution);
 }
@@ -15,16 +15,27 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Method;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
+ * A queue of pending work items keyed by {@link WorkItem#getUniqueKey()}.
+ * <p>
+ * Work items with the same unique key run one at a time, in the order they were offered. A work item offered while an
+ * equal work item is pending is coalesced with it, and both are promoted together in a single step. Work items with
+ * the same key that are not equal are not coalesced, they wait behind each other unless the offered work item can be
+ * {@link WorkItem#mergeWithPending(WorkItem) merged} with the last pending one. Pending keys are kept in insertion
+ * order, keys that are currently locked (running on this node or on another HA node) are skipped and retried later.
+ *
  * @author Gidi Shabat
  * @author Dan Feldman
  */
@@ -32,9 +43,13 @@ public class NonBlockingOnWriteQueue<T extends WorkItem> {
     private static final Logger log = LoggerFactory.getLogger(NonBlockingOnWriteQueue.class);
 
     private final ConflictsGuard<String> conflictsGuard;
-    private final ConcurrentLinkedQueue<WorkItemWrapper<T>> pendingQueue;
-    private final Set<WorkQueuePromotedItem<T>> promotedWorkItems;
-    private boolean running = true;
+    private final ConcurrentMap<String, PendingKey<T>> pendingWorkItems;
+    // Insertion order of the pending keys, may contain keys that were already promoted
+    private final ConcurrentLinkedDeque<PendingKey<T>> pendingOrder;
+    private final ConcurrentMap<String, WorkQueuePromotedItem<T>> promotedWorkItems;
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private volatile boolean running = true;
 
     /**
      * Constructor package limited
@@ -43,8 +58,9 @@ public class NonBlockingOnWriteQueue<T extends WorkItem> {
      */
     NonBlockingOnWriteQueue(String name) {
         conflictsGuard = ContextHelper.get().beanForType(AddonsManager.class).addonByType(HaAddon.class).getConflictsGuard(name);
-        pendingQueue = new ConcurrentLinkedQueue<>();
-        promotedWorkItems = new CopyOnWriteArraySet<>();
+        pendingWorkItems = new ConcurrentHashMap<>();
+        pendingOrder = new ConcurrentLinkedDeque<>();
+        promotedWorkItems = new ConcurrentHashMap<>();
     }
 
     /**
@@ -56,10 +72,23 @@ public class NonBlockingOnWriteQueue<T extends WorkItem> {
             return false;
         }
         log.trace("adding {}: to queue", workItem);
-        WorkItemWrapper<T> wrapper = new WorkItemWrapper<>(workItem, method);
-        boolean result = pendingQueue.add(wrapper);
-        log.trace("added {} to queue, success: {}", workItem, result);
-        return result;
+        List<PendingKey<T>> created = new ArrayList<>(1);
+        pendingWorkItems.compute(workItem.getUniqueKey(), (key, pending) -> {
+            if (pending == null) {
+                pending = new PendingKey<>(key);
+                created.add(pending);
+            }
+            if (pending.add(workItem, method)) {
+                coalescedCount.incrementAndGet();
+            }
+            pendingCount.incrementAndGet();
+            return pending;
+        });
+        if (!created.isEmpty()) {
+            pendingOrder.addLast(created.get(0));
+        }
+        log.trace("added {} to queue", workItem);
+        return true;
     }
 
     /**
@@ -70,71 +99,100 @@ public class NonBlockingOnWriteQueue<T extends WorkItem> {
             log.debug("Trying to promote a queue item when queue being stopped");
             return null;
         }
-        WorkItemWrapper<T> workItemWrapper = acquireLockOnKey();
+        PendingWorkItems<T> pending = acquireLockOnKey();
         //TODO [by dan]: propagate event to all HA nodes to clear the workItem from their own queue
         //TODO or if lock couldn't be acquired clear current work item from queue (+ notify)?
-        if (workItemWrapper != null) {
-            T workItem = workItemWrapper.getWorkItem();
+        if (pending != null) {
+            List<T> associated = pending.getWorkItems();
+            T workItem = pending.first();
             log.trace("promoting  {}: workItem", workItem);
-            WorkQueuePromotedItem<T> promotedItem = new WorkQueuePromotedItem<>(workItem, workItemWrapper.getMethod(),
-                    pendingQueue.stream()
-                            .filter(pendingItem -> pendingItem.getWorkItem().equals(workItem))
-                            .map(WorkItemWrapper::getWorkItem)
-                            .collect(Collectors.toList()));
-            if (!promotedWorkItems.add(promotedItem)) {
+            WorkQueuePromotedItem<T> promotedItem = new WorkQueuePromotedItem<>(workItem, pending.method, associated);
+            if (promotedWorkItems.putIfAbsent(pending.key, promotedItem) != null) {
                 // There should be only one promoted item with the same key
                 // Removing lock to make sure it does not leak
-                conflictsGuard.unlock(workItem.getUniqueKey());
+                conflictsGuard.unlock(pending.key);
                 throw new IllegalStateException("There can be only one process running work for " + workItem);
             }
-            pendingQueue.removeIf(t -> {
-                if (t.getWorkItem().equals(workItem)) {
-                    // Be aware that ref equality is what's needed here
-                    for (T t1 : promotedItem.pendingWorkItemsAssociated) {
-                        if (t.getWorkItem() == t1) {
-                            return true;
-                        }
-                    }
-                }
-                return false;
-            });
             return promotedItem;
         }
         return null;
     }
 
     /**
-     * The method tries to acquire lock on one of the queue workItems
+     * Tries to acquire lock on one of the pending keys, in insertion order. The returned entry is the oldest group of
+     * equal work items of the key, removed from the key pending groups. Keys with more pending groups stay pending
+     * behind the promoted one.
      */
-    private WorkItemWrapper<T> acquireLockOnKey() {
+    private PendingWorkItems<T> acquireLockOnKey() {
         if (!running) {
             log.debug("Trying to acquire lock on a queue item when queue being stopped");
             return null;
         }
-        // Some of the workItems might be temporary locked by other workers
-        // Try to acquire lock on one of the workItems in pendingQueue
-        for (WorkItemWrapper<T> workItemWrapper : pendingQueue) {
-            T workItem = workItemWrapper.getWorkItem();
+        // Some of the keys might be temporary locked by other workers, each pending key is tried at most once
+        int maxLockAttempts = pendingWorkItems.size();
+        PendingKey<T> pendingKey;
+        while (maxLockAttempts > 0 && (pendingKey = pendingOrder.pollFirst()) != null) {
+            if (pendingWorkItems.get(pendingKey.key) != pendingKey) {
+                // Already promoted by another worker
+                continue;
+            }
+            maxLockAttempts--;
+            if (promotedWorkItems.containsKey(pendingKey.key)) {
+                // A work item with the same key is running on this node, keep waiting behind it
+                pendingOrder.addLast(pendingKey);
+                continue;
+            }
             boolean acquired = false;
             try {
-                acquired = conflictsGuard.tryToLock(workItem.getUniqueKey(), 0, SECONDS);
+                acquired = conflictsGuard.tryToLock(pendingKey.key, 0, SECONDS);
             } catch (InterruptedException e) {
-                log.error("Failed to acquire lock for workItem {}", workItem);
+                log.error("Failed to acquire lock for workItem {}", pendingKey.key);
             }
-            // Successfully acquire lock on workItem the return the workItem else try another workItem
-            if (acquired) {
-                return workItemWrapper;
+            if (!acquired) {
+                // Keep the key pending and try another one
+                pendingOrder.addLast(pendingKey);
+                continue;
             }
+            PendingWorkItems<T> pending = pollFirstGroup(pendingKey);
+            if (pending != null) {
+                pendingCount.addAndGet(-pending.size());
+                return pending;
+            }
+            conflictsGuard.unlock(pendingKey.key);
         }
         return null;
     }
 
+    /**
+     * Removes the oldest group of the pending key. The key stays pending (at the end of the keys order) if it has more
+     * groups, otherwise it is removed and work items offered for the same key from now on are added to a new key.
+     *
+     * @return The oldest group or null if the key was already promoted by another worker
+     */
+    private PendingWorkItems<T> pollFirstGroup(PendingKey<T> pendingKey) {
+        List<PendingWorkItems<T>> polled = new ArrayList<>(1);
+        pendingWorkItems.computeIfPresent(pendingKey.key, (key, current) -> {
+            if (current != pendingKey) {
+                return current;
+            }
+            polled.add(current.pollFirst());
+            return current.isEmpty() ? null : current;
+        });
+        if (polled.isEmpty()) {
+            return null;
+        }
+        if (!pendingKey.isEmpty()) {
+            pendingOrder.addLast(pendingKey);
+        }
+        return polled.get(0);
+    }
+
     /**
      * Remove workItem from queue
      */
     public boolean remove(WorkQueuePromotedItem<T> promotedItem) {
         try {
-            promotedWorkItems.remove(promotedItem);
+            promotedWorkItems.remove(promotedItem.workItem.getUniqueKey(), promotedItem);
             finishedWithPromotedWorkItem(promotedItem);
         } catch (Exception e) {
             log.info("Exception while notifying work item  waiters " + promotedItem.workItem + " on remove: " +
@@ -171,8 +229,10 @@ public class NonBlockingOnWriteQueue<T extends WorkItem> {
      */
     public void stop() {
         running = false;
-        pendingQueue.clear();
-        List<WorkQueuePromotedItem<T>> list = new ArrayList<>(promotedWorkItems);
+        pendingWorkItems.clear();
+        pendingOrder.clear();
+        pendingCount.set(0);
+        List<WorkQueuePromotedItem<T>> list = new ArrayList<>(promotedWorkItems.values());
         for (WorkQueuePromotedItem<T> promotedItem : list) {
             remove(promotedItem);
         }
@@ -194,14 +254,25 @@ public class NonBlockingOnWriteQueue<T extends WorkItem> {
     }
 
     /**
-     * Returns the pending size of the queue
-     *
-     * BEWARE: This method calls non-constant time operations on the queue and the locking map, in HA scenarios the
-     * results from the locking map reflect tasks running on this node and others as well as well as the pending tasks
-     * on this node alone - refrain from using this outside of tests!
+     * @return Number of pending work items on this node, including the coalesced ones
      */
     public int getQueueSize() {
-        return pendingQueue.size();
+        return pendingCount.get();
+    }
+
+    /**
+     * @return Number of work items promoted on this node that are still running
+     */
+    public int getRunningCount() {
+        return promotedWorkItems.size();
+    }
+
+    /**
+     * @return Number of work items that were offered while an equal work item was already pending, or that were merged
+     * with the last pending work item of their key
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
     }
 
     /**
@@ -215,12 +286,9 @@ public class NonBlockingOnWriteQueue<T extends WorkItem> {
             log.debug("Trying to check for contains a queue item when queue being stopped");
             return false;
         }
-        for (WorkItemWrapper<T> itemWrapper : pendingQueue) {
-            WorkItem item = itemWrapper.getWorkItem();
-            // Be aware that ref equality is what's needed here
-            if (item == workItem) {
-                return true;
-            }
+        PendingKey<T> pending = pendingWorkItems.get(workItem.getUniqueKey());
+        if (pending != null && pending.containsExact(workItem)) {
+            return true;
         }
         // The lock is used to make sure a promotion is not half in process
         if (conflictsGuard.isLocked(workItem.getUniqueKey())) {
@@ -249,20 +317,19 @@ public class NonBlockingOnWriteQueue<T extends WorkItem> {
         private boolean foundExactWorkItem = false;
 
         PromotedFoundItems(T workItem) {
-            for (WorkQueuePromotedItem<T> promotedItem : promotedWorkItems) {
-                // Be aware that here it's unique key equality. There should be only one here
-                if (promotedItem.workItem.equals(workItem)) {
-                    foundCurrentWork = true;
-                    // Be aware that ref equality is what's needed here
-                    if (promotedItem.workItem == workItem) {
-                        foundExactWorkItem = true;
-                    } else {
-                        // Find in associated work items
-                        for (T item : promotedItem.pendingWorkItemsAssociated) {
-                            if (item == workItem) {
-                                foundExactWorkItem = true;
-                                break;
-                            }
+            // Be aware that here it's unique key equality. There should be only one here
+            WorkQueuePromotedItem<T> promotedItem = promotedWorkItems.get(workItem.getUniqueKey());
+            if (promotedItem != null) {
+                foundCurrentWork = true;
+                // Be aware that ref equality is what's needed here
+                if (promotedItem.workItem == workItem) {
+                    foundExactWorkItem = true;
+                } else {
+                    // Find in associated work items
+                    for (T item : promotedItem.pendingWorkItemsAssociated) {
+                        if (item == workItem) {
+                            foundExactWorkItem = true;
+                            break;
                         }
                     }
                 }
@@ -283,4 +350,114 @@ public class NonBlockingOnWriteQueue<T extends WorkItem> {
             return this;
         }
     }
+
+    /**
+     * The groups of equal work items pending for the same unique key, in the order they were offered. Groups are added
+     * and removed only while the key is mapped in the pending work items (under the map compute lock of the key).
+     */
+    private static class PendingKey<T extends WorkItem> {
+        private final String key;
+        private final Deque<PendingWorkItems<T>> groups = new ArrayDeque<>(1);
+
+        private PendingKey(String key) {
+            this.key = key;
+        }
+
+        /**
+         * @return True if the work item was coalesced with an equal pending work item or merged with the last one
+         */
+        @SuppressWarnings("unchecked")
+        private synchronized boolean add(T workItem, Method method) {
+            for (PendingWorkItems<T> group : groups) {
+                if (group.first().equals(workItem)) {
+                    group.add(workItem);
+                    return true;
+                }
+            }
+            PendingWorkItems<T> last = groups.peekLast();
+            if (last != null) {
+                T merged = (T) workItem.mergeWithPending(last.first());
+                if (merged != null) {
+                    last.merge(merged, workItem);
+                    return true;
+                }
+            }
+            PendingWorkItems<T> group = new PendingWorkItems<>(key, method);
+            group.add(workItem);
+            groups.addLast(group);
+            return false;
+        }
+
+        private synchronized PendingWorkItems<T> pollFirst() {
+            return groups.pollFirst();
+        }
+
+        private synchronized boolean isEmpty() {
+            return groups.isEmpty();
+        }
+
+        private synchronized boolean containsExact(T workItem) {
+            for (PendingWorkItems<T> group : groups) {
+                if (group.containsExact(workItem)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Work items pending for the same unique key that are equal or were merged, promoted together
+     */
+    private static class PendingWorkItems<T extends WorkItem> {
+        private final String key;
+        private final Method method;
+        // The offered work items, their waiters are notified when the group is done
+        private final List<T> workItems = new ArrayList<>(1);
+        // The work item that runs for the group, the first offered one unless merged
+        private T workItem;
+
+        private PendingWorkItems(String key, Method method) {
+            this.key = key;
+            this.method = method;
+        }
+
+        private synchronized void add(T workItem) {
+            if (this.workItem == null) {
+                this.workItem = workItem;
+            }
+            workItems.add(workItem);
+        }
+
+        /**
+         * Replaces the work item that runs for the group with a work item doing the work of the group and of the
+         * offered work item
+         */
+        private synchronized void merge(T merged, T workItem) {
+            this.workItem = merged;
+            workItems.add(workItem);
+        }
+
+        private synchronized T first() {
+            return workItem;
+        }
+
+        private synchronized int size() {
+            return workItems.size();
+        }
+
+        private synchronized List<T> getWorkItems() {
+            return new ArrayList<>(workItems);
+        }
+
+        private synchronized boolean containsExact(T workItem) {
+            for (T item : workItems) {
+                // Be aware that ref equality is what's needed here
+                if (item == workItem) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
 }
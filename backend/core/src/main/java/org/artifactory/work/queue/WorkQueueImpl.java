@@ -144,6 +144,16 @@ public class WorkQueueImpl<T extends WorkItem> implements WorkQueue<T>, WorkQueu
         return queue.getQueueSize();
     }
 
+    @Override
+    public int getRunningCount() {
+        return queue.getRunningCount();
+    }
+
+    @Override
+    public long getCoalescedCount() {
+        return queue.getCoalescedCount();
+    }
+
     @Override
     public int getNumberOfWorkers() {
         return workers - semaphore.availablePermits();
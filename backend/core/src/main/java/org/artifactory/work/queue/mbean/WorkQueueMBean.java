@@ -12,6 +12,8 @@ package org.artifactory.work.queue.mbean;
 public interface WorkQueueMBean {
 
     int getQueueSize();
+    int getRunningCount();
+    long getCoalescedCount();
     int getNumberOfWorkers();
     int getMaxNumberOfWorkers();
     String getName();
@@ -28,6 +28,16 @@ public class BuildRetentionWorkQueue implements BuildRetentionWorkQueueMBean {
         return workQueueMBean.getMaxNumberOfWorkers();
     }
 
+    @Override
+    public int getRunningCount() {
+        return workQueueMBean.getRunningCount();
+    }
+
+    @Override
+    public long getCoalescedCount() {
+        return workQueueMBean.getCoalescedCount();
+    }
+
     @Override
     public String getName() {
         return workQueueMBean.getName();
@@ -33,6 +33,16 @@ public class ChecksumCalculationJobWorkQueue implements ChecksumCalculationJobWo
         return workQueueMBean.getMaxNumberOfWorkers();
     }
 
+    @Override
+    public int getRunningCount() {
+        return workQueueMBean.getRunningCount();
+    }
+
+    @Override
+    public long getCoalescedCount() {
+        return workQueueMBean.getCoalescedCount();
+    }
+
     @Override
     public String getName() {
         return workQueueMBean.getName();
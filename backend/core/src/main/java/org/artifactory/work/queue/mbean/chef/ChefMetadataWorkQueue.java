@@ -31,6 +31,16 @@ public class ChefMetadataWorkQueue implements ChefMetadataWorkQueueMBean {
         return workQueueMBean.getMaxNumberOfWorkers();
     }
 
+    @Override
+    public int getRunningCount() {
+        return workQueueMBean.getRunningCount();
+    }
+
+    @Override
+    public long getCoalescedCount() {
+        return workQueueMBean.getCoalescedCount();
+    }
+
     @Override
     public String getName() {
         return workQueueMBean.getName();
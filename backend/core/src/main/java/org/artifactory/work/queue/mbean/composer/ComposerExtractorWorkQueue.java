@@ -27,6 +27,16 @@ public class ComposerExtractorWorkQueue implements ComposerExtractorWorkQueueMBe
         return workQueueMBean.getMaxNumberOfWorkers();
     }
 
+    @Override
+    public int getRunningCount() {
+        return workQueueMBean.getRunningCount();
+    }
+
+    @Override
+    public long getCoalescedCount() {
+        return workQueueMBean.getCoalescedCount();
+    }
+
     @Override
     public String getName() {
         return workQueueMBean.getName();
@@ -0,0 +1,186 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.maven;
+
+import com.google.common.collect.Lists;
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Snapshot;
+import org.apache.maven.artifact.repository.metadata.SnapshotVersion;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+import org.artifactory.api.module.ModuleInfo;
+import org.artifactory.maven.IncrementalMavenMetadataCalculator.Result;
+import org.artifactory.maven.snapshot.BuildNumberSnapshotComparator;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Tests the metadata updates of the {@link IncrementalMavenMetadataCalculator}.
+ */
+@Test
+public class IncrementalMavenMetadataCalculatorTest {
+
+    private static final String SNAPSHOT_FOLDER = "org/jfrog/test/1.0-SNAPSHOT/";
+
+    public void addVersion() {
+        Metadata metadata = versionsMetadata("1.0", "1.1", "2.0");
+        assertEquals(IncrementalMavenMetadataCalculator.applyVersion(metadata, "1.2", true), Result.UPDATED);
+        assertEquals(metadata.getVersioning().getVersions(), Lists.newArrayList("1.0", "1.1", "1.2", "2.0"));
+        assertEquals(metadata.getVersioning().getLatest(), "2.0");
+        assertEquals(metadata.getVersioning().getRelease(), "2.0");
+        assertEquals(metadata.getVersion(), "2.0");
+    }
+
+    public void addLatestSnapshotVersion() {
+        Metadata metadata = versionsMetadata("1.0", "1.1");
+        assertEquals(IncrementalMavenMetadataCalculator.applyVersion(metadata, "1.2-SNAPSHOT", true), Result.UPDATED);
+        assertEquals(metadata.getVersioning().getLatest(), "1.2-SNAPSHOT");
+        assertEquals(metadata.getVersioning().getRelease(), "1.1");
+        assertEquals(metadata.getVersion(), "1.2-SNAPSHOT");
+    }
+
+    public void removeLatestVersion() {
+        Metadata metadata = versionsMetadata("1.0", "1.1-SNAPSHOT", "1.1");
+        assertEquals(IncrementalMavenMetadataCalculator.applyVersion(metadata, "1.1", false), Result.UPDATED);
+        assertEquals(metadata.getVersioning().getVersions(), Lists.newArrayList("1.0", "1.1-SNAPSHOT"));
+        assertEquals(metadata.getVersioning().getLatest(), "1.1-SNAPSHOT");
+        assertEquals(metadata.getVersioning().getRelease(), "1.0");
+    }
+
+    public void removeOnlyReleaseVersion() {
+        Metadata metadata = versionsMetadata("1.0", "1.1-SNAPSHOT");
+        assertEquals(IncrementalMavenMetadataCalculator.applyVersion(metadata, "1.0", false), Result.UPDATED);
+        assertNull(metadata.getVersioning().getRelease());
+    }
+
+    public void versionAlreadyUpToDate() {
+        Metadata metadata = versionsMetadata("1.0", "1.1");
+        assertEquals(IncrementalMavenMetadataCalculator.applyVersion(metadata, "1.1", true), Result.UP_TO_DATE);
+        assertEquals(IncrementalMavenMetadataCalculator.applyVersion(metadata, "1.2", false), Result.UP_TO_DATE);
+    }
+
+    public void removeLastVersionRequiresFullCalculation() {
+        Metadata metadata = versionsMetadata("1.0");
+        assertEquals(IncrementalMavenMetadataCalculator.applyVersion(metadata, "1.0", false), Result.INCONSISTENT);
+    }
+
+    public void unsortedVersionsRequireFullCalculation() {
+        Metadata metadata = versionsMetadata("1.1", "1.0");
+        metadata.getVersioning().setLatest("1.0");
+        metadata.setVersion("1.0");
+        metadata.getVersioning().setRelease("1.0");
+        assertEquals(IncrementalMavenMetadataCalculator.applyVersion(metadata, "1.2", true), Result.INCONSISTENT);
+    }
+
+    public void wrongLatestRequiresFullCalculation() {
+        Metadata metadata = versionsMetadata("1.0", "1.1");
+        metadata.getVersioning().setLatest("1.0");
+        assertEquals(IncrementalMavenMetadataCalculator.applyVersion(metadata, "1.2", true), Result.INCONSISTENT);
+    }
+
+    public void newerSnapshotPom() {
+        Metadata metadata = snapshotMetadata(3);
+        String pom = "test-1.0-20160101.120000-4.pom";
+        assertEquals(applySnapshot(metadata, pom), Result.UPDATED);
+        Versioning versioning = metadata.getVersioning();
+        assertEquals(versioning.getSnapshot().getBuildNumber(), 4);
+        assertEquals(versioning.getSnapshot().getTimestamp(), "20160101.120000");
+        assertEquals(versioning.getSnapshotVersions().size(), 2);
+        assertEquals(findSnapshotVersion(versioning, "pom").getVersion(), "1.0-20160101.120000-4");
+        assertEquals(findSnapshotVersion(versioning, "jar").getVersion(), "1.0-20160101.120000-3");
+    }
+
+    public void newSnapshotExtension() {
+        Metadata metadata = snapshotMetadata(3);
+        assertEquals(applySnapshot(metadata, "test-1.0-20160101.120000-3.war"), Result.UPDATED);
+        assertEquals(metadata.getVersioning().getSnapshot().getBuildNumber(), 3);
+        assertEquals(metadata.getVersioning().getSnapshotVersions().size(), 3);
+    }
+
+    public void olderSnapshotPom() {
+        Metadata metadata = snapshotMetadata(3);
+        assertEquals(applySnapshot(metadata, "test-1.0-20151231.120000-2.pom"), Result.UP_TO_DATE);
+        assertEquals(metadata.getVersioning().getSnapshot().getBuildNumber(), 3);
+    }
+
+    public void nonUniqueSnapshotMetadataRequiresFullCalculation() {
+        Metadata metadata = snapshotMetadata(3);
+        metadata.getVersioning().getSnapshot().setTimestamp(null);
+        assertEquals(applySnapshot(metadata, "test-1.0-20160101.120000-4.pom"), Result.INCONSISTENT);
+    }
+
+    private Result applySnapshot(Metadata metadata, String fileName) {
+        ModuleInfo moduleInfo = MavenMetadataCalculator.uniqueSnapshotModuleInfo(SNAPSHOT_FOLDER + fileName);
+        return IncrementalMavenMetadataCalculator.applySnapshot(metadata, fileName, moduleInfo, true,
+                BuildNumberSnapshotComparator.get());
+    }
+
+    private Metadata versionsMetadata(String... versions) {
+        Metadata metadata = new Metadata();
+        metadata.setGroupId("org.jfrog");
+        metadata.setArtifactId("test");
+        Versioning versioning = new Versioning();
+        for (String version : versions) {
+            versioning.addVersion(version);
+        }
+        String latest = versions[versions.length - 1];
+        versioning.setLatest(latest);
+        for (String version : versions) {
+            if (!version.endsWith("-SNAPSHOT")) {
+                versioning.setRelease(version);
+            }
+        }
+        metadata.setVersion(latest);
+        metadata.setVersioning(versioning);
+        return metadata;
+    }
+
+    private Metadata snapshotMetadata(int buildNumber) {
+        Metadata metadata = new Metadata();
+        metadata.setGroupId("org.jfrog");
+        metadata.setArtifactId("test");
+        metadata.setVersion("1.0-SNAPSHOT");
+        Versioning versioning = new Versioning();
+        Snapshot snapshot = new Snapshot();
+        snapshot.setBuildNumber(buildNumber);
+        snapshot.setTimestamp("20160101.120000");
+        versioning.setSnapshot(snapshot);
+        versioning.addSnapshotVersion(snapshotVersion("pom", buildNumber));
+        versioning.addSnapshotVersion(snapshotVersion("jar", buildNumber));
+        metadata.setVersioning(versioning);
+        return metadata;
+    }
+
+    private SnapshotVersion snapshotVersion(String extension, int buildNumber) {
+        SnapshotVersion snapshotVersion = new SnapshotVersion();
+        snapshotVersion.setExtension(extension);
+        snapshotVersion.setVersion("1.0-20160101.120000-" + buildNumber);
+        snapshotVersion.setUpdated("20160101120000");
+        return snapshotVersion;
+    }
+
+    private SnapshotVersion findSnapshotVersion(Versioning versioning, String extension) {
+        return versioning.getSnapshotVersions().stream()
+                .filter(snapshotVersion -> extension.equals(snapshotVersion.getExtension()))
+                .findFirst().orElse(null);
+    }
+}
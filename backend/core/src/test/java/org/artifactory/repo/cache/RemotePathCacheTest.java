@@ -0,0 +1,110 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.repo.cache;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the {@link RemotePathCache}.
+ */
+@Test
+public class RemotePathCacheTest {
+
+    public void removeSubPaths() {
+        RemotePathCache<String> cache = new RemotePathCache<>(-1, false);
+        cache.put("org/jfrog", "a");
+        cache.put("org/jfrog/test", "b");
+        cache.put("org/jfrog/test/1.0/test-1.0.jar", "c");
+        cache.put("org/jfrogger", "d");
+        cache.put("org/apache", "e");
+        cache.put("org/zzz", "f");
+
+        cache.removeSubPaths("org/jfrog/");
+        assertEquals(cache.size(), 4);
+        assertTrue(cache.containsKey("org/jfrog"));
+        assertFalse(cache.containsKey("org/jfrog/test"));
+        assertFalse(cache.containsKey("org/jfrog/test/1.0/test-1.0.jar"));
+
+        // Same semantics as a plain String#startsWith on the keys
+        cache.removeSubPaths("org/jfrog");
+        assertEquals(cache.size(), 2);
+        assertTrue(cache.containsKey("org/apache"));
+        assertTrue(cache.containsKey("org/zzz"));
+    }
+
+    public void hitsAndMisses() {
+        RemotePathCache<String> cache = new RemotePathCache<>(-1, true);
+        cache.put("a/b", "value");
+        assertEquals(cache.get("a/b"), "value");
+        assertNull(cache.get("a/c"));
+        assertTrue(cache.containsKey("a/b"));
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 1);
+        assertEquals(cache.getEvictionCount(), 0);
+    }
+
+    public void expireAfterWrite() {
+        RemotePathCache<String> cache = new RemotePathCache<>(0, false);
+        cache.put("a/b", "value");
+        assertNull(cache.get("a/b"));
+        assertEquals(cache.getEvictionCount(), 1);
+        assertTrue(cache.isEmpty());
+    }
+
+    public void expiredEntriesPurgedOnWrite() {
+        RemotePathCache<String> cache = new RemotePathCache<>(0, false);
+        for (int i = 0; i < 100; i++) {
+            cache.put("path/" + i, "value");
+        }
+        // Every write purges the previously written (and already expired) entries
+        assertEquals(cache.size(), 1);
+        assertEquals(cache.getEvictionCount(), 99);
+    }
+
+    public void rewriteIsNotEvictedByOldEntry() {
+        RemotePathCache<String> cache = new RemotePathCache<>(60, false);
+        cache.put("a/b", "old");
+        cache.put("a/b", "new");
+        assertEquals(cache.get("a/b"), "new");
+        cache.remove("a/b");
+        assertNull(cache.get("a/b"));
+        assertEquals(cache.getEvictionCount(), 0);
+    }
+
+    public void removedAndReplacedEntriesLeaveWriteOrder() {
+        RemotePathCache<String> cache = new RemotePathCache<>(60, false);
+        for (int i = 0; i < 100; i++) {
+            cache.put("a/b", "value" + i);
+            cache.put("a/c/" + i, "value");
+        }
+        assertEquals(cache.size(), 101);
+        assertEquals(cache.writeOrderSize(), 101);
+
+        cache.remove("a/b");
+        assertEquals(cache.writeOrderSize(), 100);
+        cache.removeSubPaths("a/c/");
+        assertTrue(cache.isEmpty());
+        assertEquals(cache.writeOrderSize(), 0);
+        assertEquals(cache.getEvictionCount(), 0);
+    }
+}
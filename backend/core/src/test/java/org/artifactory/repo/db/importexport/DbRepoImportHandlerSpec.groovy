@@ -29,6 +29,7 @@ import org.artifactory.api.context.ArtifactoryContextThreadBinder
 import org.artifactory.api.maven.MavenMetadataService
 import org.artifactory.api.security.AuthorizationService
 import org.artifactory.common.ArtifactoryHome
+import org.artifactory.common.ConstantValues
 import org.artifactory.descriptor.repo.LocalRepoDescriptor
 import org.artifactory.mime.MimeTypes
 import org.artifactory.mime.MimeTypesReader
@@ -77,6 +78,7 @@ class DbRepoImportHandlerSpec extends Specification {
     private importInterceptors
     private aggregationInterceptors
     private artifactoryContext
+    private ArtifactoryHomeStub artifactoryHome
 
     def setup() {
         repoRoot = Files.createTempDir()
@@ -250,6 +252,64 @@ class DbRepoImportHandlerSpec extends Specification {
         !importSettings.getStatusHolder().isError()
     }
 
+    def "Import top level folders as partitions on worker threads"() {
+        setup:
+
+        artifactoryHome.setProperty(ConstantValues.importPartitionWorkers, "2")
+        artifactoryHome.setProperty(ConstantValues.importPartitionPrefetchFiles, "0")
+        makeFiles("a/file-a.jar", "b/file-b.jar", "file-c.jar")
+        def importSettings = new RepositoryImportSettingsImpl(repoRoot)
+
+        def localRepo = Mock(LocalRepo)
+
+        def repoName = "test-repo"
+        def rootPath = InternalRepoPathFactory.repoRootPath(repoName)
+        def folderPathA = InternalRepoPathFactory.create(rootPath, "a")
+        def folderPathB = InternalRepoPathFactory.create(rootPath, "b")
+        def fileRepoPathA = InternalRepoPathFactory.create(folderPathA, "file-a.jar")
+        def fileRepoPathB = InternalRepoPathFactory.create(folderPathB, "file-b.jar")
+        def fileRepoPathC = InternalRepoPathFactory.create(rootPath, "file-c.jar")
+
+        localRepo.getKey() >> repoName
+        localRepo.getDescriptor() >> Mock(LocalRepoDescriptor)
+        localRepo.isCache() >> false
+        localRepo.toString() >> "Mock for local repo 'test-repo'"
+
+        repositoryService.localOrCachedRepositoryByKey(repoName) >> localRepo
+
+        def rootFolder = Mock(MutableVfsFolder) { getRepoPath() >> rootPath }
+        def folderA = Mock(MutableVfsFolder) { getRepoPath() >> folderPathA }
+        def folderB = Mock(MutableVfsFolder) { getRepoPath() >> folderPathB }
+        def vfsFileA = Mock(MutableVfsFile) { getRepoPath() >> fileRepoPathA }
+        def vfsFileB = Mock(MutableVfsFile) { getRepoPath() >> fileRepoPathB }
+        def vfsFileC = Mock(MutableVfsFile) { getRepoPath() >> fileRepoPathC }
+        def partitionThreads = Collections.synchronizedSet(new HashSet<String>())
+
+        def handler = new DbRepoImportHandler(localRepo, importSettings, "")
+
+        when:
+
+        handler.executeImport()
+
+        then:
+
+        1 * localRepo.createOrGetFolder(rootPath) >> rootFolder
+        1 * localRepo.createOrGetFile(fileRepoPathC) >> vfsFileC
+        1 * localRepo.createOrGetFolder(folderPathA) >> {
+            partitionThreads << Thread.currentThread().getName()
+            folderA
+        }
+        1 * localRepo.createOrGetFolder(folderPathB) >> {
+            partitionThreads << Thread.currentThread().getName()
+            folderB
+        }
+        1 * localRepo.createOrGetFile(fileRepoPathA) >> vfsFileA
+        1 * localRepo.createOrGetFile(fileRepoPathB) >> vfsFileB
+
+        partitionThreads.every { it.startsWith("art-import-test-repo-") }
+        !importSettings.getStatusHolder().isError()
+    }
+
     @Ignore
     def "Test termination if parent task terminates"() {}
 
@@ -260,6 +320,9 @@ class DbRepoImportHandlerSpec extends Specification {
         def artifactoryHomeStub = new ArtifactoryHomeStub()
         artifactoryHomeStub.mimeTypes = mimeTypes
         ArtifactoryHome.bind(artifactoryHomeStub)
+        artifactoryHome = artifactoryHomeStub
+        // Bound by the import worker threads
+        artifactoryContext.getArtifactoryHome() >> artifactoryHomeStub
 
         setupContext(artifactoryContext)
     }
@@ -302,6 +365,7 @@ class DbRepoImportHandlerSpec extends Specification {
     def makeFiles(String... filenames) {
         filenames.each {
             def path = Paths.get(repoRoot.absolutePath, it)
+            Files.createParentDirs(path.toFile())
             Files.touch(path.toFile())
         }
     }
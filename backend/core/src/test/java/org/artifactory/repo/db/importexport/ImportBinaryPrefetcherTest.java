@@ -0,0 +1,114 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.repo.db.importexport;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.artifactory.storage.binstore.service.BinaryInfo;
+import org.artifactory.storage.binstore.service.InternalBinaryService;
+import org.jfrog.storage.binstore.ifc.BinaryStream;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.FutureTask;
+
+import static org.easymock.EasyMock.*;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+/**
+ * Tests the {@link ImportBinaryPrefetcher}.
+ */
+@Test
+public class ImportBinaryPrefetcherTest {
+
+    private File dir;
+    private InternalBinaryService binaryService;
+    private ImportBinaryPrefetcher prefetcher;
+
+    @BeforeMethod
+    public void setUp() {
+        dir = Files.createTempDir();
+        binaryService = createMock(InternalBinaryService.class);
+        // Run the binary tasks inline
+        prefetcher = new ImportBinaryPrefetcher(binaryService, task -> {
+            FutureTask<BinaryInfo> future = new FutureTask<>(task);
+            future.run();
+            return future;
+        }, 10);
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void onlyAcceptedFilesArePrefetched() throws Exception {
+        File accepted = newFile("accepted.jar");
+        File rejected = newFile("rejected.jar");
+        String sha1 = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+        BinaryInfo binary = createMock(BinaryInfo.class);
+        expect(binary.getSha1()).andStubReturn(sha1);
+        BinaryStream binaryStream = createMock(BinaryStream.class);
+        expect(binaryService.createBinaryStream(anyObject(InputStream.class), isNull())).andReturn(binaryStream);
+        expect(binaryService.addBinary(binaryStream)).andReturn(binary);
+        expect(binaryService.incrementNoDeleteLock(sha1)).andReturn(1);
+        replay(binaryService, binary, binaryStream);
+
+        List<File> files = Lists.newArrayList(accepted, rejected);
+        prefetcher.prefetch(files, 0, accepted::equals);
+        assertNull(prefetcher.take(rejected));
+        assertSame(prefetcher.take(accepted), binary);
+        verify(binaryService);
+    }
+
+    public void discardReleasesOnlyStoredBinaries() throws Exception {
+        File accepted = newFile("accepted.jar");
+        File rejected = newFile("rejected.jar");
+        String sha1 = "bbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbb";
+        BinaryInfo binary = createMock(BinaryInfo.class);
+        expect(binary.getSha1()).andStubReturn(sha1);
+        BinaryStream binaryStream = createMock(BinaryStream.class);
+        expect(binaryService.createBinaryStream(anyObject(InputStream.class), isNull())).andReturn(binaryStream);
+        expect(binaryService.addBinary(binaryStream)).andReturn(binary);
+        expect(binaryService.incrementNoDeleteLock(sha1)).andReturn(1);
+        binaryService.decrementNoDeleteLock(sha1);
+        expectLastCall();
+        replay(binaryService, binary, binaryStream);
+
+        List<File> files = Lists.newArrayList(accepted, rejected);
+        prefetcher.prefetch(files, 0, accepted::equals);
+        prefetcher.discard(files);
+        verify(binaryService);
+    }
+
+    private File newFile(String name) throws IOException {
+        File file = new File(dir, name);
+        Files.write(name.getBytes(), file);
+        return file;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.repo.remote.download;
+
+import org.apache.commons.io.IOUtils;
+import org.artifactory.resource.ResourceStreamHandle;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the {@link InFlightDownloads} registry and the streaming of in-flight downloads to followers.
+ */
+@Test
+public class InFlightDownloadsTest {
+
+    private static final String KEY = "repo1-cache:org/test/1.0/test-1.0.jar";
+
+    private File spoolDir;
+    private InFlightDownloads downloads;
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        spoolDir = Files.createTempDirectory("inflight").toFile();
+        downloads = new InFlightDownloads();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterMethod
+    public void cleanup() {
+        executor.shutdownNow();
+    }
+
+    public void followerStreamsWhileLeaderDownloads() throws Exception {
+        byte[] content = new byte[256 * 1024];
+        new Random(7).nextBytes(content);
+        InFlightDownload download = downloads.begin(KEY, content.length, spoolDir);
+        assertNotNull(download);
+        InputStream leaderStream = download.tee(new ByteArrayInputStream(content));
+
+        // Leader spools the first chunk before the follower attaches
+        byte[] chunk = new byte[1024];
+        assertEquals(leaderStream.read(chunk), chunk.length);
+
+        ResourceStreamHandle follower = downloads.follow(KEY, TimeUnit.SECONDS.toMillis(10));
+        assertNotNull(follower);
+        assertEquals(follower.getSize(), content.length);
+        Future<byte[]> followerContent = executor.submit(() -> IOUtils.toByteArray(follower.getInputStream()));
+
+        IOUtils.copy(leaderStream, IOUtils.NULL_OUTPUT_STREAM);
+        assertFalse(followerContent.isDone(), "Follower must not end before the leader saved the resource");
+        downloads.end(download, null);
+
+        assertEquals(followerContent.get(10, TimeUnit.SECONDS), content);
+        follower.close();
+        assertEquals(downloads.size(), 0);
+        assertEquals(spoolDir.list().length, 0, "Spool file should be deleted after all readers released it");
+    }
+
+    public void followerFailsWhenLeaderFails() throws Exception {
+        InFlightDownload download = downloads.begin(KEY, -1, spoolDir);
+        assertNotNull(download);
+        IOUtils.copy(download.tee(new ByteArrayInputStream(new byte[100])), IOUtils.NULL_OUTPUT_STREAM);
+        ResourceStreamHandle follower = downloads.follow(KEY, TimeUnit.SECONDS.toMillis(10));
+        assertNotNull(follower);
+        downloads.end(download, new IOException("Checksum mismatch"));
+        try {
+            IOUtils.toByteArray(follower.getInputStream());
+            fail("Follower should fail when the leader fails");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Checksum mismatch"), e.getMessage());
+        } finally {
+            follower.close();
+        }
+        assertEquals(spoolDir.list().length, 0);
+    }
+
+    public void followerTimesOutOnIdleLeader() throws Exception {
+        InFlightDownload download = downloads.begin(KEY, -1, spoolDir);
+        assertNotNull(download);
+        ResourceStreamHandle follower = downloads.follow(KEY, 50);
+        assertNotNull(follower);
+        try {
+            follower.getInputStream().read();
+            fail("Follower should time out when the leader makes no progress");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Timed-out"), e.getMessage());
+        } finally {
+            follower.close();
+            downloads.end(download, null);
+        }
+    }
+
+    public void noFollowWhenNoDownloadInFlight() throws Exception {
+        assertNull(downloads.follow(KEY, 10));
+        InFlightDownload download = downloads.begin(KEY, -1, spoolDir);
+        assertNotNull(download);
+        downloads.end(download, null);
+        assertNull(downloads.follow(KEY, 10));
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.repo.virtual;
+
+import com.google.common.collect.Lists;
+import org.artifactory.addon.AddonsManager;
+import org.artifactory.addon.LayoutsCoreAddon;
+import org.artifactory.api.context.ArtifactoryContextThreadBinder;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.descriptor.repo.RemoteRepoDescriptor;
+import org.artifactory.descriptor.repo.RepoLayout;
+import org.artifactory.descriptor.repo.VirtualRepoDescriptor;
+import org.artifactory.fs.RepoResource;
+import org.artifactory.repo.InternalRepoPathFactory;
+import org.artifactory.repo.RealRepo;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.repo.service.InternalRepositoryService;
+import org.artifactory.request.InternalRequestContext;
+import org.artifactory.resource.UnfoundRepoResource;
+import org.artifactory.spring.InternalArtifactoryContext;
+import org.artifactory.test.ArtifactoryHomeBoundTest;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.easymock.EasyMock.*;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+
+/**
+ * Tests the concurrent lookup of the standard resolution of {@link VirtualRepoDownloadStrategy}.
+ */
+@Test
+public class VirtualRepoDownloadStrategyTest extends ArtifactoryHomeBoundTest {
+
+    private static final String PATH = "org/jfrog/lib/1.0/lib-1.0.jar";
+
+    private final RepoPath repoPath = InternalRepoPathFactory.create("virtual", PATH);
+    private VirtualRepo virtualRepo;
+    private InternalRequestContext requestContext;
+
+    @BeforeMethod
+    public void setUp() {
+        homeStub.setProperty(ConstantValues.virtualParallelLookupEnabled, "true");
+        homeStub.setProperty(ConstantValues.virtualParallelLookupMaxConcurrency, "4");
+        LayoutsCoreAddon layoutsCoreAddon = createNiceMock(LayoutsCoreAddon.class);
+        expect(layoutsCoreAddon.translateArtifactPath(anyObject(RepoLayout.class), anyObject(RepoLayout.class),
+                anyString())).andStubAnswer(() -> (String) getCurrentArguments()[2]);
+        AddonsManager addonsManager = createNiceMock(AddonsManager.class);
+        expect(addonsManager.addonByType(LayoutsCoreAddon.class)).andStubReturn(layoutsCoreAddon);
+        InternalArtifactoryContext context = createNiceMock(InternalArtifactoryContext.class);
+        expect(context.beanForType(AddonsManager.class)).andStubReturn(addonsManager);
+        expect(context.beanForType(InternalRepositoryService.class))
+                .andStubReturn(createNiceMock(InternalRepositoryService.class));
+        expect(context.getArtifactoryHome()).andStubReturn(homeStub);
+        virtualRepo = createNiceMock(VirtualRepo.class);
+        expect(virtualRepo.getDescriptor()).andStubReturn(new VirtualRepoDescriptor());
+        requestContext = createNiceMock(InternalRequestContext.class);
+        expect(requestContext.getResourcePath()).andStubReturn(PATH);
+        replay(layoutsCoreAddon, addonsManager, context, virtualRepo, requestContext);
+        ArtifactoryContextThreadBinder.bind(context);
+    }
+
+    @AfterMethod
+    public void unbindContext() {
+        ArtifactoryContextThreadBinder.unbind();
+    }
+
+    public void firstHitInResolutionOrderWins() throws Exception {
+        AtomicInteger lookups = new AtomicInteger();
+        RepoResource slow = found();
+        RepoResource fast = found();
+        List<RealRepo> repos = Arrays.asList(
+                remoteRepo("slow", slow, 300, lookups),
+                remoteRepo("fast", fast, 0, lookups));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            RepoResource result = new VirtualRepoDownloadStrategy(virtualRepo, executor)
+                    .processStandard(requestContext, repoPath, repos, true);
+            assertSame(result, slow);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void pendingLookupsCancelledOnExactMatch() throws Exception {
+        AtomicInteger lookups = new AtomicInteger();
+        RepoResource first = found();
+        List<RealRepo> repos = Arrays.asList(
+                remoteRepo("first", first, 0, lookups),
+                remoteRepo("second", found(), 0, lookups),
+                remoteRepo("third", notFound(), 0, lookups));
+        // An executor that doesn't start any lookup, the awaited lookup runs in the request thread
+        List<Runnable> queued = Lists.newArrayList();
+        RepoResource result = new VirtualRepoDownloadStrategy(virtualRepo, queued::add)
+                .processStandard(requestContext, repoPath, repos, true);
+        assertSame(result, first);
+        assertEquals(queued.size(), 3);
+        // The losers were cancelled before they started, the pool threads don't run them
+        queued.forEach(Runnable::run);
+        assertEquals(lookups.get(), 1);
+    }
+
+    public void rejectedLookupsRunSerially() throws Exception {
+        AtomicInteger lookups = new AtomicInteger();
+        RepoResource second = found();
+        List<RealRepo> repos = Arrays.asList(
+                remoteRepo("first", notFound(), 0, lookups),
+                remoteRepo("second", second, 0, lookups),
+                remoteRepo("third", found(), 0, lookups));
+        RepoResource result = new VirtualRepoDownloadStrategy(virtualRepo, task -> {
+            throw new RejectedExecutionException("saturated");
+        }).processStandard(requestContext, repoPath, repos, true);
+        assertSame(result, second);
+        assertEquals(lookups.get(), 2);
+    }
+
+    public void notFoundInAnyRepo() throws Exception {
+        AtomicInteger lookups = new AtomicInteger();
+        List<RealRepo> repos = Arrays.asList(
+                remoteRepo("first", notFound(), 50, lookups),
+                remoteRepo("second", notFound(), 0, lookups));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            RepoResource result = new VirtualRepoDownloadStrategy(virtualRepo, executor)
+                    .processStandard(requestContext, repoPath, repos, true);
+            assertFalse(result.isFound());
+            assertEquals(lookups.get(), 2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private RealRepo remoteRepo(String key, RepoResource resource, long delayMillis, AtomicInteger lookups) {
+        RealRepo repo = createNiceMock(RealRepo.class);
+        expect(repo.getKey()).andStubReturn(key);
+        expect(repo.isLocal()).andStubReturn(false);
+        expect(repo.isHandleReleases()).andStubReturn(true);
+        expect(repo.getDescriptor()).andStubReturn(new RemoteRepoDescriptor());
+        expect(repo.getInfo(anyObject(InternalRequestContext.class))).andStubAnswer(() -> {
+            lookups.incrementAndGet();
+            Thread.sleep(delayMillis);
+            return resource;
+        });
+        replay(repo);
+        return repo;
+    }
+
+    private RepoResource found() {
+        RepoResource resource = createNiceMock(RepoResource.class);
+        expect(resource.isFound()).andStubReturn(true);
+        expect(resource.isExactQueryMatch()).andStubReturn(true);
+        expect(resource.getRepoPath()).andStubReturn(repoPath);
+        replay(resource);
+        return resource;
+    }
+
+    private RepoResource notFound() {
+        return new UnfoundRepoResource(repoPath, "Could not find resource");
+    }
+}
@@ -151,6 +151,8 @@ public class ResponseWithHttpRangeSupportHelperTest {
                 "Expecting no change in the content type for " + suffixMsg);
         // Assert content range
         Assert.assertEquals(context.getContentRange(), null, "Expecting no content range for " + suffixMsg);
+        // Assert content offset
+        Assert.assertEquals(context.getContentOffset(), 0, "Expecting content from the start for " + suffixMsg);
     }
 
     private void testDummyRangesReturnAll(String range, boolean skippable) throws IOException {
@@ -197,6 +199,9 @@ public class ResponseWithHttpRangeSupportHelperTest {
         // Assert content range
         Assert.assertEquals(context.getContentRange(), expectedContentRange,
                 "Wrong Content Range for " + range + " skippable " + skippable);
+        // Assert content offset
+        Assert.assertEquals(context.getContentOffset(), Long.parseLong(expectedContentRange.split("[ -]")[1]),
+                "Wrong content offset for " + range + " skippable " + skippable);
     }
 
     private void testMultiRangeRequest(String range, boolean skippable) throws IOException {
@@ -226,6 +231,8 @@ public class ResponseWithHttpRangeSupportHelperTest {
                 "Wrong content type for " + suffixMsg);
         // Assert content range
         Assert.assertEquals(context.getContentRange(), null, "Wrong range for " + suffixMsg);
+        // Assert no single content offset
+        Assert.assertEquals(context.getContentOffset(), -1, "Wrong content offset for " + suffixMsg);
     }
 
     private InputStream createTestInputStream(boolean skippable) {
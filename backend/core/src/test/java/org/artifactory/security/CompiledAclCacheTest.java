@@ -0,0 +1,101 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.security;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.artifactory.factory.InfoFactoryHolder;
+import org.artifactory.repo.InternalRepoPathFactory;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.storage.security.service.AclCache;
+import org.artifactory.test.ArtifactoryHomeBoundTest;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the {@link CompiledAclCache} snapshots and decisions caching.
+ */
+@Test
+public class CompiledAclCacheTest extends ArtifactoryHomeBoundTest {
+
+    private final Set<ArtifactorySid> sids = Sets.newHashSet(new ArtifactorySid("user", false));
+    private final RepoPath repoPath = InternalRepoPathFactory.create("repo", "org/acme/1.0/acme-1.0.jar");
+
+    public void snapshotBoundToAclCacheMaps() {
+        CompiledAclCache compiledAclCache = new CompiledAclCache();
+        AclCache aclCache = new AclCache(Maps.newHashMap(), Maps.newHashMap());
+        CompiledAclCache.Snapshot snapshot = compiledAclCache.snapshotOf(aclCache, 1);
+        assertSame(compiledAclCache.snapshotOf(new AclCache(aclCache.getGroupResultMap(),
+                aclCache.getUserResultMap()), 1), snapshot, "Same maps should reuse the snapshot");
+        assertNotSame(compiledAclCache.snapshotOf(new AclCache(aclCache.getGroupResultMap(), Maps.newHashMap()), 1),
+                snapshot, "Reloaded acl cache should replace the snapshot");
+    }
+
+    public void snapshotBoundToRepositoriesVersion() {
+        CompiledAclCache compiledAclCache = new CompiledAclCache();
+        AclCache aclCache = new AclCache(Maps.newHashMap(), Maps.newHashMap());
+        AtomicInteger evaluations = new AtomicInteger();
+        compiledAclCache.snapshotOf(aclCache, 1).isGranted(sids, repoPath, ArtifactoryPermission.READ,
+                () -> evaluations.incrementAndGet() > 0);
+        compiledAclCache.snapshotOf(aclCache, 1).isGranted(sids, repoPath, ArtifactoryPermission.READ,
+                () -> evaluations.incrementAndGet() > 0);
+        assertEquals(evaluations.get(), 1, "Decision should be cached for the same repositories version");
+        assertFalse(compiledAclCache.snapshotOf(aclCache, 2).isGranted(sids, repoPath, ArtifactoryPermission.READ,
+                () -> evaluations.incrementAndGet() < 0), "Decision should be evaluated again for a new version");
+        assertEquals(evaluations.get(), 2);
+    }
+
+    public void decisionsCachedPerSnapshot() {
+        CompiledAclCache compiledAclCache = new CompiledAclCache();
+        AclCache aclCache = new AclCache(Maps.newHashMap(), Maps.newHashMap());
+        AtomicInteger evaluations = new AtomicInteger();
+        CompiledAclCache.Snapshot snapshot = compiledAclCache.snapshotOf(aclCache, 1);
+        assertTrue(snapshot.isGranted(sids, repoPath, ArtifactoryPermission.READ,
+                () -> evaluations.incrementAndGet() > 0));
+        assertTrue(snapshot.isGranted(Sets.newHashSet(sids), repoPath, ArtifactoryPermission.READ,
+                () -> evaluations.incrementAndGet() > 0));
+        assertEquals(evaluations.get(), 1, "Decision should be evaluated once");
+
+        assertFalse(snapshot.isGranted(sids, repoPath, ArtifactoryPermission.DEPLOY,
+                () -> evaluations.incrementAndGet() < 0));
+        assertEquals(evaluations.get(), 2, "Different permission should be evaluated");
+
+        compiledAclCache.invalidate();
+        compiledAclCache.snapshotOf(aclCache, 1).isGranted(sids, repoPath, ArtifactoryPermission.READ,
+                () -> evaluations.incrementAndGet() > 0);
+        assertEquals(evaluations.get(), 3, "Decision should be evaluated again after invalidation");
+    }
+
+    public void compiledTargetMatching() {
+        MutablePermissionTargetInfo target = InfoFactoryHolder.get().createPermissionTarget();
+        target.setIncludesPattern("org/**");
+        target.setExcludesPattern("org/apache/**");
+        CompiledAclCache.Snapshot snapshot = new CompiledAclCache().snapshotOf(
+                new AclCache(Maps.newHashMap(), Maps.newHashMap()), 1);
+        assertTrue(snapshot.matches(target, "org/acme/acme.jar", false));
+        assertFalse(snapshot.matches(target, "org/apache/commons.jar", false));
+        assertFalse(snapshot.matches(target, "com/acme/acme.jar", false));
+    }
+}
@@ -143,6 +143,7 @@ public class SecurityServiceImplTest extends ArtifactoryHomeBoundTest {
 
         // reset mocks
         reset(aclStoreServiceMock, repositoryServiceMock, centralConfigServiceMock, auditLogMock, apiKeysEncryptorMock, userPasswordEncryptorMock, bintrayAuthEncryptorMock, securityEmigrator, userLockInMemoryService);
+        expectRepositoriesVersion();
     }
 
     public void isAdminOnAdminUser() {
@@ -207,6 +208,7 @@ public class SecurityServiceImplTest extends ArtifactoryHomeBoundTest {
         assertFalse(canDeploy, "User should not have permissions for this path");
         verify(aclStoreServiceMock, repositoryServiceMock);
         reset(aclStoreServiceMock, repositoryServiceMock);
+        expectRepositoriesVersion();
 
         RepoPath allowedReadPath = InternalRepoPathFactory.create("testRepo1", "blabla");
         expect(repositoryServiceMock.localOrCachedRepositoryByKey(allowedReadPath.getRepoKey()))
@@ -298,6 +300,7 @@ public class SecurityServiceImplTest extends ArtifactoryHomeBoundTest {
         canDeploy = service.canDeploy(allowedReadPath);
         assertTrue(canDeploy, "User in a group with permissions for this path");
         reset(aclStoreServiceMock, repositoryServiceMock);
+        expectRepositoriesVersion();
     }
 
     @Test
@@ -316,6 +319,7 @@ public class SecurityServiceImplTest extends ArtifactoryHomeBoundTest {
         assertTrue(canRead, "User should have permissions for this path");
         verify(repositoryServiceMock);
         reset(aclStoreServiceMock, repositoryServiceMock);
+        expectRepositoriesVersion();
 
         RepoPath testRepo2Path = InternalRepoPathFactory.create("testRepo2", "**");
         expectGetAllAclsCallWithAnyArray();
@@ -348,6 +352,7 @@ public class SecurityServiceImplTest extends ArtifactoryHomeBoundTest {
         assertFalse(canRead, "User should not have permissions for this path");
         verify(repositoryServiceMock);
         reset(aclStoreServiceMock, repositoryServiceMock);
+        expectRepositoriesVersion();
 
         RepoPath testRepo2Path = InternalRepoPathFactory.create("testRepo2", "**");
         expectGetAllAclsCallWithAnyArray();
@@ -374,6 +379,7 @@ public class SecurityServiceImplTest extends ArtifactoryHomeBoundTest {
         assertTrue(canRead, "User should have permissions for this path");
         verify(repositoryServiceMock);
         reset(aclStoreServiceMock, repositoryServiceMock);
+        expectRepositoriesVersion();
 
         expect(repositoryServiceMock.remoteRepoDescriptorByKey("testRepo1")).andReturn(null).anyTimes();
         expect(repositoryServiceMock.remoteRepoDescriptorByKey("ANY LOCAL")).andReturn(null).anyTimes();
@@ -385,6 +391,7 @@ public class SecurityServiceImplTest extends ArtifactoryHomeBoundTest {
         assertTrue(canDeploy, "User should have permissions for this path");
         verify(repositoryServiceMock);
         reset(aclStoreServiceMock, repositoryServiceMock);
+        expectRepositoriesVersion();
 
         expect(repositoryServiceMock.localOrCachedRepositoryByKey("testRepo1")).andReturn(localRepoMock).anyTimes();
         expect(repositoryServiceMock.remoteRepoDescriptorByKey("testRepo1")).andReturn(null).anyTimes();
@@ -404,6 +411,7 @@ public class SecurityServiceImplTest extends ArtifactoryHomeBoundTest {
         assertTrue(canAdmin, "User should have permissions for this path");
         verify(repositoryServiceMock);
         reset(aclStoreServiceMock, repositoryServiceMock);
+        expectRepositoriesVersion();
 
         RepoPath testRepo2Path = InternalRepoPathFactory.create("testRepo2", "**");
         expect(repositoryServiceMock.localOrCachedRepositoryByKey("testRepo2")).andReturn(localRepoMock).anyTimes();
@@ -417,6 +425,7 @@ public class SecurityServiceImplTest extends ArtifactoryHomeBoundTest {
         assertFalse(canRead, "User should not have permissions for this path");
         verify(repositoryServiceMock);
         reset(aclStoreServiceMock, repositoryServiceMock);
+        expectRepositoriesVersion();
 
         SecurityDescriptor securityDescriptor = new SecurityDescriptor();
         securityDescriptor.setAnonAccessEnabled(false);
@@ -474,6 +483,7 @@ public class SecurityServiceImplTest extends ArtifactoryHomeBoundTest {
         boolean canAdmin = service.canManage(userInfo, testRepo1Path);
         assertFalse(canAdmin, "User should not have admin permissions for this path");
         reset(aclStoreServiceMock, repositoryServiceMock);
+        expectRepositoriesVersion();
     }
 
     @Test
@@ -515,6 +525,7 @@ public class SecurityServiceImplTest extends ArtifactoryHomeBoundTest {
         assertFalse(canAdmin, "Group should not have permissions for this path");
         verify(repositoryServiceMock);
         reset(aclStoreServiceMock, repositoryServiceMock);
+        expectRepositoriesVersion();
 
         RepoPath testRepo2Path = InternalRepoPathFactory.create("testRepo2", "some/path");
 
@@ -531,6 +542,7 @@ public class SecurityServiceImplTest extends ArtifactoryHomeBoundTest {
         assertFalse(canRead, "Group should not have permissions for this path");
         verify(repositoryServiceMock);
         reset(aclStoreServiceMock, repositoryServiceMock);
+        expectRepositoriesVersion();
 
         GroupInfo anyRepoGroupRead = InfoFactoryHolder.get().createGroup("anyRepoReadersGroup");
         RepoPath somePath = InternalRepoPathFactory.create("blabla", "some/path");
@@ -553,6 +565,7 @@ public class SecurityServiceImplTest extends ArtifactoryHomeBoundTest {
         assertFalse(canDeploy, "Group should not have permissions for this path");
         verify(repositoryServiceMock);
         reset(aclStoreServiceMock, repositoryServiceMock);
+        expectRepositoriesVersion();
 
         GroupInfo multiRepoGroupRead = InfoFactoryHolder.get().createGroup("multiRepoReadersGroup");
         RepoPath multiPath = InternalRepoPathFactory.create("multi1", "some/path");
@@ -660,6 +673,7 @@ public class SecurityServiceImplTest extends ArtifactoryHomeBoundTest {
         assertTrue(hasPermissionOnRemoteRoot, "User should have permissions for this path");
         verify(aclStoreServiceMock, repositoryServiceMock);
         reset(aclStoreServiceMock, repositoryServiceMock);
+        expectRepositoriesVersion();
     }
 
     @Test(dependsOnMethods = {"permissionOnRemoteRoot"},
@@ -973,6 +987,35 @@ public class SecurityServiceImplTest extends ArtifactoryHomeBoundTest {
         reset(aclStoreServiceMock);
     }
 
+    public void cachedDecisionsFollowRepositoriesChanges() {
+        setSimpleUserAuthentication("anyLocalUser");
+        RepoPath path = InternalRepoPathFactory.create("newRepo", "blabla");
+
+        // The repository doesn't exist yet
+        expectRepositoriesState(1, null);
+        assertFalse(service.canDeploy(path), "User shouldn't have deploy permission on a missing repository");
+
+        // The repository is added as a local repository
+        expectRepositoriesState(2, localRepoMock);
+        assertTrue(service.canDeploy(path), "User should have deploy permission on the added local repository");
+
+        // The repository is replaced by a remote repository cache
+        expectRepositoriesState(3, cacheRepoMock);
+        assertFalse(service.canDeploy(path), "User shouldn't have deploy permission on a remote repository cache");
+        reset(aclStoreServiceMock, repositoryServiceMock);
+        expectRepositoriesVersion();
+    }
+
+    private void expectRepositoriesState(long version, LocalRepo newRepo) {
+        reset(aclStoreServiceMock, repositoryServiceMock);
+        expectGetAllAclsCall();
+        expect(repositoryServiceMock.getRepositoriesVersion()).andStubReturn(version);
+        expect(repositoryServiceMock.localOrCachedRepositoryByKey("newRepo")).andReturn(newRepo).anyTimes();
+        expect(repositoryServiceMock.remoteRepositoryByKey("newRepo")).andReturn(null).anyTimes();
+        expect(repositoryServiceMock.remoteRepoDescriptorByKey(anyString())).andReturn(null).anyTimes();
+        replay(aclStoreServiceMock, repositoryServiceMock);
+    }
+
     public void updateLastLoginWithNotExistingUserTest() throws InterruptedException {
         // Make sure that if the user doesn't exists we stop the "updateLastLogin" process without  exception
         reset(userGroupStoreService);
@@ -1124,6 +1167,13 @@ public class SecurityServiceImplTest extends ArtifactoryHomeBoundTest {
         return remoteRepo;
     }
 
+    /**
+     * Permission checks read the repositories version of the compiled acl cache, stubbed after every reset
+     */
+    private void expectRepositoriesVersion() {
+        expect(repositoryServiceMock.getRepositoriesVersion()).andStubReturn(1L);
+    }
+
     private InternalRepositoryService createRepoServiceMock() {
         InternalRepositoryService repositoryService = createMock(InternalRepositoryService.class);
         replay(repositoryService);
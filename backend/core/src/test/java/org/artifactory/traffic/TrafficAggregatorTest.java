@@ -0,0 +1,126 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.traffic;
+
+import org.artifactory.traffic.entry.DownloadEntry;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests the {@link TrafficAggregator}.
+ */
+@Test
+public class TrafficAggregatorTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long BASE = 1000 * HOUR;
+
+    public void summarizePerRepoUserAndResolution() {
+        TrafficAggregator aggregator = new TrafficAggregator(180, 100);
+        aggregator.record(new DownloadEntry("libs-release:a/b/c.jar", 100, 1, "1.1.1.1"), "alice", BASE);
+        aggregator.record(TrafficAction.DOWNLOAD, "libs-release", "bob", 50, BASE + MINUTE);
+        aggregator.record(TrafficAction.UPLOAD, "libs-snapshot", "alice", 30, BASE + HOUR + MINUTE);
+
+        TrafficSummary byMinute = aggregator.summarize(TrafficCollectorResolution.MINUTE, BASE, BASE + 2 * HOUR);
+        assertEquals(byMinute.getBuckets().size(), 3);
+        assertEquals(byMinute.getTotal().getDownloadBytes(), 150);
+        assertEquals(byMinute.getTotal().getDownloadCount(), 2);
+        assertEquals(byMinute.getTotal().getUploadBytes(), 30);
+        assertEquals(byMinute.getRepositories().get("libs-release").getDownloadBytes(), 150);
+        assertEquals(byMinute.getRepositories().get("libs-snapshot").getUploadCount(), 1);
+        assertEquals(byMinute.getUsers().get("alice").getDownloadBytes(), 100);
+        assertEquals(byMinute.getUsers().get("alice").getUploadBytes(), 30);
+
+        TrafficSummary byHour = aggregator.summarize(TrafficCollectorResolution.HOUR, BASE, BASE + 2 * HOUR);
+        assertEquals(byHour.getBuckets().size(), 2);
+        assertEquals(byHour.getBuckets().get(0).getStart(), BASE);
+        assertEquals(byHour.getBuckets().get(0).getDownloadBytes(), 150);
+        assertEquals(byHour.getBuckets().get(1).getUploadBytes(), 30);
+
+        TrafficSummary firstHour = aggregator.summarize(TrafficCollectorResolution.HOUR, BASE, BASE + HOUR);
+        assertEquals(firstHour.getTotal().getUploadBytes(), 0);
+    }
+
+    public void ringDropsMinutesOutsideTheWindow() {
+        TrafficAggregator aggregator = new TrafficAggregator(10, 100);
+        aggregator.record(TrafficAction.DOWNLOAD, "repo", "user", 10, BASE);
+        // Reuses the ring slot of the first minute
+        aggregator.record(TrafficAction.DOWNLOAD, "repo", "user", 20, BASE + 10 * MINUTE);
+        // Older than the slot now holding its ring position
+        aggregator.record(TrafficAction.DOWNLOAD, "repo", "user", 40, BASE);
+
+        TrafficSummary summary = aggregator.summarize(TrafficCollectorResolution.DAY, 0, Long.MAX_VALUE);
+        assertEquals(summary.getTotal().getDownloadBytes(), 20);
+        assertEquals(summary.getTotal().getDownloadCount(), 1);
+    }
+
+    public void keysAboveLimitAreAccountedAsOther() {
+        TrafficAggregator aggregator = new TrafficAggregator(10, 2);
+        aggregator.record(TrafficAction.UPLOAD, "a", "user", 1, BASE);
+        aggregator.record(TrafficAction.UPLOAD, "b", "user", 2, BASE);
+        aggregator.record(TrafficAction.UPLOAD, "c", "user", 4, BASE);
+        aggregator.record(TrafficAction.UPLOAD, "d", null, 8, BASE);
+
+        TrafficSummary summary = aggregator.summarize(TrafficCollectorResolution.MINUTE, BASE, BASE + MINUTE);
+        assertEquals(summary.getRepositories().size(), 3);
+        assertEquals(summary.getRepositories().get(TrafficAggregator.OTHER_KEY).getUploadBytes(), 12);
+        assertEquals(summary.getUsers().get(TrafficAggregator.OTHER_KEY).getUploadBytes(), 8);
+        assertEquals(summary.getTotal().getUploadBytes(), 15);
+    }
+
+    public void concurrentRecording() throws Exception {
+        TrafficAggregator aggregator = new TrafficAggregator(60, 100);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            int thread = i;
+            executor.submit(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    aggregator.record(TrafficAction.DOWNLOAD, "repo" + (j % 4), "user" + thread, 1,
+                            BASE + (j % 5) * MINUTE);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        TrafficSummary summary = aggregator.summarize(TrafficCollectorResolution.HOUR, BASE, BASE + HOUR);
+        assertEquals(summary.getTotal().getDownloadBytes(), 80000);
+        assertEquals(summary.getRepositories().get("repo0").getDownloadCount(), 20000);
+        assertEquals(summary.getUsers().get("user7").getDownloadCount(), 10000);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void secondResolutionIsNotSupported() {
+        new TrafficAggregator(10, 10).summarize(TrafficCollectorResolution.SECOND, 0, BASE);
+    }
+
+    public void repoKeyOfRepoPathId() {
+        assertEquals(TrafficAggregator.repoKeyOf("libs-release:a/b.jar"), "libs-release");
+        assertEquals(TrafficAggregator.repoKeyOf("libs-release"), "libs-release");
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.util;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests that {@link CompiledPathMatcher} matches exactly like {@link PathMatcher}.
+ */
+@Test
+public class CompiledPathMatcherTest {
+
+    private static final List<String> PATTERNS = Arrays.asList("", "**", "**/*", "*", "apath", "apath/*",
+            "apath/**", "**/my/test/path", "public/in/**", "*p/x/y", "**/y/*", "*/x/*", "a?/x", "?p*/??",
+            "com/acme/***", "org/**/*.jar", "org/**/**/lib/*", "**/*-sources.*", "commons-*", "main/*", "/abs/**",
+            "apath/", "a{b}c/**", "with space/**");
+
+    private static final List<String> PATHS = Arrays.asList("", "apath", "apath/", "apath/sub", "apath/sub/1",
+            "apath2", "ap/x", "ap/x/y", "this/is/my/test/path", "this/is/my/test/path/andmore",
+            "public/in/the/public.jar", "public", "public/i", "com", "com/acme/lib", "org/a/b/c.jar",
+            "org/a/lib/c.jar", "org/lib/x", "x/y/z-sources.jar", "commons-codec", "main.123", "/abs/path",
+            "abc/d", "with space/a", "apath//sub");
+
+    public void equivalentToPathMatcherForSinglePatterns() {
+        for (String include : PATTERNS) {
+            for (String exclude : PATTERNS) {
+                List<String> includes = Collections.singletonList(include);
+                List<String> excludes = Collections.singletonList(exclude);
+                CompiledPathMatcher matcher = CompiledPathMatcher.compile(includes, excludes);
+                for (String path : PATHS) {
+                    for (boolean folder : new boolean[]{true, false}) {
+                        assertEquals(matcher.matches(path, folder),
+                                PathMatcher.matches(path, includes, excludes, folder),
+                                "includes: " + includes + ", excludes: " + excludes + ", path: '" + path +
+                                        "', folder: " + folder);
+                    }
+                }
+            }
+        }
+    }
+
+    public void equivalentToPathMatcherForMultiplePatterns() {
+        List<String> includes = Arrays.asList("apath/some/other/*", "com/acme/***", "org/**/*.jar");
+        List<String> excludes = Arrays.asList("org/apache/**", "commons-*");
+        CompiledPathMatcher matcher = CompiledPathMatcher.compile(includes, excludes);
+        for (String path : PATHS) {
+            for (boolean folder : new boolean[]{true, false}) {
+                assertEquals(matcher.matches(path, folder), PathMatcher.matches(path, includes, excludes, folder),
+                        "path: '" + path + "', folder: " + folder);
+            }
+        }
+    }
+
+    public void nullOrEmptyPatterns() {
+        assertTrue(CompiledPathMatcher.compile(null, null).matches("any/path", false));
+        assertTrue(CompiledPathMatcher.compile(Collections.emptyList(), null).matches("any/path", true));
+        assertFalse(CompiledPathMatcher.compile(null, Collections.singletonList("**")).matches("any/path", true));
+    }
+}
@@ -7,11 +7,17 @@
 package org.artifactory.work.queue;
 
 import ch.qos.logback.classic.Level;
+import org.artifactory.api.maven.MavenMetadataWorkItem;
+import org.artifactory.api.repo.WorkItem;
+import org.artifactory.repo.InternalRepoPathFactory;
+import org.artifactory.repo.RepoPath;
 import org.artifactory.test.TestUtils;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import javax.annotation.Nonnull;
+import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -71,4 +77,152 @@ public class NonBlockingOnWriteQueueTest extends WorkQueueTestBase {
         Assert.assertTrue(counter.get() <= 1000);
         System.out.println("Number of successful promotions (removals): " + counter.get());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void coalesceIdenticalPendingItemsTest() {
+        NonBlockingOnWriteQueue<IntegerWorkItem> queue = new NonBlockingOnWriteQueue<>(QUEUE_NAME);
+        IntegerWorkItem first = new IntegerWorkItem(1);
+        IntegerWorkItem second = new IntegerWorkItem(1);
+        IntegerWorkItem other = new IntegerWorkItem(2);
+        queue.addToPending(first, null);
+        queue.addToPending(other, null);
+        queue.addToPending(second, null);
+        Assert.assertEquals(queue.getQueueSize(), 3);
+        Assert.assertEquals(queue.getCoalescedCount(), 1);
+        Assert.assertTrue(queue.contains(second));
+
+        // Identical items are promoted together, in insertion order of their key
+        WorkQueuePromotedItem<IntegerWorkItem> promoted = queue.promote();
+        Assert.assertNotNull(promoted);
+        Assert.assertSame(promoted.workItem, first);
+        Assert.assertEquals(promoted.pendingWorkItemsAssociated.size(), 2);
+        Assert.assertSame(promoted.pendingWorkItemsAssociated.get(1), second);
+        Assert.assertEquals(queue.getQueueSize(), 1);
+        Assert.assertEquals(queue.getRunningCount(), 1);
+
+        // An identical item offered while running is not coalesced with the running one
+        IntegerWorkItem third = new IntegerWorkItem(1);
+        queue.addToPending(third, null);
+        Assert.assertEquals(queue.getCoalescedCount(), 1);
+        Assert.assertEquals(queue.getQueueSize(), 2);
+        queue.remove(promoted);
+        Assert.assertEquals(queue.getRunningCount(), 0);
+
+        WorkQueuePromotedItem<IntegerWorkItem> otherPromoted = queue.promote();
+        Assert.assertSame(otherPromoted.workItem, other);
+        queue.remove(otherPromoted);
+        WorkQueuePromotedItem<IntegerWorkItem> thirdPromoted = queue.promote();
+        Assert.assertSame(thirdPromoted.workItem, third);
+        Assert.assertEquals(thirdPromoted.pendingWorkItemsAssociated.size(), 1);
+        queue.remove(thirdPromoted);
+        Assert.assertEquals(queue.getQueueSize(), 0);
+        Assert.assertEquals(queue.getRunningSize(), 0);
+    }
+
+    @Test
+    public void sameKeyNotEqualItemsAllRunInOrderTest() {
+        NonBlockingOnWriteQueue<TopicWorkItem> queue = new NonBlockingOnWriteQueue<>(QUEUE_NAME);
+        TopicWorkItem first = new TopicWorkItem("topic", "first");
+        TopicWorkItem second = new TopicWorkItem("topic", "second");
+        TopicWorkItem secondAgain = new TopicWorkItem("topic", "second");
+        queue.addToPending(first, null);
+        queue.addToPending(second, null);
+        queue.addToPending(secondAgain, null);
+        Assert.assertEquals(queue.getQueueSize(), 3);
+        Assert.assertEquals(queue.getCoalescedCount(), 1);
+
+        WorkQueuePromotedItem<TopicWorkItem> promoted = queue.promote();
+        Assert.assertSame(promoted.workItem, first);
+        Assert.assertEquals(promoted.pendingWorkItemsAssociated.size(), 1);
+        // The next item of the same key waits until the running one is done
+        Assert.assertNull(queue.promote());
+        Assert.assertTrue(queue.contains(second));
+        queue.remove(promoted);
+
+        WorkQueuePromotedItem<TopicWorkItem> secondPromoted = queue.promote();
+        Assert.assertSame(secondPromoted.workItem, second);
+        Assert.assertEquals(secondPromoted.pendingWorkItemsAssociated.size(), 2);
+        Assert.assertSame(secondPromoted.pendingWorkItemsAssociated.get(1), secondAgain);
+        queue.remove(secondPromoted);
+        Assert.assertNull(queue.promote());
+        Assert.assertEquals(queue.getQueueSize(), 0);
+        Assert.assertEquals(queue.getRunningSize(), 0);
+    }
+
+    @Test
+    public void pendingChangesOfFolderMergedToFullCalculationTest() {
+        NonBlockingOnWriteQueue<MavenMetadataWorkItem> queue = new NonBlockingOnWriteQueue<>(QUEUE_NAME);
+        RepoPath folder = InternalRepoPathFactory.create("repo", "org/jfrog/lib");
+        MavenMetadataWorkItem running = new MavenMetadataWorkItem(folder,
+                InternalRepoPathFactory.create("repo", "org/jfrog/lib/1.0/lib-1.0.pom"), false);
+        queue.addToPending(running, null);
+        WorkQueuePromotedItem<MavenMetadataWorkItem> promoted = queue.promote();
+        Assert.assertSame(promoted.workItem, running);
+
+        // Two changes offered while the folder is calculated are pending together as one full calculation
+        MavenMetadataWorkItem deployed = new MavenMetadataWorkItem(folder,
+                InternalRepoPathFactory.create("repo", "org/jfrog/lib/1.1/lib-1.1.pom"), false);
+        MavenMetadataWorkItem deleted = new MavenMetadataWorkItem(folder,
+                InternalRepoPathFactory.create("repo", "org/jfrog/lib/0.9/lib-0.9.pom"), true);
+        queue.addToPending(deployed, null);
+        queue.addToPending(deleted, null);
+        Assert.assertEquals(queue.getQueueSize(), 2);
+        Assert.assertEquals(queue.getCoalescedCount(), 1);
+        Assert.assertTrue(queue.contains(deployed));
+        Assert.assertTrue(queue.contains(deleted));
+        Assert.assertNull(queue.promote());
+        queue.remove(promoted);
+
+        WorkQueuePromotedItem<MavenMetadataWorkItem> merged = queue.promote();
+        Assert.assertEquals(merged.workItem, new MavenMetadataWorkItem(folder, false));
+        Assert.assertFalse(merged.workItem.isIncremental());
+        Assert.assertEquals(merged.pendingWorkItemsAssociated.size(), 2);
+        Assert.assertSame(merged.pendingWorkItemsAssociated.get(0), deployed);
+        Assert.assertSame(merged.pendingWorkItemsAssociated.get(1), deleted);
+        queue.remove(merged);
+        Assert.assertNull(queue.promote());
+        Assert.assertEquals(queue.getQueueSize(), 0);
+        Assert.assertEquals(queue.getRunningSize(), 0);
+    }
+
+    /**
+     * A work item keyed by topic only, like the HA messages, which must not be deduplicated per topic
+     */
+    private static class TopicWorkItem implements WorkItem {
+        private final String topic;
+        private final String payload;
+
+        private TopicWorkItem(String topic, String payload) {
+            this.topic = topic;
+            this.payload = payload;
+        }
+
+        @Override
+        @Nonnull
+        public String getUniqueKey() {
+            return topic;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            TopicWorkItem that = (TopicWorkItem) o;
+            return topic.equals(that.topic) && payload.equals(that.payload);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(topic, payload);
+        }
+
+        @Override
+        public String toString() {
+            return topic + ":" + payload;
+        }
+    }
+}
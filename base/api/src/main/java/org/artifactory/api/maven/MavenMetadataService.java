@@ -21,6 +21,7 @@
 package org.artifactory.api.maven;
 
 import org.artifactory.api.repo.Async;
+import org.artifactory.sapi.common.Lock;
 
 public interface MavenMetadataService {
 
@@ -39,6 +40,16 @@ public interface MavenMetadataService {
      */
     void calculateMavenMetadata(MavenMetadataWorkItem wi);
 
+    /**
+     * Internal - applies the file changed by an incremental work item to the stored maven metadata of the work item
+     * folder. The stored metadata is write locked until the end of the transaction.
+     *
+     * @return True if the stored metadata is up to date with the change, false if it doesn't pass the consistency
+     * checks and a full calculation is required
+     */
+    @Lock
+    boolean updateMavenMetadataIncrementally(MavenMetadataWorkItem wi);
+
     /**
      * Calculate the maven plugins metadata asynchronously after the current transaction is committed. The reason is the
      * metadata calculator uses xpath queries for its job and since the move is not committed yet, the xpath query
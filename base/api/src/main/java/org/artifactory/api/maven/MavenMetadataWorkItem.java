@@ -10,6 +10,7 @@ import org.artifactory.api.repo.WorkItem;
 import org.artifactory.repo.RepoPath;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * @author gidis
@@ -17,10 +18,29 @@ import javax.annotation.Nonnull;
 public class MavenMetadataWorkItem implements WorkItem {
     private final RepoPath repoPath;
     private final boolean recursive;
+    private final RepoPath changedItem;
+    private final boolean deleted;
 
     public MavenMetadataWorkItem(RepoPath repoPath, boolean recursive) {
         this.repoPath = repoPath;
         this.recursive = recursive;
+        this.changedItem = null;
+        this.deleted = false;
+    }
+
+    /**
+     * Creates a non-recursive work item triggered by a single deployed or deleted file. The metadata of the folder
+     * may be updated incrementally with the changed file instead of being recalculated from all of its children.
+     *
+     * @param repoPath    Folder to calculate metadata for
+     * @param changedItem The deployed or deleted file that triggered the calculation
+     * @param deleted     True if the changed file was deleted
+     */
+    public MavenMetadataWorkItem(RepoPath repoPath, RepoPath changedItem, boolean deleted) {
+        this.repoPath = repoPath;
+        this.recursive = false;
+        this.changedItem = changedItem;
+        this.deleted = deleted;
     }
 
     public RepoPath getRepoPath() {
@@ -31,11 +51,25 @@ public class MavenMetadataWorkItem implements WorkItem {
         return recursive;
     }
 
+    @Nullable
+    public RepoPath getChangedItem() {
+        return changedItem;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public boolean isIncremental() {
+        return changedItem != null;
+    }
+
     @Override
     public String toString() {
         return "MavenMetadataWorkItem{" +
                 "repoPath=" + repoPath +
                 ", recursive=" + recursive +
+                (changedItem != null ? ", changedItem=" + changedItem + ", deleted=" + deleted : "") +
                 '}';
     }
 
@@ -46,6 +80,8 @@ public class MavenMetadataWorkItem implements WorkItem {
 
         MavenMetadataWorkItem that = (MavenMetadataWorkItem) o;
         if (recursive != that.recursive) return false;
+        if (deleted != that.deleted) return false;
+        if (changedItem != null ? !changedItem.equals(that.changedItem) : that.changedItem != null) return false;
         return repoPath.equals(that.repoPath);
 
     }
@@ -54,12 +90,26 @@ public class MavenMetadataWorkItem implements WorkItem {
     public int hashCode() {
         int result = repoPath.hashCode();
         result = 31 * result + (recursive ? 1 : 0);
+        result = 31 * result + (changedItem != null ? changedItem.hashCode() : 0);
+        result = 31 * result + (deleted ? 1 : 0);
         return result;
     }
 
+    /**
+     * Work items of the same folder share the key, so the folder metadata is never calculated by two workers at once
+     */
     @Override
     @Nonnull
     public String getUniqueKey() {
-        return this.toString();
+        return "MavenMetadataWorkItem{repoPath=" + repoPath + ", recursive=" + recursive + '}';
+    }
+
+    /**
+     * Several pending changes of the same folder are replaced by one full calculation of the folder
+     */
+    @Override
+    @Nullable
+    public WorkItem mergeWithPending(WorkItem pending) {
+        return new MavenMetadataWorkItem(repoPath, recursive);
     }
 }
@@ -23,7 +23,6 @@ package org.artifactory.api.module;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang.StringUtils;
 import org.artifactory.api.module.regex.NamedMatcher;
-import org.artifactory.api.module.regex.NamedPattern;
 import org.artifactory.descriptor.repo.RepoLayout;
 import org.artifactory.util.RepoLayoutUtils;
 import org.artifactory.util.layouts.token.BaseTokenFilter;
@@ -288,6 +287,13 @@ public abstract class ModuleInfoUtils {
         return itemPathTemplate;
     }
 
+    /**
+     * Drops the cached layout parsers, called when the layouts configuration is reloaded
+     */
+    public static void clearLayoutParsersCache() {
+        RepoLayoutParser.clear();
+    }
+
     public static String getTokenValue(ModuleInfo moduleInfo, String tokenName) {
         if (RepoLayoutUtils.ORGANIZATION.equals(tokenName)) {
             return moduleInfo.getOrganization();
@@ -333,13 +339,10 @@ public abstract class ModuleInfoUtils {
 
     private static ModuleInfo moduleInfoFromPattern(String itemPath, RepoLayout repoLayout, String pattern,
             boolean supportVersionsTokens) {
-        String itemPathPatternRegExp = RepoLayoutUtils.generateRegExpFromPattern(repoLayout, pattern, false,
-                supportVersionsTokens);
-        //TODO: [by yl] Cache the patterns
-        NamedPattern itemPathRegExPattern = NamedPattern.compile(itemPathPatternRegExp);
-        NamedMatcher itemPathMatcher = itemPathRegExPattern.matcher(itemPath);
+        NamedMatcher itemPathMatcher = RepoLayoutParser.get(repoLayout, pattern, supportVersionsTokens)
+                .match(itemPath);
         ModuleInfo moduleInfo;
-        if (!itemPathMatcher.matches()) {
+        if (itemPathMatcher == null) {
             moduleInfo = new ModuleInfo();
         } else {
             moduleInfo = createModuleInfo(itemPathMatcher);
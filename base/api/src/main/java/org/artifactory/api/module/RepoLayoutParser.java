@@ -0,0 +1,148 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.api.module;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.artifactory.api.module.regex.NamedMatcher;
+import org.artifactory.api.module.regex.NamedPattern;
+import org.artifactory.descriptor.repo.RepoLayout;
+import org.artifactory.util.RepoLayoutUtils;
+
+import javax.annotation.Nullable;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A compiled repository layout path pattern, cached by the pattern and the layout settings it is generated from.
+ * <p/>
+ * Besides the layout regular expression, the parser keeps the literal suffix the pattern ends with (e.g. ".pom" of a
+ * distinctive Maven descriptor pattern) and rejects paths without it before running the regular expression, which is
+ * the common case when artifact paths are first tried against the descriptor pattern.
+ */
+class RepoLayoutParser {
+
+    private static final int MAX_CACHED_PARSERS = 1000;
+
+    private static final Cache<Key, RepoLayoutParser> parsers = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_PARSERS)
+            .build();
+
+    private final NamedPattern pattern;
+    private final String requiredSuffix;
+
+    private RepoLayoutParser(RepoLayout repoLayout, String pathPattern, boolean supportVersionsTokens) {
+        pattern = NamedPattern.compile(RepoLayoutUtils.generateRegExpFromPattern(repoLayout, pathPattern, false,
+                supportVersionsTokens));
+        requiredSuffix = literalSuffixOf(pathPattern);
+    }
+
+    /**
+     * @param repoLayout            Layout the path pattern belongs to
+     * @param pathPattern           The artifact or descriptor path pattern of the layout
+     * @param supportVersionsTokens Whether the pattern may contain version tokens
+     * @return The (possibly cached) parser of the path pattern
+     */
+    static RepoLayoutParser get(RepoLayout repoLayout, String pathPattern, boolean supportVersionsTokens) {
+        Key key = new Key(pathPattern, repoLayout.getFolderIntegrationRevisionRegExp(),
+                repoLayout.getFileIntegrationRevisionRegExp(), supportVersionsTokens);
+        try {
+            return parsers.get(key, () -> new RepoLayoutParser(repoLayout, pathPattern, supportVersionsTokens));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            // Invalid layout regular expressions fail the same way they did before caching
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Drops all the cached parsers
+     */
+    static void clear() {
+        parsers.invalidateAll();
+    }
+
+    /**
+     * @return A matcher of the given path, or null if the path doesn't match the pattern
+     */
+    @Nullable
+    NamedMatcher match(String itemPath) {
+        if (!itemPath.endsWith(requiredSuffix)) {
+            return null;
+        }
+        NamedMatcher matcher = pattern.matcher(itemPath);
+        return matcher.matches() ? matcher : null;
+    }
+
+    /**
+     * @return The plain characters the pattern ends with, after its last token, optional part or custom regular
+     * expression
+     */
+    private static String literalSuffixOf(String pathPattern) {
+        int start = pathPattern.length();
+        while (start > 0 && isPlainChar(pathPattern.charAt(start - 1))) {
+            start--;
+        }
+        return pathPattern.substring(start);
+    }
+
+    private static boolean isPlainChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '.' || c == '-' || c == '_' || c == '/';
+    }
+
+    private static final class Key {
+        private final String pathPattern;
+        private final String folderIntegrationRevisionRegExp;
+        private final String fileIntegrationRevisionRegExp;
+        private final boolean supportVersionsTokens;
+
+        private Key(String pathPattern, String folderIntegrationRevisionRegExp, String fileIntegrationRevisionRegExp,
+                boolean supportVersionsTokens) {
+            this.pathPattern = pathPattern;
+            this.folderIntegrationRevisionRegExp = folderIntegrationRevisionRegExp;
+            this.fileIntegrationRevisionRegExp = fileIntegrationRevisionRegExp;
+            this.supportVersionsTokens = supportVersionsTokens;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return supportVersionsTokens == key.supportVersionsTokens && pathPattern.equals(key.pathPattern) &&
+                    Objects.equals(folderIntegrationRevisionRegExp, key.folderIntegrationRevisionRegExp) &&
+                    Objects.equals(fileIntegrationRevisionRegExp, key.fileIntegrationRevisionRegExp);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(pathPattern, folderIntegrationRevisionRegExp, fileIntegrationRevisionRegExp,
+                    supportVersionsTokens);
+        }
+    }
+}
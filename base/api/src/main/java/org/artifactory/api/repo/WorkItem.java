@@ -7,6 +7,7 @@
 package org.artifactory.api.repo;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * @author gidis
@@ -15,8 +16,22 @@ public interface WorkItem {
 
     /**
      * This key will be used by the locking map that synchronizes all work items
-     * - it **MUST** match the equals() and hashcode() relations of this work item.
+     * - equal work items **MUST** have the same key. Work items with the same key that are not equal are not
+     * deduplicated, they run one after the other unless {@link #mergeWithPending(WorkItem) merged}.
      */
     @Nonnull
     String getUniqueKey();
+
+    /**
+     * Called when this work item is offered while the last pending work item with the same unique key is not equal to
+     * it. A work item that can do the work of both returns the combined work item (with the same unique key), which
+     * runs once instead of both.
+     *
+     * @param pending The last pending work item with the same unique key
+     * @return The work item doing the work of both, or null to run this work item after the pending one
+     */
+    @Nullable
+    default WorkItem mergeWithPending(WorkItem pending) {
+        return null;
+    }
 }
@@ -29,7 +29,9 @@ public interface TrafficRestConstants {
     String STREAM_ROOT = "stream";
     String PATH_FILTER = STREAM_ROOT + "/filter";
     String PATH_FILTER_NODE = "/filter/node";
+    String PATH_SUMMARY = "summary";
     String PARAM_START_DATE = "start";
     String PARAM_END_DATE = "end";
     String PARAM_FILTER = "ipsToFilter";
+    String PARAM_RESOLUTION = "resolution";
 }
\ No newline at end of file
@@ -26,6 +26,8 @@ import org.artifactory.security.GroupInfo;
 import org.artifactory.security.UserInfo;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Set;
 
 /**
  * These are the usage of security data and logged in user methods.
@@ -200,4 +202,15 @@ public interface AuthorizationService {
      * Rating is by the readability of the repo based on the current user permissions.
      */
     PermissionHeuristicScore getStrongestReadPermissionTarget(String repoKey);
+
+    /**
+     * Returns the keys of the repositories the current user may read at least one path in, according to the user and
+     * groups permission targets. Used to pre-filter queries - the include/exclude patterns of the permission targets
+     * must still be checked per path with {@link #canRead(RepoPath)}.
+     *
+     * @return The readable repository keys (empty if none) or null if the current user is not restricted to a subset
+     * of the repositories (admins, permissions on any repository or access tokens with path scopes)
+     */
+    @Nullable
+    Set<String> getReadableRepoKeys();
 }
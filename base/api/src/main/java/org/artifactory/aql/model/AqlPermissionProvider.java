@@ -22,6 +22,9 @@ package org.artifactory.aql.model;
 
 import org.artifactory.repo.RepoPath;
 
+import javax.annotation.Nullable;
+import java.util.Set;
+
 /**
  * @author Gidi Shabat
  */
@@ -31,4 +34,11 @@ public interface AqlPermissionProvider {
     boolean isAdmin();
 
     boolean isOss();
+
+    /**
+     * @return The keys of the repositories the user may read from, null if the user is not restricted to a subset of
+     * the repositories
+     */
+    @Nullable
+    Set<String> getReadableRepoKeys();
 }
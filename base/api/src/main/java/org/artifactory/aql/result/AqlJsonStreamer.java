@@ -33,15 +33,23 @@ import org.artifactory.aql.result.rows.populate.ResultPopulationContext;
 import org.artifactory.aql.result.rows.populate.RowPopulation;
 import org.artifactory.aql.result.rows.populate.RowPopulationContext;
 import org.artifactory.aql.util.AqlUtils;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.annotate.JsonAutoDetect;
 import org.codehaus.jackson.annotate.JsonMethod;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.ObjectWriter;
+import org.codehaus.jackson.map.SerializationConfig;
 import org.codehaus.jackson.map.annotate.JsonSerialize;
+import org.codehaus.jackson.util.DefaultPrettyPrinter;
+import org.codehaus.jackson.util.MinimalPrettyPrinter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.sql.ResultSet;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +59,12 @@ import java.util.Map;
  *         The class converts the AqlLazyResult to in-memory Aql Json result
  *         The Max number of rows allowed by this result is the actually artifactory searchUserQueryLimit:
  *         (ConstantValues.searchUserQueryLimit)
+ *         <p/>
+ *         The result can be pulled row by row with {@link #read()} or encoded directly into an output stream with
+ *         {@link #write(OutputStream)}, which serializes the rows through a single generator and never materializes
+ *         a row as a String or byte array. The two methods should not be mixed on the same streamer.
+ *         A streamer created with {@link #newlineDelimited(AqlLazyResult)} emits each row as a compact JSON object
+ *         on its own line (NDJSON) without the results wrapper and the range summary.
  */
 public class AqlJsonStreamer extends AqlRestResult implements Cloneable {
     private static final Logger log = LoggerFactory.getLogger(AqlJsonStreamer.class);
@@ -65,7 +79,11 @@ public class AqlJsonStreamer extends AqlRestResult implements Cloneable {
     private final AqlRepoProvider repoProvider;
     private final AqlDomainEnum domain;
     private final boolean skipResultWrapper; //used for the user plugin where we don't want the wrappers as a part of the JSON
+    private final boolean newlineDelimited;
     private final ObjectMapper mapper;
+    private final ObjectWriter rowWriter;
+    // Reused between rows returned by read()
+    private final ByteArrayOutputStream rowBuffer = new ByteArrayOutputStream(1024);
     private final AqlAction action;
     private long rowsCount;
     private Buffer buffer = new Buffer();
@@ -74,10 +92,14 @@ public class AqlJsonStreamer extends AqlRestResult implements Cloneable {
     private Row mainRow;
 
     public AqlJsonStreamer(AqlLazyResult lazyResult) {
-        this(lazyResult, false);
+        this(lazyResult, false, false);
     }
 
     public AqlJsonStreamer(AqlLazyResult lazyResult, boolean skipResultWrapper) {
+        this(lazyResult, skipResultWrapper, false);
+    }
+
+    private AqlJsonStreamer(AqlLazyResult lazyResult, boolean skipResultWrapper, boolean newlineDelimited) {
         super(lazyResult.getPermissionProvider());
         repoProvider = lazyResult.getRepoProvider();
         resultSet = lazyResult.getResultSet();
@@ -87,12 +109,22 @@ public class AqlJsonStreamer extends AqlRestResult implements Cloneable {
         domain = lazyResult.getDomain();
         action = lazyResult.getAction();
         mapper = createObjectMapper();
+        rowWriter = newlineDelimited ? mapper.writer() : mapper.writerWithDefaultPrettyPrinter();
         this.skipResultWrapper = skipResultWrapper;
+        this.newlineDelimited = newlineDelimited;
         if (!skipResultWrapper) {
             buffer.push(QUERY_PREFIX.getBytes());
         }
     }
 
+    /**
+     * Creates a streamer that emits the result as newline delimited JSON: one compact JSON object per row, each
+     * terminated by a line feed, with no wrapping array and no range summary.
+     */
+    public static AqlJsonStreamer newlineDelimited(AqlLazyResult lazyResult) {
+        return new AqlJsonStreamer(lazyResult, true, true);
+    }
+
     /**
      * Read the ResultSet from db:
      * 1. In case of multi domain result the method merge multi rows into Json multi layer json result
@@ -188,6 +220,41 @@ public class AqlJsonStreamer extends AqlRestResult implements Cloneable {
         return null;
     }
 
+    /**
+     * Encodes the result directly into the given stream. The rows are serialized one after the other through a
+     * single UTF-8 generator whose (recycled) buffer is flushed to the stream as it fills up.
+     */
+    @Override
+    public void write(OutputStream out) throws IOException {
+        JsonGenerator generator = mapper.getJsonFactory().createJsonGenerator(out, JsonEncoding.UTF8);
+        generator.setPrettyPrinter(newlineDelimited ? new NewlineDelimitedPrettyPrinter() : new DefaultPrettyPrinter());
+        try {
+            if (!skipResultWrapper) {
+                generator.writeStartObject();
+                generator.writeFieldName("results");
+                generator.writeStartArray();
+            }
+            Row row;
+            while ((row = inflateRow()) != null) {
+                rowsCount++;
+                rowWriter.writeValue(generator, row);
+            }
+            if (!skipResultWrapper) {
+                generator.writeEndArray();
+                generator.writeFieldName("range");
+                rowWriter.writeValue(generator, new Range(offset, rowsCount, rowsCount, limit));
+                generator.writeEndObject();
+            }
+            if (!skipResultWrapper || (newlineDelimited && rowsCount > 0)) {
+                generator.writeRaw('\n');
+            }
+            ended = true;
+        } finally {
+            generator.close();
+        }
+        out.flush();
+    }
+
     private void appendEndSection() {
         try {
             if (!ended) {
@@ -223,9 +290,15 @@ public class AqlJsonStreamer extends AqlRestResult implements Cloneable {
         Row row = inflateRow();
         if (row != null) {
             try {
-                String json = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(row);
-                json = isFirstElement || skipResultWrapper ? "" + json : "," + json;
-                return json.getBytes();
+                rowBuffer.reset();
+                if (!isFirstElement && !skipResultWrapper) {
+                    rowBuffer.write(',');
+                }
+                rowWriter.writeValue(rowBuffer, row);
+                if (newlineDelimited) {
+                    rowBuffer.write('\n');
+                }
+                return rowBuffer.toByteArray();
             } catch (Exception e) {
                 throw new AqlException("Failed to convert Aql Result to JSON", e);
             }
@@ -243,9 +316,22 @@ public class AqlJsonStreamer extends AqlRestResult implements Cloneable {
         mapper.getSerializationConfig().withSerializationInclusion(JsonSerialize.Inclusion.NON_NULL);
         mapper.setVisibility(JsonMethod.ALL, JsonAutoDetect.Visibility.NONE);
         mapper.setVisibility(JsonMethod.FIELD, JsonAutoDetect.Visibility.ANY);
+        // The streams are flushed once the whole result is written and never closed by the generators
+        mapper.configure(SerializationConfig.Feature.FLUSH_AFTER_WRITE_VALUE, false);
+        mapper.getJsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
         return mapper;
     }
 
+    /**
+     * Compact output with a line feed between root level values
+     */
+    private static class NewlineDelimitedPrettyPrinter extends MinimalPrettyPrinter {
+        @Override
+        public void writeRootValueSeparator(JsonGenerator jg) throws IOException {
+            jg.writeRaw('\n');
+        }
+    }
+
     /**
      * Simplify the work with the stream during the read
      */
@@ -37,6 +37,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.sql.ResultSet;
 import java.util.List;
@@ -91,6 +93,18 @@ public abstract class AqlRestResult implements Closeable {
 
     public abstract byte[] read();
 
+    /**
+     * Writes the whole result to the given stream. The default implementation pumps the chunks returned by
+     * {@link #read()}, implementations are encouraged to encode the result directly into the stream.
+     */
+    public void write(OutputStream out) throws IOException {
+        byte[] array;
+        while ((array = read()) != null) {
+            out.write(array);
+        }
+        out.flush();
+    }
+
     @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
     @JsonPropertyOrder(value = {"itemRepo", "itemPath", "itemName", "itemType", "itemSize", "itemCreated", "itemCreatedBy", "itemModified", "itemModifiedBy", "itemUpdated", "itemDepth"}, alphabetic = true)
     public static class Row {
@@ -0,0 +1,75 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.api.module;
+
+import org.artifactory.api.module.regex.NamedMatcher;
+import org.artifactory.descriptor.repo.RepoLayout;
+import org.artifactory.descriptor.repo.RepoLayoutBuilder;
+import org.artifactory.util.RepoLayoutUtils;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests {@link RepoLayoutParser}.
+ */
+@Test
+public class RepoLayoutParserTest {
+
+    private static final RepoLayout MAVEN_2 = RepoLayoutUtils.MAVEN_2_DEFAULT;
+
+    public void parsersCachedBySettings() {
+        RepoLayoutParser parser = RepoLayoutParser.get(MAVEN_2, MAVEN_2.getArtifactPathPattern(), false);
+        RepoLayout copy = new RepoLayoutBuilder()
+                .name("maven-copy")
+                .artifactPathPattern(MAVEN_2.getArtifactPathPattern())
+                .folderIntegrationRevisionRegExp(MAVEN_2.getFolderIntegrationRevisionRegExp())
+                .fileIntegrationRevisionRegExp(MAVEN_2.getFileIntegrationRevisionRegExp())
+                .build();
+        assertSame(RepoLayoutParser.get(copy, copy.getArtifactPathPattern(), false), parser);
+        assertNotSame(RepoLayoutParser.get(MAVEN_2, MAVEN_2.getArtifactPathPattern(), true), parser);
+        copy.setFileIntegrationRevisionRegExp("SNAPSHOT");
+        assertNotSame(RepoLayoutParser.get(copy, copy.getArtifactPathPattern(), false), parser);
+    }
+
+    public void clearDropsCachedParsers() {
+        RepoLayoutParser parser = RepoLayoutParser.get(MAVEN_2, MAVEN_2.getArtifactPathPattern(), false);
+        ModuleInfoUtils.clearLayoutParsersCache();
+        assertNotSame(RepoLayoutParser.get(MAVEN_2, MAVEN_2.getArtifactPathPattern(), false), parser);
+    }
+
+    public void matchDescriptorPattern() {
+        RepoLayoutParser parser = RepoLayoutParser.get(MAVEN_2, MAVEN_2.getDescriptorPathPattern(), false);
+        NamedMatcher matcher = parser.match("org/jfrog/lib/1.0/lib-1.0.pom");
+        assertNotNull(matcher);
+        assertEquals(matcher.namedGroups().get(RepoLayoutUtils.MODULE), "lib");
+        // rejected by the literal suffix of the pattern
+        assertNull(parser.match("org/jfrog/lib/1.0/lib-1.0.jar"));
+    }
+
+    public void matchArtifactPattern() {
+        RepoLayoutParser parser = RepoLayoutParser.get(MAVEN_2, MAVEN_2.getArtifactPathPattern(), false);
+        NamedMatcher matcher = parser.match("org/jfrog/lib/1.0/lib-1.0-sources.jar");
+        assertNotNull(matcher);
+        assertEquals(matcher.namedGroups().get(RepoLayoutUtils.CLASSIFIER), "sources");
+        assertNull(parser.match("lib.jar"));
+    }
+}
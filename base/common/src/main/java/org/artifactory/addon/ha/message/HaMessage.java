@@ -35,7 +35,8 @@ import org.codehaus.jackson.annotate.JsonTypeInfo;
         @JsonSubTypes.Type(value = WatchesHaMessage.DeleteAllWatches.class, name = "watchesDeleteAllEvent"),
         @JsonSubTypes.Type(value = WatchesHaMessage.DeleteUserWatches.class, name = "watchesDeleteUserWatchesEvent"),
         @JsonSubTypes.Type(value = WatchesHaMessage.DeleteAllUserWatches.class, name = "watchesDeleteAllUserWatchesEvent"),
-        @JsonSubTypes.Type(value = HaOpkgMessage.class, name = "opkgEvent")
+        @JsonSubTypes.Type(value = HaOpkgMessage.class, name = "opkgEvent"),
+        @JsonSubTypes.Type(value = NodesCacheHaMessage.class, name = "nodesCacheInvalidateEvent")
 })
 public interface HaMessage {
 
@@ -31,7 +31,8 @@ public enum HaMessageTopic {
     ACL_CHANGE_TOPIC("aclChange"),
     LICENSES_CHANGE_TOPIC("licensesChange"),
     NUPKG_TOPIC("nuPkgChange"),
-    WATCHES_TOPIC("watchesChange");
+    WATCHES_TOPIC("watchesChange"),
+    NODES_CACHE_TOPIC("nodesCacheChange");
 
     public final String topicName;
 
@@ -0,0 +1,71 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.addon.ha.message;
+
+import com.google.common.collect.Lists;
+import org.codehaus.jackson.annotate.JsonTypeName;
+
+import java.util.List;
+
+/**
+ * Invalidates the nodes cache of the other cluster members after a transaction that changed nodes was committed.
+ * The repo paths are in the "repoKey/path" format. The node ids are required for deleted nodes, which are removed by
+ * id only. When too many nodes were changed, the message carries no paths and asks to clear the whole cache.
+ */
+@JsonTypeName("nodesCacheInvalidateEvent")
+public class NodesCacheHaMessage extends HaBaseMessage implements HaMessage {
+
+    private List<String> repoPaths = Lists.newArrayList();
+    private List<Long> nodeIds = Lists.newArrayList();
+    private boolean all;
+
+    public NodesCacheHaMessage() {
+        super("");
+    }
+
+    public NodesCacheHaMessage(String publishingMemberId) {
+        super(publishingMemberId);
+    }
+
+    public List<String> getRepoPaths() {
+        return repoPaths;
+    }
+
+    public void setRepoPaths(List<String> repoPaths) {
+        this.repoPaths = repoPaths;
+    }
+
+    public List<Long> getNodeIds() {
+        return nodeIds;
+    }
+
+    public void setNodeIds(List<Long> nodeIds) {
+        this.nodeIds = nodeIds;
+    }
+
+    public boolean isAll() {
+        return all;
+    }
+
+    public void setAll(boolean all) {
+        this.all = all;
+    }
+}
@@ -31,6 +31,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -76,6 +77,26 @@ public abstract class ArtifactoryResponseBase implements ArtifactoryResponse {
         }
     }
 
+    /**
+     * @return True if the servlet container can send the response body from a local file by itself (sendfile)
+     */
+    public boolean isSendfileSupported() {
+        return false;
+    }
+
+    /**
+     * Lets the servlet container send a region of a local file as the response body once the request returns. The
+     * container sends it from the file system without copying it through the JVM, so the file must stay readable
+     * after this method returns. Only supported if {@link #isSendfileSupported()}.
+     *
+     * @param file     The file to send
+     * @param position The position in the file of the first byte to send
+     * @param count    The number of bytes to send
+     */
+    public void sendFile(File file, long position, long count) throws IOException {
+        throw new UnsupportedOperationException("Sendfile is not supported by " + getClass().getSimpleName());
+    }
+
     @Override
     public int getStatus() {
         return status;
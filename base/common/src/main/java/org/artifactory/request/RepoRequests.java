@@ -52,6 +52,25 @@ public abstract class RepoRequests {
         }
     }
 
+    /**
+     * @return The request context bound to the current thread, or null if none
+     */
+    public static RepoRequestContext get() {
+        return context.get();
+    }
+
+    /**
+     * Binds the context of a request to a helper thread working on the same request. Helper threads must
+     * {@link #unbind()} without destroying the context, which is owned by the request thread.
+     */
+    public static void bind(RepoRequestContext repoRequestContext) {
+        context.set(repoRequestContext);
+    }
+
+    public static void unbind() {
+        context.remove();
+    }
+
     public static void logToContext(String format, Object... params) {
         RepoRequestContext repoRequestContext = context.get();
         if (repoRequestContext != null) {
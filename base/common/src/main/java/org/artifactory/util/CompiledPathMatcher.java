@@ -0,0 +1,325 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.AntPathMatcher;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The include/exclude patterns of a permission target compiled once into per-segment matchers.
+ * <p/>
+ * Matching is equivalent to {@link PathMatcher#matches(String, Collection, Collection, boolean)}, but the patterns
+ * are tokenized and their wildcard segments turned into regular expressions only once, and the path is tokenized only
+ * once for all the patterns. Patterns with URI template variables or whitespace, and paths with whitespace, are
+ * delegated to the Spring {@link AntPathMatcher} as-is.
+ *
+ * @see PathMatcher
+ */
+public class CompiledPathMatcher {
+    private static final Logger log = LoggerFactory.getLogger(CompiledPathMatcher.class);
+
+    private static final AntPathMatcher antPathMatcher = new AntPathMatcher();
+    private static final String SEPARATOR = "/";
+    private static final String DOUBLE_WILDCARD = "**";
+
+    private final List<AntPattern> includes;
+    private final List<AntPattern> excludes;
+    private final boolean includeAll;
+
+    private CompiledPathMatcher(List<AntPattern> includes, List<AntPattern> excludes, boolean includeAll) {
+        this.includes = includes;
+        this.excludes = excludes;
+        this.includeAll = includeAll;
+    }
+
+    public static CompiledPathMatcher compile(@Nullable Collection<String> includes,
+            @Nullable Collection<String> excludes) {
+        List<AntPattern> compiledExcludes = new ArrayList<>();
+        if (CollectionUtils.notNullOrEmpty(excludes)) {
+            for (String exclude : excludes) {
+                compiledExcludes.add(AntPattern.compile(exclude));
+            }
+        }
+        List<AntPattern> compiledIncludes = new ArrayList<>();
+        boolean includeAll = CollectionUtils.isNullOrEmpty(includes);
+        if (!includeAll) {
+            for (String include : includes) {
+                if ("**/*".equals(include) || DOUBLE_WILDCARD.equals(include)) {
+                    includeAll = true;
+                    break;
+                }
+                compiledIncludes.add(AntPattern.compile(include));
+            }
+        }
+        return new CompiledPathMatcher(compiledIncludes, compiledExcludes, includeAll);
+    }
+
+    public boolean matches(String path, boolean useStartMatch) {
+        String[] pathDirs = requiresAntPathMatcher(path) ? null : tokenize(path);
+        for (AntPattern exclude : excludes) {
+            if (exclude.match(path, pathDirs, true)) {
+                log.debug("excludes pattern ({}) rejected path '{}'.", exclude, path);
+                return false;
+            }
+        }
+        if (includeAll) {
+            return true;
+        }
+        for (AntPattern include : includes) {
+            if ((useStartMatch && include.match(path, pathDirs, false)) || include.match(path, pathDirs, true)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean requiresAntPathMatcher(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isWhitespace(value.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] tokenize(String path) {
+        List<String> tokens = new ArrayList<>();
+        int start = 0;
+        while (start <= path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            if (end > start) {
+                tokens.add(path.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return tokens.toArray(new String[tokens.size()]);
+    }
+
+    /**
+     * A single Ant pattern. The matching algorithm mirrors {@link AntPathMatcher} (without URI template variables),
+     * applied to the pre-tokenized pattern and path.
+     */
+    private static class AntPattern {
+        private final String pattern;
+        // Null if the pattern is delegated to the Spring matcher
+        private final Segment[] segments;
+
+        private AntPattern(String pattern, Segment[] segments) {
+            this.pattern = pattern;
+            this.segments = segments;
+        }
+
+        private static AntPattern compile(String pattern) {
+            if (pattern.indexOf('{') >= 0 || requiresAntPathMatcher(pattern)) {
+                return new AntPattern(pattern, null);
+            }
+            String[] dirs = tokenize(pattern);
+            Segment[] segments = new Segment[dirs.length];
+            for (int i = 0; i < dirs.length; i++) {
+                segments[i] = Segment.compile(dirs[i]);
+            }
+            return new AntPattern(pattern, segments);
+        }
+
+        /**
+         * @param pathDirs  The tokenized path, null if the path must be matched by the Spring matcher
+         * @param fullMatch False to only check that the pattern matches the start of the path
+         */
+        private boolean match(String path, @Nullable String[] pathDirs, boolean fullMatch) {
+            if (segments == null || pathDirs == null) {
+                return fullMatch ? antPathMatcher.match(pattern, path) : antPathMatcher.matchStart(pattern, path);
+            }
+            if (path.startsWith(SEPARATOR) != pattern.startsWith(SEPARATOR)) {
+                return false;
+            }
+            int pattIdxStart = 0;
+            int pattIdxEnd = segments.length - 1;
+            int pathIdxStart = 0;
+            int pathIdxEnd = pathDirs.length - 1;
+
+            // Match all elements up to the first **
+            while (pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+                Segment segment = segments[pattIdxStart];
+                if (segment.doubleWildcard) {
+                    break;
+                }
+                if (!segment.matches(pathDirs[pathIdxStart])) {
+                    return false;
+                }
+                pattIdxStart++;
+                pathIdxStart++;
+            }
+
+            if (pathIdxStart > pathIdxEnd) {
+                // Path is exhausted, only match if rest of pattern is * or **'s
+                if (pattIdxStart > pattIdxEnd) {
+                    return pattern.endsWith(SEPARATOR) == path.endsWith(SEPARATOR);
+                }
+                if (!fullMatch) {
+                    return true;
+                }
+                if (pattIdxStart == pattIdxEnd && segments[pattIdxStart].singleWildcard
+                        && path.endsWith(SEPARATOR)) {
+                    return true;
+                }
+                return onlyDoubleWildcards(pattIdxStart, pattIdxEnd);
+            } else if (pattIdxStart > pattIdxEnd) {
+                // Path not exhausted, but pattern is
+                return false;
+            } else if (!fullMatch && segments[pattIdxStart].doubleWildcard) {
+                // Path start definitely matches due to the "**" part in the pattern
+                return true;
+            }
+
+            // Match all elements after the last **
+            while (pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+                Segment segment = segments[pattIdxEnd];
+                if (segment.doubleWildcard) {
+                    break;
+                }
+                if (!segment.matches(pathDirs[pathIdxEnd])) {
+                    return false;
+                }
+                pattIdxEnd--;
+                pathIdxEnd--;
+            }
+            if (pathIdxStart > pathIdxEnd) {
+                // Path is exhausted
+                return onlyDoubleWildcards(pattIdxStart, pattIdxEnd);
+            }
+
+            while (pattIdxStart != pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+                int patIdxTmp = -1;
+                for (int i = pattIdxStart + 1; i <= pattIdxEnd; i++) {
+                    if (segments[i].doubleWildcard) {
+                        patIdxTmp = i;
+                        break;
+                    }
+                }
+                if (patIdxTmp == pattIdxStart + 1) {
+                    // '**/**' situation, so skip one
+                    pattIdxStart++;
+                    continue;
+                }
+                // Find the pattern between pattIdxStart and patIdxTmp in the path between pathIdxStart and pathIdxEnd
+                int patLength = patIdxTmp - pattIdxStart - 1;
+                int strLength = pathIdxEnd - pathIdxStart + 1;
+                int foundIdx = -1;
+                strLoop:
+                for (int i = 0; i <= strLength - patLength; i++) {
+                    for (int j = 0; j < patLength; j++) {
+                        if (!segments[pattIdxStart + j + 1].matches(pathDirs[pathIdxStart + i + j])) {
+                            continue strLoop;
+                        }
+                    }
+                    foundIdx = pathIdxStart + i;
+                    break;
+                }
+                if (foundIdx == -1) {
+                    return false;
+                }
+                pattIdxStart = patIdxTmp;
+                pathIdxStart = foundIdx + patLength;
+            }
+            return onlyDoubleWildcards(pattIdxStart, pattIdxEnd);
+        }
+
+        private boolean onlyDoubleWildcards(int from, int to) {
+            for (int i = from; i <= to; i++) {
+                if (!segments[i].doubleWildcard) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return pattern;
+        }
+    }
+
+    /**
+     * A single path segment of a pattern: a literal, a "*" or "**" wildcard or a regular expression for segments
+     * mixing literals with wildcards.
+     */
+    private static class Segment {
+        private final String literal;
+        private final Pattern regex;
+        private final boolean singleWildcard;
+        private final boolean doubleWildcard;
+
+        private Segment(String literal, Pattern regex, boolean singleWildcard, boolean doubleWildcard) {
+            this.literal = literal;
+            this.regex = regex;
+            this.singleWildcard = singleWildcard;
+            this.doubleWildcard = doubleWildcard;
+        }
+
+        private static Segment compile(String segment) {
+            if (DOUBLE_WILDCARD.equals(segment)) {
+                return new Segment(null, null, false, true);
+            }
+            if ("*".equals(segment)) {
+                return new Segment(null, null, true, false);
+            }
+            if (segment.indexOf('*') < 0 && segment.indexOf('?') < 0) {
+                return new Segment(segment, null, false, false);
+            }
+            StringBuilder regex = new StringBuilder();
+            int literalStart = 0;
+            for (int i = 0; i < segment.length(); i++) {
+                char c = segment.charAt(i);
+                if (c == '*' || c == '?') {
+                    if (i > literalStart) {
+                        regex.append(Pattern.quote(segment.substring(literalStart, i)));
+                    }
+                    regex.append(c == '*' ? ".*" : ".");
+                    literalStart = i + 1;
+                }
+            }
+            if (literalStart < segment.length()) {
+                regex.append(Pattern.quote(segment.substring(literalStart)));
+            }
+            return new Segment(null, Pattern.compile(regex.toString()), false, false);
+        }
+
+        private boolean matches(String pathDir) {
+            if (singleWildcard) {
+                return true;
+            }
+            if (literal != null) {
+                return literal.equals(pathDir);
+            }
+            return regex.matcher(pathDir).matches();
+        }
+    }
+}
@@ -25,12 +25,15 @@ import org.apache.http.HttpStatus;
 import org.artifactory.common.ConstantValues;
 import org.artifactory.request.ArtifactoryRequest;
 import org.artifactory.request.ArtifactoryResponseBase;
+import org.artifactory.request.RequestThreadLocal;
 import org.artifactory.util.HttpUtils;
 import org.codehaus.plexus.util.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
@@ -38,6 +41,12 @@ import java.io.PrintWriter;
 public class HttpArtifactoryResponse extends ArtifactoryResponseBase {
     private static final Logger log = LoggerFactory.getLogger(HttpArtifactoryResponse.class);
 
+    // Tomcat sendfile request attributes
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
     private final HttpServletResponse response;
 
     public HttpArtifactoryResponse(HttpServletResponse response) {
@@ -168,6 +177,26 @@ public class HttpArtifactoryResponse extends ArtifactoryResponseBase {
         return response.getOutputStream();
     }
 
+    @Override
+    public boolean isSendfileSupported() {
+        HttpServletRequest request = RequestThreadLocal.getRequest();
+        return request != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR)) &&
+                !response.isCommitted();
+    }
+
+    @Override
+    public void sendFile(File file, long position, long count) throws IOException {
+        HttpServletRequest request = RequestThreadLocal.getRequest();
+        if (request == null) {
+            throw new IllegalStateException("No request bound to the current thread");
+        }
+        setStatus(getStatus());
+        request.setAttribute(SENDFILE_FILENAME_ATTR, file.getAbsolutePath());
+        request.setAttribute(SENDFILE_START_ATTR, position);
+        request.setAttribute(SENDFILE_END_ATTR, position + count);
+        log.debug("Sending {} bytes of '{}' from position {} with sendfile.", count, file, position);
+    }
+
     @Override
     public PrintWriter getWriter() throws IOException {
         return response.getWriter();
@@ -20,7 +20,6 @@
 
 package org.artifactory.webapp.servlet;
 
-import com.google.common.collect.Lists;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.NullWriter;
 import org.apache.http.HttpStatus;
@@ -36,6 +35,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Writer;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * A response wrapper that maintains but ignores the activities of the request process and collects the request trace
@@ -51,7 +51,8 @@ public class TraceLoggingResponse implements ArtifactoryResponse {
     private long length = -1;
     private int statusCode;
     private ArtifactoryResponse artifactoryResponse;
-    private List<String> logAggregator = Lists.newArrayList();
+    // Messages might be logged by helper threads of the request (e.g. concurrent virtual repository lookups)
+    private List<String> logAggregator = new CopyOnWriteArrayList<>();
 
     public TraceLoggingResponse(ArtifactoryResponse artifactoryResponse) {
         threadName = Thread.currentThread().getName();
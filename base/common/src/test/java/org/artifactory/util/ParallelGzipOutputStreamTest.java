@@ -0,0 +1,129 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.util;
+
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPInputStream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests the {@link ParallelGzipOutputStream}.
+ */
+@Test
+public class ParallelGzipOutputStreamTest {
+
+    private static final int BLOCK_SIZE = 32 * 1024;
+
+    private ExecutorService executor;
+
+    @BeforeClass
+    public void setup() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterClass
+    public void cleanup() {
+        executor.shutdownNow();
+    }
+
+    public void emptyInput() throws IOException {
+        assertRoundTrip(new byte[0]);
+    }
+
+    public void singlePartialBlock() throws IOException {
+        assertRoundTrip(randomText(1000));
+    }
+
+    public void exactBlocks() throws IOException {
+        assertRoundTrip(randomText(BLOCK_SIZE * 3));
+    }
+
+    public void manyBlocksOfCompressibleData() throws IOException {
+        byte[] data = randomText(BLOCK_SIZE * 20 + 123);
+        byte[] compressed = assertRoundTrip(data);
+        assertTrue(compressed.length < data.length / 2, "Expected compressed data: " + compressed.length);
+    }
+
+    public void randomData() throws IOException {
+        byte[] data = new byte[BLOCK_SIZE * 5 + 7];
+        new Random(7).nextBytes(data);
+        assertRoundTrip(data);
+    }
+
+    public void rejectedBlocksAreCompressedInline() throws IOException {
+        byte[] data = randomText(BLOCK_SIZE * 4 + 10);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out, command -> {
+            throw new RejectedExecutionException("rejected");
+        }, BLOCK_SIZE, 2)) {
+            gzip.write(data);
+        }
+        assertEquals(gunzip(out.toByteArray()), data);
+    }
+
+    private byte[] assertRoundTrip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out, executor, BLOCK_SIZE, 3)) {
+            // uneven writes to cross block boundaries in the middle of a write
+            int off = 0;
+            int chunk = 1;
+            while (off < data.length) {
+                int len = Math.min(chunk, data.length - off);
+                gzip.write(data, off, len);
+                gzip.flush();
+                off += len;
+                chunk = chunk * 3 + 1;
+            }
+        }
+        byte[] compressed = out.toByteArray();
+        assertEquals(gunzip(compressed), data);
+        return compressed;
+    }
+
+    private byte[] gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    private byte[] randomText(int length) {
+        String[] words = {"artifact", "repository", "maven", "metadata", "folder", "download", "archive", "\n"};
+        Random random = new Random(length);
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            text.append(words[random.nextInt(words.length)]).append(' ');
+        }
+        return text.substring(0, length).getBytes();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.webapp.servlet;
+
+import org.artifactory.request.RequestThreadLocal;
+import org.artifactory.request.RequestWrapper;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the container sendfile support of the {@link HttpArtifactoryResponse}.
+ */
+@Test
+public class HttpArtifactoryResponseTest {
+
+    @AfterMethod
+    public void unbindRequest() {
+        RequestThreadLocal.unbind();
+    }
+
+    public void sendfileNotSupportedWithoutRequest() {
+        assertFalse(new HttpArtifactoryResponse(new MockHttpServletResponse()).isSendfileSupported());
+    }
+
+    public void sendfileNotSupportedByContainer() {
+        RequestThreadLocal.bind(new RequestWrapper(new MockHttpServletRequest()));
+        assertFalse(new HttpArtifactoryResponse(new MockHttpServletResponse()).isSendfileSupported());
+    }
+
+    public void sendfileNotSupportedOnCommittedResponse() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        RequestThreadLocal.bind(new RequestWrapper(request));
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+        servletResponse.setCommitted(true);
+        assertFalse(new HttpArtifactoryResponse(servletResponse).isSendfileSupported());
+    }
+
+    public void sendFileSetsContainerAttributes() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        RequestThreadLocal.bind(new RequestWrapper(request));
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+        HttpArtifactoryResponse response = new HttpArtifactoryResponse(servletResponse);
+        assertTrue(response.isSendfileSupported());
+
+        File file = new File("filestore/ab/abcd");
+        response.setStatus(206);
+        response.sendFile(file, 100, 50);
+        assertEquals(request.getAttribute("org.apache.tomcat.sendfile.filename"), file.getAbsolutePath());
+        assertEquals(request.getAttribute("org.apache.tomcat.sendfile.start"), 100L);
+        assertEquals(request.getAttribute("org.apache.tomcat.sendfile.end"), 150L);
+        assertEquals(servletResponse.getStatus(), 206);
+        assertEquals(servletResponse.getContentAsByteArray().length, 0, "The body is sent by the container");
+    }
+}
@@ -55,9 +55,14 @@ public enum ConstantValues {
     taskCompletionLockTimeoutRetries("task.completionLockTimeoutRetries", 100),
     substituteRepoKeys("repo.key.subst."),
     repoConcurrentDownloadSyncTimeoutSecs("repo.concurrentDownloadSyncTimeoutSecs", Seconds.MINUTE * 15),
+    repoConcurrentDownloadTeeEnabled("repo.concurrentDownloadTeeEnabled", TRUE),
     downloadStatsEnabled("repo.downloadStatsEnabled", TRUE),
+    folderDownloadPrefetchCount("folderDownload.prefetch.count", 4),
+    folderDownloadPrefetchMaxInMemoryKb("folderDownload.prefetch.maxInMemoryKb", 1024),
+    folderDownloadParallelGzipBlockKb("folderDownload.parallelGzip.blockKb", 128),
     disableGlobalRepoAccess("repo.global.disabled", TRUE),
     fsItemCacheIdleTimeSecs("fsitem.cache.idleTimeSecs", Seconds.MINUTE * 20),
+    itemTreeBulkLoadMaxItems("itemTree.bulkLoad.maxItems", 100000),
     dockerTokensCacheIdleTimeSecs("docker.tokens.cache.idleTimeSecs", Seconds.MINUTE * 4),
     genericTokensCacheIdleTimeSecs("artifactory.tokens.cache.idleTimeSecs", Seconds.MINUTE * 10),
     cacheFSSyncquietPeriodSecs("cacheFS.sync.quietPeriodSecs", Seconds.MINUTE * 15),
@@ -68,6 +73,9 @@ public enum ConstantValues {
     searchMaxFragmentsSize("search.content.maxFragmentsSize", 5000),
     searchArchiveMinQueryLength("search.archive.minQueryLength", 3),
     searchPatternTimeoutSecs("search.pattern.timeoutSecs", 30),
+    searchNameIndexEnabled("search.nameIndex.enabled", false),
+    searchNameIndexMaxFiles("search.nameIndex.maxFiles", 2000000),
+    searchNameIndexRebuildIntervalSecs("search.nameIndex.rebuildIntervalSecs", Seconds.HOUR * 6),
     gcUseIndex("gc.useIndex", FALSE),
     gcIntervalSecs("gc.intervalSecs", Seconds.DAY),
     gcDelaySecs("gc.delaySecs", Seconds.HOUR * 2),
@@ -79,7 +87,14 @@ public enum ConstantValues {
     gcMaxCacheEntries("gc.maxCacheEntries", 10000),
     gcReadersMaxTimeSecs("gc.readersMaxTimeSecs", Seconds.HOUR * 3),
     gcFailCountThreshold("gc.failCount.threshold", 3),
+    gcStreamingEnabled("gc.streaming.enabled", TRUE),
+    gcStreamingPageSize("gc.streaming.pageSize", 500),
+    gcStreamingDeleteThreads("gc.streaming.deleteThreads", 4),
+    gcStreamingSleepBetweenPagesMillis("gc.streaming.sleepBetweenPagesMillis", 0),
     trafficCollectionActive("traffic.collectionActive", FALSE),
+    trafficAggregationEnabled("traffic.aggregation.enabled", TRUE),
+    trafficAggregationWindowMinutes("traffic.aggregation.windowMinutes", Seconds.DAY / 60),
+    trafficAggregationMaxKeysPerMinute("traffic.aggregation.maxKeysPerMinute", 1000),
     securityAuthenticationCacheInitSize("security.authentication.cache.initSize", 100),
     securityAuthenticationCacheIdleTimeSecs("security.authentication.cache.idleTimeSecs", Seconds.MINUTE * 5),
     userLastAccessUpdatesResolutionSecs("security.userLastAccessUpdatesResolutionSecs", 5),
@@ -90,10 +105,13 @@ public enum ConstantValues {
     ldapDisableGroupSearchAttributesLimitation("security.ldap.disable.group.search.attributes.limitation", FALSE),
     ldapGroupNamesSearchFilterThreshold("security.ldap.group.search.filterThreshold", 0),
     enableAqlReadCommitted("enable.aql.read.committed", FALSE),
+    aqlPlanCacheEnabled("aql.planCache.enabled", TRUE),
+    aqlPlanCacheMaxSize("aql.planCache.maxSize", 1000),
     mvnCentralHostPattern("mvn.central.hostPattern", ".maven.org"),
     mvnCentralIndexerMaxQueryIntervalSecs("mvn.central.indexerMaxQueryIntervalSecs", Seconds.DAY),
     mvnMetadataPluginCalculationWorkers("mvn.metadata.plugin.calculation.workers", 2),
     mvnMetadataCalculationWorkers("mvn.metadata.calculation.workers", 8),
+    mvnMetadataCalculationIncremental("mvn.metadata.calculation.incremental", TRUE),
     mvnMetadataVersionsComparator("mvn.metadataVersionsComparatorFqn"),
     mvnMetadataSnapshotComparator("mvn.metadataSnapshotComparatorFqn"),
     mvnDynamicMetadataCacheRetentionSecs("mvn.dynamicMetadata.cacheRetentionSecs", 10),
@@ -179,15 +197,25 @@ public enum ConstantValues {
     statsFlushIntervalSecs("stats.flushIntervalSecs", 30),
     statsRemoteFlushIntervalSecs("stats.remote.flushIntervalSecs", 35),
     statsFlushTimeoutSecs("stats.flushTimeoutSecs", 120),
+    statsFlushBatchMode("stats.flushBatchMode", TRUE),
+    statsFlushBatchSize("stats.flushBatchSize", 1000),
+    statsMaxQueuedEvents("stats.maxQueuedEvents", 500000),
     integrationCleanupIntervalSecs("integrationCleanup.intervalSecs", 300),
     integrationCleanupQuietPeriodSecs("integrationCleanup.quietPeriodSecs", 60),
     folderPruningIntervalSecs("folderPruning.intervalSecs", 300),
     folderPruningQuietPeriodSecs("folderPruning.quietPeriodSecs", 60),
     virtualCleanupMaxAgeHours("repo.virtualCacheCleanup.maxAgeHours", 168),
     virtualCleanupNamePattern("repo.virtualCacheCleanup.pattern", "*.pom"),
+    virtualParallelLookupEnabled("repo.virtual.parallelLookup.enabled", FALSE),
+    virtualParallelLookupMaxConcurrency("repo.virtual.parallelLookup.maxConcurrency", 4),
+    virtualParallelLookupThreads("repo.virtual.parallelLookup.threads", 16),
     defaultSaltValue("security.authentication.password.salt", "CAFEBABEEBABEFAC"),
     dbIdGeneratorFetchAmount("db.idGenerator.fetch.amount", 2000),
     dbIdGeneratorMaxUpdateRetries("db.idGenerator.max.update.retries", 50),
+    dbIdGeneratorMaxFetchAmount("db.idGenerator.max.fetch.amount", 64000),
+    dbIdGeneratorTargetFetchIntervalMillis("db.idGenerator.target.fetch.interval.millis", 10000),
+    dbIdGeneratorPrefetch("db.idGenerator.prefetch", TRUE),
+    dbIdGeneratorThreadRangeSize("db.idGenerator.thread.range.size", 1),
     gemsLocalIndexTaskIntervalSecs("gems.localIndexTaskIntervalSecs", 30),
     gemsVirtualIndexTaskIntervalSecs("gems.virtualIndexTaskIntervalSecs", 300),
     gemsIndexTaskQueueLimit("gems.gemsIndexTaskQueueLimit", 20000),
@@ -196,6 +224,9 @@ public enum ConstantValues {
     securityCrowdMaxGroupResults("security.authentication.crowd.group.maxResults", 9999),
     uiHideChecksums("ui.hideChecksums", TRUE),
     archiveIndexerTaskIntervalSecs("archive.indexer.intervalSecs", 60),
+    archiveIndexerWorkers("archive.indexer.workers", 4),
+    archiveIndexerBatchSize("archive.indexer.batchSize", 500),
+    archiveIndexerDictionaryCacheSize("archive.indexer.dictionaryCacheSize", 100000),
     xrayIndexerTaskIntervalSecs("xray.indexer.intervalSecs", 60),
     xrayForceReindex("xray.force.reindex", false),
     xrayScanBuildMaxConnections("xray.scanBuild.httpClient.max.connections", 30),
@@ -217,6 +248,9 @@ public enum ConstantValues {
     npmIndexQuietPeriodSecs("npm.index.quietPeriodSecs", 60),
     npmIndexCycleSecs("npm.index.cycleSecs", 60),
     importMaxParallelRepos("import.max.parallelRepos", Runtime.getRuntime().availableProcessors() - 1),
+    importPartitionWorkers("import.partition.workers", 1),
+    importPartitionPrefetchFiles("import.partition.prefetchFiles", 16),
+    importMaxItemsPerTransaction("import.maxItemsPerTransaction", 1000),
     debianDistributionPath("debian.distribution.path", "dists"),
     opkgIndexQuietPeriodSecs("opkg.index.quietPeriodSecs", 60),
     opkgIndexCycleSecs("opkg.index.cycleSecs", 2),
@@ -227,7 +261,10 @@ public enum ConstantValues {
     dockerTagsCleanupIntervalSecs("docker.tags.cleanup.intervalSecs", 300),
     dockerTagsCleanupQuietPeriodSecs("docker.tags.cleanup.quietPeriodSecs", 60),
     httpRangeSupport("http.range.support", true),
+    httpSendfileEnabled("http.sendfile.enabled", true),
+    httpSendfileDeleteProtectionSecs("http.sendfile.deleteProtectionSecs", 60),
     aclDirtyReadsTimeout("acl.dirty.read.timeout", 20000),
+    securityPermissionDecisionCacheSize("security.permissions.decisionCacheSize", 10000),
     centralConfigDirtyReadsTimeoutMillis("central.config.dirty.read.timeout.millis", 2000),
     centralConfigLatestRevisionsExpireAfterAccessSeconds("central.config.latest.revisions.expire.after.access.seconds", Seconds.HOUR * 6),
     centralConfigLatestRevisionsDictionarySize("central.config.latest.revisions.dictionary.size", 20),
@@ -265,6 +302,9 @@ public enum ConstantValues {
     moveCopyDefaultTransactionSize("move.copy.default.transaction.size", 1000),
     nodePropertiesReplaceAll("node.properties.replace.all", false),
     nodePropertiesLogPerformance("node.properties.log.performance", false),
+    nodePropertiesDeferWrites("node.properties.deferWrites", true),
+    nodePropertiesBatchSize("node.properties.batchSize", 500),
+    nodePropertiesKeyDictionarySize("node.properties.keyDictionarySize", 1000),
     workQueueSyncExecutionTimeoutMillis("workQueue.execution.syncExecutionTimeoutMillis", 120000),
     workQueueDoJobIntervalSecs("workQueue.dojob.intervalSecs", TimeUnit.MINUTES.toSeconds(10)),
     workItemMaxLockLeaseTime("workitem.max.lock.lease.time.minutes", 30),
@@ -321,6 +361,13 @@ public enum ConstantValues {
     nodesDaoSqlGetNodeIdByPath("sql.nodesDao.getNodeIdByPath", null),
     nodesDaoSqlNodeExists("sql.nodesDao.exists", null),
     nodesDaoSqlSearchFilesByProperty("sql.nodesDao.searchFilesByProperty", null),
+    nodesCacheEnabled("nodes.cache.enabled", TRUE),
+    nodesCacheMaxWeightBytes("nodes.cache.maxWeightBytes", 64L * 1024 * 1024),
+    nodesCacheExpirySecs("nodes.cache.expirySecs", Seconds.MINUTE * 10),
+    nodesCacheMaxPropagatedPaths("nodes.cache.maxPropagatedPaths", 1000),
+    storageAggregatesEnabled("storage.aggregates.enabled", TRUE),
+    storageAggregatesMaxFolders("storage.aggregates.maxFolders", 10000),
+    storageAggregatesReconcileIntervalSecs("storage.aggregates.reconcileIntervalSecs", Seconds.HOUR),
     masterKeyWaitingTimeout("master.key.waiting.timeout.millis", 60000),
     bootstrapLoggerDebug("bootstrap.logger.debug", false),
     sendOverwritesToTrashcan("send.overwrites.to.trashcan", true),
@@ -0,0 +1,83 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.benchmark;
+
+import org.artifactory.storage.db.aql.parser.AqlParser;
+import org.artifactory.storage.db.aql.parser.ParserElementResultContainer;
+import org.artifactory.storage.db.aql.service.AqlQueryOptimizer;
+import org.artifactory.storage.db.aql.sql.builder.query.aql.AqlQuery;
+import org.artifactory.storage.db.aql.sql.builder.query.aql.ParserToAqlAdapter;
+import org.artifactory.storage.db.aql.sql.builder.query.sql.SqlQuery;
+import org.artifactory.storage.db.aql.sql.builder.query.sql.SqlQueryBuilder;
+import org.jfrog.storage.DbType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The AQL translation pipeline of the AQL service: parsing, adapting to the AQL model, optimizing and building the
+ * SQL query. Validation and permission decoration are left out as they require a running application context.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AqlTranslationBenchmark {
+
+    @Param({
+            "items.find({\"repo\":\"libs-release-local\"})",
+            "items.find({\"repo\":\"libs-release-local\",\"name\":{\"$match\":\"*.jar\"},\"size\":{\"$gt\":\"1024\"}})" +
+                    ".include(\"name\",\"repo\",\"path\",\"size\").sort({\"$desc\":[\"size\"]}).limit(100)",
+            "items.find({\"$or\":[{\"@build.name\":\"app\"},{\"@build.number\":\"42\"}],\"type\":\"file\"})" +
+                    ".include(\"property\")",
+            "builds.find({\"name\":{\"$match\":\"app*\"},\"module.artifact.item.repo\":\"libs-release-local\"})"
+    })
+    private String query;
+
+    private AqlParser parser;
+    private ParserToAqlAdapter parserToAqlAdapter;
+    private AqlQueryOptimizer optimizer;
+    private SqlQueryBuilder sqlQueryBuilder;
+
+    @Setup
+    public void setup() {
+        BenchmarkEnvironment.bindArtifactoryHome();
+        parser = new AqlParser();
+        parserToAqlAdapter = new ParserToAqlAdapter();
+        optimizer = new AqlQueryOptimizer(DbType.DERBY);
+        sqlQueryBuilder = new SqlQueryBuilder();
+    }
+
+    @Benchmark
+    public ParserElementResultContainer parse() {
+        return parser.parse(query);
+    }
+
+    @Benchmark
+    public SqlQuery parseAndBuildSql() {
+        ParserElementResultContainer parserResult = parser.parse(query);
+        AqlQuery aqlQuery = parserToAqlAdapter.toAqlModel(parserResult);
+        optimizer.optimize(aqlQuery);
+        return sqlQueryBuilder.buildQuery(aqlQuery);
+    }
+}
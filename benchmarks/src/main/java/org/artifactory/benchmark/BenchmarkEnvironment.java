@@ -0,0 +1,53 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.benchmark;
+
+import org.artifactory.common.ArtifactoryConfigurationAdapter;
+import org.artifactory.common.ArtifactoryHome;
+import org.jfrog.config.ConfigurationManager;
+import org.jfrog.config.wrappers.ConfigurationManagerImpl;
+
+import java.io.File;
+
+/**
+ * Binds a minimal Artifactory home (default system properties) to the benchmark threads, as required by the code
+ * reading {@link org.artifactory.common.ConstantValues}.
+ */
+public abstract class BenchmarkEnvironment {
+
+    private static ArtifactoryHome home;
+
+    private BenchmarkEnvironment() {
+        // utility class
+    }
+
+    public static synchronized void bindArtifactoryHome() {
+        if (home == null) {
+            home = new ArtifactoryHome(new File("target/bench-home"));
+            ConfigurationManager configurationManager =
+                    ConfigurationManagerImpl.create(new ArtifactoryConfigurationAdapter(home));
+            configurationManager.initDbProperties();
+            configurationManager.initDefaultFiles();
+            home.initPropertiesAndReload();
+        }
+        ArtifactoryHome.bind(home);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.benchmark;
+
+import org.artifactory.storage.db.fs.dao.NodesDao;
+import org.artifactory.storage.db.fs.entity.Node;
+import org.artifactory.storage.db.fs.entity.NodePath;
+import org.artifactory.storage.db.util.JdbcHelper;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.artifactory.benchmark.SyntheticNodesDatabase.*;
+
+/**
+ * Node lookups and children listing of the {@link NodesDao} against a synthetic tree in embedded Derby. Each
+ * invocation hits a random node, so the numbers reflect the index lookups rather than the Derby page cache of a
+ * single row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NodesDaoBenchmark {
+
+    @Param("1000000")
+    private int treeSize;
+
+    private NodesDao nodesDao;
+    private int fanOut;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkEnvironment.bindArtifactoryHome();
+        SyntheticNodesDatabase db = new SyntheticNodesDatabase(treeSize);
+        fanOut = db.getFanOut();
+        nodesDao = new NodesDao(new JdbcHelper(db.getDataSource()));
+    }
+
+    @Benchmark
+    public Node getFile() throws SQLException {
+        return nodesDao.get(randomFile());
+    }
+
+    @Benchmark
+    public boolean existsFile() throws SQLException {
+        return nodesDao.exists(randomFile());
+    }
+
+    @Benchmark
+    public List<Node> getVersionChildren() throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(fanOut);
+        int j = random.nextInt(fanOut);
+        int k = random.nextInt(fanOut);
+        return nodesDao.getChildren(new NodePath(REPO, orgName(i) + "/" + moduleName(j), versionName(k), false));
+    }
+
+    private NodePath randomFile() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(fanOut);
+        int j = random.nextInt(fanOut);
+        int k = random.nextInt(fanOut);
+        int l = random.nextInt(fanOut);
+        return new NodePath(REPO, orgName(i) + "/" + moduleName(j) + "/" + versionName(k), fileName(j, k, l), true);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import org.artifactory.util.PathMatcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The include/exclude path matching evaluated for every permission target on each permission check. The patterns
+ * mimic a typical permission target set: a catch-all target, a few group-scoped targets and the default excludes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PermissionMatchingBenchmark {
+
+    private static final List<String> ANY = ImmutableList.of("**");
+    private static final List<String> GROUP_INCLUDES = ImmutableList.of(
+            "org/jfrog/**", "com/acme/internal/**", "com/acme/*/api/**", "**/*-sources.jar");
+    private static final List<String> EXCLUDES = ImmutableList.of("**/*.md5", "**/*.sha1", "**/secret/**");
+
+    @Param({
+            "org/jfrog/artifactory/artifactory-core/5.8.3/artifactory-core-5.8.3.jar",
+            "net/other/vendor/lib/1.0/lib-1.0.pom",
+            "com/acme/internal/secret/keys/1.0/keys-1.0.jar"
+    })
+    private String path;
+
+    @Benchmark
+    public boolean anyPath() {
+        return PathMatcher.matches(path, ANY, null, false);
+    }
+
+    @Benchmark
+    public boolean groupScopedFile() {
+        return PathMatcher.matches(path, GROUP_INCLUDES, EXCLUDES, false);
+    }
+
+    @Benchmark
+    public boolean groupScopedFolder() {
+        return PathMatcher.matches(path, GROUP_INCLUDES, EXCLUDES, true);
+    }
+}
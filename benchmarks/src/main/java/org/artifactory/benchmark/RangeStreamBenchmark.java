@@ -0,0 +1,94 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.benchmark;
+
+import org.artifactory.request.range.RangeAwareContext;
+import org.artifactory.request.range.ResponseWithRangeSupportHelper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming of a download through the range support layer: a full download, a single range and a multi-range
+ * (multipart/byteranges) request. The content is kept in memory so the numbers reflect the range handling overhead
+ * rather than the disk.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RangeStreamBenchmark {
+
+    private static final String MIME_TYPE = "application/java-archive";
+
+    @Param("16777216")
+    private int contentSize;
+
+    private byte[] content;
+    private byte[] buffer;
+    private String singleRange;
+    private String multiRange;
+
+    @Setup
+    public void setup() {
+        BenchmarkEnvironment.bindArtifactoryHome();
+        content = new byte[contentSize];
+        new Random(42).nextBytes(content);
+        buffer = new byte[8192];
+        int quarter = contentSize / 4;
+        singleRange = "bytes=" + quarter + "-" + (3 * quarter - 1);
+        multiRange = "bytes=0-" + (quarter - 1) + "," + (2 * quarter) + "-" + (3 * quarter - 1) + ",-" + quarter;
+    }
+
+    @Benchmark
+    public long full() throws IOException {
+        return drain(null);
+    }
+
+    @Benchmark
+    public long singleRange() throws IOException {
+        return drain(singleRange);
+    }
+
+    @Benchmark
+    public long multiRange() throws IOException {
+        return drain(multiRange);
+    }
+
+    private long drain(String range) throws IOException {
+        RangeAwareContext context = ResponseWithRangeSupportHelper.createRangeAwareContext(
+                new ByteArrayInputStream(content), contentSize, range, null, MIME_TYPE, -1, null);
+        long total = 0;
+        try (InputStream in = context.getInputStream()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+            }
+        }
+        return total;
+    }
+}
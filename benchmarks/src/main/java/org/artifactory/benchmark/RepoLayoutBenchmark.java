@@ -0,0 +1,117 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.benchmark;
+
+import org.artifactory.api.module.ModuleInfo;
+import org.artifactory.api.module.ModuleInfoUtils;
+import org.artifactory.api.module.regex.NamedMatcher;
+import org.artifactory.api.module.regex.NamedPattern;
+import org.artifactory.descriptor.repo.RepoLayout;
+import org.artifactory.descriptor.repo.RepoLayoutBuilder;
+import org.artifactory.util.RepoLayoutUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Module info resolution of artifact paths by the default repository layouts, done for every deployment and for
+ * many of the download requests. The uncached benchmarks measure the layout regular expression generation and
+ * compilation that preceded the cached layout parsers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepoLayoutBenchmark {
+
+    private static final RepoLayout MAVEN_2 = RepoLayoutUtils.MAVEN_2_DEFAULT;
+    private static final RepoLayout IVY = RepoLayoutUtils.IVY_DEFAULT;
+    private static final RepoLayout GRADLE = RepoLayoutUtils.GRADLE_DEFAULT;
+    // As defined in the default configuration
+    private static final RepoLayout NPM = new RepoLayoutBuilder()
+            .name(RepoLayoutUtils.NPM_DEFAULT_NAME)
+            .artifactPathPattern("[orgPath]/[module]/[module]-[baseRev](-[fileItegRev]).tgz")
+            .distinctiveDescriptorPathPattern(false)
+            .folderIntegrationRevisionRegExp(".*")
+            .fileIntegrationRevisionRegExp(".*")
+            .build();
+
+    @Setup
+    public void setup() {
+        BenchmarkEnvironment.bindArtifactoryHome();
+    }
+
+    @Benchmark
+    public ModuleInfo maven2Release() {
+        return ModuleInfoUtils.moduleInfoFromArtifactPath(
+                "org/jfrog/artifactory/artifactory-core/5.8.3/artifactory-core-5.8.3-sources.jar", MAVEN_2);
+    }
+
+    @Benchmark
+    public ModuleInfo maven2UniqueSnapshot() {
+        return ModuleInfoUtils.moduleInfoFromArtifactPath(
+                "org/jfrog/artifactory/artifactory-core/5.9-SNAPSHOT/artifactory-core-5.9-20180102.101010-3.jar",
+                MAVEN_2);
+    }
+
+    @Benchmark
+    public ModuleInfo ivy() {
+        return ModuleInfoUtils.moduleInfoFromArtifactPath(
+                "org.jfrog/artifactory-core/5.8.3/jars/artifactory-core-5.8.3.jar", IVY);
+    }
+
+    @Benchmark
+    public ModuleInfo gradle() {
+        return ModuleInfoUtils.moduleInfoFromArtifactPath(
+                "org.jfrog/artifactory-core/5.8.3/artifactory-core-5.8.3.jar", GRADLE);
+    }
+
+    @Benchmark
+    public ModuleInfo npm() {
+        return ModuleInfoUtils.moduleInfoFromArtifactPath("@types/node/node-8.0.53.tgz", NPM);
+    }
+
+    @Benchmark
+    public ModuleInfo maven2NonMatching() {
+        return ModuleInfoUtils.moduleInfoFromArtifactPath("some/random/path/that-does-not-match.txt", MAVEN_2);
+    }
+
+    @Benchmark
+    public boolean maven2ReleaseUncached() {
+        String path = "org/jfrog/artifactory/artifactory-core/5.8.3/artifactory-core-5.8.3-sources.jar";
+        // The descriptor pattern is tried first, as done for layouts with a distinctive descriptor pattern
+        return matchesUncached(path, MAVEN_2, MAVEN_2.getDescriptorPathPattern()) ||
+                matchesUncached(path, MAVEN_2, MAVEN_2.getArtifactPathPattern());
+    }
+
+    @Benchmark
+    public boolean npmUncached() {
+        return matchesUncached("@types/node/node-8.0.53.tgz", NPM, NPM.getArtifactPathPattern());
+    }
+
+    private static boolean matchesUncached(String path, RepoLayout layout, String pattern) {
+        String regExp = RepoLayoutUtils.generateRegExpFromPattern(layout, pattern, false, false);
+        NamedMatcher matcher = NamedPattern.compile(regExp).matcher(path);
+        return matcher.matches() && !matcher.namedGroups().isEmpty();
+    }
+}
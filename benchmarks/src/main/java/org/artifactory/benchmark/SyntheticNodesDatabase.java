@@ -0,0 +1,217 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.benchmark;
+
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.jfrog.common.ResourceUtils;
+import org.jfrog.storage.util.DbStatementUtils;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * An embedded Derby database with the Artifactory schema and a synthetic repository tree of a given size:
+ * <pre>org{i}/module{j}/{k}.0/module{j}-{k}.0-{l}.jar</pre>
+ * with the same fan-out at each of the four levels. The database is created once per tree size under target/ and
+ * reused by the following runs, since inserting a million nodes into Derby takes a few minutes.
+ */
+public class SyntheticNodesDatabase {
+
+    public static final String REPO = "bench-local";
+    private static final int BINARIES = 1024;
+    private static final int BATCH_SIZE = 5000;
+
+    private final int fanOut;
+    private final EmbeddedDataSource dataSource;
+
+    public SyntheticNodesDatabase(int treeSize) throws SQLException, IOException {
+        this.fanOut = Math.max(2, (int) Math.ceil(Math.pow(treeSize, 0.25)));
+        File dbDir = new File("target/bench-db/nodes-" + treeSize);
+        dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName(dbDir.getAbsolutePath());
+        dataSource.setCreateDatabase("create");
+        try (Connection con = dataSource.getConnection()) {
+            if (!schemaExists(con)) {
+                populate(con);
+            } else if (!isComplete(con)) {
+                throw new IllegalStateException("Incomplete benchmark database at '" + dbDir +
+                        "' (interrupted population?), delete it and run again");
+            }
+        }
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * @return Number of children of each folder in the tree
+     */
+    public int getFanOut() {
+        return fanOut;
+    }
+
+    public static String orgName(int i) {
+        return "org" + i;
+    }
+
+    public static String moduleName(int j) {
+        return "module" + j;
+    }
+
+    public static String versionName(int k) {
+        return k + ".0";
+    }
+
+    public static String fileName(int j, int k, int l) {
+        return moduleName(j) + "-" + versionName(k) + "-" + l + ".jar";
+    }
+
+    private boolean schemaExists(Connection con) throws SQLException {
+        DatabaseMetaData metaData = con.getMetaData();
+        try (ResultSet tables = metaData.getTables(null, null, "NODES", new String[]{"TABLE"})) {
+            return tables.next();
+        }
+    }
+
+    private boolean isComplete(Connection con) throws SQLException {
+        try (PreparedStatement stmt = con.prepareStatement("SELECT COUNT(*) FROM nodes WHERE node_type = 1");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1) == (long) fanOut * fanOut * fanOut * fanOut;
+        }
+    }
+
+    private void populate(Connection con) throws SQLException, IOException {
+        try (InputStream ddl = ResourceUtils.getResource("/derby/derby.sql")) {
+            DbStatementUtils.executeSqlStream(con, ddl);
+        }
+        con.setAutoCommit(false);
+        try (PreparedStatement stmt = con.prepareStatement(
+                "INSERT INTO binaries (sha1, md5, bin_length, sha256) VALUES (?, ?, ?, ?)")) {
+            for (int i = 0; i < BINARIES; i++) {
+                stmt.setString(1, String.format("%040x", i));
+                stmt.setString(2, String.format("%032x", i));
+                stmt.setLong(3, 1024 + i);
+                stmt.setString(4, String.format("%064x", i));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        con.commit();
+        try (NodeInserter inserter = new NodeInserter(con)) {
+            inserter.folder(".", ".", 0);
+            for (int i = 0; i < fanOut; i++) {
+                String org = orgName(i);
+                inserter.folder(".", org, 1);
+                for (int j = 0; j < fanOut; j++) {
+                    String module = moduleName(j);
+                    inserter.folder(org, module, 2);
+                    for (int k = 0; k < fanOut; k++) {
+                        String version = versionName(k);
+                        String modulePath = org + "/" + module;
+                        inserter.folder(modulePath, version, 3);
+                        for (int l = 0; l < fanOut; l++) {
+                            inserter.file(modulePath + "/" + version, fileName(j, k, l), 4);
+                        }
+                    }
+                }
+            }
+        }
+        con.setAutoCommit(true);
+    }
+
+    private static class NodeInserter implements AutoCloseable {
+        private final Connection con;
+        private final PreparedStatement stmt;
+        private long nextId = 1;
+        private int pending;
+
+        private NodeInserter(Connection con) throws SQLException {
+            this.con = con;
+            this.stmt = con.prepareStatement("INSERT INTO nodes (node_id, node_type, repo, node_path, node_name, " +
+                    "depth, created, created_by, modified, modified_by, updated, bin_length, sha1_actual, " +
+                    "sha1_original, md5_actual, md5_original, sha256, repo_path_checksum) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        }
+
+        private void folder(String path, String name, int depth) throws SQLException {
+            add(0, path, name, depth, null, null, null, 0);
+        }
+
+        private void file(String path, String name, int depth) throws SQLException {
+            int binary = (int) (nextId % BINARIES);
+            add(1, path, name, depth, String.format("%040x", binary), String.format("%032x", binary),
+                    String.format("%064x", binary), 1024 + binary);
+        }
+
+        private void add(int type, String path, String name, int depth, String sha1, String md5, String sha256,
+                long length) throws SQLException {
+            long now = System.currentTimeMillis();
+            stmt.setLong(1, nextId++);
+            stmt.setInt(2, type);
+            stmt.setString(3, REPO);
+            stmt.setString(4, path);
+            stmt.setString(5, name);
+            stmt.setInt(6, depth);
+            stmt.setLong(7, now);
+            stmt.setString(8, "bench");
+            stmt.setLong(9, now);
+            stmt.setString(10, "bench");
+            stmt.setLong(11, now);
+            stmt.setLong(12, length);
+            stmt.setString(13, sha1);
+            stmt.setString(14, sha1);
+            stmt.setString(15, md5);
+            stmt.setString(16, md5);
+            stmt.setString(17, sha256);
+            stmt.setString(18, null);
+            stmt.addBatch();
+            if (++pending == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            stmt.executeBatch();
+            con.commit();
+            pending = 0;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                if (pending > 0) {
+                    flush();
+                }
+            } finally {
+                stmt.close();
+            }
+        }
+    }
+}
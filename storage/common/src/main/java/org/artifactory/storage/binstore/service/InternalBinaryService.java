@@ -97,6 +97,27 @@ public interface InternalBinaryService extends BinaryService, UsageTracking {
     @Deprecated
     File getBinariesDir();
 
+    /**
+     * Looks for the binary in the local checksum filestore folders of the file binary providers, without going through
+     * the binary provider chain. Callers must hold a delete protection on the binary (e.g. an open stream from
+     * {@link #getBinary(String)}) while using the file.
+     *
+     * @param sha1 The sha1 checksum of the binary
+     * @return The local filestore file of the binary, or null if the binary is not stored on a local file binary
+     * provider
+     */
+    @Nullable
+    File getBinaryFile(String sha1);
+
+    /**
+     * Protects the binary from deletion for the given time. Used when the binary file is handed over to a component
+     * that opens it later, outside of the binary stream protection (e.g. the servlet container sendfile).
+     *
+     * @param sha1           The sha1 checksum of the binary
+     * @param durationMillis The protection time in milliseconds
+     */
+    void holdNoDeleteLock(String sha1, long durationMillis);
+
     /**
      * Map each file provider to it's filestore folder
      *;
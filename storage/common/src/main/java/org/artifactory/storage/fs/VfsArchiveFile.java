@@ -20,6 +20,7 @@
 
 package org.artifactory.storage.fs;
 
+import com.google.common.collect.AbstractIterator;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.io.IOUtils;
@@ -29,7 +30,9 @@ import org.artifactory.util.ZipUtils;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.zip.ZipEntry;
 
@@ -84,6 +87,28 @@ public class VfsArchiveFile implements Closeable {
         return entries;
     }
 
+    /**
+     * Streams the entries of the archive, unlike {@link #entries()} which loads them all to memory.
+     * Failures to read the archive while iterating are thrown as {@link UncheckedIOException}.
+     */
+    public Iterator<ArchiveEntry> entriesIterator() throws IOException {
+        if (entries != null) {
+            return entries.iterator();
+        }
+        ArchiveInputStream zis = getArchiveInputStream();
+        return new AbstractIterator<ArchiveEntry>() {
+            @Override
+            protected ArchiveEntry computeNext() {
+                try {
+                    ArchiveEntry entry = zis.getNextEntry();
+                    return entry != null ? entry : endOfData();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
     @Override
     public void close() throws IOException {
         for (InputStream stream : streams) {
@@ -23,6 +23,8 @@ package org.artifactory.storage.fs.service;
 import org.artifactory.fs.ZipEntryInfo;
 
 import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.Set;
 
 /**
@@ -53,12 +55,29 @@ public interface ArchiveEntriesService {
      */
     void addArchiveEntries(String archiveSha1, Set<? extends ZipEntryInfo> entries);
 
+    /**
+     * Create new archive entries for the given sha1 checksum, consuming the entries in batches so the caller may
+     * stream them from the archive.
+     *
+     * @param archiveSha1 The checksum of the indexed archive
+     * @param entries     The entries to add
+     */
+    void addArchiveEntries(String archiveSha1, Iterator<? extends ZipEntryInfo> entries);
+
     /**
      * @param archiveSha1 The checksum to delete entries for
      * @return True if any entries were deleted
      */
     boolean deleteArchiveEntries(String archiveSha1);
 
+    /**
+     * Deletes the entries of the given archives, skipping archives whose checksum is referenced by a node.
+     *
+     * @param archiveSha1s The checksums to delete entries for (no more than 1000)
+     * @return Number of archive entries deleted
+     */
+    int deleteUnreferencedArchiveEntries(Collection<String> archiveSha1s);
+
     /**
      * Deletes all the unreferenced archive entry paths. Archive entry paths used in a many-to-many relationship and
      * should be cleaned up periodically.
@@ -36,6 +36,8 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -62,6 +64,16 @@ public interface FileService {
 
     List<ItemInfo> loadChildren(RepoPath repoPath) throws VfsException;
 
+    /**
+     * Loads all the descendants of the given folder at once, instead of loading the children folder by folder.
+     *
+     * @param repoPath Repo path of the folder to load the descendants of
+     * @param maxItems Max number of descendants to load
+     * @return The descendants in no particular order or null if there are more than maxItems of them
+     */
+    @Nullable
+    List<ItemInfo> loadDescendants(RepoPath repoPath, int maxItems) throws VfsException;
+
     VfsItem loadVfsItem(StoringRepo storingRepo, RepoPath repoPath) throws VfsItemNotFoundException, VfsException;
 
     long createFolder(FolderInfo folder) throws VfsException;
@@ -90,6 +102,17 @@ public interface FileService {
 
     List<FileInfo> searchFilesByProperty(String repo, String propKey, String propValue);
 
+    /**
+     * Searches for files by name using the in-memory file names index.
+     *
+     * @param namePattern File name pattern, where '*' and '%' match any sequence and '?' and '_' match any character
+     * @param repoKeys    Keys of the repositories to search in, null or empty to search all the repositories
+     * @return Paths of the matching files, or null if the index is disabled, not built yet or cannot answer the
+     * pattern (callers should then search the database)
+     */
+    @Nullable
+    List<RepoPath> searchFilesByNamePattern(String namePattern, @Nullable Collection<String> repoKeys);
+
     /**
      * Searches for pom files two levels deep (grandchild) from the input path.
      *
@@ -0,0 +1,40 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.fs.service;
+
+import org.artifactory.repo.RepoPath;
+
+import java.util.Collection;
+
+/**
+ * Internal file service operations invoked by the cluster messaging.
+ */
+public interface InternalFileService {
+
+    /**
+     * Invalidates the local nodes cache entries of nodes changed by another cluster member.
+     *
+     * @param repoPaths Repo paths of the changed nodes
+     * @param nodeIds   Ids of the changed nodes
+     * @param all       True to clear the whole cache, in which case the paths and ids are ignored
+     */
+    void internalInvalidateNodesCache(Collection<RepoPath> repoPaths, Collection<Long> nodeIds, boolean all);
+}
@@ -77,5 +77,11 @@ public interface StorageSession {
 
     <T extends SessionResource> T getOrCreateResource(Class<T> resourceClass);
 
+    /**
+     * @return The resource of the class attached to this session, null if it was not created
+     */
+    @Nullable
+    <T extends SessionResource> T getResource(Class<T> resourceClass);
+
     void afterCompletion(boolean success);
 }
@@ -32,6 +32,7 @@ import org.artifactory.storage.fs.tree.file.NodeItemFilterHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.util.Collections;
 import java.util.List;
 
@@ -44,11 +45,20 @@ import java.util.List;
 public class FolderNode extends ItemNode{
     private static final Logger log = LoggerFactory.getLogger(FolderNode.class);
     private final TreeBrowsingCriteria criteria;
+    private final LoadedSubtree loadedSubtree;
     private List<ItemNode> cachedChildrenNodes;
 
     public FolderNode(FolderInfo itemInfo, TreeBrowsingCriteria criteria) {
+        this(itemInfo, criteria, null);
+    }
+
+    /**
+     * @param loadedSubtree Optional bulk loaded descendants to take the children from instead of the storage
+     */
+    FolderNode(FolderInfo itemInfo, TreeBrowsingCriteria criteria, @Nullable LoadedSubtree loadedSubtree) {
         super(itemInfo);
         this.criteria = criteria;
+        this.loadedSubtree = loadedSubtree;
     }
 
     @Override
@@ -71,7 +81,8 @@ public class FolderNode extends ItemNode{
         if (cachedChildrenNodes != null) {
             return cachedChildrenNodes;
         }
-        List<ItemInfo> children = getFileService().loadChildren(itemInfo.getRepoPath());
+        List<ItemInfo> children = loadedSubtree != null ? loadedSubtree.getChildren(itemInfo.getRepoPath()) :
+                getFileService().loadChildren(itemInfo.getRepoPath());
         List<ItemNode> childrenNodes = Lists.newArrayListWithCapacity(children.size());
         sort(children);
         boolean localAcceptanceFlag = true;
@@ -138,7 +149,7 @@ public class FolderNode extends ItemNode{
      */
     private void addChildToList(List<ItemNode> childrenNodes, ItemInfo child) {
         if (child.isFolder()) {
-            childrenNodes.add(new FolderNode((FolderInfo) child, criteria));
+            childrenNodes.add(new FolderNode((FolderInfo) child, criteria, loadedSubtree));
         } else {
             childrenNodes.add(new FileNode((FileInfo) child));
         }
@@ -184,6 +195,8 @@ public class FolderNode extends ItemNode{
     public boolean hasChildren() {
         if (cachedChildrenNodes != null) {
             return !cachedChildrenNodes.isEmpty();
+        } else if (loadedSubtree != null) {
+            return loadedSubtree.hasChildren(itemInfo.getRepoPath());
         } else {
             return getFileService().hasChildren(itemInfo.getRepoPath());
         }
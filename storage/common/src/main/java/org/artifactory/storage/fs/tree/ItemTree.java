@@ -27,6 +27,8 @@ import org.artifactory.fs.ItemInfo;
 import org.artifactory.repo.RepoPath;
 import org.artifactory.storage.fs.VfsItemNotFoundException;
 import org.artifactory.storage.fs.service.FileService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -39,6 +41,7 @@ import java.util.List;
  * @author Yossi Shaul
  */
 public class ItemTree {
+    private static final Logger log = LoggerFactory.getLogger(ItemTree.class);
 
     private final RepoPath rootRepoPath;
     private final TreeBrowsingCriteria criteria;
@@ -79,20 +82,34 @@ public class ItemTree {
     @Nullable
     public ItemNode getRootNode() {
         ItemInfo rootItemInfo;
+        FileService fileService = ContextHelper.get().beanForType(FileService.class);
         try {
-            FileService fileService = ContextHelper.get().beanForType(FileService.class);
             rootItemInfo = fileService.loadItem(rootRepoPath);
         } catch (VfsItemNotFoundException e) {
             // nobody promised the root exists
             return null;
         }
         if (rootItemInfo.isFolder()) {
-            return new FolderNode((FolderInfo) rootItemInfo, criteria);
+            return new FolderNode((FolderInfo) rootItemInfo, criteria, loadSubtree(fileService));
         } else {
             return new FileNode((FileInfo) rootItemInfo);
         }
     }
 
+    @Nullable
+    private LoadedSubtree loadSubtree(FileService fileService) {
+        if (!criteria.isBulkLoad()) {
+            return null;
+        }
+        List<ItemInfo> descendants = fileService.loadDescendants(rootRepoPath, criteria.getBulkLoadMaxItems());
+        if (descendants == null) {
+            log.debug("More than {} items under '{}', loading the tree folder by folder",
+                    criteria.getBulkLoadMaxItems(), rootRepoPath);
+            return null;
+        }
+        return new LoadedSubtree(descendants);
+    }
+
     /**
      * Builds the tree and caches all the nodes. Children caching must be enabled (true by default).
      *
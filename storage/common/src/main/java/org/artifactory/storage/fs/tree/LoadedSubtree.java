@@ -0,0 +1,60 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.fs.tree;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.artifactory.fs.ItemInfo;
+import org.artifactory.repo.RepoPath;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The descendants of a tree root loaded in bulk, grouped by their parent folder.
+ */
+class LoadedSubtree {
+
+    private final Map<RepoPath, List<ItemInfo>> childrenByParent;
+
+    LoadedSubtree(Collection<ItemInfo> descendants) {
+        childrenByParent = Maps.newHashMapWithExpectedSize(descendants.size() / 4 + 1);
+        for (ItemInfo descendant : descendants) {
+            RepoPath parent = descendant.getRepoPath().getParent();
+            if (parent != null) {
+                childrenByParent.computeIfAbsent(parent, key -> Lists.newArrayList()).add(descendant);
+            }
+        }
+    }
+
+    /**
+     * @return A new list with the children of the given folder
+     */
+    List<ItemInfo> getChildren(RepoPath folder) {
+        List<ItemInfo> children = childrenByParent.get(folder);
+        return children == null ? Lists.newArrayList() : Lists.newArrayList(children);
+    }
+
+    boolean hasChildren(RepoPath folder) {
+        return childrenByParent.containsKey(folder);
+    }
+}
@@ -36,12 +36,19 @@ public class TreeBrowsingCriteria {
     private boolean cacheChildren;
     private List<ItemNodeFilter> filters;
     private Comparator<ItemInfo> comparator;
+    private int bulkLoadMaxItems;
 
     public TreeBrowsingCriteria(boolean cacheChildren,
             List<ItemNodeFilter> filters, Comparator<ItemInfo> comparator) {
+        this(cacheChildren, filters, comparator, 0);
+    }
+
+    public TreeBrowsingCriteria(boolean cacheChildren,
+            List<ItemNodeFilter> filters, Comparator<ItemInfo> comparator, int bulkLoadMaxItems) {
         this.cacheChildren = cacheChildren;
         this.filters = filters;
         this.comparator = comparator;
+        this.bulkLoadMaxItems = bulkLoadMaxItems;
     }
 
     public boolean isCacheChildren() {
@@ -58,4 +65,18 @@ public class TreeBrowsingCriteria {
         return comparator;
     }
 
+    /**
+     * @return True if the whole subtree should be loaded with a single query instead of folder by folder
+     */
+    public boolean isBulkLoad() {
+        return bulkLoadMaxItems > 0;
+    }
+
+    /**
+     * @return Max number of items to bulk load. Larger trees are loaded folder by folder
+     */
+    public int getBulkLoadMaxItems() {
+        return bulkLoadMaxItems;
+    }
+
 }
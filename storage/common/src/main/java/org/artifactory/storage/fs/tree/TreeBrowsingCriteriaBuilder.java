@@ -26,6 +26,7 @@ import org.artifactory.addon.xray.XrayAddon;
 import org.artifactory.api.context.ContextHelper;
 import org.artifactory.api.repo.RepositoryService;
 import org.artifactory.api.security.AuthorizationService;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.fs.ItemInfo;
 import org.artifactory.repo.RepoPath;
 
@@ -43,9 +44,10 @@ public class TreeBrowsingCriteriaBuilder {
     private boolean cacheChildren = true;
     private List<ItemNodeFilter> filters;
     private Comparator<ItemInfo> comparator;
+    private int bulkLoadMaxItems;
 
     public TreeBrowsingCriteria build() {
-        return new TreeBrowsingCriteria(cacheChildren, filters, comparator);
+        return new TreeBrowsingCriteria(cacheChildren, filters, comparator, bulkLoadMaxItems);
     }
 
     public TreeBrowsingCriteriaBuilder cacheChildren(boolean cache) {
@@ -53,6 +55,19 @@ public class TreeBrowsingCriteriaBuilder {
         return this;
     }
 
+    /**
+     * Load the whole subtree of the root with a single query instead of a query per visited folder. Use it when most
+     * of the tree is going to be visited. Trees with more items than the configured max are loaded folder by folder.
+     */
+    public TreeBrowsingCriteriaBuilder bulkLoad() {
+        return bulkLoad(ConstantValues.itemTreeBulkLoadMaxItems.getInt());
+    }
+
+    public TreeBrowsingCriteriaBuilder bulkLoad(int maxItems) {
+        bulkLoadMaxItems = maxItems;
+        return this;
+    }
+
     public TreeBrowsingCriteriaBuilder addFilter(ItemNodeFilter filter) {
         if (filter == null) {
             return this;
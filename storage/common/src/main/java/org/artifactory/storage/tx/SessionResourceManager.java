@@ -20,6 +20,8 @@
 
 package org.artifactory.storage.tx;
 
+import javax.annotation.Nullable;
+
 /**
  * @author freds
  * @date Sep 22, 2008
@@ -32,4 +34,11 @@ public interface SessionResourceManager extends SessionResource {
      * @param resourceClass The class of the resource to create
      */
     <T extends SessionResource> T getOrCreateResource(Class<T> resourceClass);
+
+    /**
+     * @param resourceClass The class of the resource to get
+     * @return The session attached resource of the class, null if it was not created
+     */
+    @Nullable
+    <T extends SessionResource> T getResource(Class<T> resourceClass);
 }
@@ -23,6 +23,7 @@ package org.artifactory.storage.tx;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -54,6 +55,13 @@ public class SessionResourceManagerImpl implements SessionResourceManager {
         return result;
     }
 
+    @Override
+    @Nullable
+    @SuppressWarnings({"unchecked"})
+    public <T extends SessionResource> T getResource(Class<T> resourceClass) {
+        return (T) resources.get(resourceClass);
+    }
+
     @Override
     public void onSessionSave() {
         for (SessionResource resource : resources.values()) {
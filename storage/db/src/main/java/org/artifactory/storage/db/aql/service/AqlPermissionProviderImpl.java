@@ -27,6 +27,9 @@ import org.artifactory.api.security.AuthorizationService;
 import org.artifactory.aql.model.AqlPermissionProvider;
 import org.artifactory.repo.RepoPath;
 
+import javax.annotation.Nullable;
+import java.util.Set;
+
 /**
  * @author Gidi Shabat
  */
@@ -63,4 +66,10 @@ public class AqlPermissionProviderImpl implements AqlPermissionProvider {
     public boolean isOss() {
         return getAddonsManager() instanceof OssAddonsManager;
     }
-}
\ No newline at end of file
+
+    @Override
+    @Nullable
+    public Set<String> getReadableRepoKeys() {
+        return getAuthorizationProvider().getReadableRepoKeys();
+    }
+}
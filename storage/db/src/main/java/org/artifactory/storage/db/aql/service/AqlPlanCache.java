@@ -0,0 +1,173 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.aql.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import javax.annotation.Nullable;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of compiled AQL query plans by query shape.
+ * <p/>
+ * The decorators and the validator depend on the user, the user read permissions and the configuration, therefore the
+ * plans are cached per user, readable repositories and configuration descriptor instance - a configuration change
+ * makes the old plans unreachable and they are evicted eventually. Shapes that cannot be compiled are cached as
+ * {@link AqlQueryPlan#UNCACHEABLE} so they are not probed again.
+ */
+public class AqlPlanCache {
+
+    private final boolean enabled;
+    private final Cache<Key, AqlQueryPlan> cache;
+    private final AtomicLong parseCount = new AtomicLong();
+    private final AtomicLong parseNanos = new AtomicLong();
+    private final AtomicLong buildCount = new AtomicLong();
+    private final AtomicLong buildNanos = new AtomicLong();
+    private final AtomicLong uncacheableCount = new AtomicLong();
+
+    public AqlPlanCache(boolean enabled, long maxSize) {
+        this.enabled = enabled;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return The cached plan, {@link AqlQueryPlan#UNCACHEABLE} or null on cache miss
+     */
+    @Nullable
+    AqlQueryPlan get(Key key) {
+        return cache.getIfPresent(key);
+    }
+
+    void put(Key key, AqlQueryPlan plan) {
+        if (plan == AqlQueryPlan.UNCACHEABLE) {
+            uncacheableCount.incrementAndGet();
+        }
+        cache.put(key, plan);
+    }
+
+    void recordParse(long nanos) {
+        parseCount.incrementAndGet();
+        parseNanos.addAndGet(nanos);
+    }
+
+    void recordBuild(long nanos) {
+        buildCount.incrementAndGet();
+        buildNanos.addAndGet(nanos);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long getUncacheableCount() {
+        return uncacheableCount.get();
+    }
+
+    /**
+     * @return Average time in milliseconds spent parsing queries on cache miss
+     */
+    public double getAverageParseMillis() {
+        return averageMillis(parseNanos.get(), parseCount.get());
+    }
+
+    /**
+     * @return Average time in milliseconds spent optimizing, decorating and building SQL queries on cache miss
+     */
+    public double getAverageBuildMillis() {
+        return averageMillis(buildNanos.get(), buildCount.get());
+    }
+
+    public long getTotalParseMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(parseNanos.get());
+    }
+
+    public long getTotalBuildMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(buildNanos.get());
+    }
+
+    private static double averageMillis(long nanos, long count) {
+        return count == 0 ? 0 : (double) nanos / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * The key of a plan. The repositories provider and the configuration descriptor are compared by identity.
+     */
+    static class Key {
+        private final String shape;
+        private final String username;
+        private final boolean admin;
+        private final boolean oss;
+        private final Set<String> readableRepoKeys;
+        private final Object repoProvider;
+        private final Object descriptor;
+
+        Key(String shape, String username, boolean admin, boolean oss, @Nullable Set<String> readableRepoKeys,
+                Object repoProvider, Object descriptor) {
+            this.shape = shape;
+            this.username = username;
+            this.admin = admin;
+            this.oss = oss;
+            this.readableRepoKeys = readableRepoKeys;
+            this.repoProvider = repoProvider;
+            this.descriptor = descriptor;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return admin == key.admin && oss == key.oss && repoProvider == key.repoProvider &&
+                    descriptor == key.descriptor && shape.equals(key.shape) &&
+                    Objects.equals(username, key.username) && Objects.equals(readableRepoKeys, key.readableRepoKeys);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(shape, username, admin, oss, readableRepoKeys, System.identityHashCode(repoProvider),
+                    System.identityHashCode(descriptor));
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.aql.service;
+
+import com.google.common.collect.Lists;
+import org.artifactory.aql.action.AqlAction;
+import org.artifactory.aql.model.AqlDomainEnum;
+import org.artifactory.aql.model.DomainSensitiveField;
+import org.artifactory.storage.db.aql.sql.builder.query.aql.Criterion;
+import org.artifactory.storage.db.aql.sql.builder.query.sql.SqlQuery;
+
+import java.util.List;
+
+/**
+ * A compiled AQL query: the generated SQL and the slots of its parameters. Binding the values of a query with the same
+ * {@link AqlQueryShape} produces the same {@link SqlQuery} the full parse, optimize, decorate and build steps would.
+ *
+ * @see AqlPlanCache
+ */
+public class AqlQueryPlan {
+
+    /**
+     * Marks query shapes that cannot be compiled into a reusable plan
+     */
+    static final AqlQueryPlan UNCACHEABLE = new AqlQueryPlan(null, null, null, 0, 0, null, null);
+
+    private final AqlDomainEnum domain;
+    private final String query;
+    private final List<DomainSensitiveField> resultFields;
+    private final long limit;
+    private final long offset;
+    private final AqlAction action;
+    private final List<ParamSlot> params;
+
+    private AqlQueryPlan(AqlDomainEnum domain, String query, List<DomainSensitiveField> resultFields, long limit,
+            long offset, AqlAction action, List<ParamSlot> params) {
+        this.domain = domain;
+        this.query = query;
+        this.resultFields = resultFields;
+        this.limit = limit;
+        this.offset = offset;
+        this.action = action;
+        this.params = params;
+    }
+
+    /**
+     * Compiles a plan by comparing the SQL query built for a query with the SQL query built for the same query with
+     * its slotted values replaced by the given markers.
+     *
+     * @param sqlQuery The SQL query built for the original query
+     * @param values   The slotted values of the original query
+     * @param probe    The SQL query built for the query with the markers
+     * @param markers  Unique values that replaced the slotted values in the probe query
+     * @return The plan or {@link #UNCACHEABLE} if the slotted values affect the structure of the SQL query
+     */
+    static AqlQueryPlan compile(SqlQuery sqlQuery, List<String> values, SqlQuery probe, List<String> markers) {
+        Object[] realParams = sqlQuery.getQueryParams();
+        Object[] probeParams = probe.getQueryParams();
+        if (!sqlQuery.getQueryString().equals(probe.getQueryString()) || realParams.length != probeParams.length
+                || sqlQuery.getLimit() != probe.getLimit() || sqlQuery.getOffset() != probe.getOffset()) {
+            return UNCACHEABLE;
+        }
+        List<ParamSlot> slots = Lists.newArrayListWithCapacity(probeParams.length);
+        for (int i = 0; i < probeParams.length; i++) {
+            ParamSlot slot = toSlot(probeParams[i], realParams[i], markers);
+            if (slot == null || !slot.bind(values).equals(realParams[i])) {
+                return UNCACHEABLE;
+            }
+            slots.add(slot);
+        }
+        return new AqlQueryPlan(sqlQuery.getDomain(), sqlQuery.getQueryString(),
+                Lists.newArrayList(sqlQuery.getResultFields()), sqlQuery.getLimit(), sqlQuery.getOffset(),
+                sqlQuery.getAction(), slots);
+    }
+
+    private static ParamSlot toSlot(Object probeParam, Object realParam, List<String> markers) {
+        for (int i = 0; i < markers.size(); i++) {
+            String marker = markers.get(i);
+            if (marker.equals(probeParam)) {
+                return new ParamSlot(i, false, null);
+            }
+            if (Criterion.toSqlLikeValue(marker).equals(probeParam)) {
+                return new ParamSlot(i, true, null);
+            }
+        }
+        if (probeParam != null && probeParam.equals(realParam)) {
+            return new ParamSlot(-1, false, realParam);
+        }
+        return null;
+    }
+
+    /**
+     * @param values The slotted values of a query with the shape of this plan
+     * @return A new SQL query with the parameters bound to the given values
+     */
+    SqlQuery bind(List<String> values) {
+        SqlQuery sqlQuery = new SqlQuery(domain);
+        sqlQuery.setQuery(query);
+        List<Object> boundParams = Lists.newArrayListWithCapacity(params.size());
+        for (ParamSlot param : params) {
+            boundParams.add(param.bind(values));
+        }
+        sqlQuery.setParams(boundParams);
+        sqlQuery.setResultFields(Lists.newArrayList(resultFields));
+        sqlQuery.setLimit(limit);
+        sqlQuery.setOffset(offset);
+        sqlQuery.setAction(action);
+        return sqlQuery;
+    }
+
+    /**
+     * A parameter of the SQL query: either a slotted value (as is or converted to a like expression) or a constant
+     */
+    private static class ParamSlot {
+        private final int index;
+        private final boolean like;
+        private final Object constant;
+
+        private ParamSlot(int index, boolean like, Object constant) {
+            this.index = index;
+            this.like = like;
+            this.constant = constant;
+        }
+
+        private Object bind(List<String> values) {
+            if (index < 0) {
+                return constant;
+            }
+            String value = values.get(index);
+            return like ? Criterion.toSqlLikeValue(value) : value;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.aql.service;
+
+import com.google.common.collect.Lists;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The shape of a textual AQL query: the query text with the criteria values replaced by slots.
+ * Queries that differ only in the values of the slotted criteria share the same shape and therefore the same plan.
+ * <p/>
+ * Only quoted criteria values are slotted, and only those that cannot change the structure of the generated SQL:
+ * values of the repo and type fields (which are expanded by the virtual repositories decorator and the file type
+ * optimization), empty values, null values, values with escape sequences and values that start with a digit (dates,
+ * relative dates and numbers) are kept in the shape. Values containing an underscore get a different slot since they
+ * add an escape clause to like criteria.
+ */
+public class AqlQueryShape {
+
+    private static final char SLOT = '\u0001';
+
+    private final String query;
+    private final String shape;
+    // Start and end (exclusive) indices of the slotted values in the query
+    private final int[] starts;
+    private final int[] ends;
+
+    private AqlQueryShape(String query, String shape, List<int[]> slots) {
+        this.query = query;
+        this.shape = shape;
+        this.starts = new int[slots.size()];
+        this.ends = new int[slots.size()];
+        for (int i = 0; i < slots.size(); i++) {
+            starts[i] = slots.get(i)[0];
+            ends[i] = slots.get(i)[1];
+        }
+    }
+
+    public static AqlQueryShape of(String query) {
+        StringBuilder shape = new StringBuilder(query.length());
+        List<int[]> slots = Lists.newArrayList();
+        // The keys of the enclosing objects and arrays, empty string for anonymous ones
+        Deque<String> keys = new ArrayDeque<>();
+        String lastString = null;
+        String currentKey = null;
+        boolean expectValue = false;
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (c == '"') {
+                int end = query.indexOf('"', i + 1);
+                if (end < 0) {
+                    // malformed query, let the parser report it
+                    return new AqlQueryShape(query, query, Lists.newArrayList());
+                }
+                String value = query.substring(i + 1, end);
+                if (expectValue && isSlotted(fieldOf(currentKey, keys), value)) {
+                    shape.append('"').append(SLOT);
+                    if (value.indexOf('_') >= 0) {
+                        shape.append('_');
+                    }
+                    shape.append('"');
+                    slots.add(new int[]{i + 1, end});
+                } else {
+                    shape.append(query, i, end + 1);
+                }
+                lastString = expectValue ? null : value;
+                expectValue = false;
+                i = end + 1;
+                continue;
+            }
+            shape.append(c);
+            if (c == ':') {
+                expectValue = lastString != null;
+                currentKey = lastString;
+            } else if (c == '{' || c == '[') {
+                keys.push(expectValue ? currentKey : "");
+                expectValue = false;
+            } else if (c == '}' || c == ']') {
+                keys.poll();
+                expectValue = false;
+            } else if (!Character.isWhitespace(c)) {
+                expectValue = false;
+            }
+            if (!Character.isWhitespace(c)) {
+                lastString = null;
+            }
+            i++;
+        }
+        return new AqlQueryShape(query, shape.toString(), slots);
+    }
+
+    /**
+     * @return The field a criteria value belongs to: the key of the value, or the nearest enclosing field key if the
+     * value key is a comparator (e.g. "name" for {"name":{"$match":"*.jar"}})
+     */
+    private static String fieldOf(String key, Deque<String> keys) {
+        if (key != null && !key.startsWith("$")) {
+            return key;
+        }
+        for (String enclosing : keys) {
+            if (!enclosing.isEmpty() && !enclosing.startsWith("$")) {
+                return enclosing;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isSlotted(String field, String value) {
+        if (field == null || value.isEmpty() || Character.isDigit(value.charAt(0)) || value.charAt(0) == SLOT
+                || value.indexOf('\\') >= 0 || "null".equalsIgnoreCase(value)) {
+            return false;
+        }
+        if (field.startsWith("@")) {
+            return true;
+        }
+        String name = field.substring(field.lastIndexOf('.') + 1);
+        return !"repo".equals(name) && !"type".equals(name);
+    }
+
+    /**
+     * @return The query text with the slotted values replaced by slot markers
+     */
+    public String getShape() {
+        return shape;
+    }
+
+    public int getSlotsCount() {
+        return starts.length;
+    }
+
+    /**
+     * @return The values of the slots in this query
+     */
+    public List<String> getValues() {
+        List<String> values = Lists.newArrayListWithCapacity(starts.length);
+        for (int i = 0; i < starts.length; i++) {
+            values.add(query.substring(starts[i], ends[i]));
+        }
+        return values;
+    }
+
+    /**
+     * @return The query text with the slotted values replaced by the given values
+     */
+    public String withValues(List<String> values) {
+        StringBuilder result = new StringBuilder(query.length());
+        int last = 0;
+        for (int i = 0; i < starts.length; i++) {
+            result.append(query, last, starts[i]).append(values.get(i));
+            last = ends[i];
+        }
+        return result.append(query, last, query.length()).toString();
+    }
+}
@@ -20,8 +20,14 @@
 
 package org.artifactory.storage.db.aql.service;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import org.artifactory.api.config.CentralConfigService;
+import org.artifactory.api.context.ArtifactoryContext;
+import org.artifactory.api.context.ContextHelper;
+import org.artifactory.api.security.AuthorizationService;
 import org.artifactory.aql.AqlService;
+import org.artifactory.aql.action.AqlFindAction;
 import org.artifactory.aql.api.internal.AqlBase;
 import org.artifactory.aql.model.AqlOperatorEnum;
 import org.artifactory.aql.model.AqlPermissionProvider;
@@ -31,6 +37,7 @@ import org.artifactory.aql.result.AqlComposedResult;
 import org.artifactory.aql.result.AqlEagerResult;
 import org.artifactory.aql.result.AqlLazyResult;
 import org.artifactory.aql.result.rows.AqlRowResult;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.common.config.db.ArtifactoryDbProperties;
 import org.artifactory.storage.db.aql.dao.AqlDao;
 import org.artifactory.storage.db.aql.parser.AqlParser;
@@ -41,12 +48,14 @@ import org.artifactory.storage.db.aql.sql.builder.query.sql.SqlQuery;
 import org.artifactory.storage.db.aql.sql.builder.query.sql.SqlQueryBuilder;
 import org.artifactory.storage.db.aql.sql.result.AqlComposedResultImpl;
 import org.artifactory.storage.db.aql.sql.result.AqlEagerResultImpl;
+import org.artifactory.storage.db.fs.service.PropertiesSessionResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -54,6 +63,8 @@ import java.util.Set;
  * Step 1 Convert the AqlApi or the parser result into AqlQuery.
  * Step 2 Convert the AqlQuery into SqlQuery.
  * Step 3 Execute the SqlQuery and return the results.
+ * <p/>
+ * Steps 1 and 2 of textual queries are skipped when a plan for the query shape is found in the {@link AqlPlanCache}.
  *
  * @author Gidi Shabat
  */
@@ -77,6 +88,7 @@ public class AqlServiceImpl implements AqlService {
     private AqlQueryDecorator internalDecorator; //Decorator used for internal api queries
     private AqlPermissionProvider permissionProvider = new AqlPermissionProviderImpl();
     private AqlRepoProvider repoProvider = new AqlRepoProviderImpl();
+    private AqlPlanCache planCache;
 
     @PostConstruct
     private void initDb(){
@@ -89,8 +101,15 @@ public class AqlServiceImpl implements AqlService {
         aqlApiToAqlAdapter = new AqlApiToAqlAdapter();
         optimizer = new AqlQueryOptimizer(storageProperties.getDbType());
         validator = new AqlQueryValidator();
-        externalDecorator = new AqlQueryDecorator(new DefaultSortDecorator(), new TrashcanDecorator(), new VirtualRepoCriteriaDecorator());
+        externalDecorator = new AqlQueryDecorator(new DefaultSortDecorator(), new TrashcanDecorator(),
+                new VirtualRepoCriteriaDecorator(), new ReadPermissionsDecorator());
         internalDecorator = new AqlQueryDecorator(new TrashcanDecorator(), new VirtualRepoCriteriaDecorator());
+        planCache = new AqlPlanCache(ConstantValues.aqlPlanCacheEnabled.getBoolean(),
+                ConstantValues.aqlPlanCacheMaxSize.getLong());
+    }
+
+    public AqlPlanCache getPlanCache() {
+        return planCache;
     }
 
     /**
@@ -99,8 +118,7 @@ public class AqlServiceImpl implements AqlService {
     @Override
     public AqlEagerResult executeQueryEager(String query) {
         log.debug("Processing textual AqlApi query: {}", query);
-        ParserElementResultContainer parserResult = parser.parse(query);
-        return executeQueryEager(parserResult);
+        return getAqlQueryResult(planQuery(query));
     }
 
     /**
@@ -109,8 +127,7 @@ public class AqlServiceImpl implements AqlService {
     @Override
     public AqlLazyResult executeQueryLazy(String query) {
         log.debug("Processing textual AqlApi query: {}", query);
-        ParserElementResultContainer parserResult = parser.parse(query);
-        return executeQueryLazy(parserResult);
+        return getAqlQueryStreamResult(planQuery(query));
     }
 
     /**
@@ -154,49 +171,120 @@ public class AqlServiceImpl implements AqlService {
     }
 
     /**
-     * Converts the parser elements into AqlApi query, convert the AqlApi query to sql and executes the query eagerly
+     * Converts the textual query into SQL query, using the cached plan of the query shape if there is one
      */
-    private AqlEagerResult executeQueryEager(ParserElementResultContainer parserResult) {
-        log.trace("Converting the parser result into AqlApi query");
-        AqlQuery aqlQuery = parserToAqlAdapter.toAqlModel(parserResult);
-        optimizer.optimize(aqlQuery);
-        validator.validate(aqlQuery, permissionProvider);
-        externalDecorator.decorate(aqlQuery, new AqlQueryDecoratorContext(repoProvider, permissionProvider));
-        log.trace("Successfully finished to convert the parser result into AqlApi query");
-        return getAqlQueryResult(aqlQuery);
+    private SqlQuery planQuery(String query) {
+        if (!planCache.isEnabled()) {
+            return toSqlQuery(parser.parse(query));
+        }
+        AqlQueryShape shape = AqlQueryShape.of(query);
+        AqlPlanCache.Key key = planCacheKey(shape);
+        AqlQueryPlan plan = planCache.get(key);
+        if (plan != null && plan != AqlQueryPlan.UNCACHEABLE) {
+            log.trace("Using cached plan of query shape: {}", shape.getShape());
+            return plan.bind(shape.getValues());
+        }
+        long start = System.nanoTime();
+        ParserElementResultContainer parserResult = parser.parse(query);
+        long parsed = System.nanoTime();
+        SqlQuery sqlQuery = toSqlQuery(parserResult);
+        planCache.recordParse(parsed - start);
+        planCache.recordBuild(System.nanoTime() - parsed);
+        if (plan == null) {
+            planCache.put(key, compilePlan(shape, sqlQuery));
+        }
+        return sqlQuery;
     }
 
     /**
-     * Converts the parser elements into AqlApi query and executes the query lazy
+     * Compiles the plan of a query shape by building the query again with unique markers instead of the slotted values
+     * and matching the SQL parameters to the markers. Only find queries are cached since the other actions hold state.
      */
-    private AqlLazyResult executeQueryLazy(ParserElementResultContainer parserResult) {
+    private AqlQueryPlan compilePlan(AqlQueryShape shape, SqlQuery sqlQuery) {
+        if (!(sqlQuery.getAction() instanceof AqlFindAction)) {
+            return AqlQueryPlan.UNCACHEABLE;
+        }
+        List<String> values = shape.getValues();
+        List<String> markers = Lists.newArrayListWithCapacity(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            // The wildcard makes sure like criteria are recognized, the underscore keeps the escape clause as is
+            markers.add("aql" + i + "slot*" + (values.get(i).indexOf('_') >= 0 ? "_" : ""));
+        }
+        SqlQuery probe = sqlQuery;
+        if (!markers.isEmpty()) {
+            try {
+                probe = toSqlQuery(parser.parse(shape.withValues(markers)));
+            } catch (Exception e) {
+                log.debug("Query shape '{}' cannot be cached: {}", shape.getShape(), e.getMessage());
+                return AqlQueryPlan.UNCACHEABLE;
+            }
+        }
+        AqlQueryPlan plan = AqlQueryPlan.compile(sqlQuery, values, probe, markers);
+        if (plan == AqlQueryPlan.UNCACHEABLE) {
+            log.debug("Query shape '{}' cannot be cached: values affect the SQL query", shape.getShape());
+        }
+        return plan;
+    }
+
+    private AqlPlanCache.Key planCacheKey(AqlQueryShape shape) {
+        String username = null;
+        Object descriptor = null;
+        ArtifactoryContext context = ContextHelper.get();
+        if (context != null) {
+            AuthorizationService authorizationService = context.getAuthorizationService();
+            username = authorizationService != null ? authorizationService.currentUsername() : null;
+            CentralConfigService centralConfig = context.getCentralConfig();
+            descriptor = centralConfig != null ? centralConfig.getDescriptor() : null;
+        }
+        boolean admin = permissionProvider.isAdmin();
+        // The read permissions decorator output depends on the readable repositories which may change at any time
+        Set<String> readableRepoKeys = admin ? null : permissionProvider.getReadableRepoKeys();
+        return new AqlPlanCache.Key(shape.getShape(), username, admin, permissionProvider.isOss(),
+                readableRepoKeys, repoProvider, descriptor);
+    }
+
+    /**
+     * Converts the parser elements into AqlApi query and then into SQL query
+     */
+    private SqlQuery toSqlQuery(ParserElementResultContainer parserResult) {
         log.trace("Converting the parser result into AqlApi query");
         AqlQuery aqlQuery = parserToAqlAdapter.toAqlModel(parserResult);
         optimizer.optimize(aqlQuery);
         validator.validate(aqlQuery, permissionProvider);
         externalDecorator.decorate(aqlQuery, new AqlQueryDecoratorContext(repoProvider, permissionProvider));
         log.trace("Successfully finished to convert the parser result into AqlApi query");
-        return getAqlQueryStreamResult(aqlQuery);
+        return toSqlQuery(aqlQuery);
+    }
+
+    private SqlQuery toSqlQuery(AqlQuery aqlQuery) {
+        log.trace("Converting the AqlApi query into SQL query: {}", aqlQuery);
+        SqlQuery sqlQuery = sqlQueryBuilder.buildQuery(aqlQuery);
+        log.trace("Successfully finished to convert the parser result into the following SQL query '{}'", sqlQuery);
+        return sqlQuery;
     }
 
     /**
      * Converts the AqlApi query into SQL query and executes the query eagerly
      */
     private AqlEagerResult getAqlQueryResult(AqlQuery aqlQuery) {
-        log.trace("Converting the AqlApi query into SQL query: {}", aqlQuery);
-        SqlQuery sqlQuery = sqlQueryBuilder.buildQuery(aqlQuery);
-        log.trace("Successfully finished to convert the parser result into the following SQL query '{}'", sqlQuery);
+        return getAqlQueryResult(toSqlQuery(aqlQuery));
+    }
+
+    private AqlEagerResult getAqlQueryResult(SqlQuery sqlQuery) {
         log.trace("processing the following SQL query: {}", sqlQuery);
+        PropertiesSessionResource.flushCurrentSession();
         AqlEagerResultImpl aqlQueryResult = aqlDao.executeQueryEager(sqlQuery, repoProvider);
         log.debug("Successfully finished to process SQL query with the following size: {}", aqlQueryResult.getSize());
         return aqlQueryResult;
     }
 
     private AqlLazyResult getAqlQueryStreamResult(AqlQuery aqlQuery) {
-        log.trace("Converting the AqlApi query into SQL query: {}", aqlQuery);
-        SqlQuery sqlQuery = sqlQueryBuilder.buildQuery(aqlQuery);
-        log.trace("Successfully finished to convert the parser result into the following SQL query '{}'", sqlQuery);
+        return getAqlQueryStreamResult(toSqlQuery(aqlQuery));
+    }
+
+    private AqlLazyResult getAqlQueryStreamResult(SqlQuery sqlQuery) {
         log.trace("processing the following SQL query: {}", sqlQuery);
+        PropertiesSessionResource.flushCurrentSession();
         AqlLazyResult aqlQueryStreamResult = aqlDao.executeQueryLazy(sqlQuery, permissionProvider, repoProvider);
         log.debug("Successfully finished to process SQL query (lazy)");
         return aqlQueryStreamResult;
@@ -0,0 +1,91 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.aql.service.decorator;
+
+import com.google.common.collect.Lists;
+import org.artifactory.aql.AqlFieldResolver;
+import org.artifactory.aql.model.*;
+import org.artifactory.storage.db.aql.sql.builder.links.TableLink;
+import org.artifactory.storage.db.aql.sql.builder.query.aql.AqlAdapter;
+import org.artifactory.storage.db.aql.sql.builder.query.aql.AqlQuery;
+import org.artifactory.storage.db.aql.sql.builder.query.aql.AqlQueryElement;
+import org.artifactory.storage.db.aql.sql.builder.query.aql.SimpleCriterion;
+import org.artifactory.storage.db.aql.sql.builder.query.sql.type.AqlTableGraph;
+import org.artifactory.storage.db.aql.sql.model.SqlTableEnum;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Restricts items queries of non admin users to the repositories the user may read from, so the database doesn't
+ * return rows that are dropped by the per row permission check of the result streamers anyway. The include/exclude
+ * patterns of the permission targets are still checked per row.
+ * <p/>
+ * Must run after the {@link VirtualRepoCriteriaDecorator} and the {@link TrashcanDecorator} since both look for repo
+ * criteria in the query.
+ */
+public class ReadPermissionsDecorator implements DecorationStrategy {
+
+    @Override
+    public void decorate(AqlQuery aqlQuery, AqlQueryDecoratorContext decoratorContext) {
+        AqlPermissionProvider permissionProvider = decoratorContext.getPermissionProvider();
+        if (!AqlDomainEnum.items.equals(aqlQuery.getDomain()) || permissionProvider.isAdmin()) {
+            return;
+        }
+        Set<String> readableRepoKeys = permissionProvider.getReadableRepoKeys();
+        if (readableRepoKeys == null) {
+            return;
+        }
+        // (query)AND(repo = "repo1" OR repo = "repo2" ...)
+        List<AqlQueryElement> repoCriteria = Lists.newArrayList();
+        repoCriteria.add(AqlAdapter.open);
+        if (readableRepoKeys.isEmpty()) {
+            // No repository is readable, no repository has an empty key
+            repoCriteria.add(repoEquals(""));
+        } else {
+            // Sorted to generate the same SQL query for the same permissions
+            for (String repoKey : new TreeSet<>(readableRepoKeys)) {
+                if (repoCriteria.size() > 1) {
+                    repoCriteria.add(AqlAdapter.or);
+                }
+                repoCriteria.add(repoEquals(repoKey));
+            }
+        }
+        repoCriteria.add(AqlAdapter.close);
+
+        List<AqlQueryElement> aqlElements = aqlQuery.getAqlElements();
+        if (!aqlElements.isEmpty()) {
+            aqlElements.add(0, AqlAdapter.open);
+            aqlElements.add(AqlAdapter.close);
+            aqlElements.add(AqlAdapter.and);
+        }
+        aqlElements.addAll(repoCriteria);
+    }
+
+    private SimpleCriterion repoEquals(String repoKey) {
+        AqlField itemRepo = AqlFieldResolver.resolve(AqlPhysicalFieldEnum.itemRepo);
+        AqlVariable repo = AqlFieldResolver.resolve(repoKey, AqlVariableTypeEnum.string);
+        TableLink nodesTable = AqlTableGraph.tablesLinksMap.get(SqlTableEnum.nodes);
+        return new SimpleCriterion(Lists.newArrayList(AqlDomainEnum.items), itemRepo, nodesTable.getTable(),
+                AqlComparatorEnum.equals.signature, repo, nodesTable.getTable(), false);
+    }
+}
@@ -248,7 +248,14 @@ public abstract class Criterion implements AqlQueryElement {
     protected String resolveParamForSqlLikeQuery(AqlVariable variable) {
         Object param = resolveParam(variable);
         validateNotNullParam(param);
-        String modifiedValue = (String) param;
+        return toSqlLikeValue((String) param);
+    }
+
+    /**
+     * Converts AQL wildcards value into SQL like value (escaping the SQL wildcards)
+     */
+    public static String toSqlLikeValue(String value) {
+        String modifiedValue = value;
         modifiedValue = modifiedValue.replace("_", ESCAPING_CHAR + "_");
         modifiedValue = modifiedValue.replace("%", ESCAPING_CHAR + "%");
         modifiedValue = modifiedValue.replace('*', '%');
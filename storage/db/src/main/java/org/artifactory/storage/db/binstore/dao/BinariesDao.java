@@ -21,6 +21,7 @@
 package org.artifactory.storage.db.binstore.dao;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.artifactory.api.storage.BinariesInfo;
 import org.artifactory.checksum.ChecksumType;
 import org.artifactory.common.ConstantValues;
@@ -32,14 +33,20 @@ import org.jfrog.storage.util.DbUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.stereotype.Repository;
 
 import javax.annotation.Nullable;
+import javax.sql.DataSource;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * A data access object for binaries table access.
@@ -52,6 +59,9 @@ public class BinariesDao extends BaseDao {
 
     public static final String TEMP_SHA1_PREFIX = "##";
 
+    private static final String DELETE_UNREFERENCED_QUERY = "DELETE FROM binaries WHERE binaries.sha1 = ?" +
+            " AND NOT EXISTS (SELECT n.node_id FROM nodes n WHERE n.sha1_actual = ?)";
+
     //TODO [by dan]: used by the migration to prevent excessive db calls, remove when we get rid of the migration
     private final String sha1ColumnName;
 
@@ -149,11 +159,81 @@ public class BinariesDao extends BaseDao {
         return results;
     }
 
+    /**
+     * Returns a page of the binaries that are not referenced by any node, ordered by sha1. Used to scan the candidates
+     * without loading all of them to memory: the next page starts after the last sha1 of the previous one.
+     *
+     * @param afterSha1 Exclusive lower bound of the returned sha1 values, null to start from the first candidate
+     * @param limit     Max number of candidates to return
+     */
+    public List<BinaryEntity> findPotentialDeletion(@Nullable String afterSha1, long limit) throws SQLException {
+        List<BinaryEntity> results = Lists.newArrayList();
+        ResultSet resultSet = null;
+        try {
+            String condition = "b.sha1 NOT LIKE '" + TEMP_SHA1_PREFIX + "%'" +
+                    (afterSha1 == null ? "" : " AND b.sha1 > ?") +
+                    " AND NOT EXISTS (SELECT n.node_id FROM nodes n WHERE n.sha1_actual = b.sha1) ";
+            String query = new QueryWriter().select(" b.sha1, b.md5, b.bin_length, b.sha256 ").from(" binaries b ")
+                    .where(condition).orderBy(" b.sha1 ").limit(limit).build();
+            resultSet = afterSha1 == null ? jdbcHelper.executeSelect(query) :
+                    jdbcHelper.executeSelect(query, afterSha1);
+            while (resultSet.next()) {
+                // limit queries may add columns to the result set, must get columns by name
+                results.add(new BinaryEntity(resultSet.getString("sha1"), resultSet.getString("sha256"),
+                        resultSet.getString("md5"), resultSet.getLong("bin_length")));
+            }
+        } finally {
+            DbUtils.close(resultSet);
+        }
+        return results;
+    }
+
     //TODO [by dan][sha2]: for phase 2
     public int deleteEntry(String sha1ToDelete) throws SQLException {
-        return jdbcHelper.executeUpdate("DELETE FROM binaries WHERE binaries.sha1 = ?" +
-                " AND NOT EXISTS (SELECT n.node_id FROM nodes n WHERE n.sha1_actual = ?)",
-                 sha1ToDelete, sha1ToDelete);
+        return jdbcHelper.executeUpdate(DELETE_UNREFERENCED_QUERY, sha1ToDelete, sha1ToDelete);
+    }
+
+    /**
+     * Deletes the binaries rows of the given checksums in a single JDBC batch. Like {@link #deleteEntry(String)}, rows
+     * that are referenced by a node are not deleted.
+     *
+     * @param sha1sToDelete Checksums to delete
+     * @return The checksums whose rows were deleted
+     */
+    public Set<String> deleteEntries(List<String> sha1sToDelete) throws SQLException {
+        Set<String> deleted = Sets.newHashSet();
+        if (sha1sToDelete.isEmpty()) {
+            return deleted;
+        }
+        int[] updateCounts;
+        DataSource dataSource = jdbcHelper.getDataSource();
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement ps = con.prepareStatement(DELETE_UNREFERENCED_QUERY)) {
+            for (String sha1 : sha1sToDelete) {
+                ps.setString(1, sha1);
+                ps.setString(2, sha1);
+                ps.addBatch();
+            }
+            updateCounts = ps.executeBatch();
+        } finally {
+            DataSourceUtils.releaseConnection(con, dataSource);
+        }
+        List<String> unknown = Lists.newArrayList();
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] > 0) {
+                deleted.add(sha1sToDelete.get(i));
+            } else if (updateCounts[i] == Statement.SUCCESS_NO_INFO) {
+                unknown.add(sha1sToDelete.get(i));
+            }
+        }
+        if (!unknown.isEmpty()) {
+            // The driver doesn't report per statement counts - whatever is gone now was deleted by the batch
+            Set<String> remaining = search(ChecksumType.sha1, unknown).stream()
+                    .map(BinaryEntity::getSha1)
+                    .collect(Collectors.toSet());
+            unknown.stream().filter(sha1 -> !remaining.contains(sha1)).forEach(deleted::add);
+        }
+        return deleted;
     }
 
     /**
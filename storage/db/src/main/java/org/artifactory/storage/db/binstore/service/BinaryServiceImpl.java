@@ -81,6 +81,7 @@ import org.jfrog.storage.common.LockingMapFactoryProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nonnull;
@@ -95,6 +96,9 @@ import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -141,14 +145,21 @@ public class BinaryServiceImpl implements InternalBinaryService, ClusterTopology
     private Lock lock = new ReentrantLock();
     private BinaryProvider binaryProvider;
     private boolean forceBinaryProviderOptimizationOnce = false;
+    private File gcCheckpointFile;
+    private volatile List<File> fileStoreDirs;
+    private ScheduledExecutorService noDeleteLockReleaser;
 
     @PostConstruct
     public void initialize() {
         garbageCollectorListeners = new CopyOnWriteArrayList<>();
         log.debug("Initializing the ConfigurableBinaryProviderManager");
         deleteProtectedBinaries = new MapMaker().makeMap();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("art-binary-lock-releaser-");
+        threadFactory.setDaemon(true);
+        noDeleteLockReleaser = Executors.newSingleThreadScheduledExecutor(threadFactory);
         // Generate Default values
         ArtifactoryHome artifactoryHome = ArtifactoryHome.get();
+        gcCheckpointFile = new File(artifactoryHome.getDataDir(), "gc.checkpoint");
         BinaryStoreProperties storeProperties = new BinaryStoreProperties(artifactoryHome.getDataDir().getPath(),
                 artifactoryHome.getSecurityDir().getPath());
         HaNodeProperties haNodeProperties =  artifactoryHome.getHaNodeProperties();
@@ -196,6 +207,7 @@ public class BinaryServiceImpl implements InternalBinaryService, ClusterTopology
     @Override
     @PreDestroy
     public void destroy() {
+        noDeleteLockReleaser.shutdownNow();
         notifyGCListenersOnDestroy();
         binaryProviderManager.contextDestroyed();
     }
@@ -219,12 +231,44 @@ public class BinaryServiceImpl implements InternalBinaryService, ClusterTopology
         // create and initialize the external binary providers.
         binaryProviderManager.initializeExternalBinaryProvider(mode, externalDir, fileStoreFullPath.getAbsolutePath(),
                 defaultValues);
+        fileStoreDirs = null;
     }
 
     @Override
     public void disconnectExternalFilestore(File externalDir, ProviderConnectMode disconnectMode, BasicStatusHolder statusHolder) {
         ExternalBinaryProviderHelper.disconnectFromFileStore(this, externalDir, disconnectMode, statusHolder,
                 binaryProviderManager, binariesDao, defaultValues);
+        fileStoreDirs = null;
+    }
+
+    @Override
+    @Nullable
+    public File getBinaryFile(String sha1) {
+        if (StringUtils.length(sha1) != ChecksumType.sha1.length()) {
+            return null;
+        }
+        List<File> dirs = fileStoreDirs;
+        if (dirs == null) {
+            // The providers tree only changes when an external filestore is connected or disconnected
+            BinaryTreeElement<BinaryProviderInfo> treeElement =
+                    binaryProviderManager.getBinaryProvidersInfo().rootTreeElement;
+            List<FileBinaryProviderInfo> providersInfos = Lists.newArrayList();
+            collectFileBinaryProvidersDirsInternal(providersInfos, treeElement);
+            dirs = Lists.newArrayList();
+            for (FileBinaryProviderInfo providerInfo : providersInfos) {
+                if (providerInfo.getFileStoreDir() != null) {
+                    dirs.add(providerInfo.getFileStoreDir());
+                }
+            }
+            fileStoreDirs = dirs;
+        }
+        for (File dir : dirs) {
+            File file = new File(new File(dir, sha1.substring(0, 2)), sha1);
+            if (file.isFile()) {
+                return file;
+            }
+        }
+        return null;
     }
 
     @Override
@@ -468,11 +512,47 @@ public class BinaryServiceImpl implements InternalBinaryService, ClusterTopology
     public GarbageCollectorInfo garbageCollect() {
         notifyGCListenersOnStart();
         final GarbageCollectorInfo result = new GarbageCollectorInfo();
-        Collection<BinaryEntity> binsToDelete;
         try {
             BinariesInfo countAndSize = binariesDao.getCountAndTotalSize();
             result.initialCount = countAndSize.getBinariesCount();
             result.initialSize = countAndSize.getBinariesSize();
+        } catch (SQLException e) {
+            throw new StorageException("Could not find potential Binaries to delete!", e);
+        }
+        if (ConstantValues.gcStreamingEnabled.getBoolean()) {
+            new StreamingGarbageCollector(this, binariesDao, archiveEntriesService, dbService, binaryProvider,
+                    gcCheckpointFile).collect(result);
+        } else {
+            collectOneByOne(result);
+        }
+
+        if (result.checksumsCleaned > 0) {
+            result.archivePathsCleaned = getTransactionalMe().deleteUnusedArchivePaths();
+            result.archiveNamesCleaned = getTransactionalMe().deleteUnusedArchiveNames();
+        }
+
+        result.gcEndTime = System.currentTimeMillis();
+
+        try {
+            BinariesInfo countAndSize = binariesDao.getCountAndTotalSize();
+            result.printCollectionInfo(countAndSize.getBinariesSize());
+        } catch (SQLException e) {
+            log.error("Could not list files due to " + e.getMessage());
+        }
+        boolean success = binaryProviderManager.optimize(forceBinaryProviderOptimizationOnce);
+        if (success) {
+            forceBinaryProviderOptimizationOnce = false;
+        }
+        notifyGCListenersOnFinished();
+        return result;
+    }
+
+    /**
+     * Loads all the candidates for deletion and deletes each one of them in its own transaction.
+     */
+    private void collectOneByOne(GarbageCollectorInfo result) {
+        Collection<BinaryEntity> binsToDelete;
+        try {
             binsToDelete = binariesDao.findPotentialDeletion();
         } catch (SQLException e) {
             throw new StorageException("Could not find potential Binaries to delete!", e);
@@ -501,26 +581,6 @@ public class BinaryServiceImpl implements InternalBinaryService, ClusterTopology
                 }
             }
         }
-
-        if (result.checksumsCleaned > 0) {
-            result.archivePathsCleaned = getTransactionalMe().deleteUnusedArchivePaths();
-            result.archiveNamesCleaned = getTransactionalMe().deleteUnusedArchiveNames();
-        }
-
-        result.gcEndTime = System.currentTimeMillis();
-
-        try {
-            BinariesInfo countAndSize = binariesDao.getCountAndTotalSize();
-            result.printCollectionInfo(countAndSize.getBinariesSize());
-        } catch (SQLException e) {
-            log.error("Could not list files due to " + e.getMessage());
-        }
-        boolean success = binaryProviderManager.optimize(forceBinaryProviderOptimizationOnce);
-        if (success) {
-            forceBinaryProviderOptimizationOnce = false;
-        }
-        notifyGCListenersOnFinished();
-        return result;
     }
 
     /**
@@ -588,10 +648,49 @@ public class BinaryServiceImpl implements InternalBinaryService, ClusterTopology
 
     @Override
     public void decrementNoDeleteLock(String sha1) {
-        AtomicInteger usageCount = deleteProtectedBinaries.get(sha1).getFirst();
-        if (usageCount != null) {
-            usageCount.decrementAndGet();
+        Pair<AtomicInteger, Long> pair = deleteProtectedBinaries.get(sha1);
+        if (pair != null) {
+            pair.getFirst().decrementAndGet();
+        }
+    }
+
+    @Override
+    public void holdNoDeleteLock(String sha1, long durationMillis) {
+        incrementNoDeleteLock(sha1);
+        noDeleteLockReleaser.schedule(() -> decrementNoDeleteLock(sha1), durationMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Protects the given binary from readers and writers while it is being deleted. A binary that is currently used is
+     * not protected, unless it wasn't accessed for longer than the max read time.
+     *
+     * @return True if the binary is protected and can be deleted, false if it is being used
+     */
+    boolean acquireDeleteProtection(String sha1) {
+        Pair<AtomicInteger, Long> pair = deleteProtectedBinaries.computeIfAbsent(sha1,
+                key -> new Pair<>(new AtomicInteger(0), System.currentTimeMillis()));
+        if (pair.getFirst().compareAndSet(0, -30)) {
+            log.debug("Targeting '{}' for deletion as it not seems to be used", sha1);
+            return true;
+        }
+        Long timestamp = pair.getSecond();
+        log.info("Binary {} has {} readers with last timestamp of {}", sha1, pair.getFirst().get(), timestamp);
+        long trashTime = (System.currentTimeMillis() - timestamp) / 1000;
+        if (trashTime > ConstantValues.gcReadersMaxTimeSecs.getLong()) {
+            log.info("Binary {} has reached it's max read time, removing it from ref. counter", sha1);
+            deleteProtectedBinaries.remove(sha1);
+        } else {
+            log.info("Binary {} is being read! Not deleting.", sha1);
         }
+        return false;
+    }
+
+    /**
+     * Removes the protection acquired by {@link #acquireDeleteProtection(String)}
+     */
+    void releaseDeleteProtection(String sha1) {
+        deleteProtectedBinaries.remove(sha1);
+        log.debug("Cleaning '{}' from ref. counter", sha1);
     }
 
     @Override
@@ -865,10 +964,7 @@ public class BinaryServiceImpl implements InternalBinaryService, ClusterTopology
         @Override
         public Void call() throws Exception {
             String sha1 = bd.getSha1();
-            deleteProtectedBinaries.putIfAbsent(sha1, new Pair<>(new AtomicInteger(0), System.currentTimeMillis()));
-            Pair<AtomicInteger, Long> pair = deleteProtectedBinaries.get(sha1);
-            if (pair.getFirst().compareAndSet(0, -30)) {
-                log.debug("Targeting '{}' for deletion as it not seems to be used", sha1);
+            if (acquireDeleteProtection(sha1)) {
                 try {
                     if (deleteEntry(sha1)) {
                         log.trace("Deleted {} record from binaries table", sha1);
@@ -885,18 +981,7 @@ public class BinaryServiceImpl implements InternalBinaryService, ClusterTopology
                     }
                 } finally {
                     // remove delete protection (even if delete was not successful)
-                    deleteProtectedBinaries.remove(sha1);
-                    log.debug("Cleaning '{}' from ref. counter", sha1);
-                }
-            } else {
-                Long timestamp = pair.getSecond();
-                log.info("Binary {} has {} readers with last timestamp of {}", sha1, pair.getFirst().get(), timestamp);
-                long trashTime = (System.currentTimeMillis() - timestamp) / 1000;
-                if (trashTime > ConstantValues.gcReadersMaxTimeSecs.getLong()) {
-                    log.info("Binary {} has reached it's max read time, removing it from ref. counter", sha1);
-                    deleteProtectedBinaries.remove(sha1);
-                } else {
-                    log.info("Binary {} is being read! Not deleting.", sha1);
+                    releaseDeleteProtection(sha1);
                 }
             }
             return null;
@@ -0,0 +1,328 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.binstore.service;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.artifactory.api.context.ArtifactoryContext;
+import org.artifactory.api.context.ContextHelper;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.concurrent.ArtifactoryRunnable;
+import org.artifactory.storage.StorageException;
+import org.artifactory.storage.binstore.service.GarbageCollectorInfo;
+import org.artifactory.storage.db.InternalDbService;
+import org.artifactory.storage.db.binstore.dao.BinariesDao;
+import org.artifactory.storage.db.binstore.entity.BinaryEntity;
+import org.artifactory.storage.fs.service.ArchiveEntriesService;
+import org.artifactory.storage.spring.ArtifactoryStorageContext;
+import org.jfrog.storage.binstore.common.BinaryElementRequestImpl;
+import org.jfrog.storage.binstore.ifc.provider.BinaryProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Garbage collects the unreferenced binaries without loading all the candidates to memory.
+ * <p/>
+ * Candidates are scanned in pages ordered by sha1, each page starting after the last sha1 of the previous one. The
+ * database rows of a page are deleted in one transaction using batched statements (falling back to one transaction
+ * per binary if the batch fails), and only then the binaries are deleted from the binary provider by a bounded pool of
+ * workers. Binaries that are being read or written are protected from deletion exactly like in the one by one
+ * collection, and the protection is held until the binary is deleted from the provider.
+ * <p/>
+ * The last sha1 of every completed page is saved to a checkpoint file. A run that was stopped or aborted resumes after
+ * the checkpoint and then wraps around to the candidates before it.
+ *
+ * @see BinaryServiceImpl#garbageCollect()
+ */
+class StreamingGarbageCollector {
+    private static final Logger log = LoggerFactory.getLogger(StreamingGarbageCollector.class);
+
+    // Oracle limits the max elements in the IN clause of the archive entries deletion to 1000
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final BinaryServiceImpl binaryService;
+    private final BinariesDao binariesDao;
+    private final ArchiveEntriesService archiveEntriesService;
+    private final InternalDbService dbService;
+    private final BinaryProvider binaryProvider;
+    private final File checkpointFile;
+    private final int pageSize;
+    private final long sleepBetweenPagesMillis;
+    private final int failThreshold;
+    private int failures;
+
+    StreamingGarbageCollector(BinaryServiceImpl binaryService, BinariesDao binariesDao,
+            ArchiveEntriesService archiveEntriesService, InternalDbService dbService, BinaryProvider binaryProvider,
+            File checkpointFile) {
+        this.binaryService = binaryService;
+        this.binariesDao = binariesDao;
+        this.archiveEntriesService = archiveEntriesService;
+        this.dbService = dbService;
+        this.binaryProvider = binaryProvider;
+        this.checkpointFile = checkpointFile;
+        this.pageSize = Math.max(1, Math.min(ConstantValues.gcStreamingPageSize.getInt(), MAX_PAGE_SIZE));
+        this.sleepBetweenPagesMillis = ConstantValues.gcStreamingSleepBetweenPagesMillis.getLong();
+        this.failThreshold = ConstantValues.gcFailCountThreshold.getInt();
+    }
+
+    /**
+     * Scans and deletes all the unreferenced binaries, updating the given result as it goes.
+     */
+    void collect(GarbageCollectorInfo result) {
+        String checkpoint = readCheckpoint();
+        if (checkpoint != null) {
+            log.info("Resuming garbage collection after checkpoint '{}'", checkpoint);
+        }
+        ThreadPoolExecutor deleteExecutor = createDeleteExecutor();
+        boolean completed;
+        try {
+            completed = scan(checkpoint, null, result, deleteExecutor);
+            if (completed && checkpoint != null) {
+                completed = scan(null, checkpoint, result, deleteExecutor);
+            }
+            result.stopScanTimestamp = System.currentTimeMillis();
+        } finally {
+            awaitProviderDeletions(deleteExecutor);
+        }
+        if (result.candidatesForDeletion > 0) {
+            log.info("Found {} candidates for deletion", result.candidatesForDeletion);
+        }
+        if (completed) {
+            FileUtils.deleteQuietly(checkpointFile);
+        }
+    }
+
+    /**
+     * @param afterSha1 Exclusive lower bound of the scanned candidates, null to start from the first one
+     * @param upToSha1  Inclusive upper bound of the scanned candidates, null to scan up to the last one
+     * @return True if the scan reached the upper bound, false if it was stopped or aborted
+     */
+    private boolean scan(@Nullable String afterSha1, @Nullable String upToSha1, GarbageCollectorInfo result,
+            ThreadPoolExecutor deleteExecutor) {
+        String lastSha1 = afterSha1;
+        while (true) {
+            if (shouldStop()) {
+                log.info("Garbage collection was stopped, next run will resume after '{}'", lastSha1);
+                return false;
+            }
+            List<BinaryEntity> page;
+            try {
+                page = binariesDao.findPotentialDeletion(lastSha1, pageSize);
+            } catch (SQLException e) {
+                throw new StorageException("Could not find potential Binaries to delete!", e);
+            }
+            boolean lastPage = page.size() < pageSize;
+            if (upToSha1 != null) {
+                List<BinaryEntity> inRange = page.stream()
+                        .filter(bd -> bd.getSha1().compareTo(upToSha1) <= 0)
+                        .collect(Collectors.toList());
+                lastPage |= inRange.size() < page.size();
+                page = inRange;
+            }
+            if (page.isEmpty()) {
+                return true;
+            }
+            result.candidatesForDeletion += page.size();
+            log.debug("Processing {} candidates for deletion after '{}'", page.size(), lastSha1);
+            if (!deletePage(page, result, deleteExecutor)) {
+                return false;
+            }
+            lastSha1 = page.get(page.size() - 1).getSha1();
+            writeCheckpoint(lastSha1);
+            if (lastPage) {
+                return true;
+            }
+            throttle();
+        }
+    }
+
+    /**
+     * @return False if the failures threshold was reached and the collection should be aborted
+     */
+    private boolean deletePage(List<BinaryEntity> page, GarbageCollectorInfo result,
+            ThreadPoolExecutor deleteExecutor) {
+        List<BinaryEntity> candidates = Lists.newArrayList();
+        for (BinaryEntity bd : page) {
+            log.trace("Candidate for deletion: {}", bd);
+            if (binaryService.acquireDeleteProtection(bd.getSha1())) {
+                candidates.add(bd);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return true;
+        }
+        Set<String> deleted = Sets.newHashSet();
+        boolean proceed = deleteRows(candidates, deleted);
+        for (BinaryEntity bd : candidates) {
+            if (deleted.contains(bd.getSha1())) {
+                log.trace("Deleted {} record from binaries table", bd.getSha1());
+                result.checksumsCleaned++;
+                deleteExecutor.execute(new ArtifactoryRunnable(() -> deleteBinary(bd, result), ContextHelper.get(),
+                        SecurityContextHolder.getContext().getAuthentication()));
+            } else {
+                log.debug("Deleting '{}' has failed", bd.getSha1());
+                binaryService.releaseDeleteProtection(bd.getSha1());
+            }
+        }
+        return proceed;
+    }
+
+    /**
+     * Deletes the archive entries and binaries rows of the given candidates in one transaction, or in a transaction
+     * per candidate if the batch fails.
+     *
+     * @return False if the failures threshold was reached and the collection should be aborted
+     */
+    private boolean deleteRows(List<BinaryEntity> candidates, Set<String> deleted) {
+        List<String> sha1s = candidates.stream().map(BinaryEntity::getSha1).collect(Collectors.toList());
+        try {
+            deleted.addAll(dbService.invokeInTransaction("BinaryCleaner#batch", () -> deleteEntries(sha1s)));
+            return true;
+        } catch (Exception e) {
+            log.debug("Failed to delete {} binaries in batch, deleting one by one: {}", sha1s.size(), e.getMessage());
+        }
+        for (String sha1 : sha1s) {
+            try {
+                deleted.addAll(dbService.invokeInTransaction("BinaryCleaner#" + sha1,
+                        () -> deleteEntries(Collections.singletonList(sha1))));
+            } catch (Exception e) {
+                failures++;
+                String msg = "Caught Exception, trying to clean {} : {}";
+                if (failures >= failThreshold) {
+                    // We're past the allowed fail threshold, fail gc.
+                    log.error(msg + ". Aborting Garbage Collection Run.", sha1, e.getMessage());
+                    log.debug("", e);
+                    return false;
+                } else {
+                    log.debug(msg, sha1, e.getMessage());
+                }
+            }
+        }
+        return true;
+    }
+
+    private Set<String> deleteEntries(List<String> sha1s) throws SQLException {
+        archiveEntriesService.deleteUnreferencedArchiveEntries(sha1s);
+        return binariesDao.deleteEntries(sha1s);
+    }
+
+    private void deleteBinary(BinaryEntity bd, GarbageCollectorInfo result) {
+        String sha1 = bd.getSha1();
+        try {
+            if (binaryProvider.delete(new BinaryElementRequestImpl(sha1))) {
+                log.trace("Deleted {} binary", sha1);
+                synchronized (result) {
+                    result.binariesCleaned++;
+                    result.totalSizeCleaned += bd.getLength();
+                }
+            } else {
+                log.error("Could not delete binary '{}'", sha1);
+            }
+        } catch (RuntimeException e) {
+            log.error("Could not delete binary '{}': {}", sha1, e.getMessage());
+            log.debug("Could not delete binary '" + sha1 + "'", e);
+        } finally {
+            // remove delete protection (even if delete was not successful)
+            binaryService.releaseDeleteProtection(sha1);
+        }
+    }
+
+    private ThreadPoolExecutor createDeleteExecutor() {
+        int threads = Math.max(1, ConstantValues.gcStreamingDeleteThreads.getInt());
+        // A full queue makes the scanning thread delete the binary itself, which throttles the scan
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(pageSize), new CustomizableThreadFactory("art-gc-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private void awaitProviderDeletions(ThreadPoolExecutor deleteExecutor) {
+        deleteExecutor.shutdown();
+        try {
+            while (!deleteExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.info("Waiting for {} binaries to be deleted", deleteExecutor.getQueue().size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for {} binaries to be deleted", deleteExecutor.getQueue().size());
+        }
+    }
+
+    private void throttle() {
+        if (sleepBetweenPagesMillis > 0) {
+            try {
+                Thread.sleep(sleepBetweenPagesMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean shouldStop() {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        ArtifactoryContext context = ContextHelper.get();
+        return context instanceof ArtifactoryStorageContext &&
+                ((ArtifactoryStorageContext) context).getTaskService().pauseOrBreak();
+    }
+
+    @Nullable
+    private String readCheckpoint() {
+        if (!checkpointFile.exists()) {
+            return null;
+        }
+        try {
+            String checkpoint = StringUtils.trimToNull(FileUtils.readFileToString(checkpointFile, "utf-8"));
+            if (checkpoint != null && checkpoint.length() == 40) {
+                return checkpoint;
+            }
+            log.warn("Ignoring invalid garbage collection checkpoint '{}'", checkpoint);
+        } catch (IOException e) {
+            log.warn("Could not read garbage collection checkpoint {}: {}", checkpointFile, e.getMessage());
+        }
+        FileUtils.deleteQuietly(checkpointFile);
+        return null;
+    }
+
+    private void writeCheckpoint(String sha1) {
+        try {
+            FileUtils.writeStringToFile(checkpointFile, sha1, "utf-8");
+        } catch (IOException e) {
+            log.debug("Could not write garbage collection checkpoint {}: {}", checkpointFile, e.getMessage());
+        }
+    }
+}
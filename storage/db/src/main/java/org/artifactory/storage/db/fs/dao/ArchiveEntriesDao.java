@@ -20,6 +20,8 @@
 
 package org.artifactory.storage.db.fs.dao;
 
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import org.artifactory.common.config.db.ArtifactoryDbProperties;
 import org.artifactory.storage.db.DbService;
@@ -28,11 +30,17 @@ import org.artifactory.storage.db.util.BaseDao;
 import org.artifactory.storage.db.util.JdbcHelper;
 import org.jfrog.storage.util.DbUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.stereotype.Repository;
 
 import javax.annotation.Nonnull;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -95,6 +103,26 @@ public class ArchiveEntriesDao extends BaseDao {
         return 0;
     }
 
+    /**
+     * Deletes the indexed archive entries of the given checksums, skipping checksums that are referenced by a node.
+     * See {@link #deleteByChecksum(String)}.
+     *
+     * @param sha1s The checksums to cleanup (no more than 1000)
+     * @return Number of entries deleted from the many to many table
+     */
+    public int deleteUnreferencedByChecksums(Collection<String> sha1s) throws SQLException {
+        if (sha1s.isEmpty()) {
+            return 0;
+        }
+        int entriesCount = jdbcHelper.executeUpdate("DELETE FROM indexed_archives_entries WHERE indexed_archives_id IN" +
+                " (SELECT ia.indexed_archives_id FROM indexed_archives ia WHERE ia.archive_sha1 IN (#)" +
+                " AND NOT EXISTS (SELECT n.node_id FROM nodes n WHERE n.sha1_actual = ia.archive_sha1))", sha1s);
+        jdbcHelper.executeUpdate("DELETE FROM indexed_archives WHERE archive_sha1 IN (#)" +
+                " AND NOT EXISTS (SELECT n.node_id FROM nodes n WHERE n.sha1_actual = indexed_archives.archive_sha1)",
+                sha1s);
+        return entriesCount;
+    }
+
     public long findIndexedArchiveIdByChecksum(String sha1) throws SQLException {
         ResultSet resultSet = null;
         try {
@@ -146,6 +174,111 @@ public class ArchiveEntriesDao extends BaseDao {
                 dotIfNullOrEmpty(entryName));
     }
 
+    /**
+     * @param entryPaths The entry paths to look for (no more than 1000)
+     * @return Map of the entry paths found to their unique ids. Paths are keyed as stored, which might differ in
+     * character casing from the requested paths on case insensitive databases
+     */
+    @Nonnull
+    public Map<String, Long> findArchivePathIds(Collection<String> entryPaths) throws SQLException {
+        return findDictionaryIds("SELECT entry_path, path_id FROM archive_paths WHERE entry_path IN (#)", entryPaths);
+    }
+
+    /**
+     * @param entryNames The entry names to look for (no more than 1000)
+     * @return Map of the entry names found to their unique ids. Names are keyed as stored, which might differ in
+     * character casing from the requested names on case insensitive databases
+     */
+    @Nonnull
+    public Map<String, Long> findArchiveNameIds(Collection<String> entryNames) throws SQLException {
+        return findDictionaryIds("SELECT entry_name, name_id FROM archive_names WHERE entry_name IN (#)", entryNames);
+    }
+
+    private Map<String, Long> findDictionaryIds(String query, Collection<String> values) throws SQLException {
+        Map<String, Long> ids = Maps.newHashMapWithExpectedSize(values.size());
+        if (values.isEmpty()) {
+            return ids;
+        }
+        Set<String> dotValues = Sets.newHashSetWithExpectedSize(values.size());
+        for (String value : values) {
+            dotValues.add(dotIfNullOrEmpty(value));
+        }
+        ResultSet resultSet = null;
+        try {
+            resultSet = jdbcHelper.executeSelect(query, dotValues);
+            while (resultSet.next()) {
+                ids.put(emptyIfNullOrDot(resultSet.getString(1)), resultSet.getLong(2));
+            }
+            return ids;
+        } finally {
+            DbUtils.close(resultSet);
+        }
+    }
+
+    /**
+     * Creates the given archive paths in one batch. Fails if any of the paths already exists.
+     *
+     * @param archivePathIds Map of the entry paths to create to their new unique ids
+     */
+    public void createArchivePaths(Map<String, Long> archivePathIds) throws SQLException {
+        createDictionaryEntries("INSERT INTO archive_paths (path_id, entry_path) VALUES (?, ?)", archivePathIds);
+    }
+
+    /**
+     * Creates the given archive names in one batch. Fails if any of the names already exists.
+     *
+     * @param archiveNameIds Map of the entry names to create to their new unique ids
+     */
+    public void createArchiveNames(Map<String, Long> archiveNameIds) throws SQLException {
+        createDictionaryEntries("INSERT INTO archive_names (name_id, entry_name) VALUES (?, ?)", archiveNameIds);
+    }
+
+    private void createDictionaryEntries(String insert, Map<String, Long> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        DataSource dataSource = jdbcHelper.getDataSource();
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement ps = con.prepareStatement(insert)) {
+            for (Map.Entry<String, Long> entry : ids.entrySet()) {
+                ps.setLong(1, entry.getValue());
+                ps.setString(2, dotIfNullOrEmpty(entry.getKey()));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } finally {
+            DataSourceUtils.releaseConnection(con, dataSource);
+        }
+    }
+
+    /**
+     * Creates records in the many-to-many table of archive to entries in one batch.
+     *
+     * @param indexedArchiveId The indexed archive unique id
+     * @param pathToNameIds    The archive entry path unique ids mapped to the entry name unique ids under each path.
+     *                         Pairs must not already exist for the archive.
+     */
+    public void createIndexedArchivesEntries(long indexedArchiveId, Multimap<Long, Long> pathToNameIds)
+            throws SQLException {
+        if (pathToNameIds.isEmpty()) {
+            return;
+        }
+        DataSource dataSource = jdbcHelper.getDataSource();
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement ps = con.prepareStatement("INSERT INTO indexed_archives_entries " +
+                "(indexed_archives_id, entry_path_id, entry_name_id) VALUES (?, ?, ?)")) {
+            for (Map.Entry<Long, Long> entry : pathToNameIds.entries()) {
+                ps.setLong(1, indexedArchiveId);
+                ps.setLong(2, entry.getKey());
+                ps.setLong(3, entry.getValue());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } finally {
+            DataSourceUtils.releaseConnection(con, dataSource);
+        }
+    }
+
     /**
      * Creates a new record in the many-to-many table of archive to entries.
      *
@@ -49,6 +49,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * A data access object for node table access.
@@ -242,6 +243,43 @@ public class NodesDao extends BaseDao {
         }
     }
 
+    /**
+     * Loads all the descendants (not only the direct children) of the given path with a single query.
+     *
+     * @param path     The path to load the descendants of
+     * @param maxNodes Max number of nodes to load
+     * @return The descendants in no particular order or null if there are more than maxNodes of them
+     */
+    @Nullable
+    public List<Node> getDescendants(NodePath path, int maxNodes) throws SQLException {
+        ResultSet resultSet = null;
+        List<Node> results = Lists.newArrayList();
+        String pathName = path.getPathName();
+        try {
+            if (path.isRoot()) {
+                resultSet = jdbcHelper.executeSelect(SELECT_NODE_QUERY + "WHERE repo = ? AND depth > 0",
+                        path.getRepo());
+            } else {
+                resultSet = jdbcHelper.executeSelect(SELECT_NODE_QUERY +
+                                "WHERE repo = ? AND depth > ? AND (node_path = ? OR node_path LIKE ?)",
+                        path.getRepo(), path.getDepth(), pathName, pathName + "/%");
+            }
+            while (resultSet.next()) {
+                Node node = nodeFromResultSet(resultSet);
+                // like wildcards in the path ('_', '%') might match unrelated paths
+                if (path.isRoot() || node.getPath().equals(pathName) || node.getPath().startsWith(pathName + "/")) {
+                    if (results.size() >= maxNodes) {
+                        return null;
+                    }
+                    results.add(node);
+                }
+            }
+            return results;
+        } finally {
+            DbUtils.close(resultSet);
+        }
+    }
+
     public boolean hasChildren(NodePath path) throws SQLException {
         ResultSet resultSet = null;
         try {
@@ -487,6 +525,21 @@ public class NodesDao extends BaseDao {
         return results;
     }
 
+    /**
+     * Streams the paths of all the files, without loading them all to memory
+     *
+     * @param consumer Receives the path of each file
+     */
+    public void scanFilePaths(Consumer<NodePath> consumer) throws SQLException {
+        try (ResultSet resultSet = jdbcHelper.executeSelect(
+                "SELECT repo, node_path, node_name FROM nodes WHERE node_type = 1")) {
+            while (resultSet.next()) {
+                consumer.accept(new NodePath(resultSet.getString(1), emptyIfNullOrDot(resultSet.getString(2)),
+                        emptyIfNullOrDot(resultSet.getString(3)), true));
+            }
+        }
+    }
+
     private Node nodeFromResultSet(ResultSet resultSet) throws SQLException {
         long nodeId = resultSet.getLong(1);
         boolean isFile = resultSet.getBoolean(2);
@@ -35,10 +35,17 @@ import org.jfrog.storage.util.DbUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
 import java.util.List;
 
 /**
@@ -56,11 +63,18 @@ public class PropertiesDao extends BaseDao {
     @Autowired
     private DbService dbService;
 
+    private PropertyKeyDictionary keyDictionary;
+
     @Autowired
     public PropertiesDao(JdbcHelper jdbcHelper) {
         super(jdbcHelper);
     }
 
+    @PostConstruct
+    private void initKeyDictionary() {
+        keyDictionary = new PropertyKeyDictionary(ConstantValues.nodePropertiesKeyDictionarySize.getInt());
+    }
+
     public boolean hasNodeProperties(long nodeId) throws SQLException {
         ResultSet resultSet = null;
         try {
@@ -146,6 +160,91 @@ public class PropertiesDao extends BaseDao {
                 property.getPropId(), property.getNodeId(), property.getPropKey(), propValue);
     }
 
+    /**
+     * Creates the given properties in JDBC batches.
+     *
+     * @return The update count of each property, or {@link Statement#SUCCESS_NO_INFO} if the driver doesn't report it
+     */
+    public int[] create(List<NodeProperty> properties) throws SQLException {
+        return executeBatch("INSERT INTO node_props (prop_id, node_id, prop_key, prop_value) VALUES(?, ?, ?, ?)",
+                properties, (ps, property) -> {
+                    ps.setLong(1, property.getPropId());
+                    ps.setLong(2, property.getNodeId());
+                    ps.setString(3, property.getPropKey());
+                    setNullableString(ps, 4, getPropertyValueEnforceLength(property));
+                });
+    }
+
+    /**
+     * Updates the values of the given properties in JDBC batches.
+     *
+     * @return The update count of each property, or {@link Statement#SUCCESS_NO_INFO} if the driver doesn't report it
+     */
+    public int[] updateValues(List<NodeProperty> properties) throws SQLException {
+        return executeBatch("UPDATE node_props SET prop_value = ? WHERE prop_id = ? AND prop_key = ?",
+                properties, (ps, property) -> {
+                    setNullableString(ps, 1, getPropertyValueEnforceLength(property));
+                    ps.setLong(2, property.getPropId());
+                    ps.setString(3, property.getPropKey());
+                });
+    }
+
+    /**
+     * Deletes the given properties in JDBC batches.
+     *
+     * @return The update count of each property, or {@link Statement#SUCCESS_NO_INFO} if the driver doesn't report it
+     */
+    public int[] delete(List<NodeProperty> properties) throws SQLException {
+        return executeBatch("DELETE FROM node_props WHERE prop_id = ? AND prop_key = ?",
+                properties, (ps, property) -> {
+                    ps.setLong(1, property.getPropId());
+                    ps.setString(2, property.getPropKey());
+                });
+    }
+
+    /**
+     * Deletes all the properties of the given nodes in JDBC batches.
+     *
+     * @return The number of deleted properties of each node, or {@link Statement#SUCCESS_NO_INFO} if the driver
+     * doesn't report it
+     */
+    public int[] deleteNodesProperties(List<Long> nodeIds) throws SQLException {
+        return executeBatch("DELETE FROM node_props WHERE node_id = ?", nodeIds,
+                (ps, nodeId) -> ps.setLong(1, nodeId));
+    }
+
+    private <T> int[] executeBatch(String sql, List<T> items, StatementBinder<T> binder) throws SQLException {
+        int[] counts = new int[items.size()];
+        if (items.isEmpty()) {
+            return counts;
+        }
+        int batchSize = Math.max(1, ConstantValues.nodePropertiesBatchSize.getInt());
+        DataSource dataSource = jdbcHelper.getDataSource();
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            for (int start = 0; start < items.size(); start += batchSize) {
+                int end = Math.min(start + batchSize, items.size());
+                for (T item : items.subList(start, end)) {
+                    binder.bind(ps, item);
+                    ps.addBatch();
+                }
+                int[] batchCounts = ps.executeBatch();
+                System.arraycopy(batchCounts, 0, counts, start, batchCounts.length);
+            }
+        } finally {
+            DataSourceUtils.releaseConnection(con, dataSource);
+        }
+        return counts;
+    }
+
+    private static void setNullableString(PreparedStatement ps, int index, String value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.VARCHAR);
+        } else {
+            ps.setString(index, value);
+        }
+    }
+
     private String getPropertyValueEnforceLength(NodeProperty property) {
         String propValue = nullIfEmpty(property.getPropValue());
         int maxPropValue = PROP_VALUE_MAX_SIZE;
@@ -163,8 +262,12 @@ public class PropertiesDao extends BaseDao {
     private NodeProperty propertyFromResultSet(ResultSet resultSet) throws SQLException {
         long propId = resultSet.getLong(1);
         long nodeId = resultSet.getLong(2);
-        String propKey = resultSet.getString(3);
+        String propKey = keyDictionary.canonical(resultSet.getString(3));
         String propValue = emptyIfNull(resultSet.getString(4));
         return new NodeProperty(propId, nodeId, propKey, propValue);
     }
+
+    private interface StatementBinder<T> {
+        void bind(PreparedStatement ps, T item) throws SQLException;
+    }
 }
@@ -0,0 +1,67 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.fs.dao;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A bounded dictionary of property keys. The same few keys (build.name, docker.manifest, npm.name etc.) repeat in
+ * almost every properties row, so loaded properties share one key instance per distinct key instead of holding a copy
+ * per row. Shared instances also make key comparisons reference comparisons in the common case.
+ * <p/>
+ * Keys are added until the dictionary is full; keys seen after that are returned as is.
+ */
+class PropertyKeyDictionary {
+
+    private final int maxSize;
+    private final ConcurrentMap<String, String> keys;
+
+    /**
+     * @param maxSize Max number of keys in the dictionary, 0 disables the dictionary
+     */
+    PropertyKeyDictionary(int maxSize) {
+        this.maxSize = maxSize;
+        this.keys = new ConcurrentHashMap<>(Math.min(Math.max(maxSize, 16), 1024));
+    }
+
+    /**
+     * @return The dictionary instance of the key, or the key itself if it is not in the dictionary
+     */
+    String canonical(String key) {
+        if (key == null || maxSize <= 0) {
+            return key;
+        }
+        String canonical = keys.get(key);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (keys.size() >= maxSize) {
+            return key;
+        }
+        canonical = keys.putIfAbsent(key, key);
+        return canonical != null ? canonical : key;
+    }
+
+    int size() {
+        return keys.size();
+    }
+}
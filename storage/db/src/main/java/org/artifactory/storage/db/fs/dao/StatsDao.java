@@ -26,16 +26,23 @@ import org.artifactory.storage.db.fs.entity.Stat;
 import org.artifactory.storage.db.util.BaseDao;
 import org.artifactory.storage.db.util.JdbcHelper;
 import org.artifactory.storage.db.util.querybuilder.QueryWriter;
+import org.jfrog.storage.DbType;
 import org.jfrog.storage.util.DbUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.stereotype.Repository;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collection;
 import java.util.List;
 
 import static org.artifactory.util.ArgUtil.checkValue;
@@ -376,6 +383,228 @@ public class StatsDao extends BaseDao {
         }
     }
 
+    /**
+     * Adds the given local download counts to the stats table in a single JDBC batch, creating the missing rows.
+     * Uses the database native upsert where available (PostgreSQL, MySQL and Oracle), otherwise a batch of updates
+     * followed by a batch of inserts for the rows that did not exist.
+     * <p/>
+     * Must run inside a transaction.
+     *
+     * @param deltas Local stats where the download count is the amount to add, at most one per node id
+     * @param dbType The database type
+     */
+    public void incrementLocalStats(Collection<Stat> deltas, DbType dbType) throws SQLException {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        log.debug("Incrementing {} local stats", deltas.size());
+        DataSource dataSource = jdbcHelper.getDataSource();
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        try {
+            String upsert = localStatsUpsertQuery(dbType);
+            if (upsert != null) {
+                try (PreparedStatement ps = con.prepareStatement(upsert)) {
+                    for (Stat delta : deltas) {
+                        setLocalStatsParams(ps, delta);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                return;
+            }
+            List<Stat> missing = Lists.newArrayList();
+            try (PreparedStatement ps = con.prepareStatement("UPDATE stats SET " +
+                    "download_count = COALESCE(download_count, 0) + ?, last_downloaded = ?, last_downloaded_by = ? " +
+                    "WHERE node_id = ?")) {
+                for (Stat delta : deltas) {
+                    ps.setLong(1, delta.getLocalDownloadCount());
+                    ps.setLong(2, delta.getLocalLastDownloaded());
+                    setNullableString(ps, 3, delta.getLocalLastDownloadedBy());
+                    ps.setLong(4, delta.getNodeId());
+                    ps.addBatch();
+                }
+                collectNotUpdated(ps.executeBatch(), deltas, missing);
+            }
+            if (!missing.isEmpty()) {
+                try (PreparedStatement ps = con.prepareStatement("INSERT INTO stats " +
+                        "(node_id, download_count, last_downloaded, last_downloaded_by) VALUES (?, ?, ?, ?)")) {
+                    for (Stat delta : missing) {
+                        setLocalStatsParams(ps, delta);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
+        } finally {
+            DataSourceUtils.releaseConnection(con, dataSource);
+        }
+    }
+
+    /**
+     * Adds the given remote download counts to the stats_remote table in a single JDBC batch, creating the missing
+     * rows. See {@link #incrementLocalStats(Collection, DbType)}.
+     *
+     * @param deltas Remote stats where the remote download count is the amount to add, at most one per node id and
+     *               origin
+     * @param dbType The database type
+     */
+    public void incrementRemoteStats(Collection<Stat> deltas, DbType dbType) throws SQLException {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        log.debug("Incrementing {} remote stats", deltas.size());
+        DataSource dataSource = jdbcHelper.getDataSource();
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        try {
+            String upsert = remoteStatsUpsertQuery(dbType);
+            if (upsert != null) {
+                try (PreparedStatement ps = con.prepareStatement(upsert)) {
+                    for (Stat delta : deltas) {
+                        setRemoteStatsParams(ps, delta);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                return;
+            }
+            List<Stat> missing = Lists.newArrayList();
+            try (PreparedStatement ps = con.prepareStatement("UPDATE stats_remote SET " +
+                    "download_count = COALESCE(download_count, 0) + ?, last_downloaded = ?, last_downloaded_by = ?, " +
+                    "path = COALESCE(?, path) WHERE node_id = ? AND origin = ?")) {
+                for (Stat delta : deltas) {
+                    ps.setLong(1, delta.getRemoteDownloadCount());
+                    ps.setLong(2, delta.getRemoteLastDownloaded());
+                    setNullableString(ps, 3, delta.getRemoteLastDownloadedBy());
+                    setNullableString(ps, 4, Strings.emptyToNull(delta.getPath()));
+                    ps.setLong(5, delta.getNodeId());
+                    ps.setString(6, delta.getOrigin());
+                    ps.addBatch();
+                }
+                collectNotUpdated(ps.executeBatch(), deltas, missing);
+            }
+            if (!missing.isEmpty()) {
+                try (PreparedStatement ps = con.prepareStatement("INSERT INTO stats_remote " +
+                        "(node_id, origin, download_count, last_downloaded, last_downloaded_by, path) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)")) {
+                    for (Stat delta : missing) {
+                        setRemoteStatsParams(ps, delta);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
+        } finally {
+            DataSourceUtils.releaseConnection(con, dataSource);
+        }
+    }
+
+    /**
+     * @return Native single statement upsert of the stats table or null if the database has none we can use
+     */
+    @Nullable
+    private String localStatsUpsertQuery(DbType dbType) {
+        switch (dbType) {
+            case POSTGRESQL:
+                return "INSERT INTO stats (node_id, download_count, last_downloaded, last_downloaded_by) " +
+                        "VALUES (?, ?, ?, ?) ON CONFLICT (node_id) DO UPDATE SET " +
+                        "download_count = COALESCE(stats.download_count, 0) + EXCLUDED.download_count, " +
+                        "last_downloaded = EXCLUDED.last_downloaded, " +
+                        "last_downloaded_by = EXCLUDED.last_downloaded_by";
+            case MYSQL:
+                return "INSERT INTO stats (node_id, download_count, last_downloaded, last_downloaded_by) " +
+                        "VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+                        "download_count = COALESCE(download_count, 0) + VALUES(download_count), " +
+                        "last_downloaded = VALUES(last_downloaded), " +
+                        "last_downloaded_by = VALUES(last_downloaded_by)";
+            case ORACLE:
+                return "MERGE INTO stats s USING (SELECT ? node_id, ? download_count, ? last_downloaded, " +
+                        "? last_downloaded_by FROM dual) e ON (s.node_id = e.node_id) " +
+                        "WHEN MATCHED THEN UPDATE SET " +
+                        "s.download_count = COALESCE(s.download_count, 0) + e.download_count, " +
+                        "s.last_downloaded = e.last_downloaded, s.last_downloaded_by = e.last_downloaded_by " +
+                        "WHEN NOT MATCHED THEN INSERT (node_id, download_count, last_downloaded, last_downloaded_by) " +
+                        "VALUES (e.node_id, e.download_count, e.last_downloaded, e.last_downloaded_by)";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return Native single statement upsert of the stats_remote table or null if the database has none we can use
+     */
+    @Nullable
+    private String remoteStatsUpsertQuery(DbType dbType) {
+        switch (dbType) {
+            case POSTGRESQL:
+                return "INSERT INTO stats_remote " +
+                        "(node_id, origin, download_count, last_downloaded, last_downloaded_by, path) " +
+                        "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (node_id, origin) DO UPDATE SET " +
+                        "download_count = COALESCE(stats_remote.download_count, 0) + EXCLUDED.download_count, " +
+                        "last_downloaded = EXCLUDED.last_downloaded, " +
+                        "last_downloaded_by = EXCLUDED.last_downloaded_by, " +
+                        "path = COALESCE(EXCLUDED.path, stats_remote.path)";
+            case MYSQL:
+                return "INSERT INTO stats_remote " +
+                        "(node_id, origin, download_count, last_downloaded, last_downloaded_by, path) " +
+                        "VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+                        "download_count = COALESCE(download_count, 0) + VALUES(download_count), " +
+                        "last_downloaded = VALUES(last_downloaded), " +
+                        "last_downloaded_by = VALUES(last_downloaded_by), " +
+                        "path = COALESCE(VALUES(path), path)";
+            case ORACLE:
+                return "MERGE INTO stats_remote s USING (SELECT ? node_id, ? origin, ? download_count, " +
+                        "? last_downloaded, ? last_downloaded_by, ? path FROM dual) e " +
+                        "ON (s.node_id = e.node_id AND s.origin = e.origin) " +
+                        "WHEN MATCHED THEN UPDATE SET " +
+                        "s.download_count = COALESCE(s.download_count, 0) + e.download_count, " +
+                        "s.last_downloaded = e.last_downloaded, s.last_downloaded_by = e.last_downloaded_by, " +
+                        "s.path = COALESCE(e.path, s.path) " +
+                        "WHEN NOT MATCHED THEN INSERT " +
+                        "(node_id, origin, download_count, last_downloaded, last_downloaded_by, path) " +
+                        "VALUES (e.node_id, e.origin, e.download_count, e.last_downloaded, e.last_downloaded_by, " +
+                        "e.path)";
+            default:
+                return null;
+        }
+    }
+
+    private void setLocalStatsParams(PreparedStatement ps, Stat stat) throws SQLException {
+        ps.setLong(1, stat.getNodeId());
+        ps.setLong(2, stat.getLocalDownloadCount());
+        ps.setLong(3, stat.getLocalLastDownloaded());
+        setNullableString(ps, 4, stat.getLocalLastDownloadedBy());
+    }
+
+    private void setRemoteStatsParams(PreparedStatement ps, Stat stat) throws SQLException {
+        ps.setLong(1, stat.getNodeId());
+        ps.setString(2, stat.getOrigin());
+        ps.setLong(3, stat.getRemoteDownloadCount());
+        ps.setLong(4, stat.getRemoteLastDownloaded());
+        setNullableString(ps, 5, stat.getRemoteLastDownloadedBy());
+        setNullableString(ps, 6, Strings.emptyToNull(stat.getPath()));
+    }
+
+    private void setNullableString(PreparedStatement ps, int index, @Nullable String value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.VARCHAR);
+        } else {
+            ps.setString(index, value);
+        }
+    }
+
+    /**
+     * Collects the stats which update statement did not match any row
+     */
+    private void collectNotUpdated(int[] updateCounts, Collection<Stat> stats, List<Stat> notUpdated) {
+        int i = 0;
+        for (Stat stat : stats) {
+            // Drivers that don't report the count (SUCCESS_NO_INFO) are only used with native upserts
+            if (updateCounts[i++] == 0) {
+                notUpdated.add(stat);
+            }
+        }
+    }
+
     private Stat statFromLocalResultSet(ResultSet rs) throws SQLException {
         return new Stat(rs.getLong("node_id"),
                 rs.getLong("download_count"),
@@ -21,6 +21,7 @@
 package org.artifactory.storage.db.fs.service;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.artifactory.addon.AddonsManager;
 import org.artifactory.addon.smartrepo.SmartRepoAddon;
@@ -50,12 +51,15 @@ import org.springframework.transaction.support.DefaultTransactionDefinition;
 
 import java.sql.SQLException;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
+import static org.artifactory.common.ConstantValues.statsFlushBatchMode;
+import static org.artifactory.common.ConstantValues.statsFlushBatchSize;
 import static org.artifactory.common.ConstantValues.statsFlushTimeoutSecs;
+import static org.artifactory.common.ConstantValues.statsMaxQueuedEvents;
 
 /**
  * Provides basic statistic services
@@ -68,6 +72,12 @@ public abstract class AbstractStatsService {
     private static final Logger log = LoggerFactory.getLogger(AbstractStatsService.class);
     private ConcurrentMap<RepoPath, StatsEvent> statsEvents = Maps.newConcurrentMap();
 
+    // Backlog and flush metrics
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong flushedEvents = new AtomicLong();
+    private volatile long lastFlushDurationMillis;
+    private volatile int lastFlushedEvents;
+
     @Autowired
     private StatsDao statsDao;
 
@@ -116,9 +126,81 @@ public abstract class AbstractStatsService {
     }
 
     private void doFlushStats() {
+        long start = System.currentTimeMillis();
         int sizeOnEntry = getStatsEvents().size();
         log.debug("Flushing {} statistics to storage", sizeOnEntry);
-        Iterator<Map.Entry<RepoPath, StatsEvent>> iterator = getStatsEvents().entrySet().iterator();
+        int processed;
+        if (isBatchFlushSupported() && statsFlushBatchMode.getBoolean()) {
+            processed = flushInBatches(sizeOnEntry);
+        } else {
+            processed = flushOneByOne(getStatsEvents().values().iterator(), sizeOnEntry);
+        }
+        lastFlushDurationMillis = System.currentTimeMillis() - start;
+        lastFlushedEvents = processed;
+        flushedEvents.addAndGet(processed);
+        log.debug("Successfully flushed {} statistics from total of {} in {} ms", processed, sizeOnEntry,
+                lastFlushDurationMillis);
+    }
+
+    /**
+     * Flushes the events in batches of {@link org.artifactory.common.ConstantValues#statsFlushBatchSize}, each batch
+     * is written by {@link #processStatsBatch(List)} in a single transaction. A batch that fails is rolled back and
+     * re-flushed one event at a time.
+     *
+     * @return Number of processed events
+     */
+    private int flushInBatches(int sizeOnEntry) {
+        int batchSize = Math.max(1, statsFlushBatchSize.getInt());
+        Iterator<StatsEvent> iterator = getStatsEvents().values().iterator();
+        List<StatsEvent> batch = Lists.newArrayListWithCapacity(Math.min(batchSize, sizeOnEntry));
+        int processed = 0;
+        onTraversingStart();
+        try {
+            while (iterator.hasNext()) {
+                StatsEvent event = iterator.next();
+                if (isWriteLocked(event)) {
+                    log.debug("Attempting to update stats of write locked node at: {}", event.getRepoPath());
+                    continue;
+                }
+                iterator.remove(); //remove the object prior to sampling its value to avoid atomicity problems
+                batch.add(event);
+                if (batch.size() >= batchSize) {
+                    processed += flushBatch(batch);
+                    log.debug("Flushed {} statistics done, started with {}", processed, sizeOnEntry);
+                    batch = Lists.newArrayListWithCapacity(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                processed += flushBatch(batch);
+            }
+        } finally {
+            onTraversingEnd();
+        }
+        return processed;
+    }
+
+    private int flushBatch(List<StatsEvent> batch) {
+        TransactionStatus txStatus = startTransaction();
+        try {
+            processStatsBatch(batch);
+        } catch (SQLException | RuntimeException e) {
+            rollbackTransaction(txStatus);
+            log.warn("Failed to flush a batch of {} statistics, retrying one by one: {}", batch.size(),
+                    e.getMessage());
+            log.debug("Failed to flush a batch of statistics", e);
+            return flushOneByOne(batch.iterator(), batch.size());
+        }
+        commitOrRollback(txStatus);
+        return batch.size();
+    }
+
+    /**
+     * Flushes the events one at a time, each event is read and written separately.
+     *
+     * @param iterator Iterator over the events to flush, events are removed from it once processed
+     * @return Number of processed events
+     */
+    private int flushOneByOne(Iterator<StatsEvent> iterator, int sizeOnEntry) {
         int processed = 0;
         TransactionStatus txStatus = null;
         int savedPerTx = DEFAULT_NB_STATS_SAVED_PER_TX;
@@ -129,7 +211,7 @@ public abstract class AbstractStatsService {
         try {
             onTraversingStart();
             while (iterator.hasNext()) {
-                final StatsEvent event = iterator.next().getValue();
+                final StatsEvent event = iterator.next();
                 log.trace("Flushing statistics : {}", event);
                 if (txStatus == null) {
                     txStatus = startTransaction();
@@ -170,7 +252,56 @@ public abstract class AbstractStatsService {
             commitOrRollback(txStatus);
             onTraversingEnd();
         }
-        log.debug("Successfully flushed {} statistics from total of {}", processed, sizeOnEntry);
+        return processed;
+    }
+
+    /**
+     * Checks whether a new event (of a path that has no queued event) can be added to the backlog. When the backlog
+     * reached {@link org.artifactory.common.ConstantValues#statsMaxQueuedEvents} the event is dropped and counted.
+     *
+     * @param repoPath The path of the new event
+     * @return True if the event can be queued
+     */
+    protected boolean acceptNewEvent(RepoPath repoPath) {
+        long maxQueuedEvents = statsMaxQueuedEvents.getLong();
+        if (maxQueuedEvents > 0 && getStatsEvents().size() >= maxQueuedEvents) {
+            long dropped = droppedEvents.incrementAndGet();
+            if (dropped == 1 || dropped % 10000 == 0) {
+                log.warn("Statistics backlog is full ({} events pending flush), dropped {} download events so far. " +
+                        "Latest dropped: '{}'", maxQueuedEvents, dropped, repoPath);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return Number of events pending flush
+     */
+    public int getQueuedEventsCount() {
+        return getStatsEvents().size();
+    }
+
+    /**
+     * @return Number of events dropped since startup because the backlog was full
+     */
+    public long getDroppedEventsCount() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * @return Number of events flushed since startup
+     */
+    public long getFlushedEventsCount() {
+        return flushedEvents.get();
+    }
+
+    public long getLastFlushDurationMillis() {
+        return lastFlushDurationMillis;
+    }
+
+    public int getLastFlushedEventsCount() {
+        return lastFlushedEvents;
     }
 
     protected abstract ConflictGuard getConflictGuard();
@@ -375,6 +506,30 @@ public abstract class AbstractStatsService {
      */
     protected abstract void processStats(StatsEvent event, long nodeId, Stat stats) throws SQLException;
 
+    /**
+     * @return True if this service can flush events with {@link #processStatsBatch(List)}
+     */
+    protected boolean isBatchFlushSupported() {
+        return false;
+    }
+
+    /**
+     * Performs stats processing of a batch of events in a single transaction. By default each event is read and
+     * written separately, like in the one by one flush.
+     *
+     * @param events The events to process
+     *
+     * @throws SQLException If the stats of one of the events failed to update, the whole batch is then retried one by
+     *                      one
+     */
+    protected void processStatsBatch(List<StatsEvent> events) throws SQLException {
+        for (StatsEvent event : events) {
+            if (createOrUpdateStats(event) == StatsSaveResult.Failed) {
+                throw new SQLException("Failed to update stats for " + event.getRepoPath());
+            }
+        }
+    }
+
     /**
      * Occurs before traversing queued events
      */
@@ -20,7 +20,15 @@
 
 package org.artifactory.storage.db.fs.service;
 
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.fs.ZipEntryInfo;
 import org.artifactory.model.xstream.fs.ZipEntryImpl;
 import org.artifactory.storage.StorageException;
@@ -30,20 +38,38 @@ import org.artifactory.storage.db.fs.entity.ArchiveEntry;
 import org.artifactory.storage.fs.VfsException;
 import org.artifactory.storage.fs.service.ArchiveEntriesService;
 import org.jfrog.client.util.PathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nonnull;
+import javax.annotation.PostConstruct;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * A business service to interact with the archive entries table.
+ * <p/>
+ * Archive entries are added in batches: the path and name ids of a batch are resolved through bounded in-memory
+ * dictionaries, missing ones are looked up and created in bulk, and the many-to-many rows are inserted with a single
+ * JDBC batch. Path and name rows are created and committed in their own transactions, so a cached id never belongs to
+ * a rolled back transaction; the dictionaries are cleared when the garbage collector removes unused ids and whenever
+ * adding entries fails.
  *
  * @author Yossi Shaul
  */
 @Service
 public class ArchiveEntriesServiceImpl implements ArchiveEntriesService {
+    private static final Logger log = LoggerFactory.getLogger(ArchiveEntriesServiceImpl.class);
+
+    // Max number of values in a single IN clause
+    private static final int MAX_IN_VALUES = 1000;
 
     @Autowired
     private DbService dbService;
@@ -51,6 +77,47 @@ public class ArchiveEntriesServiceImpl implements ArchiveEntriesService {
     @Autowired
     private ArchiveEntriesDao archiveEntriesDao;
 
+    private Dictionary pathsDictionary;
+
+    private Dictionary namesDictionary;
+
+    @PostConstruct
+    public void init() {
+        long cacheSize = ConstantValues.archiveIndexerDictionaryCacheSize.getLong();
+        pathsDictionary = new Dictionary("paths", cacheSize) {
+            @Override
+            Map<String, Long> findIds(Collection<String> values) throws SQLException {
+                return archiveEntriesDao.findArchivePathIds(values);
+            }
+
+            @Override
+            long findId(String value) throws SQLException {
+                return archiveEntriesDao.findArchivePathId(value);
+            }
+
+            @Override
+            void insert(Map<String, Long> ids) throws SQLException {
+                archiveEntriesDao.createArchivePaths(ids);
+            }
+        };
+        namesDictionary = new Dictionary("names", cacheSize) {
+            @Override
+            Map<String, Long> findIds(Collection<String> values) throws SQLException {
+                return archiveEntriesDao.findArchiveNameIds(values);
+            }
+
+            @Override
+            long findId(String value) throws SQLException {
+                return archiveEntriesDao.findArchiveNameId(value);
+            }
+
+            @Override
+            void insert(Map<String, Long> ids) throws SQLException {
+                archiveEntriesDao.createArchiveNames(ids);
+            }
+        };
+    }
+
     @Override
     public boolean isIndexed(String archiveSha1) {
         try {
@@ -77,6 +144,11 @@ public class ArchiveEntriesServiceImpl implements ArchiveEntriesService {
 
     @Override
     public void addArchiveEntries(String archiveSha1, Set<? extends ZipEntryInfo> entries) {
+        addArchiveEntries(archiveSha1, entries.iterator());
+    }
+
+    @Override
+    public void addArchiveEntries(String archiveSha1, Iterator<? extends ZipEntryInfo> entries) {
         // insert main entry to the indexed_archives table
         try {
             // create indexed_archives row
@@ -85,40 +157,56 @@ public class ArchiveEntriesServiceImpl implements ArchiveEntriesService {
                 throw new StorageException("Failed to insert indexed archive entry for " + archiveSha1);
             }
 
-            for (ZipEntryInfo zipEntry : entries) {
-                // for each entry add one new row to the many to many and to the entries path
-                ArchiveEntry archiveEntry = zipEntryInfoToArchiveEntry(archiveSha1, zipEntry);
-
-                // select or create id from archive path
-                long archivePathId = archiveEntriesDao.findArchivePathId(archiveEntry.getEntryPath());
-                if (archivePathId == DbService.NO_DB_ID) {
-                    archivePathId = dbService.nextId();
-                    if (!archiveEntriesDao.createArchivePath(archivePathId, archiveEntry.getEntryPath())) {
-                        throw new StorageException("Failed to insert archive path: " + archiveEntry.getEntryPath());
-                    }
-                }
-
-                // select or create id from archive name
-                long archiveNameId = archiveEntriesDao.findArchiveNameId(archiveEntry.getEntryName());
-                if (archiveNameId == DbService.NO_DB_ID) {
-                    archiveNameId = dbService.nextId();
-                    if (!archiveEntriesDao.createArchiveName(archiveNameId, archiveEntry.getEntryName())) {
-                        throw new StorageException("Failed to insert archive name: " + archiveEntry.getEntryName());
-                    }
-                }
-
-                // before inserting to the many to many relation check that such entry doesn't entry doesn't exist
-                // this might happen for example in case insensitive databases if the archive contains two entries
-                // with difference only is character casing
-                if (!archiveEntriesDao.hasIndexedArchivesEntries(indexedArchiveId, archivePathId, archiveNameId)) {
-                    archiveEntriesDao.createIndexedArchivesEntries(indexedArchiveId, archivePathId, archiveNameId);
+            // the path and name id pairs inserted so far. The same pair might repeat, for example in case insensitive
+            // databases if the archive contains two entries with difference only is character casing
+            SetMultimap<Long, Long> inserted = HashMultimap.create();
+            int batchSize = Math.max(1, ConstantValues.archiveIndexerBatchSize.getInt());
+            List<ArchiveEntry> batch = Lists.newArrayListWithCapacity(batchSize);
+            while (entries.hasNext()) {
+                batch.add(zipEntryInfoToArchiveEntry(archiveSha1, entries.next()));
+                if (batch.size() == batchSize || !entries.hasNext()) {
+                    addBatch(indexedArchiveId, batch, inserted);
+                    batch.clear();
                 }
             }
         } catch (SQLException e) {
+            // a cached id might have been removed meanwhile by the garbage collector (of another node in HA)
+            invalidateDictionaries();
             throw new StorageException("Failed to insert archive entries: " + e.getMessage(), e);
         }
     }
 
+    private void addBatch(long indexedArchiveId, List<ArchiveEntry> batch, SetMultimap<Long, Long> inserted)
+            throws SQLException {
+        Set<String> paths = Sets.newHashSet();
+        Set<String> names = Sets.newHashSet();
+        for (ArchiveEntry archiveEntry : batch) {
+            paths.add(dictionaryKey(archiveEntry.getEntryPath()));
+            names.add(dictionaryKey(archiveEntry.getEntryName()));
+        }
+        Map<String, Long> pathIds = pathsDictionary.resolve(paths);
+        Map<String, Long> nameIds = namesDictionary.resolve(names);
+
+        SetMultimap<Long, Long> toInsert = HashMultimap.create();
+        for (ArchiveEntry archiveEntry : batch) {
+            long archivePathId = pathIds.get(dictionaryKey(archiveEntry.getEntryPath()));
+            long archiveNameId = nameIds.get(dictionaryKey(archiveEntry.getEntryName()));
+            if (inserted.put(archivePathId, archiveNameId)) {
+                toInsert.put(archivePathId, archiveNameId);
+            }
+        }
+        archiveEntriesDao.createIndexedArchivesEntries(indexedArchiveId, toInsert);
+    }
+
+    private static String dictionaryKey(String value) {
+        return Strings.nullToEmpty(value);
+    }
+
+    private void invalidateDictionaries() {
+        pathsDictionary.invalidateAll();
+        namesDictionary.invalidateAll();
+    }
+
     private ArchiveEntry zipEntryInfoToArchiveEntry(String archiveSha1, ZipEntryInfo entry) {
         String path = PathUtils.getParent(entry.getPath());
         return new ArchiveEntry(archiveSha1, path, entry.getName());
@@ -133,12 +221,23 @@ public class ArchiveEntriesServiceImpl implements ArchiveEntriesService {
         }
     }
 
+    @Override
+    public int deleteUnreferencedArchiveEntries(Collection<String> archiveSha1s) {
+        try {
+            return archiveEntriesDao.deleteUnreferencedByChecksums(archiveSha1s);
+        } catch (SQLException e) {
+            throw new VfsException("Failed to delete indexed entries of " + archiveSha1s.size() + " archives", e);
+        }
+    }
+
     @Override
     public int deleteUnusedPathIds() {
         try {
             return archiveEntriesDao.deleteUnusedPathIds();
         } catch (SQLException e) {
             throw new StorageException("Failed to delete unused path ids", e);
+        } finally {
+            pathsDictionary.invalidateAll();
         }
     }
 
@@ -148,6 +247,109 @@ public class ArchiveEntriesServiceImpl implements ArchiveEntriesService {
             return archiveEntriesDao.deleteUnusedNameIds();
         } catch (SQLException e) {
             throw new StorageException("Failed to delete unused path ids", e);
+        } finally {
+            namesDictionary.invalidateAll();
+        }
+    }
+
+    /**
+     * A bounded cache in front of a dictionary table of unique values (archive entry paths or names) and their ids.
+     */
+    private abstract class Dictionary {
+        private final String table;
+        private final Cache<String, Long> ids;
+
+        Dictionary(String table, long maxSize) {
+            this.table = table;
+            this.ids = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+        }
+
+        abstract Map<String, Long> findIds(Collection<String> values) throws SQLException;
+
+        abstract long findId(String value) throws SQLException;
+
+        abstract void insert(Map<String, Long> ids) throws SQLException;
+
+        /**
+         * @param values The values to get the ids of, creating the missing ones
+         * @return The ids of all the given values
+         */
+        Map<String, Long> resolve(Set<String> values) throws SQLException {
+            Map<String, Long> resolved = Maps.newHashMapWithExpectedSize(values.size());
+            List<String> missing = Lists.newArrayList();
+            for (String value : values) {
+                Long id = ids.getIfPresent(value);
+                if (id != null) {
+                    resolved.put(value, id);
+                } else {
+                    missing.add(value);
+                }
+            }
+            if (missing.isEmpty()) {
+                return resolved;
+            }
+            for (List<String> chunk : Lists.partition(missing, MAX_IN_VALUES)) {
+                Map<String, Long> found = findIds(chunk);
+                for (String value : chunk) {
+                    Long id = found.get(value);
+                    if (id != null) {
+                        resolved.put(value, id);
+                        ids.put(value, id);
+                    }
+                }
+            }
+            missing.removeIf(resolved::containsKey);
+            if (!missing.isEmpty()) {
+                resolved.putAll(create(missing));
+            }
+            return resolved;
+        }
+
+        private Map<String, Long> create(List<String> values) {
+            Map<String, Long> created = Maps.newHashMapWithExpectedSize(values.size());
+            for (String value : values) {
+                created.put(value, dbService.nextId());
+            }
+            try {
+                dbService.invokeInTransaction("ArchiveEntries#create-" + table, () -> {
+                    insert(created);
+                    return null;
+                });
+            } catch (Exception e) {
+                // created meanwhile by another indexer, or differs only in character casing from an existing value
+                log.debug("Failed to create {} archive {} in batch, creating one by one: {}", values.size(), table,
+                        e.getMessage());
+                created.clear();
+                for (String value : values) {
+                    created.put(value, findOrCreate(value));
+                }
+            }
+            created.forEach(ids::put);
+            return created;
+        }
+
+        private long findOrCreate(String value) {
+            try {
+                return dbService.invokeInTransaction("ArchiveEntries#create-" + table, () -> {
+                    long id = findId(value);
+                    if (id == DbService.NO_DB_ID) {
+                        id = dbService.nextId();
+                        insert(Collections.singletonMap(value, id));
+                    }
+                    return id;
+                });
+            } catch (Exception e) {
+                // lost the race to another indexer, the value is now committed
+                long id = dbService.invokeInTransaction("ArchiveEntries#find-" + table, () -> findId(value));
+                if (id == DbService.NO_DB_ID) {
+                    throw new StorageException("Failed to insert archive " + table + " entry: " + value, e);
+                }
+                return id;
+            }
+        }
+
+        void invalidateAll() {
+            ids.invalidateAll();
         }
     }
 }
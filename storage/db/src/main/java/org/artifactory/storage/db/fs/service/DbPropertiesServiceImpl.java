@@ -37,12 +37,15 @@ import org.artifactory.storage.db.fs.dao.PropertiesDao;
 import org.artifactory.storage.db.fs.entity.NodeProperty;
 import org.artifactory.storage.fs.service.FileService;
 import org.artifactory.storage.fs.service.PropertiesService;
+import org.artifactory.storage.fs.session.StorageSession;
+import org.artifactory.storage.fs.session.StorageSessionHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
 import java.sql.SQLException;
 import java.util.Collection;
@@ -68,11 +71,13 @@ public class DbPropertiesServiceImpl implements PropertiesService {
 
     private boolean replacePropertiesOnSet = false;
     private boolean logSetPropertiesPerformance = false;
+    private boolean deferWrites = true;
 
     @PostConstruct
     private void init() {
         replacePropertiesOnSet = ConstantValues.nodePropertiesReplaceAll.getBoolean();
         logSetPropertiesPerformance = ConstantValues.nodePropertiesLogPerformance.getBoolean();
+        deferWrites = ConstantValues.nodePropertiesDeferWrites.getBoolean();
     }
 
     @Nonnull
@@ -106,6 +111,7 @@ public class DbPropertiesServiceImpl implements PropertiesService {
     public Map<Long, Properties> getAllProperties(String repoKey, String propKey, List<String> propValues) {
         Map<Long, Properties> nodesProps = Maps.newHashMap();
         Multimap<Long, NodeProperty> queryResults;
+        PropertiesSessionResource.flushCurrentSession();
         try {
             queryResults = propertiesDao.getNodesProperties(repoKey, propKey, propValues);
         } catch (SQLException e) {
@@ -121,6 +127,7 @@ public class DbPropertiesServiceImpl implements PropertiesService {
 
     @Nonnull
     private Properties loadProperties(long nodeId) {
+        PropertiesSessionResource.flushCurrentSession();
         try {
             List<NodeProperty> nodeProperties = propertiesDao.getNodeProperties(nodeId);
             return new PropertiesImpl(nodeId, nodeProperties);
@@ -132,6 +139,7 @@ public class DbPropertiesServiceImpl implements PropertiesService {
     @Override
     public boolean hasProperties(RepoPath repoPath) {
         long nodeId = fileService.getNodeId(repoPath);
+        PropertiesSessionResource.flushCurrentSession();
         try {
             return nodeId > 0 && propertiesDao.hasNodeProperties(nodeId);
         } catch (SQLException e) {
@@ -140,34 +148,56 @@ public class DbPropertiesServiceImpl implements PropertiesService {
     }
 
     /**
-     * Sets properties
+     * Sets properties. Inside a storage session the writes are buffered and sent as JDBC batches when the session is
+     * saved, otherwise they are sent as batches before returning.
      *
      * @param nodeId     Id of the node to set properties on
      * @param properties The properties to set
      */
     @Override
     public void setProperties(long nodeId, Properties properties) {
-        try {
-            PropertiesImpl propsImpl = null;
-            long start = System.currentTimeMillis();
-            if (!replacePropertiesOnSet) {
-                propsImpl = properties instanceof PropertiesImpl ? (PropertiesImpl) properties : null;
-            }
-            if (propsImpl != null && propsImpl.isChangeTrackingEnabled() && propsImpl.getNodeId() == nodeId) {
-                updateProperties(nodeId, propsImpl);
-            } else {
-                repalceProperties(nodeId, properties);
-            }
-            if (logSetPropertiesPerformance) {
-                long elapsed = System.currentTimeMillis() - start;
-                log.info("Set properties of node {} with {} properties took {} ms", nodeId, properties.size(), elapsed);
-            }
-        } catch (SQLException e) {
-            throw new StorageException("Failed to set properties on node: " + nodeId, e);
+        PropertiesImpl propsImpl = null;
+        long start = System.currentTimeMillis();
+        if (!replacePropertiesOnSet) {
+            propsImpl = properties instanceof PropertiesImpl ? (PropertiesImpl) properties : null;
+        }
+        PropertiesSessionResource writes = getSessionWrites();
+        boolean writeNow = writes == null;
+        if (writeNow) {
+            writes = new PropertiesSessionResource();
+        }
+        if (propsImpl != null && propsImpl.isChangeTrackingEnabled() && propsImpl.getNodeId() == nodeId) {
+            updateProperties(nodeId, propsImpl, writes);
+        } else {
+            repalceProperties(nodeId, properties, writes);
+        }
+        if (writeNow) {
+            writes.flush();
+        }
+        if (logSetPropertiesPerformance) {
+            long elapsed = System.currentTimeMillis() - start;
+            log.info("Set properties of node {} with {} properties took {} ms", nodeId, properties.size(), elapsed);
         }
     }
 
-    private void updateProperties(long nodeId, PropertiesImpl properties) throws SQLException {
+    /**
+     * @return The buffered writes of the current storage session, null if there is no session or writes are not
+     * deferred
+     */
+    @Nullable
+    private PropertiesSessionResource getSessionWrites() {
+        if (!deferWrites) {
+            return null;
+        }
+        StorageSession session = StorageSessionHolder.getSession();
+        return session != null ? session.getOrCreateResource(PropertiesSessionResource.class) : null;
+    }
+
+    /**
+     * Writes the tracked changes. The changes are reported as successful when they are buffered - an update or delete
+     * of a property that was concurrently removed is only logged when the writes are executed.
+     */
+    private void updateProperties(long nodeId, PropertiesImpl properties, PropertiesSessionResource writes) {
         log.trace("Updating properties of node {} using tracked changes", nodeId);
         Collection<PropertyChange> propertyChanges = properties.getPropertyChanges();
         log.debug("Found {} tracked changes for node {}", propertyChanges.size(), nodeId);
@@ -180,17 +210,20 @@ public class DbPropertiesServiceImpl implements PropertiesService {
                 case CREATE:
                     resultProperty = new NodeProperty(dbService.nextId(), nodeId,
                             changeProperty.getPropKey(), changeProperty.getPropValue());
-                    success = propertiesDao.create(resultProperty) > 0;
+                    writes.create(propertiesDao, resultProperty);
+                    success = true;
                     break;
                 case UPDATE:
                     resultProperty = new NodeProperty(changeProperty.getPropId(), nodeId,
                             changeProperty.getPropKey(), changeProperty.getPropValue());
-                    success = propertiesDao.updateValue(resultProperty) > 0;
+                    writes.updateValue(propertiesDao, resultProperty);
+                    success = true;
                     break;
                 case DELETE:
                     NodeProperty propToDelete = new NodeProperty(changeProperty.getPropId(), nodeId,
                             changeProperty.getPropKey(), changeProperty.getPropValue());
-                    success = propertiesDao.delete(propToDelete) > 0;
+                    writes.delete(propertiesDao, propToDelete);
+                    success = true;
                     break;
                 default:
                     throw new IllegalStateException("Unexpected change type: " + change.getChangeType());
@@ -205,16 +238,16 @@ public class DbPropertiesServiceImpl implements PropertiesService {
         properties.resetChangeTracking(changeResults);
     }
 
-    private void repalceProperties(long nodeId, Properties properties) throws SQLException {
+    private void repalceProperties(long nodeId, Properties properties, PropertiesSessionResource writes) {
         log.trace("Replacing properties of node {}", nodeId);
         // first delete existing properties is exist
-        deleteProperties(nodeId);
+        writes.deleteNodeProperties(propertiesDao, nodeId);
 
         // create record for each node property. one record for each key/value combination
         for (Map.Entry<String, String> propEntry : properties.entries()) {
             NodeProperty property = new NodeProperty(dbService.nextId(), nodeId, propEntry.getKey(),
                     propEntry.getValue());
-            propertiesDao.create(property);
+            writes.create(propertiesDao, property);
         }
     }
 
@@ -234,6 +267,8 @@ public class DbPropertiesServiceImpl implements PropertiesService {
 
     @Override
     public int deleteProperties(long nodeId) {
+        // buffered writes of the node must not be executed after the node (and its properties) are deleted
+        PropertiesSessionResource.flushCurrentSession();
         try {
             return propertiesDao.deleteNodeProperties(nodeId);
         } catch (SQLException e) {
@@ -24,12 +24,18 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.sun.istack.internal.NotNull;
 import org.apache.commons.lang.StringUtils;
+import org.artifactory.addon.AddonsManager;
+import org.artifactory.addon.ha.HaCommonAddon;
+import org.artifactory.addon.ha.message.NodesCacheHaMessage;
+import org.artifactory.addon.ha.workitem.HaNodesCacheMessageWorkItem;
+import org.artifactory.api.context.ContextHelper;
 import org.artifactory.api.repo.exception.FileExpectedException;
 import org.artifactory.api.repo.exception.FolderExpectedException;
 import org.artifactory.api.repo.storage.FolderSummeryInfo;
 import org.artifactory.checksum.ChecksumInfo;
 import org.artifactory.checksum.ChecksumType;
 import org.artifactory.checksum.ChecksumsInfo;
+import org.artifactory.common.ArtifactoryHome;
 import org.artifactory.common.ConstantValues;
 import org.artifactory.fs.FileInfo;
 import org.artifactory.fs.FolderInfo;
@@ -53,18 +59,32 @@ import org.artifactory.storage.fs.VfsItemNotFoundException;
 import org.artifactory.storage.fs.repo.RepoStorageSummary;
 import org.artifactory.storage.fs.repo.StoringRepo;
 import org.artifactory.storage.fs.service.FileService;
+import org.artifactory.storage.fs.service.InternalFileService;
 import org.artifactory.storage.fs.service.MigrationFileService;
+import org.artifactory.storage.fs.session.StorageSession;
+import org.artifactory.storage.fs.session.StorageSessionHolder;
 import org.artifactory.util.PathValidator;
+import org.jfrog.storage.DbType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.sql.SQLException;
 import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -72,7 +92,7 @@ import java.util.stream.Collectors;
  */
 @SuppressWarnings("DuplicateThrows")
 @Service
-public class FileServiceImpl implements FileService, MigrationFileService {
+public class FileServiceImpl implements FileService, MigrationFileService, InternalFileService {
     private static final Logger log = LoggerFactory.getLogger(FileServiceImpl.class);
 
     @Autowired
@@ -81,10 +101,133 @@ public class FileServiceImpl implements FileService, MigrationFileService {
     @Autowired
     private NodesDao nodesDao;
 
+    private NodesCache nodesCache;
+
+    private StorageAggregates storageAggregates;
+
+    private ScheduledExecutorService storageAggregatesReconciler;
+
+    private NodeNameIndex nodeNameIndex;
+
+    private ScheduledExecutorService nodeNameIndexBuilder;
+
+    @PostConstruct
+    private void init() {
+        initNodesCache();
+        initStorageAggregates();
+        initNodeNameIndex();
+    }
+
+    private void initNodesCache() {
+        boolean enabled = ConstantValues.nodesCacheEnabled.getBoolean();
+        if (enabled && ArtifactoryHome.get().isHaConfigured()) {
+            // The other cluster members don't receive the invalidations yet and would serve stale nodes
+            log.info("Nodes cache is disabled in a high availability setup");
+            enabled = false;
+        }
+        nodesCache = new NodesCache(enabled, ConstantValues.nodesCacheMaxWeightBytes.getLong(),
+                ConstantValues.nodesCacheExpirySecs.getLong());
+    }
+
+    private void initStorageAggregates() {
+        storageAggregates = new StorageAggregates(ConstantValues.storageAggregatesEnabled.getBoolean(),
+                ConstantValues.storageAggregatesMaxFolders.getInt());
+        long reconcileIntervalSecs = ConstantValues.storageAggregatesReconcileIntervalSecs.getLong();
+        if (storageAggregates.isEnabled() && reconcileIntervalSecs > 0) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("art-storage-aggregates-");
+            threadFactory.setDaemon(true);
+            storageAggregatesReconciler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            storageAggregatesReconciler.scheduleWithFixedDelay(this::reconcileLoadedStorageAggregates,
+                    reconcileIntervalSecs, reconcileIntervalSecs, TimeUnit.SECONDS);
+        }
+    }
+
+    private void initNodeNameIndex() {
+        // Like the database search, names are matched case insensitively on databases with case insensitive collation
+        DbType databaseType = dbService.getDatabaseType();
+        boolean caseSensitive = databaseType != DbType.MYSQL && databaseType != DbType.MSSQL;
+        nodeNameIndex = new NodeNameIndex(ConstantValues.searchNameIndexEnabled.getBoolean(),
+                ConstantValues.searchNameIndexMaxFiles.getInt(), caseSensitive);
+        if (nodeNameIndex.isEnabled()) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("art-name-index-");
+            threadFactory.setDaemon(true);
+            nodeNameIndexBuilder = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            nodeNameIndexBuilder.execute(this::buildNodeNameIndex);
+            long rebuildIntervalSecs = ConstantValues.searchNameIndexRebuildIntervalSecs.getLong();
+            if (rebuildIntervalSecs > 0) {
+                nodeNameIndexBuilder.scheduleWithFixedDelay(this::buildNodeNameIndex,
+                        rebuildIntervalSecs, rebuildIntervalSecs, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (storageAggregatesReconciler != null) {
+            storageAggregatesReconciler.shutdownNow();
+        }
+        if (nodeNameIndexBuilder != null) {
+            nodeNameIndexBuilder.shutdownNow();
+        }
+    }
+
+    public NodesCache getNodesCache() {
+        return nodesCache;
+    }
+
+    public StorageAggregates getStorageAggregates() {
+        return storageAggregates;
+    }
+
+    /**
+     * Reloads the storage aggregates from the database, fixing any drift caused by changes made by other cluster
+     * members or by direct database changes
+     */
+    public void reconcileStorageAggregates() {
+        try {
+            storageAggregates.reconcile(nodesDao::getRepositoriesStorageSummary);
+        } catch (SQLException e) {
+            throw new VfsException("Failed to reconcile the storage aggregates: " + e.getMessage(), e);
+        }
+    }
+
+    public NodeNameIndex getNodeNameIndex() {
+        return nodeNameIndex;
+    }
+
+    /**
+     * Rebuilds the file names index from the database, picking up changes made by other cluster members
+     */
+    private void buildNodeNameIndex() {
+        try {
+            nodeNameIndex.build(nodesDao::scanFilePaths);
+        } catch (Exception e) {
+            log.warn("Failed to build the file names index: {}", e.getMessage());
+            log.debug("Failed to build the file names index", e);
+        }
+    }
+
+    private void reconcileLoadedStorageAggregates() {
+        // Aggregates that were never requested are not loaded in the background
+        if (!storageAggregates.isLoaded()) {
+            return;
+        }
+        try {
+            reconcileStorageAggregates();
+        } catch (Exception e) {
+            log.warn("Failed to reconcile the storage aggregates: {}", e.getMessage());
+            log.debug("Failed to reconcile the storage aggregates", e);
+        }
+    }
+
     @Override
     public boolean exists(RepoPath repoPath) throws VfsException {
         try {
-            return nodesDao.exists(NodePath.fromRepoPath(repoPath));
+            NodePath nodePath = NodePath.fromRepoPath(repoPath);
+            if (isNodesCacheBypassed()) {
+                return nodesDao.exists(nodePath);
+            }
+            return getNode(nodePath) != null;
         } catch (SQLException e) {
             log.debug("Failed existence check of path '{}", repoPath, e);
             throw new VfsException("Failed existence check of path '" + repoPath + "'", e);
@@ -118,6 +261,7 @@ public class FileServiceImpl implements FileService, MigrationFileService {
         long nodeId = dbService.nextId();
         Node node = folderInfoToNode(nodeId, folder);
         int updateCount;
+        nodeChanging(node.getNodePath(), nodeId);
         try {
             updateCount = nodesDao.create(node);
         } catch (SQLIntegrityConstraintViolationException e) {
@@ -129,23 +273,30 @@ public class FileServiceImpl implements FileService, MigrationFileService {
             return nodeId;
         } catch (SQLException e) {
             throw new VfsException(e);
+        } finally {
+            nodeChanged(node.getNodePath(), node.getNodeId());
         }
         if (updateCount != 1) {
             // Create new node should return with exactly 1 record updated
             throw new IllegalStateException("Unexpected update count when creating new node: '" +
                     node.getNodePath() + "'");
         }
+        storageAggregatesChanged(deltas -> deltas.folderCreated(node.getNodePath()));
         return nodeId;
     }
 
     @Override
     public int updateFolder(long id, FolderInfo folder) {
         log.debug("Updating folder: {}", folder.getRepoPath());
+        Node node = folderInfoToNode(id, folder);
+        nodeChanging(node.getNodePath(), id);
         try {
-            return nodesDao.update(folderInfoToNode(id, folder));
+            return nodesDao.update(node);
         } catch (SQLException e) {
             throw new VfsException("Failed to update folder: '" + folder.getRepoPath() + "' id: '" + id + "': " +
                     e.getMessage(), e);
+        } finally {
+            nodeChanged(node.getNodePath(), id);
         }
     }
 
@@ -157,38 +308,84 @@ public class FileServiceImpl implements FileService, MigrationFileService {
         long nodeId = dbService.nextId();
         Node node = fileInfoToNode(nodeId, file);
         int updateCount;
+        nodeChanging(node.getNodePath(), nodeId);
         try {
             updateCount = nodesDao.create(node);
         } catch (SQLIntegrityConstraintViolationException e) {
             throw new SQLIntegrityException("Failed to create file, the file already exists", e);
         } catch (SQLException e) {
             throw new VfsException(e);
+        } finally {
+            nodeChanged(node.getNodePath(), nodeId);
         }
         if (updateCount != 1) {
             // Create new node should return with exactly 1 record updated
             throw new IllegalStateException("Unexpected update count when creating new node: '" +
                     node.getNodePath() + "'");
         }
+        storageAggregatesChanged(deltas -> deltas.fileChanged(node.getNodePath(), 1, node.getLength()));
+        nodeNameIndexChanged(changes -> changes.added(node.getNodePath()));
         return nodeId;
     }
 
     @Override
     public int updateFile(long id, FileInfo file) {
         log.debug("Updating file: {}", file.getRepoPath());
+        Node node = fileInfoToNode(id, file);
+        Node previous = loadNodeBeforeChange(id);
+        nodeChanging(node.getNodePath(), id);
         try {
-            return nodesDao.update(fileInfoToNode(id, file));
+            int updateCount = nodesDao.update(node);
+            if (updateCount > 0 && previous != null) {
+                storageAggregatesChanged(deltas -> {
+                    if (previous.getNodePath().equals(node.getNodePath())) {
+                        deltas.fileChanged(node.getNodePath(), 0, node.getLength() - previous.getLength());
+                    } else {
+                        deltas.fileChanged(previous.getNodePath(), -1, -previous.getLength());
+                        deltas.fileChanged(node.getNodePath(), 1, node.getLength());
+                    }
+                });
+                if (!previous.getNodePath().equals(node.getNodePath())) {
+                    nodeNameIndexChanged(changes -> {
+                        changes.removed(previous.getNodePath());
+                        changes.added(node.getNodePath());
+                    });
+                }
+            }
+            return updateCount;
         } catch (SQLException e) {
             throw new VfsException("Failed to update file: '" + file.getRepoPath() + "' id: '" + id + "': " +
                     e.getMessage(), e);
+        } finally {
+            nodeChanged(node.getNodePath(), id);
         }
     }
 
     @Override
     public boolean deleteItem(long id) {
+        // buffered properties writes must reach the node before it is deleted
+        PropertiesSessionResource.flushCurrentSession();
+        Node previous = loadNodeBeforeChange(id);
+        nodeChanging(null, id);
         try {
-            return nodesDao.delete(id);
+            boolean deleted = nodesDao.delete(id);
+            if (deleted && previous != null) {
+                storageAggregatesChanged(deltas -> {
+                    if (previous.isFile()) {
+                        deltas.fileChanged(previous.getNodePath(), -1, -previous.getLength());
+                    } else {
+                        deltas.folderDeleted(previous.getNodePath());
+                    }
+                });
+                if (previous.isFile()) {
+                    nodeNameIndexChanged(changes -> changes.removed(previous.getNodePath()));
+                }
+            }
+            return deleted;
         } catch (SQLException e) {
             throw new VfsException("Failed to delete item with id '" + id + "': " + e.getMessage(), e);
+        } finally {
+            nodeChanged(null, id);
         }
     }
 
@@ -223,9 +420,13 @@ public class FileServiceImpl implements FileService, MigrationFileService {
 
     @Override
     public long getNodeId(RepoPath repoPath) {
-        //TODO: [by YS] requires caching
         try {
-            return nodesDao.getNodeId(NodePath.fromRepoPath(repoPath));
+            NodePath nodePath = NodePath.fromRepoPath(repoPath);
+            if (isNodesCacheBypassed()) {
+                return nodesDao.getNodeId(nodePath);
+            }
+            Node node = getNode(nodePath);
+            return node != null ? node.getNodeId() : DbService.NO_DB_ID;
         } catch (SQLException e) {
             throw new VfsException("Couldn't get node id for: " + repoPath, e);
         }
@@ -233,7 +434,7 @@ public class FileServiceImpl implements FileService, MigrationFileService {
 
     private Node loadNode(RepoPath repoPath) throws VfsItemNotFoundException, VfsException {
         try {
-            Node node = nodesDao.get(NodePath.fromRepoPath(repoPath));
+            Node node = getNode(NodePath.fromRepoPath(repoPath));
             if (node == null) {
                 throw new VfsItemNotFoundException("Item not found: '" + repoPath + "'");
             }
@@ -245,7 +446,7 @@ public class FileServiceImpl implements FileService, MigrationFileService {
 
     private Node loadNode(long id) throws VfsItemNotFoundException, VfsException {
         try {
-            Node node = nodesDao.get(id);
+            Node node = isNodesCacheBypassed() ? nodesDao.get(id) : nodesCache.get(id, () -> nodesDao.get(id));
             if (node == null) {
                 throw new VfsItemNotFoundException("Item not found for id '" + id + "'");
             }
@@ -271,6 +472,20 @@ public class FileServiceImpl implements FileService, MigrationFileService {
         }
     }
 
+    @Override
+    @Nullable
+    public List<ItemInfo> loadDescendants(RepoPath repoPath, int maxItems) throws VfsException {
+        try {
+            List<Node> descendants = nodesDao.getDescendants(NodePath.fromRepoPath(repoPath), maxItems);
+            if (descendants == null) {
+                return null;
+            }
+            return descendants.stream().map(this::itemInfoFromNode).collect(Collectors.toList());
+        } catch (SQLException e) {
+            throw new VfsException("Failed to load descendants of '" + repoPath + "': " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public int getFilesCount() throws VfsException {
         try {
@@ -284,7 +499,12 @@ public class FileServiceImpl implements FileService, MigrationFileService {
     public FolderSummeryInfo getFilesCountAndSize(@NotNull RepoPath repoPath) throws VfsException {
         FolderSummeryNodeInfo filesCountAndSize;
         try {
-            filesCountAndSize = nodesDao.getFilesCountAndSize(NodePath.fromRepoPath(repoPath));
+            NodePath nodePath = NodePath.fromRepoPath(repoPath);
+            if (isStorageAggregatesBypassed()) {
+                filesCountAndSize = nodesDao.getFilesCountAndSize(nodePath);
+            } else {
+                filesCountAndSize = storageAggregates.getFolderSummary(nodePath, nodesDao::getFilesCountAndSize);
+            }
             return new FolderSummeryInfoImpl(filesCountAndSize.getFileCount(),
                     filesCountAndSize.getFolderSize());
         } catch (SQLException e) {
@@ -333,6 +553,7 @@ public class FileServiceImpl implements FileService, MigrationFileService {
 
     @Override
     public List<FileInfo> searchFilesByProperty(String repo, String propKey, String propValue) {
+        PropertiesSessionResource.flushCurrentSession();
         try {
             List<Node> childrenNode = nodesDao.searchNodesByProperty(repo, propKey);
             List<FileInfo> children = Lists.newArrayList();
@@ -347,6 +568,16 @@ public class FileServiceImpl implements FileService, MigrationFileService {
         }
     }
 
+    @Override
+    @Nullable
+    public List<RepoPath> searchFilesByNamePattern(String namePattern, @Nullable Collection<String> repoKeys) {
+        if (!nodeNameIndex.isEnabled()) {
+            return null;
+        }
+        List<NodePath> nodePaths = nodeNameIndex.find(namePattern, repoKeys);
+        return nodePaths == null ? null : nodePaths.stream().map(NodePath::toRepoPath).collect(Collectors.toList());
+    }
+
     @Override
     public List<FileInfo> searchGrandchildPoms(RepoPath repoPath) {
         try {
@@ -374,7 +605,10 @@ public class FileServiceImpl implements FileService, MigrationFileService {
     @Override
     public Set<RepoStorageSummary> getRepositoriesStorageSummary() {
         try {
-            return nodesDao.getRepositoriesStorageSummary();
+            if (isStorageAggregatesBypassed()) {
+                return nodesDao.getRepositoriesStorageSummary();
+            }
+            return storageAggregates.getRepositoriesSummary(nodesDao::getRepositoriesStorageSummary);
         } catch (SQLException e) {
             throw new VfsException("Repository storage summary failed with exception: " + e.getMessage(), e);
         }
@@ -397,7 +631,7 @@ public class FileServiceImpl implements FileService, MigrationFileService {
     @Override
     public Boolean isFile(RepoPath repoPath) {
         try {
-            Integer itemType = nodesDao.getItemType(NodePath.fromRepoPath(repoPath));
+            Integer itemType = getItemType(NodePath.fromRepoPath(repoPath));
             if (itemType != null) {
                 return itemType == 1;
             }
@@ -410,7 +644,7 @@ public class FileServiceImpl implements FileService, MigrationFileService {
     @Override
     public Boolean isFolder(RepoPath repoPath) {
         try {
-            Integer itemType = nodesDao.getItemType(NodePath.fromRepoPath(repoPath));
+            Integer itemType = getItemType(NodePath.fromRepoPath(repoPath));
             if (itemType != null) {
                 return itemType == 0;
             }
@@ -420,6 +654,18 @@ public class FileServiceImpl implements FileService, MigrationFileService {
         return null;
     }
 
+    @Nullable
+    private Integer getItemType(NodePath nodePath) throws SQLException {
+        if (isNodesCacheBypassed()) {
+            return nodesDao.getItemType(nodePath);
+        }
+        Node node = getNode(nodePath);
+        if (node == null) {
+            return null;
+        }
+        return node.isFile() ? 1 : 0;
+    }
+
     @Override
     public void debugNodeStructure(RepoPath repoPath) throws VfsException {
         log.info("************************ Tree structure dump ************************");
@@ -530,13 +776,170 @@ public class FileServiceImpl implements FileService, MigrationFileService {
     @Override
     public void updateRepoPathChecksum(RepoPath repoPath) {
         int updates = 0;
+        NodePath nodePath = NodePath.fromRepoPath(repoPath);
+        long nodeId = DbService.NO_DB_ID;
         try {
-            updates = nodesDao.updateRepoPathChecksum(NodePath.fromRepoPath(repoPath));
+            nodeId = nodesDao.getNodeId(nodePath);
+            nodeChanging(nodePath, nodeId);
+            updates = nodesDao.updateRepoPathChecksum(nodePath);
             if(updates != 1){
                 throw new RuntimeException("Expecting single update for repoPath: '"+repoPath+"'");
             }
         } catch (SQLException e) {
             throw new RuntimeException("Failed to update repoPath checksum for path: '"+repoPath+"'");
+        } finally {
+            nodeChanged(nodePath, nodeId);
+        }
+    }
+
+    @Override
+    public void internalInvalidateNodesCache(Collection<RepoPath> repoPaths, Collection<Long> nodeIds, boolean all) {
+        if (all) {
+            nodesCache.invalidateAll();
+        } else {
+            nodesCache.invalidate(repoPaths.stream().map(NodePath::fromRepoPath).collect(Collectors.toList()),
+                    nodeIds);
+        }
+    }
+
+    @Nullable
+    private Node getNode(NodePath nodePath) throws SQLException {
+        if (isNodesCacheBypassed()) {
+            return nodesDao.get(nodePath);
+        }
+        return nodesCache.get(nodePath, () -> nodesDao.get(nodePath));
+    }
+
+    /**
+     * The nodes cache holds committed nodes only, so it is bypassed by sessions that changed nodes until they complete
+     */
+    private boolean isNodesCacheBypassed() {
+        if (!nodesCache.isEnabled()) {
+            return true;
+        }
+        StorageSession session = StorageSessionHolder.getSession();
+        NodesCacheSessionResource sessionChanges =
+                session != null ? session.getResource(NodesCacheSessionResource.class) : null;
+        return sessionChanges != null && sessionChanges.hasChanges();
+    }
+
+    /**
+     * The storage aggregates include committed changes only, so they are bypassed by sessions that changed nodes until
+     * they complete
+     */
+    private boolean isStorageAggregatesBypassed() {
+        if (!storageAggregates.isEnabled()) {
+            return true;
+        }
+        StorageSession session = StorageSessionHolder.getSession();
+        StorageAggregatesSessionResource sessionChanges =
+                session != null ? session.getResource(StorageAggregatesSessionResource.class) : null;
+        return sessionChanges != null && sessionChanges.hasChanges();
+    }
+
+    /**
+     * @return The node about to be updated or deleted, null if neither the storage aggregates nor the file names index
+     * are enabled or if it doesn't exist
+     */
+    @Nullable
+    private Node loadNodeBeforeChange(long id) {
+        if (!storageAggregates.isEnabled() && !nodeNameIndex.isEnabled()) {
+            return null;
+        }
+        try {
+            return isNodesCacheBypassed() ? nodesDao.get(id) : nodesCache.get(id, () -> nodesDao.get(id));
+        } catch (SQLException e) {
+            throw new VfsException("Failed to load node with id '" + id + "': " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Records a change of the storage aggregates. Inside a storage session the change is applied only if the session
+     * commits, changes made outside of a session are already committed.
+     */
+    private void storageAggregatesChanged(Consumer<StorageAggregates.Deltas> change) {
+        if (!storageAggregates.isEnabled()) {
+            return;
+        }
+        StorageSession session = StorageSessionHolder.getSession();
+        if (session != null) {
+            session.getOrCreateResource(StorageAggregatesSessionResource.class).record(storageAggregates, change);
+        } else {
+            StorageAggregates.Deltas deltas = new StorageAggregates.Deltas();
+            change.accept(deltas);
+            storageAggregates.apply(deltas);
+        }
+    }
+
+    /**
+     * Records a change of the file names index, applied like the storage aggregates changes
+     */
+    private void nodeNameIndexChanged(Consumer<NodeNameIndex.Changes> change) {
+        if (!nodeNameIndex.isEnabled()) {
+            return;
+        }
+        StorageSession session = StorageSessionHolder.getSession();
+        if (session != null) {
+            session.getOrCreateResource(NodeNameIndexSessionResource.class).record(nodeNameIndex, change);
+        } else {
+            NodeNameIndex.Changes changes = new NodeNameIndex.Changes();
+            change.accept(changes);
+            nodeNameIndex.apply(changes);
+        }
+    }
+
+    /**
+     * Called before a node is changed. Inside a storage session the node is invalidated when the session completes,
+     * and the other cluster members are notified after the commit.
+     */
+    private void nodeChanging(@Nullable NodePath nodePath, long nodeId) {
+        StorageSession session = StorageSessionHolder.getSession();
+        if (session == null) {
+            return;
+        }
+        session.getOrCreateResource(NodesCacheSessionResource.class)
+                .track(nodesCache, this::notifyNodesChanged, nodePath, nodeId);
+    }
+
+    /**
+     * Called after a node was changed. Changes made outside of a storage session are already committed.
+     */
+    private void nodeChanged(@Nullable NodePath nodePath, long nodeId) {
+        if (StorageSessionHolder.getSession() != null) {
+            return;
+        }
+        List<NodePath> nodePaths = nodePath != null ? Collections.singletonList(nodePath) : Collections.emptyList();
+        List<Long> nodeIds = Collections.singletonList(nodeId);
+        nodesCache.invalidate(nodePaths, nodeIds);
+        notifyNodesChanged(nodePaths, nodeIds);
+    }
+
+    /**
+     * Notifies the other cluster members of committed node changes with a single complete message
+     */
+    private void notifyNodesChanged(Collection<NodePath> nodePaths, Collection<Long> nodeIds) {
+        if (!nodesCache.isEnabled() || nodeIds.isEmpty()) {
+            return;
+        }
+        HaCommonAddon haAddon = getHaAddon();
+        if (haAddon == null || !haAddon.isHaEnabled()) {
+            return;
+        }
+        NodesCacheHaMessage haMessage = new NodesCacheHaMessage(haAddon.getCurrentMemberServerId());
+        if (nodeIds.size() > ConstantValues.nodesCacheMaxPropagatedPaths.getInt()) {
+            haMessage.setAll(true);
+        } else {
+            nodePaths.forEach(nodePath -> haMessage.getRepoPaths().add(nodePath.toRepoPath().toPath()));
+            haMessage.getNodeIds().addAll(nodeIds);
+        }
+        haAddon.notifyAsync(new HaNodesCacheMessageWorkItem(haMessage));
+    }
+
+    @Nullable
+    private HaCommonAddon getHaAddon() {
+        if (ContextHelper.get() == null) {
+            return null;
         }
+        return ContextHelper.get().beanForType(AddonsManager.class).addonByType(HaCommonAddon.class);
     }
 }
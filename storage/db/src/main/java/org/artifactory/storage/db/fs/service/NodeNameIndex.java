@@ -0,0 +1,400 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.fs.service;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.artifactory.storage.db.fs.entity.NodePath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory trigram index of the names of all the files, used to answer file name searches with leading or inner
+ * wildcards without scanning the nodes table.
+ * <p/>
+ * Each file is listed under every (lower case) 3 characters sequence of its name. A name pattern is answered by
+ * matching the files listed under the rarest trigram of the pattern literal parts against the pattern. Removed files
+ * leave stale entries in the trigram lists until the stale entries outnumber the live ones and the lists are rebuilt.
+ * <p/>
+ * The index is built by a full scan and then maintained by the changes of committed storage sessions (see
+ * {@link NodeNameIndexSessionResource}). Changes committed during a build are applied to the new index before it
+ * replaces the current one. The index is dropped if it grows over the max number of files, and queries fall back to the
+ * database until the next successful build.
+ */
+public class NodeNameIndex {
+    private static final Logger log = LoggerFactory.getLogger(NodeNameIndex.class);
+
+    private static final Comparator<NodePath> PATH_ORDER = Comparator.comparing(NodePath::getRepo)
+            .thenComparing(NodePath::getPath).thenComparing(NodePath::getName);
+
+    private final boolean enabled;
+    private final int maxFiles;
+    private final boolean caseSensitive;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // All the fields below are guarded by the lock
+    private Index index;
+    // Changes applied while the index is built, null if no build is running
+    private List<Changes> buildChanges;
+
+    /**
+     * @param enabled       Whether the index is enabled
+     * @param maxFiles      Max number of files to index
+     * @param caseSensitive Whether name patterns are matched case sensitively (should match the database collation)
+     */
+    public NodeNameIndex(boolean enabled, int maxFiles, boolean caseSensitive) {
+        this.enabled = enabled;
+        this.maxFiles = maxFiles;
+        this.caseSensitive = caseSensitive;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return True if the index is built and can answer queries
+     */
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return index != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Builds the index from a full scan of the files and replaces the current index with it
+     */
+    public void build(FileScanner scanner) throws SQLException {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            buildChanges = Lists.newArrayList();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Index built = new Index();
+        boolean overflow = false;
+        try {
+            scanner.scan(path -> {
+                if (built.size() >= maxFiles) {
+                    throw new IndexOverflowException();
+                }
+                built.add(path);
+            });
+        } catch (IndexOverflowException e) {
+            overflow = true;
+        } catch (SQLException | RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                buildChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!overflow) {
+                buildChanges.forEach(changes -> changes.applyTo(built));
+                overflow = built.size() > maxFiles;
+            }
+            buildChanges = null;
+            index = overflow ? null : built;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (overflow) {
+            log.warn("More than {} files found, file names index is not used", maxFiles);
+        } else {
+            log.info("Built file names index of {} files in {} ms", built.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * Applies the changes of a committed session (or of a change made outside of a session)
+     */
+    void apply(Changes changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (buildChanges != null) {
+                buildChanges.add(changes);
+            }
+            if (index != null) {
+                changes.applyTo(index);
+                if (index.size() > maxFiles) {
+                    log.warn("More than {} files indexed, file names index is dropped until the next build",
+                            maxFiles);
+                    index = null;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the files which name matches the given pattern.
+     *
+     * @param namePattern File name pattern, where '*' and '%' match any sequence and '?' and '_' match any character
+     *                    (like the database search)
+     * @param repoKeys    Keys of the repositories to search in, null or empty to search all the repositories
+     * @return Paths of the matching files sorted by repository, path and name, or null if the index is not ready or
+     * the pattern doesn't have a literal part of at least 3 characters
+     */
+    @Nullable
+    public List<NodePath> find(String namePattern, @Nullable Collection<String> repoKeys) {
+        List<String> literals = literalsOf(namePattern);
+        if (literals.isEmpty()) {
+            return null;
+        }
+        Pattern pattern = toRegex(namePattern);
+        Set<String> repos = repoKeys == null || repoKeys.isEmpty() ? null : Sets.newHashSet(repoKeys);
+        List<NodePath> results = Lists.newArrayList();
+        lock.readLock().lock();
+        try {
+            if (index == null) {
+                return null;
+            }
+            IntList candidates = null;
+            for (String literal : literals) {
+                for (long trigram : trigramsOf(literal)) {
+                    IntList files = index.postings.get(trigram);
+                    if (files == null) {
+                        return results;
+                    }
+                    if (candidates == null || files.size < candidates.size) {
+                        candidates = files;
+                    }
+                }
+            }
+            BitSet seen = new BitSet();
+            for (int i = 0; i < candidates.size; i++) {
+                int id = candidates.values[i];
+                NodePath path = index.paths[id];
+                if (path == null || seen.get(id)) {
+                    continue;
+                }
+                seen.set(id);
+                if ((repos == null || repos.contains(path.getRepo()))
+                        && pattern.matcher(path.getName()).matches()) {
+                    results.add(path);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        results.sort(PATH_ORDER);
+        return results;
+    }
+
+    /**
+     * @return The literal parts of the pattern that are long enough to have trigrams
+     */
+    private static List<String> literalsOf(String namePattern) {
+        List<String> literals = Lists.newArrayList();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i <= namePattern.length(); i++) {
+            char c = i < namePattern.length() ? namePattern.charAt(i) : '*';
+            if (c == '*' || c == '?' || c == '%' || c == '_') {
+                if (literal.length() >= 3) {
+                    literals.add(literal.toString());
+                }
+                literal.setLength(0);
+            } else {
+                literal.append(c);
+            }
+        }
+        return literals;
+    }
+
+    private Pattern toRegex(String namePattern) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < namePattern.length(); i++) {
+            char c = namePattern.charAt(i);
+            if (c == '*' || c == '%') {
+                regex.append(".*");
+            } else if (c == '?' || c == '_') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(),
+                Pattern.DOTALL | (caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+    }
+
+    /**
+     * @return The distinct lower case trigrams of the given string, each packed in a long
+     */
+    static Set<Long> trigramsOf(String value) {
+        Set<Long> trigrams = Sets.newHashSet();
+        for (int i = 0; i + 3 <= value.length(); i++) {
+            long trigram = ((long) Character.toLowerCase(value.charAt(i)) << 32)
+                    | ((long) Character.toLowerCase(value.charAt(i + 1)) << 16)
+                    | Character.toLowerCase(value.charAt(i + 2));
+            trigrams.add(trigram);
+        }
+        return trigrams;
+    }
+
+    /**
+     * The file names changes of a storage session
+     */
+    static class Changes {
+        private final List<NodePath> paths = Lists.newArrayList();
+        // true for added files, false for removed files
+        private final BitSet added = new BitSet();
+
+        void added(NodePath file) {
+            added.set(paths.size());
+            paths.add(file);
+        }
+
+        void removed(NodePath file) {
+            paths.add(file);
+        }
+
+        boolean isEmpty() {
+            return paths.isEmpty();
+        }
+
+        void clear() {
+            paths.clear();
+            added.clear();
+        }
+
+        private void applyTo(Index index) {
+            for (int i = 0; i < paths.size(); i++) {
+                if (added.get(i)) {
+                    index.add(paths.get(i));
+                } else {
+                    index.remove(paths.get(i));
+                }
+            }
+        }
+    }
+
+    private static class Index {
+        private final Map<NodePath, Integer> ids = Maps.newHashMap();
+        private final Map<Long, IntList> postings = Maps.newHashMap();
+        private final IntList freeIds = new IntList();
+        private NodePath[] paths = new NodePath[1024];
+        private int nextId;
+        private long livePostings;
+        private long stalePostings;
+
+        private int size() {
+            return ids.size();
+        }
+
+        private void add(NodePath path) {
+            if (ids.containsKey(path)) {
+                return;
+            }
+            int id = freeIds.size > 0 ? freeIds.values[--freeIds.size] : nextId++;
+            if (id >= paths.length) {
+                paths = Arrays.copyOf(paths, paths.length * 2);
+            }
+            paths[id] = path;
+            ids.put(path, id);
+            addPostings(id, path);
+        }
+
+        private void addPostings(int id, NodePath path) {
+            for (long trigram : trigramsOf(path.getName())) {
+                postings.computeIfAbsent(trigram, key -> new IntList()).add(id);
+                livePostings++;
+            }
+        }
+
+        private void remove(NodePath path) {
+            Integer id = ids.remove(path);
+            if (id == null) {
+                return;
+            }
+            paths[id] = null;
+            freeIds.add(id);
+            int removedPostings = trigramsOf(path.getName()).size();
+            livePostings -= removedPostings;
+            stalePostings += removedPostings;
+            if (stalePostings > livePostings && stalePostings > 1024) {
+                compact();
+            }
+        }
+
+        /**
+         * Rebuilds the trigram lists without the stale entries of removed files
+         */
+        private void compact() {
+            postings.clear();
+            livePostings = 0;
+            stalePostings = 0;
+            for (int id = 0; id < nextId; id++) {
+                if (paths[id] != null) {
+                    addPostings(id, paths[id]);
+                }
+            }
+        }
+    }
+
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    private static class IndexOverflowException extends RuntimeException {
+        private IndexOverflowException() {
+            super(null, null, false, false);
+        }
+    }
+
+    public interface FileScanner {
+        void scan(Consumer<NodePath> consumer) throws SQLException;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.fs.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import org.artifactory.storage.db.fs.entity.Node;
+import org.artifactory.storage.db.fs.entity.NodePath;
+
+import javax.annotation.Nullable;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded read-through cache of {@link Node}s by path, weighted by the approximate memory size of the nodes.
+ * <p/>
+ * Only committed nodes may enter the cache: the callers bypass it while their transaction holds uncommitted node
+ * changes, and invalidate the changed paths and ids once the transaction completes. A load that raced with an
+ * invalidation is not cached (or is removed right after being cached) since it may have read the state from before
+ * the change. Nodes are immutable so cached instances are safely shared.
+ */
+public class NodesCache {
+
+    private static final int NODE_OVERHEAD_BYTES = 160;
+
+    private final boolean enabled;
+    private final Cache<NodePath, Node> cache;
+    // The paths of the cached nodes by node id, for the invalidations of deleted nodes which are removed by id
+    private final ConcurrentMap<Long, NodePath> pathsById = new ConcurrentHashMap<>();
+    // Incremented by every invalidation, loads that see it change do not cache their result
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public NodesCache(boolean enabled, long maxWeightBytes, long expirySecs) {
+        this.enabled = enabled;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((NodePath path, Node node) -> weigh(node))
+                .expireAfterWrite(expirySecs, TimeUnit.SECONDS)
+                .removalListener(notification -> {
+                    if (notification.getCause() != RemovalCause.REPLACED && notification.getValue() != null) {
+                        pathsById.remove(notification.getValue().getNodeId(), notification.getKey());
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param path   The node path to get
+     * @param loader Loads the node from the database on cache miss
+     * @return The cached node or the loaded node, null if the node doesn't exist
+     */
+    @Nullable
+    public Node get(NodePath path, NodeLoader loader) throws SQLException {
+        if (!enabled) {
+            return loader.load();
+        }
+        Node node = cache.getIfPresent(path);
+        if (node != null) {
+            return node;
+        }
+        long invalidationsBeforeLoad = invalidations.get();
+        node = loader.load();
+        if (node != null) {
+            put(path, node, invalidationsBeforeLoad);
+        }
+        return node;
+    }
+
+    /**
+     * @param nodeId The id of the node to get
+     * @param loader Loads the node from the database on cache miss
+     * @return The cached node or the loaded node, null if the node doesn't exist
+     */
+    @Nullable
+    public Node get(long nodeId, NodeLoader loader) throws SQLException {
+        if (!enabled) {
+            return loader.load();
+        }
+        NodePath path = pathsById.get(nodeId);
+        if (path != null) {
+            Node node = cache.getIfPresent(path);
+            if (node != null && node.getNodeId() == nodeId) {
+                return node;
+            }
+        }
+        long invalidationsBeforeLoad = invalidations.get();
+        Node node = loader.load();
+        if (node != null) {
+            put(node.getNodePath(), node, invalidationsBeforeLoad);
+        }
+        return node;
+    }
+
+    /**
+     * @return The cached node of the given path without loading it, null if not cached
+     */
+    @Nullable
+    public Node getIfPresent(NodePath path) {
+        return enabled ? cache.getIfPresent(path) : null;
+    }
+
+    private void put(NodePath path, Node node, long invalidationsBeforeLoad) {
+        if (invalidations.get() != invalidationsBeforeLoad) {
+            return;
+        }
+        cache.put(path, node);
+        pathsById.put(node.getNodeId(), path);
+        if (invalidations.get() != invalidationsBeforeLoad) {
+            // An invalidation ran concurrently with the put and might have missed it
+            cache.asMap().remove(path, node);
+        }
+    }
+
+    /**
+     * Invalidates the nodes of the given paths and ids. Must be called after the change was committed.
+     */
+    public void invalidate(Collection<NodePath> paths, Collection<Long> nodeIds) {
+        if (!enabled) {
+            return;
+        }
+        invalidations.incrementAndGet();
+        for (NodePath path : paths) {
+            cache.invalidate(path);
+        }
+        for (Long nodeId : nodeIds) {
+            NodePath path = pathsById.remove(nodeId);
+            if (path != null) {
+                cache.invalidate(path);
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        cache.invalidateAll();
+        pathsById.clear();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public long getInvalidationsCount() {
+        return invalidations.get();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static int weigh(Node node) {
+        return NODE_OVERHEAD_BYTES + 2 * (length(node.getRepo()) + length(node.getPath()) + length(node.getName()) +
+                length(node.getCreatedBy()) + length(node.getModifiedBy()) + length(node.getSha1Actual()) +
+                length(node.getSha1Original()) + length(node.getSha2()) + length(node.getMd5Actual()) +
+                length(node.getMd5Original()));
+    }
+
+    private static int length(@Nullable String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    public interface NodeLoader {
+        @Nullable
+        Node load() throws SQLException;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.fs.service;
+
+import com.google.common.collect.Sets;
+import org.artifactory.storage.db.fs.entity.NodePath;
+import org.artifactory.storage.tx.SessionResource;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Collects the nodes changed by the current storage session. The {@link NodesCache} is bypassed by the session once
+ * it has changes, and the changed nodes are invalidated when the session completes. The listener is notified once
+ * with all the changes after the session commits.
+ */
+public class NodesCacheSessionResource implements SessionResource {
+
+    private final Set<NodePath> changedPaths = Sets.newHashSet();
+    private final Set<Long> changedNodeIds = Sets.newHashSet();
+    private NodesCache nodesCache;
+    private BiConsumer<Collection<NodePath>, Collection<Long>> commitListener;
+
+    /**
+     * @param commitListener Receives the changed paths and node ids after the session commits
+     * @param path           The path of the changed node, null if unknown
+     * @param nodeId         The id of the changed node
+     */
+    void track(NodesCache nodesCache, BiConsumer<Collection<NodePath>, Collection<Long>> commitListener,
+            @Nullable NodePath path, long nodeId) {
+        this.nodesCache = nodesCache;
+        this.commitListener = commitListener;
+        if (path != null) {
+            changedPaths.add(path);
+        }
+        changedNodeIds.add(nodeId);
+    }
+
+    boolean hasChanges() {
+        return !changedNodeIds.isEmpty();
+    }
+
+    @Override
+    public void onSessionSave() {
+    }
+
+    @Override
+    public void afterCompletion(boolean commit) {
+        try {
+            // Also invalidate on rollback - the session never cached its own changes but it is cheap to be safe
+            if (nodesCache != null) {
+                nodesCache.invalidate(changedPaths, changedNodeIds);
+            }
+            if (commit && commitListener != null && hasChanges()) {
+                commitListener.accept(changedPaths, changedNodeIds);
+            }
+        } finally {
+            changedPaths.clear();
+            changedNodeIds.clear();
+            commitListener = null;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.fs.service;
+
+import com.google.common.collect.Lists;
+import org.artifactory.storage.StorageException;
+import org.artifactory.storage.db.fs.dao.PropertiesDao;
+import org.artifactory.storage.db.fs.entity.NodeProperty;
+import org.artifactory.storage.fs.session.StorageSession;
+import org.artifactory.storage.fs.session.StorageSessionHolder;
+import org.artifactory.storage.tx.SessionResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Buffers the properties writes of the current storage session and executes them as JDBC batches when the session is
+ * saved (before the commit), or earlier when properties are read or deleted by node in the same session.
+ * <p/>
+ * Writes are executed in the order they were made: consecutive writes of the same kind are sent as one batch.
+ */
+public class PropertiesSessionResource implements SessionResource {
+    private static final Logger log = LoggerFactory.getLogger(PropertiesSessionResource.class);
+
+    private final List<PropertyWrite> writes = Lists.newArrayList();
+    private PropertiesDao propertiesDao;
+
+    /**
+     * Executes the pending properties writes of the current storage session, if any. Called before queries that read
+     * the properties table in the session.
+     */
+    public static void flushCurrentSession() {
+        StorageSession session = StorageSessionHolder.getSession();
+        if (session != null) {
+            PropertiesSessionResource resource = session.getResource(PropertiesSessionResource.class);
+            if (resource != null) {
+                resource.flush();
+            }
+        }
+    }
+
+    void create(PropertiesDao propertiesDao, NodeProperty property) {
+        add(propertiesDao, new PropertyWrite(WriteType.CREATE, property.getNodeId(), property));
+    }
+
+    void updateValue(PropertiesDao propertiesDao, NodeProperty property) {
+        add(propertiesDao, new PropertyWrite(WriteType.UPDATE, property.getNodeId(), property));
+    }
+
+    void delete(PropertiesDao propertiesDao, NodeProperty property) {
+        add(propertiesDao, new PropertyWrite(WriteType.DELETE, property.getNodeId(), property));
+    }
+
+    void deleteNodeProperties(PropertiesDao propertiesDao, long nodeId) {
+        add(propertiesDao, new PropertyWrite(WriteType.DELETE_NODE, nodeId, null));
+    }
+
+    private void add(PropertiesDao propertiesDao, PropertyWrite write) {
+        this.propertiesDao = propertiesDao;
+        writes.add(write);
+    }
+
+    boolean hasPendingWrites() {
+        return !writes.isEmpty();
+    }
+
+    /**
+     * Executes the pending writes
+     */
+    void flush() {
+        if (writes.isEmpty()) {
+            return;
+        }
+        log.debug("Flushing {} pending properties writes", writes.size());
+        List<PropertyWrite> toFlush = Lists.newArrayList(writes);
+        writes.clear();
+        try {
+            int start = 0;
+            while (start < toFlush.size()) {
+                WriteType type = toFlush.get(start).type;
+                int end = start;
+                while (end < toFlush.size() && toFlush.get(end).type == type) {
+                    end++;
+                }
+                execute(type, toFlush.subList(start, end));
+                start = end;
+            }
+        } catch (SQLException e) {
+            throw new StorageException("Failed to write properties: " + e.getMessage(), e);
+        }
+    }
+
+    private void execute(WriteType type, List<PropertyWrite> batch) throws SQLException {
+        if (type == WriteType.DELETE_NODE) {
+            List<Long> nodeIds = Lists.newArrayListWithCapacity(batch.size());
+            batch.forEach(write -> nodeIds.add(write.nodeId));
+            propertiesDao.deleteNodesProperties(nodeIds);
+            return;
+        }
+        List<NodeProperty> properties = Lists.newArrayListWithCapacity(batch.size());
+        batch.forEach(write -> properties.add(write.property));
+        switch (type) {
+            case CREATE:
+                propertiesDao.create(properties);
+                break;
+            case UPDATE:
+                logMissing(type, properties, propertiesDao.updateValues(properties));
+                break;
+            case DELETE:
+                logMissing(type, properties, propertiesDao.delete(properties));
+                break;
+            default:
+                throw new IllegalStateException("Unexpected write type: " + type);
+        }
+    }
+
+    private void logMissing(WriteType type, List<NodeProperty> batch, int[] counts) {
+        if (!log.isDebugEnabled()) {
+            return;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                NodeProperty property = batch.get(i);
+                log.debug("Property {} of node id {} prop id {} prop key [{}] did not match any row", type,
+                        property.getNodeId(), property.getPropId(), property.getPropKey());
+            }
+        }
+    }
+
+    @Override
+    public void onSessionSave() {
+        flush();
+    }
+
+    @Override
+    public void afterCompletion(boolean commit) {
+        if (commit && !writes.isEmpty()) {
+            log.warn("Discarding {} properties writes made after the session was saved", writes.size());
+        }
+        writes.clear();
+    }
+
+    private enum WriteType {
+        CREATE, UPDATE, DELETE, DELETE_NODE
+    }
+
+    private static class PropertyWrite {
+        private final WriteType type;
+        private final long nodeId;
+        // null when deleting all the properties of the node
+        private final NodeProperty property;
+
+        private PropertyWrite(WriteType type, long nodeId, @Nullable NodeProperty property) {
+            this.type = type;
+            this.nodeId = nodeId;
+            this.property = property;
+        }
+    }
+}
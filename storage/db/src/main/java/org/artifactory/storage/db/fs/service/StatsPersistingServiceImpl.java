@@ -21,6 +21,7 @@
 package org.artifactory.storage.db.fs.service;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Maps;
 import org.artifactory.addon.AddonsManager;
 import org.artifactory.addon.ha.HaCommonAddon;
 import org.artifactory.addon.smartrepo.SmartRepoAddon;
@@ -42,6 +43,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -168,6 +170,9 @@ public class StatsPersistingServiceImpl extends AbstractStatsService implements
 
         StatsEvent statsEvent = getStatsEvents().get(repoPath);
         if (statsEvent == null) {
+            if (!acceptNewEvent(repoPath)) {
+                return;
+            }
             getStatsEvents().put(repoPath, statsEvent = new StatsEvent(repoPath));
         }
         statsEvent.update(downloadedBy, downloadedTime);
@@ -192,6 +197,9 @@ public class StatsPersistingServiceImpl extends AbstractStatsService implements
 
         StatsEvent statsEvent = getStatsEvents().get(repoPath);
         if (statsEvent == null) {
+            if (!acceptNewEvent(repoPath)) {
+                return;
+            }
             getStatsEvents().put(repoPath, statsEvent = new StatsEvent(repoPath, origin));
         }
         statsEvent.update(downloadedBy, origin, path, downloadedTime, count);
@@ -303,6 +311,81 @@ public class StatsPersistingServiceImpl extends AbstractStatsService implements
         }
     }
 
+    @Override
+    protected boolean isBatchFlushSupported() {
+        return true;
+    }
+
+    /**
+     * Persists a batch of events: the events are grouped per node id (and origin for remote events) and their
+     * counters are added to the stored statistics with batched upserts. The local counters of an event are always
+     * persisted, its remote counters only when remote stats are supported.
+     *
+     * @param events stats events
+     *
+     * @throws SQLException
+     */
+    @Override
+    protected void processStatsBatch(List<StatsEvent> events) throws SQLException {
+        log.debug("Processing batch of {} events", events.size());
+        AddonsManager addonsManager = ContextHelper.get().beanForType(AddonsManager.class);
+        boolean supportRemoteStats = addonsManager.addonByType(SmartRepoAddon.class).supportRemoteStats();
+        Map<Long, Stat> localDeltas = Maps.newLinkedHashMap();
+        Map<String, Stat> remoteDeltas = Maps.newLinkedHashMap();
+        for (StatsEvent event : events) {
+            long nodeId = getFileNodeId(event.getRepoPath());
+            if (nodeId <= DbService.NO_DB_ID) {
+                log.debug("Attempting to update stats of non-existing or folder node at: {}", event.getRepoPath());
+                continue;
+            }
+            if (event.getLocalEventCount().get() > 0) {
+                localDeltas.merge(nodeId, localDelta(nodeId, event), StatsPersistingServiceImpl::mergeLocalDeltas);
+            }
+            if (event.hasRemoteContent() && supportRemoteStats) {
+                remoteDeltas.merge(nodeId + ":" + event.getOrigin(), remoteDelta(nodeId, event),
+                        StatsPersistingServiceImpl::mergeRemoteDeltas);
+            }
+        }
+        getStatsDao().incrementLocalStats(localDeltas.values(), getDbService().getDatabaseType());
+        getStatsDao().incrementRemoteStats(remoteDeltas.values(), getDbService().getDatabaseType());
+    }
+
+    /**
+     * @return The node id of the file in the given path or {@link DbService#NO_DB_ID} if not found or is a folder
+     */
+    private long getFileNodeId(RepoPath repoPath) {
+        try {
+            ItemInfo itemInfo = getFileService().loadItem(repoPath);
+            return itemInfo.isFolder() ? DbService.NO_DB_ID : itemInfo.getId();
+        } catch (VfsItemNotFoundException e) {
+            return DbService.NO_DB_ID;
+        }
+    }
+
+    private static Stat localDelta(long nodeId, StatsEvent event) {
+        return new Stat(nodeId, event.getLocalEventCount().get(), event.getLocalDownloadedTime(),
+                event.getLocalDownloadedBy());
+    }
+
+    private static Stat remoteDelta(long nodeId, StatsEvent event) {
+        return new Stat(nodeId, 0, 0, null,
+                event.getRemoteEventCount().get(), event.getRemoteDownloadedTime(), event.getRemoteDownloadedBy(),
+                event.getOrigin(), event.getPath());
+    }
+
+    private static Stat mergeLocalDeltas(Stat first, Stat second) {
+        Stat latest = second.getLocalLastDownloaded() >= first.getLocalLastDownloaded() ? second : first;
+        return new Stat(first.getNodeId(), first.getLocalDownloadCount() + second.getLocalDownloadCount(),
+                latest.getLocalLastDownloaded(), latest.getLocalLastDownloadedBy());
+    }
+
+    private static Stat mergeRemoteDeltas(Stat first, Stat second) {
+        Stat latest = second.getRemoteLastDownloaded() >= first.getRemoteLastDownloaded() ? second : first;
+        return new Stat(first.getNodeId(), 0, 0, null,
+                first.getRemoteDownloadCount() + second.getRemoteDownloadCount(), latest.getRemoteLastDownloaded(),
+                latest.getRemoteLastDownloadedBy(), latest.getOrigin(),
+                !Strings.isNullOrEmpty(latest.getPath()) ? latest.getPath() : first.getPath());
+    }
 
     protected ConflictGuard getConflictGuard() {
         if (conflictsGuard == null) {
@@ -0,0 +1,346 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.fs.service;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.commons.lang.StringUtils;
+import org.artifactory.storage.db.fs.entity.FolderSummeryNodeInfo;
+import org.artifactory.storage.db.fs.entity.FolderSummeryNodeInfoImpl;
+import org.artifactory.storage.db.fs.entity.NodePath;
+import org.artifactory.storage.fs.repo.RepoStorageSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory storage aggregates: the number of folders, files and the total size of the files of every repository, and
+ * the number of files and total size of the files under recently requested folders.
+ * <p/>
+ * The repository aggregates are loaded once from the nodes table and are then maintained by the deltas of committed
+ * storage sessions (see {@link StorageAggregatesSessionResource}). Folder aggregates are loaded on demand and the
+ * cached ancestors of changed files are maintained the same way.
+ * <p/>
+ * Changes made by other cluster members are not seen by the deltas, and loads may race with concurrent commits, so
+ * the aggregates are approximate and are periodically {@link #reconcile(SummaryLoader) reconciled} with the database.
+ */
+public class StorageAggregates {
+    private static final Logger log = LoggerFactory.getLogger(StorageAggregates.class);
+
+    private final boolean enabled;
+    private final Object monitor = new Object();
+    // Held for the whole reconcile so only one load of the repositories aggregates runs at a time
+    private final Object reconcileLock = new Object();
+    // All the fields below are guarded by the monitor
+    private Map<String, Aggregate> repos;
+    // Collects the deltas applied while the running reconcile loads the repositories aggregates, null if none runs
+    private Map<String, Aggregate> reconcileDeltas;
+    private final Map<String, Aggregate> folders;
+    // Incremented by every applied delta, folder loads that see it change do not cache their result
+    private long changes;
+
+    public StorageAggregates(boolean enabled, int maxFolders) {
+        this.enabled = enabled;
+        this.folders = new LinkedHashMap<String, Aggregate>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Aggregate> eldest) {
+                return size() > maxFolders;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return True if the repositories aggregates were loaded and are maintained in memory
+     */
+    public boolean isLoaded() {
+        synchronized (monitor) {
+            return repos != null;
+        }
+    }
+
+    /**
+     * @param loader Loads the repositories aggregates from the database if they were not loaded yet
+     * @return The storage summary of every repository
+     */
+    public Set<RepoStorageSummary> getRepositoriesSummary(SummaryLoader loader) throws SQLException {
+        while (true) {
+            synchronized (monitor) {
+                if (repos != null) {
+                    Set<RepoStorageSummary> summaries = Sets.newHashSet();
+                    for (Map.Entry<String, Aggregate> entry : repos.entrySet()) {
+                        Aggregate aggregate = entry.getValue();
+                        if (aggregate.exists()) {
+                            summaries.add(new RepoStorageSummary(entry.getKey(), aggregate.folders, aggregate.files,
+                                    aggregate.bytes));
+                        }
+                    }
+                    return summaries;
+                }
+            }
+            reconcile(loader, true);
+        }
+    }
+
+    /**
+     * @param folder The folder to summarize
+     * @param loader Loads the folder summary from the database if it is not cached
+     * @return The number of files and the total size of the files under the folder
+     */
+    public FolderSummeryNodeInfo getFolderSummary(NodePath folder, FolderLoader loader) throws SQLException {
+        long changesBeforeLoad;
+        synchronized (monitor) {
+            Aggregate aggregate = folder.isRoot() ? (repos != null ? repos.get(folder.getRepo()) : null) :
+                    folders.get(folderKey(folder.getRepo(), folder.getPathName()));
+            if (aggregate != null) {
+                return new FolderSummeryNodeInfoImpl(aggregate.files, aggregate.bytes);
+            }
+            changesBeforeLoad = changes;
+        }
+        FolderSummeryNodeInfo summary = loader.load(folder);
+        if (!folder.isRoot()) {
+            synchronized (monitor) {
+                // A delta applied during the load might or might not be included in the loaded summary
+                if (changesBeforeLoad == changes) {
+                    Aggregate aggregate = new Aggregate();
+                    aggregate.files = summary.getFileCount();
+                    aggregate.bytes = summary.getFolderSize();
+                    folders.put(folderKey(folder.getRepo(), folder.getPathName()), aggregate);
+                }
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Reloads the repositories aggregates from the database and drops the cached folder aggregates. Only one reconcile
+     * runs at a time, concurrent callers wait for it.
+     * <p/>
+     * Deltas applied while the aggregates are loaded are added to the loaded aggregates. A session that committed
+     * before the load read its rows but applied its deltas after the load started is therefore counted twice; such
+     * drift is corrected by the next reconcile.
+     */
+    public void reconcile(SummaryLoader loader) throws SQLException {
+        reconcile(loader, false);
+    }
+
+    private void reconcile(SummaryLoader loader, boolean onlyIfNotLoaded) throws SQLException {
+        synchronized (reconcileLock) {
+            Map<String, Aggregate> deltas = Maps.newHashMap();
+            synchronized (monitor) {
+                if (onlyIfNotLoaded && repos != null) {
+                    // loaded by the reconcile this caller waited for
+                    return;
+                }
+                reconcileDeltas = deltas;
+            }
+            try {
+                Set<RepoStorageSummary> summaries = loader.load();
+                Map<String, Aggregate> loaded = Maps.newHashMapWithExpectedSize(summaries.size());
+                for (RepoStorageSummary summary : summaries) {
+                    Aggregate aggregate = new Aggregate();
+                    aggregate.roots = 1;
+                    aggregate.folders = summary.getFoldersCount();
+                    aggregate.files = summary.getFilesCount();
+                    aggregate.bytes = summary.getUsedSpace();
+                    loaded.put(summary.getRepoKey(), aggregate);
+                }
+                synchronized (monitor) {
+                    for (Map.Entry<String, Aggregate> delta : deltas.entrySet()) {
+                        loaded.computeIfAbsent(delta.getKey(), repo -> new Aggregate()).add(delta.getValue());
+                    }
+                    repos = loaded;
+                    folders.clear();
+                }
+                log.debug("Reconciled the storage aggregates of {} repositories", loaded.size());
+            } finally {
+                synchronized (monitor) {
+                    reconcileDeltas = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops all the aggregates, they are loaded again on the next request
+     */
+    public void invalidate() {
+        synchronized (monitor) {
+            changes++;
+            repos = null;
+            folders.clear();
+        }
+    }
+
+    /**
+     * Applies the deltas of a committed session (or of a change made outside of a session)
+     */
+    void apply(Deltas deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        synchronized (monitor) {
+            changes++;
+            for (Map.Entry<String, Aggregate> delta : deltas.repos.entrySet()) {
+                if (repos != null) {
+                    repos.computeIfAbsent(delta.getKey(), repo -> new Aggregate()).add(delta.getValue());
+                }
+                if (reconcileDeltas != null) {
+                    reconcileDeltas.computeIfAbsent(delta.getKey(), repo -> new Aggregate()).add(delta.getValue());
+                }
+            }
+            if (!folders.isEmpty()) {
+                for (FileDelta fileDelta : deltas.files) {
+                    applyToAncestors(fileDelta);
+                }
+            }
+        }
+    }
+
+    private void applyToAncestors(FileDelta fileDelta) {
+        String path = fileDelta.path;
+        if (StringUtils.isBlank(path)) {
+            return;
+        }
+        int end = path.indexOf('/');
+        while (true) {
+            String ancestor = end < 0 ? path : path.substring(0, end);
+            Aggregate aggregate = folders.get(folderKey(fileDelta.repo, ancestor));
+            if (aggregate != null) {
+                aggregate.files += fileDelta.files;
+                aggregate.bytes += fileDelta.bytes;
+            }
+            if (end < 0) {
+                return;
+            }
+            end = path.indexOf('/', end + 1);
+        }
+    }
+
+    private static String folderKey(String repo, String pathName) {
+        return repo + ":" + pathName;
+    }
+
+    /**
+     * The deltas of the nodes changed by a storage session
+     */
+    static class Deltas {
+        private final Map<String, Aggregate> repos = Maps.newHashMap();
+        private final List<FileDelta> files = Lists.newArrayList();
+
+        void folderCreated(NodePath folder) {
+            Aggregate aggregate = repo(folder.getRepo());
+            if (folder.isRoot()) {
+                aggregate.roots++;
+            } else {
+                aggregate.folders++;
+            }
+        }
+
+        void folderDeleted(NodePath folder) {
+            Aggregate aggregate = repo(folder.getRepo());
+            if (folder.isRoot()) {
+                aggregate.roots--;
+            } else {
+                aggregate.folders--;
+            }
+        }
+
+        /**
+         * @param file  The changed file
+         * @param files The change in the number of files: 1 for a created file, -1 for a deleted file
+         * @param bytes The change in the size of the files
+         */
+        void fileChanged(NodePath file, int files, long bytes) {
+            if (files == 0 && bytes == 0) {
+                return;
+            }
+            Aggregate aggregate = repo(file.getRepo());
+            aggregate.files += files;
+            aggregate.bytes += bytes;
+            this.files.add(new FileDelta(file.getRepo(), file.getPath(), files, bytes));
+        }
+
+        boolean isEmpty() {
+            return repos.isEmpty();
+        }
+
+        void clear() {
+            repos.clear();
+            files.clear();
+        }
+
+        private Aggregate repo(String repoKey) {
+            return repos.computeIfAbsent(repoKey, key -> new Aggregate());
+        }
+    }
+
+    private static class FileDelta {
+        private final String repo;
+        // The path of the parent folder of the file
+        private final String path;
+        private final int files;
+        private final long bytes;
+
+        private FileDelta(String repo, String path, int files, long bytes) {
+            this.repo = repo;
+            this.path = path;
+            this.files = files;
+            this.bytes = bytes;
+        }
+    }
+
+    private static class Aggregate {
+        // 1 if the repository root folder exists
+        private long roots;
+        private long folders;
+        private long files;
+        private long bytes;
+
+        private void add(Aggregate delta) {
+            roots += delta.roots;
+            folders += delta.folders;
+            files += delta.files;
+            bytes += delta.bytes;
+        }
+
+        private boolean exists() {
+            return roots > 0 || folders > 0 || files > 0;
+        }
+    }
+
+    public interface SummaryLoader {
+        Set<RepoStorageSummary> load() throws SQLException;
+    }
+
+    public interface FolderLoader {
+        FolderSummeryNodeInfo load(NodePath folder) throws SQLException;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.fs.service;
+
+import org.artifactory.storage.tx.SessionResource;
+
+import java.util.function.Consumer;
+
+/**
+ * Collects the storage aggregates deltas of the nodes changed by the current storage session. The deltas are applied
+ * to the {@link StorageAggregates} only if the session commits.
+ */
+public class StorageAggregatesSessionResource implements SessionResource {
+
+    private final StorageAggregates.Deltas deltas = new StorageAggregates.Deltas();
+    private StorageAggregates storageAggregates;
+
+    void record(StorageAggregates storageAggregates, Consumer<StorageAggregates.Deltas> change) {
+        this.storageAggregates = storageAggregates;
+        change.accept(deltas);
+    }
+
+    boolean hasChanges() {
+        return !deltas.isEmpty();
+    }
+
+    @Override
+    public void onSessionSave() {
+    }
+
+    @Override
+    public void afterCompletion(boolean commit) {
+        if (commit && storageAggregates != null) {
+            storageAggregates.apply(deltas);
+        }
+        deltas.clear();
+    }
+}
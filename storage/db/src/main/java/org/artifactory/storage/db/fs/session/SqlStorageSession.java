@@ -55,10 +55,14 @@ public class SqlStorageSession implements StorageSession {
     @Override
     public void save() {
         log.trace("Save called on session {}", sessionId);
+        saveLockedItems();
+        // resources are saved after the items so they see the writes made by saving the items
         if (sessionResourceManager != null) {
             sessionResourceManager.onSessionSave();
         }
+    }
 
+    private void saveLockedItems() {
         if (locks.size() == 0) {
             log.trace("Save called on session {} with no locked items", sessionId);
             return;
@@ -78,7 +82,6 @@ public class SqlStorageSession implements StorageSession {
                 }
             }
         }
-
     }
 
     @Override
@@ -140,6 +143,12 @@ public class SqlStorageSession implements StorageSession {
         return getSessionResourceManager().getOrCreateResource(resourceClass);
     }
 
+    @Override
+    @Nullable
+    public <T extends SessionResource> T getResource(Class<T> resourceClass) {
+        return sessionResourceManager != null ? sessionResourceManager.getResource(resourceClass) : null;
+    }
+
     @Override
     public void afterCompletion(boolean success) {
         log.trace("After completion called on session {}", sessionId);
@@ -38,6 +38,8 @@ public class DbLocksServiceImpl implements DbLocksService {
 
     private final DbDistributeLocksDao dbDistributeLocksDao;
     private final Map<String, LockInfo> localLocks = new ConcurrentHashMap<>();
+    private final LocalLockQueues localQueues = new LocalLockQueues();
+    private final LockContentionStats contentionStats = new LockContentionStats();
 
     @Autowired
     public DbLocksServiceImpl(DbDistributeLocksDao dbDistributeLocksDao) {
@@ -48,7 +50,48 @@ public class DbLocksServiceImpl implements DbLocksService {
         timeout = timeUnit.toMillis(timeout);
         long start = System.currentTimeMillis();
         log.debug("Acquiring lock for: " + getLockInfo(category, key, owner));
-        long startTime = System.currentTimeMillis();
+        String localId = toLocalId(category, key);
+        LockInfo localLockInfo = localLocks.get(localId);
+        if (localLockInfo != null && localLockInfo.getThreadId() == Thread.currentThread().getId() &&
+                localLockInfo.getOwner().equals(owner)) {
+            RuntimeException e = new RuntimeException("Reentrant lock is not supported");
+            log.error("Failed to acquire lock for: " + localLockInfo, e);
+            throw new RuntimeException("Failed to acquire lock for: " + getLockInfo(category, key, owner), e);
+        }
+        LockContentionStats.CategoryStats stats = contentionStats.of(category);
+        // Wait behind the other threads of this node before competing on the DB lock
+        LocalLockQueues.Queue queue = localQueues.join(localId);
+        boolean passedGate = false;
+        boolean acquired = false;
+        stats.waiting.increment();
+        try {
+            passedGate = queue.tryPass();
+            boolean contended = !passedGate;
+            if (contended) {
+                log.trace("Waiting locally while trying to acquiring lock for: " + getLockInfo(category, key, owner));
+                passedGate = timeout > 0 && queue.tryPass(timeout - (System.currentTimeMillis() - start));
+                if (!passedGate) {
+                    stats.timedOut.increment();
+                    throw new TimeoutException("Couldn't acquire lock for: " + timeout + " milliseconds");
+                }
+            }
+            acquireDbLock(category, key, owner, timeout, start, contended, stats);
+            acquired = true;
+        } finally {
+            stats.waiting.decrement();
+            if (!acquired) {
+                // The holder leaves the queue only when the lock is released
+                localQueues.leave(localId, passedGate);
+            }
+        }
+    }
+
+    /**
+     * Polls the DB until the lock is inserted. Only the thread at the head of the local queue of the lock gets here,
+     * so this only waits for locks held by other nodes (or released outside of this service).
+     */
+    private void acquireDbLock(String category, String key, String owner, long timeout, long start,
+            boolean contended, LockContentionStats.CategoryStats stats) throws TimeoutException {
         long sleepTime = 8;
         long waitingTime;
         LockInfo lockInfo = new LockInfo(category, key, owner, Thread.currentThread().getId(), Thread.currentThread().getName(), start);
@@ -59,13 +102,20 @@ public class DbLocksServiceImpl implements DbLocksService {
                 // we update the time on the model before inserting into the db, because in case we wait for x time
                 // until we were able to acquire the lock, we don't want it's expiry to be shorter.
                 lockInfo.setStartedTime(System.currentTimeMillis());
+                stats.dbAttempts.increment();
                 if (dbDistributeLocksDao.tryToAcquireLock(lockInfo)) {
                     localLocks.put(toLocalId(category, key), lockInfo);
                     log.trace("Successfully acquired lock: '{}'.", lockInfo);
                     long timeTookToAcquireLock = System.currentTimeMillis() - start;
+                    stats.acquired.increment();
+                    if (contended) {
+                        stats.contended.increment();
+                        stats.waitMillis.add(timeTookToAcquireLock);
+                    }
                     log.debug("Lock acquired in '{}' milliseconds.", timeTookToAcquireLock);
                     return;
                 } else {
+                    contended = true;
                     LockInfo dbLockInfo = dbDistributeLocksDao.getLockInfo(category, key);
                     if (dbLockInfo != null && dbLockInfo.getThreadId() == Thread.currentThread().getId() && dbLockInfo.getOwner().equals(owner)) {
                         throw new RuntimeException("Reentrant lock is not supported");
@@ -77,8 +127,13 @@ public class DbLocksServiceImpl implements DbLocksService {
             }
             // If we got here the lock exist but we don't own it
             long currentTime = System.currentTimeMillis();
-            waitingTime = currentTime - startTime;
-            waitLimitedTime(timeout, sleepTime, waitingTime);
+            waitingTime = currentTime - start;
+            try {
+                waitLimitedTime(timeout, sleepTime, waitingTime);
+            } catch (TimeoutException e) {
+                stats.timedOut.increment();
+                throw e;
+            }
             sleepTime = Math.min(sleepTime * 4, 2048);
             log.trace("Waiting while trying to acquiring lock for: " + getLockInfo(category, key, owner));
         }
@@ -112,13 +167,15 @@ public class DbLocksServiceImpl implements DbLocksService {
 
     public boolean unlock(String category, String key, String owner) {
         log.debug("Attempting to release lock for: " + getLockInfo(category, key));
+        String localId = toLocalId(category, key);
+        boolean removedLocally = false;
         try {
             // Assume lock acquired by this thread and try to update lock
             log.trace("Attempting to release lock from cache for: " + getLockInfo(category, key, owner));
-            LockInfo lockInfo = localLocks.get(toLocalId(category, key));
+            LockInfo lockInfo = localLocks.get(localId);
             if (lockInfo != null) {
                 if (lockInfo.getThreadId() == Thread.currentThread().getId()) {
-                    localLocks.remove(toLocalId(category, key));
+                    removedLocally = localLocks.remove(localId, lockInfo);
                     log.trace("Successfully delete lock from cache for: " + lockInfo);
                 } else {
                     String msg = "Failed to release lock (inconsistent state) for: {}. Current thread is not the " +
@@ -140,6 +197,8 @@ public class DbLocksServiceImpl implements DbLocksService {
             log.error("Failed to release lock for:" + getLockInfo(category, key, owner), e.getMessage());
             log.debug("Failed to release lock for:" + getLockInfo(category, key, owner), e);
             throw new RuntimeException("Failed to release lock for: " + getLockInfo(category, key, owner), e);
+        } finally {
+            releaseLocalQueue(localId, removedLocally);
         }
         log.debug("Lock is either not exist or not owned by current owner for: " + getLockInfo(category, key));
         return false;
@@ -204,14 +263,17 @@ public class DbLocksServiceImpl implements DbLocksService {
 
     public boolean forceUnlock(String category, String key) {
         log.debug("Releasing lock for: " + getLockInfo(category));
+        String localId = toLocalId(category, key);
+        LockInfo removed = localLocks.remove(localId);
         try {
-            LockInfo removed = localLocks.remove(toLocalId(category, key));
             DbUnlockSupplier forceUnlockSupplier = getForceUnlockSupplier(category, key);
             boolean dbLockRemoved = unlockInternal(forceUnlockSupplier, category, key, null, 3);
             return removed != null || dbLockRemoved;
         } catch (SQLException e) {
             throw new RuntimeException("" +
                     "Failed to force lock release for: " + getLockInfo(category, key));
+        } finally {
+            releaseLocalQueue(localId, removed != null);
         }
     }
 
@@ -286,7 +348,8 @@ public class DbLocksServiceImpl implements DbLocksService {
     private void forceRemoveLocks(@Nonnull Set<LockInfo> locks, boolean removeCachedOnly) {
         for (LockInfo lock : locks) {
             log.debug("Destroying lock for category: {}, key: {} ", lock.getCategory(), lock.getKey());
-            localLocks.remove(toLocalId(lock.getCategory(), lock.getKey()));
+            String localId = toLocalId(lock.getCategory(), lock.getKey());
+            boolean removedLocally = localLocks.remove(localId) != null;
             if (!removeCachedOnly) {
                 try {
                     DbUnlockSupplier unlockSupplier = getForceUnlockSupplier(lock.getCategory(), lock.getKey());
@@ -298,9 +361,24 @@ public class DbLocksServiceImpl implements DbLocksService {
                     log.trace("Failed to destroy lock.", e);
                 }
             }
+            releaseLocalQueue(localId, removedLocally);
+        }
+    }
+
+    /**
+     * Wakes up the next local thread waiting for the lock, after the lock was removed from the local locks (and from
+     * the DB, so the woken thread can insert it right away).
+     */
+    private void releaseLocalQueue(String localId, boolean removedLocally) {
+        if (removedLocally) {
+            localQueues.leave(localId, true);
         }
     }
 
+    public LockContentionStats getContentionStats() {
+        return contentionStats;
+    }
+
     private DbUnlockSupplier getForceUnlockSupplier(String category, String key) {
         return () -> dbDistributeLocksDao.releaseForceLock(category, key);
     }
@@ -0,0 +1,78 @@
+package org.artifactory.storage.db.locks.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-JVM wait queues of the DB locks, one per lock id (category and key).
+ * <p/>
+ * A thread must pass the local gate of a lock id before it may try to insert the lock into the DB, and keeps the
+ * gate for as long as it holds the lock. Threads of the same node contending on a lock therefore wait in a fair,
+ * local queue and are woken up as soon as the lock is released, while only the head of the queue polls the DB
+ * (for locks held by other nodes).
+ * <p/>
+ * Queues are reference counted by the waiting threads and the holder, and discarded once unused.
+ */
+class LocalLockQueues {
+
+    private final Map<String, Queue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * Joins the queue of the lock id. Every call must be followed by {@link #leave(String, boolean)}.
+     */
+    Queue join(String lockId) {
+        return queues.compute(lockId, (id, queue) -> {
+            Queue result = queue == null ? new Queue() : queue;
+            result.users++;
+            return result;
+        });
+    }
+
+    /**
+     * Leaves the queue of the lock id.
+     *
+     * @param passedGate True if the leaving thread passed the gate (or holds the lock), in which case the next
+     *                   waiting thread is released
+     */
+    void leave(String lockId, boolean passedGate) {
+        queues.computeIfPresent(lockId, (id, queue) -> {
+            if (passedGate) {
+                queue.gate.release();
+            }
+            return --queue.users == 0 ? null : queue;
+        });
+    }
+
+    static class Queue {
+        private final Semaphore gate = new Semaphore(1, true);
+        // Guarded by the map compute functions
+        private int users;
+
+        boolean tryPass() {
+            return gate.tryAcquire();
+        }
+
+        /**
+         * Waits up to the given time to pass the gate. Interrupts do not stop the wait, but are restored on return.
+         */
+        boolean tryPass(long timeoutMillis) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        return gate.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
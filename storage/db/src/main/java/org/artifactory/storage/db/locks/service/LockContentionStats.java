@@ -0,0 +1,76 @@
+package org.artifactory.storage.db.locks.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Contention metrics of the DB locks, per lock category.
+ */
+public class LockContentionStats {
+
+    private final Map<String, CategoryStats> categories = new ConcurrentHashMap<>();
+
+    CategoryStats of(String category) {
+        return categories.computeIfAbsent(category, c -> new CategoryStats());
+    }
+
+    /**
+     * @return Number of acquired locks per category
+     */
+    public Map<String, Long> getAcquired() {
+        return collect(stats -> stats.acquired.sum());
+    }
+
+    /**
+     * @return Number of acquired locks per category that were not free on the first attempt
+     */
+    public Map<String, Long> getContended() {
+        return collect(stats -> stats.contended.sum());
+    }
+
+    /**
+     * @return Number of lock acquisitions per category that timed out
+     */
+    public Map<String, Long> getTimedOut() {
+        return collect(stats -> stats.timedOut.sum());
+    }
+
+    /**
+     * @return Number of attempts to insert a lock into the DB per category
+     */
+    public Map<String, Long> getDbAttempts() {
+        return collect(stats -> stats.dbAttempts.sum());
+    }
+
+    /**
+     * @return Total time in milliseconds spent waiting for contended locks per category
+     */
+    public Map<String, Long> getWaitMillis() {
+        return collect(stats -> stats.waitMillis.sum());
+    }
+
+    /**
+     * @return Number of threads currently waiting for a lock per category
+     */
+    public Map<String, Long> getWaiting() {
+        return collect(stats -> stats.waiting.sum());
+    }
+
+    private Map<String, Long> collect(Function<CategoryStats, Long> metric) {
+        Map<String, Long> result = new TreeMap<>();
+        categories.forEach((category, stats) -> result.put(category, metric.apply(stats)));
+        return result;
+    }
+
+    static class CategoryStats {
+        final LongAdder acquired = new LongAdder();
+        final LongAdder contended = new LongAdder();
+        final LongAdder timedOut = new LongAdder();
+        final LongAdder dbAttempts = new LongAdder();
+        final LongAdder waitMillis = new LongAdder();
+        final LongAdder waiting = new LongAdder();
+    }
+}
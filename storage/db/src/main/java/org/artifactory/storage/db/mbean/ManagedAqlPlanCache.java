@@ -0,0 +1,85 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.mbean;
+
+import org.artifactory.storage.db.aql.service.AqlPlanCache;
+
+/**
+ * MBean wrapper for the {@link AqlPlanCache}
+ */
+public class ManagedAqlPlanCache implements ManagedAqlPlanCacheMBean {
+
+    private final AqlPlanCache planCache;
+
+    public ManagedAqlPlanCache(AqlPlanCache planCache) {
+        this.planCache = planCache;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return planCache.isEnabled();
+    }
+
+    @Override
+    public long getSize() {
+        return planCache.size();
+    }
+
+    @Override
+    public long getHitCount() {
+        return planCache.stats().hitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return planCache.stats().missCount();
+    }
+
+    @Override
+    public double getHitRatio() {
+        return planCache.stats().hitRate();
+    }
+
+    @Override
+    public long getUncacheableCount() {
+        return planCache.getUncacheableCount();
+    }
+
+    @Override
+    public long getTotalParseMillis() {
+        return planCache.getTotalParseMillis();
+    }
+
+    @Override
+    public double getAverageParseMillis() {
+        return planCache.getAverageParseMillis();
+    }
+
+    @Override
+    public long getTotalBuildMillis() {
+        return planCache.getTotalBuildMillis();
+    }
+
+    @Override
+    public double getAverageBuildMillis() {
+        return planCache.getAverageBuildMillis();
+    }
+}
@@ -18,25 +18,31 @@
  *
  */
 
-package org.artifactory.traffic;
-
-import com.google.common.collect.ImmutableList;
-import org.artifactory.traffic.entry.TrafficEntry;
-
-import java.util.List;
+package org.artifactory.storage.db.mbean;
 
 /**
- * @author yoavl
+ * MBean exposing the AQL plan cache size, hit ratio and the time spent parsing and building queries on cache miss
  */
-public class TrafficCollectionEvent {
+public interface ManagedAqlPlanCacheMBean {
+
+    boolean isEnabled();
+
+    long getSize();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    double getHitRatio();
+
+    long getUncacheableCount();
+
+    long getTotalParseMillis();
+
+    double getAverageParseMillis();
 
-    private final ImmutableList<TrafficEntry> trafficEntries;
+    long getTotalBuildMillis();
 
-    public TrafficCollectionEvent(List<TrafficEntry> trafficEntries) {
-        this.trafficEntries = ImmutableList.<TrafficEntry>builder().addAll(trafficEntries).build();
-    }
+    double getAverageBuildMillis();
 
-    public ImmutableList<TrafficEntry> getTrafficEntries() {
-        return trafficEntries;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,64 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.mbean;
+
+import org.artifactory.storage.db.locks.service.LockContentionStats;
+
+import java.util.Map;
+
+public class ManagedDbLocks implements ManagedDbLocksMBean {
+
+    private final LockContentionStats stats;
+
+    public ManagedDbLocks(LockContentionStats stats) {
+        this.stats = stats;
+    }
+
+    @Override
+    public Map<String, Long> getAcquired() {
+        return stats.getAcquired();
+    }
+
+    @Override
+    public Map<String, Long> getContended() {
+        return stats.getContended();
+    }
+
+    @Override
+    public Map<String, Long> getTimedOut() {
+        return stats.getTimedOut();
+    }
+
+    @Override
+    public Map<String, Long> getDbAttempts() {
+        return stats.getDbAttempts();
+    }
+
+    @Override
+    public Map<String, Long> getWaitMillis() {
+        return stats.getWaitMillis();
+    }
+
+    @Override
+    public Map<String, Long> getWaiting() {
+        return stats.getWaiting();
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.mbean;
+
+import java.util.Map;
+
+/**
+ * MBean exposing the DB locks contention metrics, per lock category
+ */
+public interface ManagedDbLocksMBean {
+
+    Map<String, Long> getAcquired();
+
+    Map<String, Long> getContended();
+
+    Map<String, Long> getTimedOut();
+
+    Map<String, Long> getDbAttempts();
+
+    Map<String, Long> getWaitMillis();
+
+    Map<String, Long> getWaiting();
+
+}
@@ -0,0 +1,70 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.mbean;
+
+import org.artifactory.storage.db.fs.service.NodesCache;
+
+/**
+ * MBean wrapper for the {@link NodesCache}
+ */
+public class ManagedNodesCache implements ManagedNodesCacheMBean {
+
+    private final NodesCache nodesCache;
+
+    public ManagedNodesCache(NodesCache nodesCache) {
+        this.nodesCache = nodesCache;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return nodesCache.isEnabled();
+    }
+
+    @Override
+    public long getSize() {
+        return nodesCache.size();
+    }
+
+    @Override
+    public long getHitCount() {
+        return nodesCache.stats().hitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return nodesCache.stats().missCount();
+    }
+
+    @Override
+    public double getHitRatio() {
+        return nodesCache.stats().hitRate();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return nodesCache.stats().evictionCount();
+    }
+
+    @Override
+    public long getInvalidationCount() {
+        return nodesCache.getInvalidationsCount();
+    }
+}
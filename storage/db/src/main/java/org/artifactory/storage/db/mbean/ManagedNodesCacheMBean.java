@@ -18,12 +18,25 @@
  *
  */
 
-package org.artifactory.traffic;
+package org.artifactory.storage.db.mbean;
 
 /**
- * @author yoavl
+ * MBean exposing the nodes cache size and hit ratio
  */
-public interface TrafficCollectorListener {
+public interface ManagedNodesCacheMBean {
 
-    public void onCollect(TrafficCollectionEvent e);
-}
\ No newline at end of file
+    boolean isEnabled();
+
+    long getSize();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    double getHitRatio();
+
+    long getEvictionCount();
+
+    long getInvalidationCount();
+
+}
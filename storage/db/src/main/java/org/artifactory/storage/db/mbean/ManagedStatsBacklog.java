@@ -0,0 +1,66 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.mbean;
+
+import org.artifactory.common.ConstantValues;
+import org.artifactory.storage.db.fs.service.AbstractStatsService;
+
+/**
+ * MBean wrapper for the download statistics backlog of {@link AbstractStatsService}
+ */
+public class ManagedStatsBacklog implements ManagedStatsBacklogMBean {
+
+    private final AbstractStatsService statsService;
+
+    public ManagedStatsBacklog(AbstractStatsService statsService) {
+        this.statsService = statsService;
+    }
+
+    @Override
+    public int getQueuedEvents() {
+        return statsService.getQueuedEventsCount();
+    }
+
+    @Override
+    public long getMaxQueuedEvents() {
+        return ConstantValues.statsMaxQueuedEvents.getLong();
+    }
+
+    @Override
+    public long getDroppedEvents() {
+        return statsService.getDroppedEventsCount();
+    }
+
+    @Override
+    public long getFlushedEvents() {
+        return statsService.getFlushedEventsCount();
+    }
+
+    @Override
+    public int getLastFlushedEvents() {
+        return statsService.getLastFlushedEventsCount();
+    }
+
+    @Override
+    public long getLastFlushDurationMillis() {
+        return statsService.getLastFlushDurationMillis();
+    }
+}
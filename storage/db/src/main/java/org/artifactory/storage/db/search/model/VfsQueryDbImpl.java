@@ -29,6 +29,7 @@ import org.artifactory.sapi.search.*;
 import org.artifactory.storage.StorageException;
 import org.artifactory.storage.db.DbService;
 import org.artifactory.storage.db.fs.entity.NodePath;
+import org.artifactory.storage.db.fs.service.PropertiesSessionResource;
 import org.artifactory.storage.db.util.BaseDao;
 import org.artifactory.storage.db.util.JdbcHelper;
 import org.artifactory.storage.spring.StorageContextHelper;
@@ -252,6 +253,7 @@ public class VfsQueryDbImpl implements VfsQuery {
         }
 
         ResultSet rs = null;
+        PropertiesSessionResource.flushCurrentSession();
         try {
             log.debug("Executing search query: {}", query);
             List<Object> params = query.params;
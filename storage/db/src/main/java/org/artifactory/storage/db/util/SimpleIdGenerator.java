@@ -20,96 +20,264 @@
 
 package org.artifactory.storage.db.util;
 
+import org.artifactory.common.ConstantValues;
 import org.artifactory.storage.StorageException;
 import org.jfrog.storage.util.DbUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PreDestroy;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
+ * Hands out unique ids from ranges reserved in the unique_ids table.
+ * <p/>
+ * Ids are handed out lock-free from the current range. Once half of the range is handed out, the next range is
+ * reserved in the background, so threads only wait for the DB when the current range runs out before the next one
+ * is reserved. The size of the reserved ranges adapts to the allocation rate: it doubles (up to
+ * {@link ConstantValues#dbIdGeneratorMaxFetchAmount}) while ranges last less than half of
+ * {@link ConstantValues#dbIdGeneratorTargetFetchIntervalMillis} and halves back (down to
+ * {@link ConstantValues#dbIdGeneratorFetchAmount}) while they last more than twice that.
+ * <p/>
+ * Ranges are reserved with a compare-and-set update of the unique_ids row, so concurrent HA nodes never reserve
+ * overlapping ranges. Threads may also take sub-ranges of {@link ConstantValues#dbIdGeneratorThreadRangeSize} ids
+ * for themselves, trading dense ids for less contention on the shared range.
+ *
  * @author mamo
  */
 @Service
 public class SimpleIdGenerator extends IdGenerator {
     private static final Logger log = LoggerFactory.getLogger(SimpleIdGenerator.class);
 
-    protected final Object indexMonitor = new Object();
-    protected final AtomicLong currentIndex = new AtomicLong(NO_ID);
-    protected volatile long maxReservedIndex = NO_ID;
+    private final Object refillMonitor = new Object();
+    private final Object sizingMonitor = new Object();
+    private final AtomicReference<Range> currentRange = new AtomicReference<>(Range.EMPTY);
+    private final AtomicReference<Future<Range>> prefetchedRange = new AtomicReference<>();
+    private final ThreadLocal<ThreadRange> threadRanges = ThreadLocal.withInitial(ThreadRange::new);
+    private final ExecutorService prefetchExecutor;
+
+    // Guarded by the sizing monitor
+    private long fetchAmount;
+    private long lastReserveNanos;
+
+    public SimpleIdGenerator() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("art-id-prefetch-");
+        threadFactory.setDaemon(true);
+        prefetchExecutor = Executors.newSingleThreadExecutor(threadFactory);
+    }
 
     @Override
     protected void initializeIndex(long currentValue) {
-        maxReservedIndex = currentValue;
-        if (currentValue != NO_ID) {
-            currentValue++;
-        }
-        currentIndex.set(currentValue);
-        log.debug("Initialized current index to " + currentIndex.get());
+        // Ids are handed out only from ranges reserved from now on
+        currentRange.set(Range.EMPTY);
+        prefetchedRange.set(null);
+        log.debug("Initialized current index to " + currentValue);
     }
 
     @Override
     public long nextId() {
-        long value = currentIndex.getAndIncrement();
-        if (isNotInRange(value)) {
-            synchronized (indexMonitor) {
-                value = getGoodValue(value);
+        long threadRangeSize = ConstantValues.dbIdGeneratorThreadRangeSize.getLong();
+        if (threadRangeSize <= 1) {
+            return nextFromRange(1, null);
+        }
+        ThreadRange threadRange = threadRanges.get();
+        if (threadRange.next > threadRange.max) {
+            threadRange.next = nextFromRange(threadRangeSize, threadRange);
+        }
+        return threadRange.next++;
+    }
+
+    /**
+     * Takes the next {@code count} ids (or less, if the current range runs out) from the shared range.
+     *
+     * @param threadRange Receives the last taken id as its max, null when taking a single id
+     * @return The first taken id
+     */
+    private long nextFromRange(long count, ThreadRange threadRange) {
+        while (true) {
+            Range range = currentRange.get();
+            long first = range.next.getAndAdd(count);
+            if (first <= range.max) {
+                long last = Math.min(first + count - 1, range.max);
+                if (first <= range.prefetchAt && range.prefetchAt <= last) {
+                    prefetch();
+                }
+                if (threadRange != null) {
+                    threadRange.max = last;
+                }
+                return first;
             }
+            refill(range);
+        }
+    }
+
+    /**
+     * Reserves the next range in the background. The reservation is published before it is submitted, so only one
+     * range is reserved ahead at a time and every reserved range is handed out by the next refill.
+     */
+    private void prefetch() {
+        if (!ConstantValues.dbIdGeneratorPrefetch.getBoolean() || prefetchedRange.get() != null) {
+            return;
+        }
+        int maxRetries = ConstantValues.dbIdGeneratorMaxUpdateRetries.getInt();
+        FutureTask<Range> next = new FutureTask<>(() -> reserveRange(nextFetchAmount(), maxRetries));
+        if (!prefetchedRange.compareAndSet(null, next)) {
+            log.trace("Unique ids range is already prefetched");
+            return;
+        }
+        try {
+            prefetchExecutor.execute(next);
+        } catch (RejectedExecutionException e) {
+            // Shutting down, the next refill reserves the range itself
+            prefetchedRange.compareAndSet(next, null);
         }
-        return value;
     }
 
-    private long getGoodValue(long value) {
-        if (isNotInRange(value)) {
-            simpleUpdateIndex();
-            if (value == NO_ID) {
-                value = currentIndex.getAndIncrement();
+    private void refill(Range exhausted) {
+        synchronized (refillMonitor) {
+            if (currentRange.get() != exhausted) {
+                // Refilled by another thread
+                return;
             }
+            Range next = null;
+            Future<Range> prefetched = prefetchedRange.getAndSet(null);
+            if (prefetched != null) {
+                try {
+                    next = prefetched.get();
+                } catch (ExecutionException e) {
+                    log.warn("Failed to prefetch unique ids range: {}", e.getCause().getMessage());
+                    log.debug("Failed to prefetch unique ids range", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new StorageException("Interrupted while waiting for unique ids range", e);
+                }
+            }
+            if (next == null) {
+                next = reserveRange(nextFetchAmount(), ConstantValues.dbIdGeneratorMaxUpdateRetries.getInt());
+            }
+            currentRange.set(next);
         }
-        return value;
     }
 
-    private boolean isNotInRange(long value) {
-        return value > maxReservedIndex || value == NO_ID;
+    /**
+     * @return The size of the next range to reserve, adapted to the time the previous range lasted
+     */
+    private long nextFetchAmount() {
+        long minAmount = step();
+        long maxAmount = Math.max(minAmount, ConstantValues.dbIdGeneratorMaxFetchAmount.getLong());
+        long targetNanos = TimeUnit.MILLISECONDS.toNanos(
+                ConstantValues.dbIdGeneratorTargetFetchIntervalMillis.getLong());
+        synchronized (sizingMonitor) {
+            long now = System.nanoTime();
+            if (fetchAmount > 0) {
+                long elapsed = now - lastReserveNanos;
+                if (elapsed < targetNanos / 2) {
+                    fetchAmount = fetchAmount * 2;
+                } else if (elapsed > targetNanos * 2) {
+                    fetchAmount = fetchAmount / 2;
+                }
+            }
+            fetchAmount = Math.max(minAmount, Math.min(maxAmount, fetchAmount));
+            lastReserveNanos = now;
+            return fetchAmount;
+        }
     }
 
-    private void simpleUpdateIndex() {
+    /**
+     * Reserves the next {@code amount} ids in the unique_ids table. The update succeeds only if the current id did
+     * not change since it was read, so ranges reserved concurrently (by other HA nodes) never overlap.
+     */
+    private Range reserveRange(long amount, int maxRetries) {
         Connection con = null;
-        PreparedStatement stmt = null;
         try {
-            log.trace("Starting updating index with current value={}", maxReservedIndex);
             con = uniqueIdsDataSource.getConnection();
-            stmt = con.prepareStatement("UPDATE unique_ids SET current_id = ? where index_type = ?");
-            try {
-                long nextMaxCurrentIndex = maxReservedIndex + step();
-                stmt.setLong(1, nextMaxCurrentIndex);
-                stmt.setString(2, INDEX_TYPE_GENERAL);
-                log.trace("Executing update index with value={}", nextMaxCurrentIndex);
-                int rows = stmt.executeUpdate();
-                if (rows == 1) {
-                    maxReservedIndex = nextMaxCurrentIndex;
-                    log.trace("Updated index with value={}", maxReservedIndex);
-                } else {
-                    throw new StorageException(
-                            "Failed to update the unique indices table " + INDEX_TYPE_GENERAL + " does not exists!");
+            try (PreparedStatement select = con.prepareStatement(
+                    "SELECT current_id FROM unique_ids WHERE index_type = ?");
+                 PreparedStatement update = con.prepareStatement(
+                         "UPDATE unique_ids SET current_id = ? WHERE index_type = ? AND current_id = ?")) {
+                for (int attempt = 0; attempt <= maxRetries; attempt++) {
+                    long currentId;
+                    select.setString(1, INDEX_TYPE_GENERAL);
+                    try (ResultSet rs = select.executeQuery()) {
+                        if (!rs.next()) {
+                            throw new StorageException(
+                                    "Failed to update the unique indices table " + INDEX_TYPE_GENERAL +
+                                            " does not exists!");
+                        }
+                        currentId = rs.getLong(1);
+                    }
+                    long nextMaxCurrentIndex = currentId + amount;
+                    update.setLong(1, nextMaxCurrentIndex);
+                    update.setString(2, INDEX_TYPE_GENERAL);
+                    update.setLong(3, currentId);
+                    log.trace("Executing update index with value={}", nextMaxCurrentIndex);
+                    if (update.executeUpdate() == 1) {
+                        log.trace("Updated index with value={}", nextMaxCurrentIndex);
+                        return new Range(currentId + 1, nextMaxCurrentIndex);
+                    }
+                    log.debug("Index was updated concurrently from {}, retrying", currentId);
                 }
-            } catch (SQLException e) {
-                throw new StorageException("Failed to update the unique indices table", e);
             }
+            throw new StorageException(
+                    "Failed to update the unique indices table after " + maxRetries + " concurrent updates");
         } catch (SQLException e) {
             throw new StorageException("Failed to update the unique indices table", e);
         } finally {
-            DbUtils.close(con, stmt, null, uniqueIdsDataSource);
+            DbUtils.close(con, null, null, uniqueIdsDataSource);
         }
     }
 
+    /**
+     * @return The id the next call to {@link #nextId()} would return from the shared range
+     */
+    long peekNextId() {
+        return currentRange.get().next.get();
+    }
+
+    /**
+     * @return The last id of the shared range
+     */
+    long getMaxReservedId() {
+        return currentRange.get().max;
+    }
+
     @PreDestroy
     private void destroy() {
+        prefetchExecutor.shutdownNow();
         DbUtils.closeDataSource(uniqueIdsDataSource);
     }
+
+    private static class Range {
+        private static final Range EMPTY = new Range(NO_ID + 1, NO_ID);
+
+        private final AtomicLong next;
+        private final long max;
+        // The id that triggers the reservation of the next range
+        private final long prefetchAt;
+
+        private Range(long first, long max) {
+            this.next = new AtomicLong(first);
+            this.max = max;
+            this.prefetchAt = first + (max - first + 1) / 2;
+        }
+    }
+
+    private static class ThreadRange {
+        private long next = NO_ID + 1;
+        private long max = NO_ID;
+    }
 }
@@ -37,6 +37,7 @@ import org.testng.annotations.BeforeMethod;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * @author Gidi Shabat
@@ -211,6 +212,11 @@ public class AqlAbstractServiceTest extends DbBaseTest {
         public boolean isOss() {
             return false;
         }
+
+        @Override
+        public Set<String> getReadableRepoKeys() {
+            return null;
+        }
     }
 
     public static final AqlRepoProvider dummyRepoProvider = new EmptyRepoProvider();
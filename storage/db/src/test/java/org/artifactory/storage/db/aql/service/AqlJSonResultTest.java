@@ -28,6 +28,7 @@ import org.jfrog.common.ResourceUtils;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
@@ -160,6 +161,49 @@ public class AqlJSonResultTest extends AqlAbstractServiceTest {
         compareJsons(result, expectation);
     }
 
+    @Test
+    public void writeItemsWithProperties() throws IOException {
+        AqlLazyResult aqlLazyResult = aqlService.executeQueryLazy(
+                "items.find().include(\"property.*\")");
+        AqlJsonStreamer aqlStreamer = new AqlJsonStreamer(aqlLazyResult);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        aqlStreamer.write(out);
+        aqlStreamer.close();
+        String expectation = load("/aql/stream/itemsWithProperties.json");
+        compareJsons(out.toString("UTF-8"), expectation);
+    }
+
+    @Test
+    public void newlineDelimitedItems() throws IOException {
+        AqlJsonStreamer expectedStreamer = new AqlJsonStreamer(aqlService.executeQueryLazy("items.find()"));
+        List expectedResults = (List) new ObjectMapper().readValue(read(expectedStreamer), Map.class).get("results");
+        expectedStreamer.close();
+
+        AqlJsonStreamer aqlStreamer = AqlJsonStreamer.newlineDelimited(aqlService.executeQueryLazy("items.find()"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        aqlStreamer.write(out);
+        aqlStreamer.close();
+        String result = out.toString("UTF-8");
+        Assert.assertTrue(result.endsWith("\n"));
+        String[] lines = result.split("\n");
+        Assert.assertEquals(lines.length, expectedResults.size());
+        for (int i = 0; i < lines.length; i++) {
+            Assert.assertEquals(new ObjectMapper().readValue(lines[i], Map.class), expectedResults.get(i));
+        }
+    }
+
+    @Test
+    public void newlineDelimitedRead() throws IOException {
+        AqlJsonStreamer aqlStreamer = AqlJsonStreamer.newlineDelimited(aqlService.executeQueryLazy("items.find()"));
+        String result = read(aqlStreamer);
+        aqlStreamer.close();
+        String[] lines = result.split("\n");
+        Assert.assertTrue(lines.length > 0);
+        for (String line : lines) {
+            Assert.assertTrue(new ObjectMapper().readValue(line, Map.class).containsKey("repo"));
+        }
+    }
+
     private void compareJsons(String result, String expectation) throws IOException {
         ObjectMapper mapper = new ObjectMapper();
         Map resultMap = mapper.readValue(result, Map.class);
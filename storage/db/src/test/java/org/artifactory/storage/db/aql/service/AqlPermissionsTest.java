@@ -20,6 +20,8 @@
 
 package org.artifactory.storage.db.aql.service;
 
+import com.google.common.collect.Sets;
+import org.apache.commons.lang.StringUtils;
 import org.artifactory.aql.AqlException;
 import org.artifactory.aql.model.AqlPermissionProvider;
 import org.artifactory.aql.result.AqlJsonStreamer;
@@ -30,6 +32,8 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
 
 /**
  * @author Gidi Shabat
@@ -106,6 +110,28 @@ public class AqlPermissionsTest extends AqlAbstractServiceTest {
         Assert.assertFalse(string.contains("\"repo\" : \"repo1\""));
     }
 
+    /**
+     * Test that the limit applies to the rows the user may read
+     */
+    @Test
+    public void testUserLimit() throws IOException {
+        UserPermissions permissionProvider = new UserPermissions();
+        ReflectionTestUtils.setField(aqlService, "permissionProvider", permissionProvider);
+        AqlLazyResult aqlLazyResult = aqlService.executeQueryLazy("items.find({\"type\":\"any\"}).limit(2)");
+        AqlJsonStreamer streamResult = new AqlJsonStreamer(aqlLazyResult);
+
+        byte[] read = streamResult.read();
+        StringBuilder builder = new StringBuilder();
+        while (read != null) {
+            builder.append(new String(read));
+            read = streamResult.read();
+        }
+        streamResult.close();
+        String string = builder.toString();
+        Assert.assertEquals(StringUtils.countMatches(string, "\"repo\" : \"repo2\""), 2);
+        Assert.assertFalse(string.contains("\"repo\" : \"repo1\""));
+    }
+
     /**
      * Test Admin authorization
      */
@@ -212,6 +238,11 @@ public class AqlPermissionsTest extends AqlAbstractServiceTest {
         public boolean isOss() {
             return false;
         }
+
+        @Override
+        public Set<String> getReadableRepoKeys() {
+            return Collections.emptySet();
+        }
     }
 
     private class UserPermissions implements AqlPermissionProvider {
@@ -230,6 +261,11 @@ public class AqlPermissionsTest extends AqlAbstractServiceTest {
         public boolean isOss() {
             return false;
         }
+
+        @Override
+        public Set<String> getReadableRepoKeys() {
+            return Sets.newHashSet("repo2");
+        }
     }
 
 }
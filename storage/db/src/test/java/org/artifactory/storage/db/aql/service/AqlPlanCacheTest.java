@@ -0,0 +1,66 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.aql.service;
+
+import org.artifactory.aql.result.AqlEagerResult;
+import org.testng.annotations.Test;
+
+import static org.artifactory.aql.model.AqlItemTypeEnum.file;
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Tests the textual queries that are executed through the {@link AqlPlanCache}
+ */
+@Test
+public class AqlPlanCacheTest extends AqlAbstractServiceTest {
+
+    public void sameShapeWithDifferentValues() {
+        AqlPlanCache planCache = aqlService.getPlanCache();
+        AqlEagerResult queryResult = aqlService.executeQueryEager(
+                "items.find({\"repo\" : \"repo1\", \"name\" : {\"$match\" : \"ant-1.5*\"}})");
+        assertSize(queryResult, 1);
+        assertItem(queryResult, "repo1", "ant/ant/1.5", "ant-1.5.jar", file);
+
+        long hits = planCache.stats().hitCount();
+        queryResult = aqlService.executeQueryEager(
+                "items.find({\"repo\" : \"repo1\", \"name\" : {\"$match\" : \"ant-nothing*\"}})");
+        assertSize(queryResult, 0);
+        queryResult = aqlService.executeQueryEager(
+                "items.find({\"repo\" : \"repo1\", \"name\" : {\"$match\" : \"ant-1.5*\"}})");
+        assertSize(queryResult, 1);
+        assertItem(queryResult, "repo1", "ant/ant/1.5", "ant-1.5.jar", file);
+        assertThat(planCache.stats().hitCount()).isEqualTo(hits + 2);
+    }
+
+    public void differentStructureIsNotShared() {
+        AqlEagerResult queryResult = aqlService.executeQueryEager(
+                "items.find({\"repo\" : \"repo1\", \"name\" : {\"$eq\" : \"ant-1.5.jar\"}})");
+        assertSize(queryResult, 1);
+        queryResult = aqlService.executeQueryEager(
+                "items.find({\"repo\" : \"repo2\", \"name\" : {\"$eq\" : \"ant-1.5.jar\"}})");
+        assertSize(queryResult, 4);
+        queryResult = aqlService.executeQueryEager(
+                "items.find({\"repo\" : \"repo1\", \"path\" : {\"$eq\" : \"ant/ant/1.5\"}, " +
+                        "\"name\" : {\"$eq\" : \"ant-1.5.jar\"}})");
+        assertSize(queryResult, 1);
+        assertItem(queryResult, "repo1", "ant/ant/1.5", "ant-1.5.jar", file);
+    }
+}
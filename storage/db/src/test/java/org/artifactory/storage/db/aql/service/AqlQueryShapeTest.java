@@ -0,0 +1,79 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.aql.service;
+
+import com.google.common.collect.Lists;
+import org.testng.annotations.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link AqlQueryShape}
+ */
+@Test
+public class AqlQueryShapeTest {
+
+    public void sameShapeForDifferentValues() {
+        AqlQueryShape shape1 = AqlQueryShape.of("items.find({\"name\":{\"$match\":\"*.jar\"},\"@license\":\"GPL\"})");
+        AqlQueryShape shape2 = AqlQueryShape.of("items.find({\"name\":{\"$match\":\"*.pom\"},\"@license\":\"MIT\"})");
+        assertThat(shape1.getShape()).isEqualTo(shape2.getShape());
+        assertThat(shape1.getSlotsCount()).isEqualTo(2);
+        assertThat(shape1.getValues()).containsExactly("*.jar", "GPL");
+        assertThat(shape2.getValues()).containsExactly("*.pom", "MIT");
+    }
+
+    public void keysAndIncludesAreNotSlotted() {
+        AqlQueryShape shape = AqlQueryShape.of("items.find({\"path\":\"a\"}).include(\"name\",\"repo\")");
+        assertThat(shape.getValues()).containsExactly("a");
+        assertThat(shape.getShape()).contains("\"path\"").contains(".include(\"name\",\"repo\")");
+    }
+
+    public void structuralValuesAreNotSlotted() {
+        AqlQueryShape shape = AqlQueryShape.of("items.find({\"repo\":\"repo1\",\"type\":\"any\"," +
+                "\"artifact.module.build.repo\":{\"$eq\":\"b\"},\"created\":{\"$gt\":\"2015-01-01\"}," +
+                "\"size\":{\"$gt\":\"\"},\"name\":{\"$eq\":\"null\"}})");
+        assertThat(shape.getSlotsCount()).isZero();
+    }
+
+    public void underscoreValuesHaveDifferentShape() {
+        AqlQueryShape shape1 = AqlQueryShape.of("items.find({\"name\":{\"$match\":\"ui_tool*\"}})");
+        AqlQueryShape shape2 = AqlQueryShape.of("items.find({\"name\":{\"$match\":\"uitool*\"}})");
+        assertThat(shape1.getShape()).isNotEqualTo(shape2.getShape());
+    }
+
+    public void valuesInArrays() {
+        AqlQueryShape shape = AqlQueryShape.of(
+                "items.find({\"$or\":[{\"name\":\"a\"},{\"@build.name\":{\"$ne\":\"b\"}}]})");
+        assertThat(shape.getValues()).containsExactly("a", "b");
+    }
+
+    public void withValues() {
+        AqlQueryShape shape = AqlQueryShape.of("items.find({\"name\":\"a\",\"path\":{\"$match\":\"b*\"}})");
+        assertThat(shape.withValues(Lists.newArrayList("x", "yy")))
+                .isEqualTo("items.find({\"name\":\"x\",\"path\":{\"$match\":\"yy\"}})");
+    }
+
+    public void malformedQuery() {
+        AqlQueryShape shape = AqlQueryShape.of("items.find({\"name\":\"a})");
+        assertThat(shape.getSlotsCount()).isZero();
+        assertThat(shape.getShape()).isEqualTo("items.find({\"name\":\"a})");
+    }
+}
@@ -27,6 +27,8 @@ import org.springframework.test.util.ReflectionTestUtils;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.Set;
+
 /**
  * @author Gidi Shabat
  */
@@ -102,6 +104,11 @@ public class AqlRestrictionTest extends AqlAbstractServiceTest {
         public boolean isOss() {
             return true;
         }
+
+        @Override
+        public Set<String> getReadableRepoKeys() {
+            return null;
+        }
     }
 
     private class ProVersion implements AqlPermissionProvider {
@@ -120,6 +127,11 @@ public class AqlRestrictionTest extends AqlAbstractServiceTest {
         public boolean isOss() {
             return false;
         }
+
+        @Override
+        public Set<String> getReadableRepoKeys() {
+            return null;
+        }
     }
 
 }
\ No newline at end of file
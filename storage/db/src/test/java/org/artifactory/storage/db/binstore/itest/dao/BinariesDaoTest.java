@@ -82,7 +82,7 @@ public class BinariesDaoTest extends DbBaseTest {
         assertNull(binaryEntity);
     }
 
-    @Test(dependsOnMethods = "findPotentialDeletion")
+    @Test(dependsOnMethods = {"findPotentialDeletion", "findPotentialDeletionPages"})
     public void createBinary() throws SQLException {
         BinaryEntity binaryEntity = new BinaryEntity("1bae873f4a13f2919a4205aff0722b44ead4b190",
                 "dcabf055bc6d5477c35f82da16323efb884fc21a87fbf7ebda9d5848eee3yyyy",
@@ -125,6 +125,21 @@ public class BinariesDaoTest extends DbBaseTest {
         assertTrue(nodesSha2.contains("dcabf055bc6d5477c35f82da16323efb884fc21a87fbf7ebda9d5848eee3e280"));
     }
 
+    public void findPotentialDeletionPages() throws SQLException {
+        List<BinaryEntity> firstPage = binariesDao.findPotentialDeletion(null, 2);
+        assertEquals(firstPage.size(), 2);
+        assertEquals(firstPage.get(0).getSha1(), "356a192b7913b04c54574d18c28d46e6395428ab");
+        assertEquals(firstPage.get(0).getSha2(), "dddd23029162f3b2dc51f512cb64bce8cb6913ed6e540f23ec567d898f60ddac");
+        assertEquals(firstPage.get(0).getLength(), 1);
+        assertEquals(firstPage.get(1).getSha1(), "74239116da1def240fe1d366eb535513efc1c40b");
+
+        List<BinaryEntity> secondPage = binariesDao.findPotentialDeletion(firstPage.get(1).getSha1(), 2);
+        assertEquals(secondPage.size(), 1);
+        assertEquals(secondPage.get(0).getSha1(), "da39a3ee5e6b4b0d3255bfef95601890afd80709");
+
+        assertTrue(binariesDao.findPotentialDeletion(secondPage.get(0).getSha1(), 2).isEmpty());
+    }
+
     public void AssertPotentialDeletionOrder() throws SQLException {
         Collection<BinaryEntity> potentialDeletion = binariesDao.findPotentialDeletion();
         assertEquals(potentialDeletion.size(), 3);
@@ -165,6 +180,23 @@ public class BinariesDaoTest extends DbBaseTest {
         assertEquals(countAndTotalSize.getBinariesSize(), 3 + 2725 + 1 + 20);
     }
 
+    @Test(dependsOnMethods = "testDeleteEntries")
+    public void testDeleteEntriesInBatch() throws SQLException {
+        BinaryEntity unused = new BinaryEntity("b1a5e3f09a8e8c0e2c7ed9c8e6d1f0c1a2b3c4d5",
+                "b1a5e3f09a8e8c0e2c7ed9c8e6d1f0c1a2b3c4d5b1a5e3f09a8e8c0e2c7ed9c8",
+                "b1a5e3f09a8e8c0e2c7ed9c8e6d1f0c1", 7);
+        assertTrue(binariesDao.create(unused));
+        Set<String> deleted = binariesDao.deleteEntries(ImmutableList.of(
+                unused.getSha1(),
+                "f0d381ab0e057d4f835d639f6330a7c3e81eb6af", // referenced by a node
+                "deaddeaddeaddeaddeaddeaddeaddeaddeaddead"  // doesn't exist
+        ));
+        assertEquals(deleted, ImmutableSet.of(unused.getSha1()));
+        assertFalse(binariesDao.exists(ChecksumType.sha1, unused.getSha1()));
+        assertTrue(binariesDao.exists(ChecksumType.sha1, "f0d381ab0e057d4f835d639f6330a7c3e81eb6af"));
+        assertTrue(binariesDao.deleteEntries(ImmutableList.of()).isEmpty());
+    }
+
     public void findChecksumsBySha1() throws SQLException {
         Collection<BinaryEntity> nodes = binariesDao.search(ChecksumType.sha1, ImmutableList.of(
                 "f0d381ab0e057d4f835d639f6330a7c3e81eb6af",
@@ -20,6 +20,7 @@
 
 package org.artifactory.storage.db.fs.itest;
 
+import com.google.common.collect.Lists;
 import org.artifactory.fs.ItemInfo;
 import org.artifactory.model.common.RepoPathImpl;
 import org.artifactory.storage.db.itest.DbBaseTest;
@@ -27,10 +28,13 @@ import org.artifactory.storage.fs.service.FileService;
 import org.artifactory.storage.fs.tree.ItemNode;
 import org.artifactory.storage.fs.tree.ItemNodeFilter;
 import org.artifactory.storage.fs.tree.ItemTree;
+import org.artifactory.storage.fs.tree.TreeBrowsingCriteriaBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.testng.annotations.BeforeClass;
 
 import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.List;
 
 import static org.testng.Assert.*;
 
@@ -81,4 +85,38 @@ public class ItemTreeTest extends DbBaseTest {
         assertTrue(rootNode.getChildren().isEmpty());
     }
 
+    public void bulkLoadedTreeSameAsLazyTree() {
+        for (RepoPathImpl root : new RepoPathImpl[]{new RepoPathImpl("repo1", ""), new RepoPathImpl("repo1", "ant")}) {
+            ItemNode lazyRoot = new ItemTree(root).buildTree();
+            ItemNode bulkRoot = new ItemTree(root, new TreeBrowsingCriteriaBuilder().bulkLoad(100).build()).buildTree();
+            assertEquals(collectPaths(bulkRoot), collectPaths(lazyRoot), "Different trees under " + root);
+        }
+    }
+
+    public void bulkLoadedTreeWithFilter() {
+        RepoPathImpl repo1 = new RepoPathImpl("repo1", "");
+        ItemTree itemTree = new ItemTree(repo1, new TreeBrowsingCriteriaBuilder().bulkLoad(100)
+                .addFilter(ItemInfo::isFolder).build());
+        List<String> paths = collectPaths(itemTree.buildTree());
+        assertTrue(paths.contains("repo1:ant/ant/1.5"));
+        assertFalse(paths.contains("repo1:ant/ant/1.5/ant-1.5.jar"));
+    }
+
+    public void bulkLoadOverBudgetFallsBackToLazyTree() {
+        RepoPathImpl repo1 = new RepoPathImpl("repo1", "");
+        assertNull(fileService.loadDescendants(repo1, 2));
+        ItemNode rootNode = new ItemTree(repo1, new TreeBrowsingCriteriaBuilder().bulkLoad(2).build()).buildTree();
+        assertEquals(collectPaths(rootNode), collectPaths(new ItemTree(repo1).buildTree()));
+    }
+
+    private List<String> collectPaths(ItemNode node) {
+        List<String> paths = Lists.newArrayList(node.getRepoPath().getId());
+        if (node.isFolder()) {
+            for (ItemNode child : node.getChildren()) {
+                paths.addAll(collectPaths(child));
+            }
+        }
+        Collections.sort(paths);
+        return paths;
+    }
 }
@@ -190,6 +190,34 @@ public class PropertiesDaoTest extends DbBaseTest {
         assertEqualProps(propsDao.getNodeProperties(36), Collections.emptyList());
     }
 
+    public void batchCreateUpdateAndDelete() throws SQLException {
+        NodeProperty prop1 = new NodeProperty(3001, 34, "the-key1", "the-value1");
+        NodeProperty prop2 = new NodeProperty(3002, 34, "the-key2", "");
+        NodeProperty prop3 = new NodeProperty(3003, 35, "the-key1", "the-value3");
+        assertEquals(propsDao.create(Arrays.asList(prop1, prop2, prop3)).length, 3);
+        assertEqualProps(propsDao.getNodeProperties(34), Arrays.asList(prop1, prop2));
+        assertEqualProps(propsDao.getNodeProperties(35), Collections.singletonList(prop3));
+
+        NodeProperty updatedProp1 = new NodeProperty(3001, 34, "the-key1", "the-new-value1");
+        NodeProperty nonExistingProp = new NodeProperty(3004, 34, "the-key3", "the-value4");
+        propsDao.updateValues(Arrays.asList(updatedProp1, nonExistingProp));
+        assertEqualProps(propsDao.getNodeProperties(34), Arrays.asList(updatedProp1, prop2));
+
+        propsDao.delete(Collections.singletonList(prop2));
+        assertEqualProps(propsDao.getNodeProperties(34), Collections.singletonList(updatedProp1));
+
+        propsDao.deleteNodesProperties(Arrays.asList(34L, 35L));
+        assertEquals(propsDao.getNodeProperties(34).size(), 0);
+        assertEquals(propsDao.getNodeProperties(35).size(), 0);
+    }
+
+    public void loadedPropertiesShareKeys() throws SQLException {
+        NodeProperty first = getById(1, propsDao.getNodeProperties(5));
+        NodeProperty second = getById(1, propsDao.getNodeProperties(5));
+        assertNotSame(first, second);
+        assertSame(first.getPropKey(), second.getPropKey());
+    }
+
     private void assertEqualProps(List<NodeProperty> actual, List<NodeProperty> expected) {
         assertEquals(actual.size(), expected.size(), "Lists are not of the same size");
         List<NodeProperty> actualSorted = actual.stream()
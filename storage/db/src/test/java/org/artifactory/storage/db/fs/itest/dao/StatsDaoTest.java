@@ -128,6 +128,51 @@ public class StatsDaoTest extends DbBaseTest {
         assertNull(statsDao.getStats(14, false));
     }
 
+    public void incrementLocalStats() throws SQLException {
+        try {
+            statsDao.createStats(new Stat(5, 4, 1340283207850L, "yossis"), false);
+            long time = System.currentTimeMillis();
+            statsDao.incrementLocalStats(
+                    Lists.newArrayList(new Stat(5, 3, time, "yoyo"), new Stat(34, 2, time, "lolo")),
+                    dbProperties.getDbType());
+
+            Stat existing = statsDao.getStats(5, false);
+            assertNotNull(existing);
+            assertEquals(existing.getLocalDownloadCount(), 7);
+            assertEquals(existing.getLocalLastDownloaded(), time);
+            assertEquals(existing.getLocalLastDownloadedBy(), "yoyo");
+
+            Stat created = statsDao.getStats(34, false);
+            assertNotNull(created);
+            assertEquals(created.getLocalDownloadCount(), 2);
+            assertEquals(created.getLocalLastDownloaded(), time);
+            assertEquals(created.getLocalLastDownloadedBy(), "lolo");
+        } finally {
+            statsDao.deleteStats(5, false);
+            statsDao.deleteStats(34, false);
+        }
+    }
+
+    public void incrementRemoteStats() throws SQLException {
+        try {
+            long time = System.currentTimeMillis();
+            statsDao.incrementRemoteStats(Lists.newArrayList(
+                    new Stat(34, 0, 0, null, 2, time, "gandalf", "somewhere", "a->b")), dbProperties.getDbType());
+            statsDao.incrementRemoteStats(Lists.newArrayList(
+                    new Stat(34, 0, 0, null, 3, time + 1, "frodo", "somewhere", null)), dbProperties.getDbType());
+
+            Stat stat = statsDao.getStats(34, true);
+            assertNotNull(stat);
+            assertEquals(stat.getRemoteDownloadCount(), 5);
+            assertEquals(stat.getRemoteLastDownloaded(), time + 1);
+            assertEquals(stat.getRemoteLastDownloadedBy(), "frodo");
+            assertEquals(stat.getOrigin(), "somewhere");
+            assertEquals(stat.getPath(), "a->b", "Path should be kept when not reported");
+        } finally {
+            statsDao.deleteStats(34, true);
+        }
+    }
+
     @Test(dependsOnMethods = "createStatsFileWithStats")
     public void deleteStatsFileWithStats() throws SQLException {
         assertEquals(statsDao.deleteStats(12, false), 1);
@@ -20,6 +20,7 @@
 
 package org.artifactory.storage.db.fs.itest.service;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.artifactory.fs.ZipEntryInfo;
 import org.artifactory.model.xstream.fs.ZipEntryImpl;
@@ -34,6 +35,7 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Set;
 
 import static org.artifactory.test.ChecksumTestUtils.randomHex;
@@ -162,6 +164,46 @@ public class ArchiveEntriesServiceImplTest extends DbBaseTest {
         assertThat(archiveEntriesDao.findArchiveNameId("uniquename")).isNotEqualTo(DbService.NO_DB_ID);
     }
 
+    public void insertEntriesStreamedInBatches() {
+        // more entries than a single batch and a single IN clause, with repeating paths, names and entries
+        List<ZipEntryImpl> entries = Lists.newArrayList();
+        for (int i = 0; i < 1200; i++) {
+            entries.add(new ZipEntryImpl("batch/dir" + (i % 7) + "/name" + i, false));
+        }
+        entries.add(new ZipEntryImpl("batch/dir1/name1", false));
+        String sha1 = randomSha1();
+        binariesDao.create(new BinaryEntity(sha1, randomSha2(), randomMd5(), 1200));
+
+        archiveEntriesService.addArchiveEntries(sha1, entries.iterator());
+
+        assertTrue(archiveEntriesService.isIndexed(sha1));
+        assertThat(archiveEntriesService.getArchiveEntries(sha1)).hasSize(1200)
+                .isEqualTo(Sets.newHashSet(entries));
+    }
+
+    public void insertEntriesAfterUnusedIdsDeleted() throws SQLException {
+        String firstSha1 = randomSha1();
+        binariesDao.create(new BinaryEntity(firstSha1, randomSha2(), randomMd5(), 12));
+        archiveEntriesService.addArchiveEntries(firstSha1,
+                Sets.newHashSet(new ZipEntryImpl("gcpath/gcname", false)));
+        long pathId = archiveEntriesDao.findArchivePathId("gcpath");
+
+        // the garbage collector removes the path and name once unused, the cached ids must not be reused
+        assertTrue(archiveEntriesService.deleteArchiveEntries(firstSha1));
+        assertThat(archiveEntriesService.deleteUnusedPathIds()).isGreaterThan(0);
+        assertThat(archiveEntriesService.deleteUnusedNameIds()).isGreaterThan(0);
+        assertThat(archiveEntriesDao.findArchivePathId("gcpath")).isEqualTo(DbService.NO_DB_ID);
+
+        String secondSha1 = randomSha1();
+        binariesDao.create(new BinaryEntity(secondSha1, randomSha2(), randomMd5(), 12));
+        archiveEntriesService.addArchiveEntries(secondSha1,
+                Sets.newHashSet(new ZipEntryImpl("gcpath/gcname", false)));
+        assertThat(archiveEntriesDao.findArchivePathId("gcpath")).isNotEqualTo(DbService.NO_DB_ID)
+                .isNotEqualTo(pathId);
+        assertThat(archiveEntriesService.getArchiveEntries(secondSha1))
+                .containsOnly(new ZipEntryImpl("gcpath/gcname", false));
+    }
+
     private String randomMd5() {
         return randomHex(32);
     }
@@ -27,8 +27,10 @@ import org.artifactory.model.common.RepoPathImpl;
 import org.artifactory.model.xstream.fs.FileInfoImpl;
 import org.artifactory.model.xstream.fs.PropertiesImpl;
 import org.artifactory.storage.db.fs.dao.PropertiesDao;
+import org.artifactory.storage.db.fs.session.SqlStorageSession;
 import org.artifactory.storage.db.itest.DbBaseTest;
 import org.artifactory.storage.fs.service.PropertiesService;
+import org.artifactory.storage.fs.session.StorageSessionHolder;
 import org.artifactory.test.TestUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.testng.annotations.BeforeClass;
@@ -210,6 +212,30 @@ public class DbPropertiesServiceImplTest extends DbBaseTest {
         assertEquals(properties2.get("key1"), Collections.singleton("value1b"));
     }
 
+    public void writesDeferredUntilSessionSave() throws Exception {
+        int nodeId = 603;
+        propertiesService.deleteProperties(nodeId);
+        SqlStorageSession session = new SqlStorageSession();
+        StorageSessionHolder.setSession(session);
+        try {
+            PropertiesImpl properties = new PropertiesImpl();
+            properties.put("key1", "value1");
+            properties.put("key2", "value2");
+            propertiesService.setProperties(nodeId, properties);
+            assertTrue(propsDao.getNodeProperties(nodeId).isEmpty(), "Writes should be buffered by the session");
+            // reads in the session see the buffered writes
+            assertEquals(loadProperties(nodeId), properties);
+
+            properties.put("key3", "value3");
+            propertiesService.setProperties(nodeId, properties);
+            session.save();
+            assertEquals(propsDao.getNodeProperties(nodeId).size(), 3);
+        } finally {
+            session.afterCompletion(true);
+            StorageSessionHolder.removeSession();
+        }
+    }
+
     private Map<String, Set<Long>> getPropKey2PropIdsMap(int nodeId) throws SQLException {
         Map<String, Set<Long>> key2propId = Maps.newHashMap();
         propsDao.getNodeProperties(nodeId).stream().forEach(prop -> {
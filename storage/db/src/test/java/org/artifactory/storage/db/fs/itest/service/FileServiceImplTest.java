@@ -30,10 +30,16 @@ import org.artifactory.model.common.RepoPathImpl;
 import org.artifactory.model.xstream.fs.FolderInfoImpl;
 import org.artifactory.sapi.fs.VfsItem;
 import org.artifactory.storage.db.DbService;
+import org.artifactory.storage.db.fs.entity.NodePath;
+import org.artifactory.storage.db.fs.service.FileServiceImpl;
+import org.artifactory.storage.db.fs.service.NodesCache;
+import org.artifactory.storage.db.fs.service.NodesCacheSessionResource;
+import org.artifactory.storage.db.fs.session.SqlStorageSession;
 import org.artifactory.storage.db.itest.DbBaseTest;
 import org.artifactory.storage.fs.VfsException;
 import org.artifactory.storage.fs.VfsItemNotFoundException;
 import org.artifactory.storage.fs.service.FileService;
+import org.artifactory.storage.fs.session.StorageSessionHolder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -254,6 +260,34 @@ public class FileServiceImplTest extends DbBaseTest {
         assertEquals(fileService.getNodeId(new RepoPathImpl("repo2", "no/folder")), DbService.NO_DB_ID);
     }
 
+    public void nodesCacheBypassedBySessionWithChanges() throws Exception {
+        NodesCache nodesCache = applicationContext.getBean(FileServiceImpl.class).getNodesCache();
+        RepoPathImpl repoPath = new RepoPathImpl("repo1", "cached/folder");
+        NodePath nodePath = NodePath.fromRepoPath(repoPath);
+        long nodeId = fileService.createFolder(new FolderInfoImpl(repoPath));
+        assertTrue(fileService.exists(repoPath));
+        assertNotNull(nodesCache.getIfPresent(nodePath));
+
+        SqlStorageSession session = new SqlStorageSession();
+        StorageSessionHolder.setSession(session);
+        try {
+            // reads don't attach change tracking to the session
+            assertTrue(fileService.exists(repoPath));
+            assertNull(session.getResource(NodesCacheSessionResource.class));
+
+            assertTrue(fileService.deleteItem(nodeId));
+            // the session sees its own uncommitted delete while the cache still holds the committed node
+            assertFalse(fileService.exists(repoPath));
+            assertNotNull(nodesCache.getIfPresent(nodePath));
+        } finally {
+            session.afterCompletion(true);
+            StorageSessionHolder.removeSession();
+        }
+        // the commit invalidated the changed node
+        assertNull(nodesCache.getIfPresent(nodePath));
+        assertFalse(fileService.exists(repoPath));
+    }
+
     public void searchGrandchildPoms() {
         List<FileInfo> poms = fileService.searchGrandchildPoms(new RepoPathImpl("repo2", "org/jfrog"));
         assertNotNull(poms);
@@ -20,6 +20,8 @@
 
 package org.artifactory.storage.db.fs.itest.service;
 
+import com.google.common.collect.Lists;
+import org.artifactory.addon.smartrepo.SmartRepoAddon;
 import org.artifactory.factory.InfoFactoryHolder;
 import org.artifactory.fs.MutableStatsInfo;
 import org.artifactory.fs.StatsInfo;
@@ -27,15 +29,19 @@ import org.artifactory.model.common.RepoPathImpl;
 import org.artifactory.model.xstream.fs.FileInfoImpl;
 import org.artifactory.model.xstream.fs.StatsImpl;
 import org.artifactory.storage.db.DbService;
+import org.artifactory.storage.db.fs.service.AbstractStatsService.StatsEvent;
 import org.artifactory.storage.db.itest.DbBaseTest;
 import org.artifactory.storage.fs.service.StatsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.mockito.Mockito;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.sql.SQLException;
+import java.util.List;
 
+import static org.mockito.Mockito.when;
 import static org.testng.Assert.*;
 
 /**
@@ -260,6 +266,49 @@ public class StatsServiceImplTest extends DbBaseTest {
         assertFalse(statsService.deleteStats(505), "Stats already deleted earlier");
     }
 
+    public void flushBatchWithLocalAndRemoteCounts() {
+        RepoPathImpl filePath = new RepoPathImpl("repo-copy", "org/shayy/trustme/trustme.jar");
+        long lastDownloaded = System.currentTimeMillis();
+        flushStatsBatch(filePath, lastDownloaded);
+
+        StatsInfo stats = statsService.getStats(filePath);
+        assertNotNull(stats);
+        assertEquals(stats.getDownloadCount(), 2);
+        assertEquals(stats.getLastDownloaded(), lastDownloaded);
+        assertEquals(stats.getLastDownloadedBy(), "talias");
+        assertEquals(stats.getRemoteDownloadCount(), 3);
+    }
+
+    public void flushBatchWithLocalAndRemoteCountsNoRemoteStatsSupport() {
+        RepoPathImpl filePath = new RepoPathImpl("repo-copy", "org/shayy/badsha1/badsha1.jar");
+        long lastDownloaded = System.currentTimeMillis();
+        SmartRepoAddon smartRepoAddon = Mockito.mock(SmartRepoAddon.class);
+        when(smartRepoAddon.supportRemoteStats()).thenReturn(false);
+        addBean(smartRepoAddon, SmartRepoAddon.class);
+        try {
+            flushStatsBatch(filePath, lastDownloaded);
+        } finally {
+            SmartRepoAddon supportingAddon = Mockito.mock(SmartRepoAddon.class);
+            when(supportingAddon.supportRemoteStats()).thenReturn(true);
+            addBean(supportingAddon, SmartRepoAddon.class);
+        }
+
+        StatsInfo stats = statsService.getStats(filePath);
+        assertNotNull(stats);
+        assertEquals(stats.getDownloadCount(), 2);
+        assertEquals(stats.getLastDownloaded(), lastDownloaded);
+        assertEquals(stats.getLastDownloadedBy(), "talias");
+    }
+
+    private void flushStatsBatch(RepoPathImpl filePath, long lastDownloaded) {
+        StatsEvent event = new StatsEvent(filePath, "myhost.com");
+        event.update("ariels", lastDownloaded - 1000);
+        event.update("talias", lastDownloaded);
+        event.update("remoteUser", "myhost.com", "", lastDownloaded, 3);
+        List<StatsEvent> events = Lists.newArrayList(event);
+        ReflectionTestUtils.invokeMethod(statsService, "processStatsBatch", events);
+    }
+
     public void deleteStatsOnNonExistingNode() {
         assertFalse(statsService.deleteStats(64736));
     }
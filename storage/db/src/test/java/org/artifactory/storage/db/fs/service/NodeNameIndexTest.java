@@ -0,0 +1,132 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.fs.service;
+
+import com.google.common.collect.ImmutableList;
+import org.artifactory.storage.db.fs.entity.NodePath;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests {@link NodeNameIndex}.
+ */
+@Test
+public class NodeNameIndexTest {
+
+    private static final NodePath LIB = new NodePath("libs", "org/jfrog", "lib-1.0.jar", true);
+    private static final NodePath LIB_POM = new NodePath("libs", "org/jfrog", "lib-1.0.pom", true);
+    private static final NodePath OTHER_LIB = new NodePath("other", "org/jfrog", "lib-2.0.jar", true);
+    private static final NodePath README = new NodePath("libs", "", "README.txt", true);
+
+    private NodeNameIndex index;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        index = new NodeNameIndex(true, 100, true);
+        index.build(consumer -> ImmutableList.of(LIB, LIB_POM, OTHER_LIB, README).forEach(consumer));
+    }
+
+    public void notReadyBeforeBuild() {
+        NodeNameIndex notBuilt = new NodeNameIndex(true, 100, true);
+        assertFalse(notBuilt.isReady());
+        assertNull(notBuilt.find("*.jar", null));
+    }
+
+    public void findByWildcards() {
+        assertTrue(index.isReady());
+        assertEquals(index.find("*.jar", null), ImmutableList.of(LIB, OTHER_LIB));
+        assertEquals(index.find("lib-?.0.*", null), ImmutableList.of(LIB, LIB_POM, OTHER_LIB));
+        assertEquals(index.find("%1.0_pom", null), ImmutableList.of(LIB_POM));
+        assertEquals(index.find("*.zip", null), ImmutableList.of());
+    }
+
+    public void findInRepos() {
+        assertEquals(index.find("*.jar", ImmutableList.of("other")), ImmutableList.of(OTHER_LIB));
+    }
+
+    public void shortLiteralsNotAnswered() {
+        assertNull(index.find("*.j*", null));
+        assertNull(index.find("??", null));
+    }
+
+    public void caseSensitivity() throws Exception {
+        assertEquals(index.find("*.JAR", null), ImmutableList.of());
+        assertEquals(index.find("readme*", null), ImmutableList.of());
+        NodeNameIndex insensitive = new NodeNameIndex(true, 100, false);
+        insensitive.build(consumer -> consumer.accept(README));
+        assertEquals(insensitive.find("readme*", null), ImmutableList.of(README));
+    }
+
+    public void applyChanges() {
+        NodePath added = new NodePath("libs", "org/jfrog", "lib-1.1.jar", true);
+        index.apply(changes(added, LIB));
+        assertEquals(index.find("*.jar", null), ImmutableList.of(added, OTHER_LIB));
+        // removing a missing file or adding an existing one are no-ops
+        index.apply(changes(OTHER_LIB, LIB));
+        assertEquals(index.find("*.jar", null), ImmutableList.of(added, OTHER_LIB));
+    }
+
+    public void changesDuringBuildApplied() throws Exception {
+        NodePath added = new NodePath("libs", "org/jfrog", "lib-1.1.jar", true);
+        index.build(consumer -> {
+            consumer.accept(LIB);
+            consumer.accept(OTHER_LIB);
+            index.apply(changes(added, LIB));
+        });
+        assertEquals(index.find("*.jar", null), ImmutableList.of(added, OTHER_LIB));
+    }
+
+    public void overflowDropsIndex() throws Exception {
+        NodeNameIndex small = new NodeNameIndex(true, 2, true);
+        small.build(consumer -> ImmutableList.of(LIB, LIB_POM, OTHER_LIB).forEach(consumer));
+        assertFalse(small.isReady());
+        small.build(consumer -> ImmutableList.of(LIB, LIB_POM).forEach(consumer));
+        assertTrue(small.isReady());
+        small.apply(changes(OTHER_LIB, null));
+        assertFalse(small.isReady());
+    }
+
+    public void removedFilesCompacted() {
+        for (int i = 0; i < 500; i++) {
+            NodePath path = new NodePath("libs", "org/jfrog", "file-" + i + ".bin", true);
+            index.apply(changes(path, null));
+            index.apply(changes(null, path));
+        }
+        List<NodePath> found = index.find("*.bin", null);
+        assertEquals(found, ImmutableList.of());
+        assertEquals(index.find("*.jar", null), ImmutableList.of(LIB, OTHER_LIB));
+    }
+
+    private NodeNameIndex.Changes changes(NodePath added, NodePath removed) {
+        NodeNameIndex.Changes changes = new NodeNameIndex.Changes();
+        if (removed != null) {
+            changes.removed(removed);
+        }
+        if (added != null) {
+            changes.added(added);
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.fs.service;
+
+import com.google.common.collect.ImmutableList;
+import org.artifactory.storage.db.fs.entity.Node;
+import org.artifactory.storage.db.fs.entity.NodeBuilder;
+import org.artifactory.storage.db.fs.entity.NodePath;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests {@link NodesCache}.
+ */
+@Test
+public class NodesCacheTest {
+
+    private static final NodePath PATH = new NodePath("repo", "org/jfrog", "lib.jar", true);
+
+    private NodesCache cache;
+    private AtomicInteger loads;
+
+    @BeforeMethod
+    public void setUp() {
+        cache = new NodesCache(true, 1024 * 1024, 600);
+        loads = new AtomicInteger();
+    }
+
+    public void readThrough() throws Exception {
+        Node node = node(1, PATH);
+        assertSame(cache.get(PATH, () -> load(node)), node);
+        assertSame(cache.get(PATH, () -> load(node)), node);
+        assertEquals(loads.get(), 1);
+        assertEquals(cache.stats().hitCount(), 1);
+        assertEquals(cache.stats().missCount(), 1);
+    }
+
+    public void missingNodeNotCached() throws Exception {
+        assertNull(cache.get(PATH, () -> load(null)));
+        assertNull(cache.get(PATH, () -> load(null)));
+        assertEquals(loads.get(), 2);
+        assertEquals(cache.size(), 0);
+    }
+
+    public void getById() throws Exception {
+        Node node = node(1, PATH);
+        cache.get(PATH, () -> load(node));
+        assertSame(cache.get(1, () -> load(null)), node);
+        assertEquals(loads.get(), 1);
+    }
+
+    public void invalidateByPath() throws Exception {
+        cache.get(PATH, () -> load(node(1, PATH)));
+        cache.invalidate(ImmutableList.of(PATH), Collections.emptyList());
+        assertNull(cache.getIfPresent(PATH));
+    }
+
+    public void invalidateById() throws Exception {
+        cache.get(PATH, () -> load(node(1, PATH)));
+        cache.invalidate(Collections.emptyList(), ImmutableList.of(1L));
+        assertNull(cache.getIfPresent(PATH));
+        assertEquals(cache.size(), 0);
+    }
+
+    public void loadRacingWithInvalidationNotCached() throws Exception {
+        Node stale = node(1, PATH);
+        cache.get(PATH, () -> {
+            // the node is changed and invalidated while its previous state is being loaded
+            cache.invalidate(ImmutableList.of(PATH), Collections.emptyList());
+            return load(stale);
+        });
+        assertNull(cache.getIfPresent(PATH));
+    }
+
+    public void disabled() throws Exception {
+        cache = new NodesCache(false, 1024 * 1024, 600);
+        Node node = node(1, PATH);
+        cache.get(PATH, () -> load(node));
+        cache.get(PATH, () -> load(node));
+        assertEquals(loads.get(), 2);
+        assertNull(cache.getIfPresent(PATH));
+    }
+
+    public void boundedByWeight() throws Exception {
+        cache = new NodesCache(true, 10 * 1024, 600);
+        for (int i = 0; i < 1000; i++) {
+            NodePath path = new NodePath("repo", "org/jfrog", "lib-" + i + ".jar", true);
+            cache.get(path, () -> load(node(System.nanoTime(), path)));
+        }
+        assertTrue(cache.size() < 100, "Cache size not bounded: " + cache.size());
+    }
+
+    private Node load(Node node) {
+        loads.incrementAndGet();
+        return node;
+    }
+
+    private Node node(long id, NodePath path) {
+        return new NodeBuilder().nodeId(id).file(true).repo(path.getRepo()).path(path.getPath())
+                .name(path.getName()).createdBy("admin").modifiedBy("admin").build();
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.fs.service;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.artifactory.storage.db.fs.entity.FolderSummeryNodeInfo;
+import org.artifactory.storage.db.fs.entity.FolderSummeryNodeInfoImpl;
+import org.artifactory.storage.db.fs.entity.NodePath;
+import org.artifactory.storage.fs.repo.RepoStorageSummary;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests {@link StorageAggregates}.
+ */
+@Test
+public class StorageAggregatesTest {
+
+    private static final NodePath ROOT = new NodePath("repo", "", "", false);
+    private static final NodePath FOLDER = new NodePath("repo", "org", "jfrog", false);
+    private static final NodePath FILE = new NodePath("repo", "org/jfrog", "lib.jar", true);
+
+    private StorageAggregates aggregates;
+    private AtomicInteger loads;
+
+    @BeforeMethod
+    public void setUp() {
+        aggregates = new StorageAggregates(true, 100);
+        loads = new AtomicInteger();
+    }
+
+    public void repositoriesSummaryLoadedOnce() throws Exception {
+        assertSummaries(aggregates.getRepositoriesSummary(() -> load(summary("repo", 2, 3, 100))),
+                summary("repo", 2, 3, 100));
+        assertSummaries(aggregates.getRepositoriesSummary(() -> load(summary("repo", 0, 0, 0))),
+                summary("repo", 2, 3, 100));
+        assertEquals(loads.get(), 1);
+    }
+
+    public void deltasAppliedToRepositories() throws Exception {
+        aggregates.getRepositoriesSummary(() -> load(summary("repo", 2, 3, 100)));
+        StorageAggregates.Deltas deltas = new StorageAggregates.Deltas();
+        deltas.folderCreated(FOLDER);
+        deltas.fileChanged(FILE, 1, 50);
+        deltas.fileChanged(FILE, 0, -10);
+        aggregates.apply(deltas);
+        assertSummaries(aggregates.getRepositoriesSummary(this::failLoad), summary("repo", 3, 4, 140));
+    }
+
+    public void repositoryAddedAndRemoved() throws Exception {
+        aggregates.getRepositoriesSummary(() -> load(summary("repo", 2, 3, 100)));
+        StorageAggregates.Deltas created = new StorageAggregates.Deltas();
+        created.folderCreated(new NodePath("other", "", "", false));
+        aggregates.apply(created);
+        assertSummaries(aggregates.getRepositoriesSummary(this::failLoad),
+                summary("repo", 2, 3, 100), summary("other", 0, 0, 0));
+
+        StorageAggregates.Deltas deleted = new StorageAggregates.Deltas();
+        deleted.folderDeleted(new NodePath("other", "", "", false));
+        aggregates.apply(deleted);
+        assertSummaries(aggregates.getRepositoriesSummary(this::failLoad), summary("repo", 2, 3, 100));
+    }
+
+    public void folderSummaryCachedAndMaintained() throws Exception {
+        assertEquals(aggregates.getFolderSummary(FOLDER, folder -> loadFolder(3, 100)).getFileCount(), 3);
+        StorageAggregates.Deltas deltas = new StorageAggregates.Deltas();
+        deltas.fileChanged(FILE, 1, 50);
+        // a file in a sibling folder doesn't change the folder
+        deltas.fileChanged(new NodePath("repo", "org/jfrogx", "lib.jar", true), 1, 50);
+        aggregates.apply(deltas);
+        FolderSummeryNodeInfo summary = aggregates.getFolderSummary(FOLDER, folder -> loadFolder(0, 0));
+        assertEquals(summary.getFileCount(), 4);
+        assertEquals(summary.getFolderSize(), 150);
+        assertEquals(loads.get(), 1);
+    }
+
+    public void folderSummaryNotCachedIfChangedDuringLoad() throws Exception {
+        aggregates.getFolderSummary(FOLDER, folder -> {
+            StorageAggregates.Deltas deltas = new StorageAggregates.Deltas();
+            deltas.fileChanged(FILE, 1, 50);
+            aggregates.apply(deltas);
+            return loadFolder(3, 100);
+        });
+        aggregates.getFolderSummary(FOLDER, folder -> loadFolder(4, 150));
+        assertEquals(loads.get(), 2);
+    }
+
+    public void rootSummaryServedFromRepositories() throws Exception {
+        aggregates.getRepositoriesSummary(() -> load(summary("repo", 2, 3, 100)));
+        FolderSummeryNodeInfo summary = aggregates.getFolderSummary(ROOT, folder -> loadFolder(0, 0));
+        assertEquals(summary.getFileCount(), 3);
+        assertEquals(summary.getFolderSize(), 100);
+        assertEquals(loads.get(), 1);
+    }
+
+    public void deltasDuringReconcileKept() throws Exception {
+        aggregates.getRepositoriesSummary(() -> load(summary("repo", 2, 3, 100)));
+        aggregates.reconcile(() -> {
+            StorageAggregates.Deltas deltas = new StorageAggregates.Deltas();
+            deltas.fileChanged(FILE, 1, 50);
+            aggregates.apply(deltas);
+            // the loaded summary doesn't include the concurrent change
+            return load(summary("repo", 2, 5, 200));
+        });
+        assertSummaries(aggregates.getRepositoriesSummary(this::failLoad), summary("repo", 2, 6, 250));
+    }
+
+    public void concurrentReconcilesRunOneAtATime() throws Exception {
+        aggregates.getRepositoriesSummary(() -> load(summary("repo", 2, 3, 100)));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < 200; j++) {
+                        aggregates.reconcile(() -> {
+                            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                            try {
+                                StorageAggregates.Deltas deltas = new StorageAggregates.Deltas();
+                                deltas.fileChanged(FILE, 1, 50);
+                                aggregates.apply(deltas);
+                                return load(summary("repo", 2, 3, 100));
+                            } finally {
+                                running.decrementAndGet();
+                            }
+                        });
+                        StorageAggregates.Deltas deltas = new StorageAggregates.Deltas();
+                        deltas.fileChanged(new NodePath("other", "org", "lib.jar", true), 1, 50);
+                        aggregates.apply(deltas);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(maxRunning.get(), 1);
+        // only the last reconcile's own delta is on top of its load, no other load overlapped it
+        RepoStorageSummary repo = aggregates.getRepositoriesSummary(this::failLoad).stream()
+                .filter(summary -> summary.getRepoKey().equals("repo")).findFirst().get();
+        assertEquals(repo.getFilesCount(), 4);
+    }
+
+    public void concurrentFirstLoadsShareOneLoad() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Set<RepoStorageSummary>>> futures = Lists.newArrayList();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return aggregates.getRepositoriesSummary(() -> {
+                        try {
+                            Thread.sleep(50);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return load(summary("repo", 2, 3, 100));
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<Set<RepoStorageSummary>> future : futures) {
+                assertSummaries(future.get(30, TimeUnit.SECONDS), summary("repo", 2, 3, 100));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(loads.get(), 1);
+    }
+
+    public void failedReconcileKeepsAggregates() throws Exception {
+        aggregates.getRepositoriesSummary(() -> load(summary("repo", 2, 3, 100)));
+        try {
+            aggregates.reconcile(() -> {
+                throw new SQLException("boom");
+            });
+        } catch (SQLException expected) {
+            // the previous aggregates are kept
+        }
+        StorageAggregates.Deltas deltas = new StorageAggregates.Deltas();
+        deltas.fileChanged(FILE, 1, 50);
+        aggregates.apply(deltas);
+        assertSummaries(aggregates.getRepositoriesSummary(this::failLoad), summary("repo", 2, 4, 150));
+    }
+
+    public void reconcileDropsFolders() throws Exception {
+        aggregates.getFolderSummary(FOLDER, folder -> loadFolder(3, 100));
+        aggregates.reconcile(() -> load(summary("repo", 2, 3, 100)));
+        assertEquals(aggregates.getFolderSummary(FOLDER, folder -> loadFolder(4, 200)).getFileCount(), 4);
+    }
+
+    public void invalidate() throws Exception {
+        aggregates.getRepositoriesSummary(() -> load(summary("repo", 2, 3, 100)));
+        aggregates.invalidate();
+        assertTrue(aggregates.getRepositoriesSummary(() -> load()).isEmpty());
+        assertEquals(loads.get(), 2);
+    }
+
+    private static void assertSummaries(Set<RepoStorageSummary> actual, RepoStorageSummary... expected) {
+        // summaries are equal by repository key only
+        assertEquals(actual.size(), expected.length);
+        for (RepoStorageSummary summary : expected) {
+            RepoStorageSummary match = actual.stream()
+                    .filter(candidate -> candidate.getRepoKey().equals(summary.getRepoKey()))
+                    .findFirst().orElseThrow(() -> new AssertionError("Missing " + summary.getRepoKey()));
+            assertEquals(match.getFoldersCount(), summary.getFoldersCount());
+            assertEquals(match.getFilesCount(), summary.getFilesCount());
+            assertEquals(match.getUsedSpace(), summary.getUsedSpace());
+        }
+    }
+
+    private Set<RepoStorageSummary> load(RepoStorageSummary... summaries) {
+        loads.incrementAndGet();
+        return ImmutableSet.copyOf(summaries);
+    }
+
+    private FolderSummeryNodeInfo loadFolder(long files, long bytes) {
+        loads.incrementAndGet();
+        return new FolderSummeryNodeInfoImpl(files, bytes);
+    }
+
+    private Set<RepoStorageSummary> failLoad() {
+        throw new AssertionError("Unexpected load");
+    }
+
+    private static RepoStorageSummary summary(String repo, long folders, long files, long bytes) {
+        return new RepoStorageSummary(repo, folders, files, bytes);
+    }
+}
@@ -24,6 +24,7 @@ import ch.qos.logback.classic.util.ContextInitializer;
 import org.artifactory.api.context.ArtifactoryContextThreadBinder;
 import org.artifactory.common.config.db.ArtifactoryDbProperties;
 import org.artifactory.storage.db.DbServiceImpl;
+import org.artifactory.storage.db.fs.service.FileServiceImpl;
 import org.artifactory.storage.db.spring.ArtifactoryDataSource;
 import org.artifactory.storage.db.util.JdbcHelper;
 import org.artifactory.test.ArtifactoryHomeBoundTest;
@@ -91,6 +92,7 @@ public abstract class DbBaseTest extends AbstractTestNGSpringContextTests {
         try (Connection connection = jdbcHelper.getDataSource().getConnection()) {
             DbTestUtils.refreshOrRecreateSchema(LoggerFactory.getLogger(getClass()), connection, dbProperties.getDbType());
         }
+        invalidateNodesCache();
         TestUtils.invokeMethodNoArgs(dbService, "initializeIdGenerator");
         // This is pretty much the same as having the db conversion callback run, since the dbService is
         // not inited across multiple runs of this test's inheritors i'm forced to do it like this.
@@ -144,6 +146,8 @@ public abstract class DbBaseTest extends AbstractTestNGSpringContextTests {
         try {
             con = jdbcHelper.getDataSource().getConnection();
             DbStatementUtils.executeSqlStream(con, resource);
+            // the nodes cache and storage aggregates are shared by the test classes and don't see direct sql changes
+            invalidateNodesCache();
             // update the id generator
             TestUtils.invokeMethodNoArgs(dbService, "initializeIdGenerator");
         } catch (Exception e) {
@@ -153,6 +157,11 @@ public abstract class DbBaseTest extends AbstractTestNGSpringContextTests {
         }
     }
 
+    protected void invalidateNodesCache() {
+        applicationContext.getBean(FileServiceImpl.class).getNodesCache().invalidateAll();
+        applicationContext.getBean(FileServiceImpl.class).getStorageAggregates().invalidate();
+    }
+
     @BeforeMethod
     public void bindDummyContext() {
         ArtifactoryContextThreadBinder.bind(dummyArtifactoryContext);
@@ -0,0 +1,152 @@
+package org.artifactory.storage.db.lock;
+
+import org.artifactory.storage.db.locks.LockInfo;
+import org.artifactory.storage.db.locks.dao.DbDistributeLocksDao;
+import org.artifactory.storage.db.locks.service.DbLocksServiceImpl;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the local wait queues of the {@link DbLocksServiceImpl}: threads of the same node wait for each other in-JVM
+ * and do not poll the DB while the lock is held locally.
+ */
+@Test
+public class LocalLockQueueTest {
+
+    private InMemoryLocksDao locksDao;
+    private DbLocksServiceImpl dbLocksService;
+
+    @BeforeMethod
+    public void setup() {
+        locksDao = new InMemoryLocksDao();
+        dbLocksService = new DbLocksServiceImpl(locksDao);
+    }
+
+    public void localWaiterWokenOnRelease() throws Exception {
+        dbLocksService.acquireLock("test", "key", "server", 1, TimeUnit.SECONDS);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch waiting = new CountDownLatch(1);
+            Future<Long> waiter = executor.submit(() -> {
+                waiting.countDown();
+                long start = System.nanoTime();
+                dbLocksService.acquireLock("test", "key", "server", 10, TimeUnit.SECONDS);
+                dbLocksService.unlock("test", "key", "server");
+                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            });
+            waiting.await();
+            // Give the waiter enough time to poll the DB if it was polling
+            Thread.sleep(300);
+            assertEquals(locksDao.attempts.get(), 1, "Local waiter should not hit the DB while the lock is held");
+            dbLocksService.unlock("test", "key", "server");
+            assertTrue(waiter.get(5, TimeUnit.SECONDS) < 5000);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(locksDao.attempts.get(), 2);
+        assertEquals(dbLocksService.getContentionStats().getAcquired().get("test").longValue(), 2);
+        assertEquals(dbLocksService.getContentionStats().getContended().get("test").longValue(), 1);
+        assertEquals(dbLocksService.getContentionStats().getWaiting().get("test").longValue(), 0);
+        assertFalse(dbLocksService.isLocked("test", "key"));
+    }
+
+    public void localWaiterTimesOut() throws Exception {
+        dbLocksService.acquireLock("test", "key", "server", 1, TimeUnit.SECONDS);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> waiter = executor.submit(() -> {
+                dbLocksService.acquireLock("test", "key", "server", 50, TimeUnit.MILLISECONDS);
+                return null;
+            });
+            try {
+                waiter.get(5, TimeUnit.SECONDS);
+                fail("Lock should not be acquired while held by another thread");
+            } catch (Exception e) {
+                assertTrue(e.getCause() instanceof TimeoutException, "Unexpected exception: " + e);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(locksDao.attempts.get(), 1);
+        assertEquals(dbLocksService.getContentionStats().getTimedOut().get("test").longValue(), 1);
+        dbLocksService.unlock("test", "key", "server");
+        // The queue is free again
+        dbLocksService.acquireLock("test", "key", "server", 0, TimeUnit.MILLISECONDS);
+        dbLocksService.unlock("test", "key", "server");
+    }
+
+    public void forceUnlockReleasesLocalWaiters() throws Exception {
+        dbLocksService.acquireLock("test", "key", "server", 1, TimeUnit.SECONDS);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> waiter = executor.submit(() -> {
+                dbLocksService.acquireLock("test", "key", "server", 10, TimeUnit.SECONDS);
+                return null;
+            });
+            dbLocksService.forceUnlock("test", "key");
+            waiter.get(5, TimeUnit.SECONDS);
+            assertTrue(dbLocksService.isLocked("test", "key"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void reentrantLockNotSupported() throws Exception {
+        dbLocksService.acquireLock("test", "key", "server", 1, TimeUnit.SECONDS);
+        try {
+            dbLocksService.acquireLock("test", "key", "server", 1, TimeUnit.SECONDS);
+        } finally {
+            dbLocksService.unlock("test", "key", "server");
+        }
+    }
+
+    private static class InMemoryLocksDao extends DbDistributeLocksDao {
+        private final Map<String, LockInfo> locks = new ConcurrentHashMap<>();
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        private InMemoryLocksDao() {
+            super(null);
+        }
+
+        @Override
+        public boolean tryToAcquireLock(LockInfo lockInfo) {
+            attempts.incrementAndGet();
+            return locks.putIfAbsent(lockInfo.getCategory() + ":" + lockInfo.getKey(), lockInfo) == null;
+        }
+
+        @Override
+        public LockInfo getLockInfo(String category, String key) {
+            return locks.get(category + ":" + key);
+        }
+
+        @Override
+        public boolean isLocked(String category, String key) {
+            return locks.containsKey(category + ":" + key);
+        }
+
+        @Override
+        public boolean deleteLock(String category, String key, String owner) {
+            LockInfo lockInfo = locks.get(category + ":" + key);
+            return lockInfo != null && lockInfo.getOwner().equals(owner) && locks.remove(category + ":" + key,
+                    lockInfo);
+        }
+
+        @Override
+        public boolean releaseForceLock(String category, String key) {
+            return locks.remove(category + ":" + key) != null;
+        }
+    }
+}
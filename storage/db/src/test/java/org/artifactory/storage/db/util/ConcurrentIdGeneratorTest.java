@@ -150,8 +150,11 @@ public class ConcurrentIdGeneratorTest extends IdGeneratorBaseTest {
             long actual = currentInTableId - startId;
             // calculate the number of idis requested by the test
             long bottom = (long) COUNT * (long) BLOCKS_INC;
-            long delta = actual - bottom;
-            String msg = "Actual=" + actual + " bottom=" + bottom + " delta=" + delta + " acceptDelta=" + acceptDelta + " skips=" + skipDiffs;
+            // idis reserved ahead of the last handed out id (rest of the current range and the prefetched range)
+            long reservedAhead = currentInTableId - Ordering.natural().max(indices.keySet());
+            long delta = actual - bottom - reservedAhead;
+            String msg = "Actual=" + actual + " bottom=" + bottom + " reservedAhead=" + reservedAhead + " delta=" + delta +
+                    " acceptDelta=" + acceptDelta + " skips=" + skipDiffs;
             log.info(msg);
             assertTrue(delta >= 0L && delta < (acceptDelta + skipDiffs),
                     "Index should have been incremented. Got " + msg);
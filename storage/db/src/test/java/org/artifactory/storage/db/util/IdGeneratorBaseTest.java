@@ -22,11 +22,9 @@ package org.artifactory.storage.db.util;
 
 import org.artifactory.storage.db.itest.DbBaseTest;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.test.util.ReflectionTestUtils;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author mamo
@@ -40,13 +38,11 @@ public abstract class IdGeneratorBaseTest extends DbBaseTest {
     protected JdbcHelper jdbcHelper;
 
     protected long getCurrentInMemoryId() {
-        SimpleIdGenerator idGenerator = (SimpleIdGenerator) ReflectionTestUtils.getField(dbService, "idGenerator");
-        return ((AtomicLong) ReflectionTestUtils.getField(idGenerator, "currentIndex")).get();
+        return idGenerator.peekNextId();
     }
 
     protected long getMaxReservedIndex() {
-        SimpleIdGenerator idGenerator = (SimpleIdGenerator) ReflectionTestUtils.getField(dbService, "idGenerator");
-        return (Long) ReflectionTestUtils.getField(idGenerator, "maxReservedIndex");
+        return idGenerator.getMaxReservedId();
     }
 
     protected Long getCurrentInTableId() {
@@ -26,6 +26,7 @@ import org.testng.annotations.Test;
 import java.sql.SQLException;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 /**
  * @author mamo
@@ -36,20 +37,21 @@ public class SimpleIdGeneratorTest extends IdGeneratorBaseTest {
     @Test
     public void afterInit() throws SQLException {
         assertEquals(getCurrentInTableId(), (Long) IdGenerator.NO_ID, "Wrong init db value");
-        assertEquals(getCurrentInMemoryId(), IdGenerator.NO_ID, "Wrong init in memory");
+        assertEquals(getMaxReservedIndex(), IdGenerator.NO_ID, "Nothing should be reserved in memory");
     }
 
     @Test(dependsOnMethods = "afterInit")
     public void firstId() throws SQLException {
         assertEquals(idGenerator.nextId(), 1, "First nextId is lazy initialized to 1");
-        assertEquals(getCurrentInTableId(), step(), "First nextId should not update db");
+        assertEquals(getMaxReservedIndex(), step().longValue(), "First nextId should reserve the first range");
+        assertTrue(getCurrentInTableId() >= step(), "First nextId should update db");
         assertEquals(getCurrentInMemoryId(), 2, "First nextId should update in memory by 1");
     }
 
     @Test(dependsOnMethods = "firstId")
     public void nextId() throws SQLException {
         assertEquals(idGenerator.nextId(), 2);
-        assertEquals(getCurrentInTableId(), step(), "Second nextId should not update db");
+        assertEquals(getMaxReservedIndex(), step().longValue(), "Second nextId should not reserve a new range");
         assertEquals(getCurrentInMemoryId(), 3, "Second nextId should increment by 1");
     }
 
@@ -61,15 +63,17 @@ public class SimpleIdGeneratorTest extends IdGeneratorBaseTest {
             assertEquals(inMemory, nextId, "In memory value is the nextId"); //getAndInc
             assertEquals(getCurrentInMemoryId(), nextId + 1, "In memory should increment by 1");
         }
-        assertEquals(getCurrentInTableId(), step(), "Wrong before exhaust db value");
-        assertEquals(getCurrentInMemoryId(), step() + 1, "In memory exhausted before db");
+        assertEquals(getMaxReservedIndex(), step().longValue(), "Wrong before exhaust reserved value");
+        assertEquals(getCurrentInMemoryId(), step() + 1, "In memory exhausted");
     }
 
     @Test(dependsOnMethods = "beforeExhaust")
     public void afterExhaust() throws SQLException {
         long nextId = idGenerator.nextId();
         assertEquals(nextId, step() + 1, "Wrong exhaust nextId value");
-        assertEquals(getCurrentInTableId(), new Long(2 * step()), "Wrong after exhaust db value");
+        // The next range was prefetched and may be larger than the step since the first range was consumed quickly
+        assertTrue(getCurrentInTableId() >= 2 * step(), "Wrong after exhaust db value");
+        assertEquals(getCurrentInTableId().longValue(), getMaxReservedIndex(), "After exhaust db value is reserved");
         assertEquals(getCurrentInMemoryId(), step() + 2, "Wrong after exhaust in memory");
     }
 
@@ -40,6 +40,7 @@ import javax.annotation.security.RolesAllowed;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
@@ -55,6 +56,7 @@ public class AqlResource {
     private static final Logger log = LoggerFactory.getLogger(AqlResource.class);
 
     public static final String PATH_ROOT = "search/aql";
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
 
     @Autowired
     private AuthorizationService authorizationService;
@@ -66,7 +68,7 @@ public class AqlResource {
     private HttpServletRequest request;
 
     @POST
-    @Produces({MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN})
+    @Produces({MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN, APPLICATION_NDJSON})
     @Consumes({MediaType.TEXT_PLAIN})
     public Response execute(String contentQuery) {
         // Only none anonymous users can access AQL
@@ -81,20 +83,19 @@ public class AqlResource {
         }
         // Execute the query
         try {
-            final AqlRestResult restResult = executeAqlQuery(query);
-            // After success query execution prepare the result in stream.
+            boolean newlineDelimited = isNewlineDelimitedRequested();
+            final AqlRestResult restResult = executeAqlQuery(query, newlineDelimited);
+            // After success query execution encode the result directly into the response stream.
             StreamingOutput stream = os -> {
-                byte[] array = restResult.read();
                 try {
-                    while (array != null) {
-                        os.write(array);
-                        array = restResult.read();
-                    }
-                    os.flush();
+                    restResult.write(os);
                 } finally {
                     IOUtils.closeQuietly(restResult);
                 }
             };
+            if (newlineDelimited) {
+                return Response.ok(stream, APPLICATION_NDJSON).build();
+            }
             return Response.ok(stream).build();
         } catch (AqlException e) {
             log.error("Fail to execute query: {}: ", query, e.getMessage());
@@ -111,13 +112,28 @@ public class AqlResource {
         }
     }
 
-    private AqlRestResult executeAqlQuery(String query) {
+    private AqlRestResult executeAqlQuery(String query, boolean newlineDelimited) {
         AqlLazyResult result = aqlService.executeQueryLazy(query);
         final AqlRestResult restResult;
-        restResult = new AqlJsonStreamer(result);
+        if (newlineDelimited) {
+            restResult = AqlJsonStreamer.newlineDelimited(result);
+        } else {
+            restResult = new AqlJsonStreamer(result);
+        }
         return restResult;
     }
 
+    /**
+     * Newline delimited JSON is returned if requested by the Accept header or by the format=ndjson param
+     */
+    private boolean isNewlineDelimitedRequested() {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (StringUtils.contains(accept, APPLICATION_NDJSON)) {
+            return true;
+        }
+        return "ndjson".equalsIgnoreCase(request.getParameter("format"));
+    }
+
     private String getQuery(String contentQuery) {
         try {
             String query = contentQuery;
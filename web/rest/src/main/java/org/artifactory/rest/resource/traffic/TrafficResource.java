@@ -25,9 +25,12 @@ import org.apache.commons.io.IOUtils;
 import org.artifactory.api.rest.constant.HaRestConstants;
 import org.artifactory.api.rest.constant.TrafficRestConstants;
 import org.artifactory.api.security.AuthorizationService;
+import org.artifactory.rest.common.exception.BadRequestException;
 import org.artifactory.rest.common.exception.RestException;
 import org.artifactory.rest.common.list.StringList;
-import org.artifactory.traffic.TrafficService;
+import org.artifactory.traffic.InternalTrafficService;
+import org.artifactory.traffic.TrafficCollectorResolution;
+import org.artifactory.traffic.TrafficSummary;
 import org.artifactory.traffic.TransferUsage;
 import org.artifactory.traffic.entry.TrafficEntry;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,6 +40,7 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.security.RolesAllowed;
 import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
@@ -47,6 +51,7 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.util.Calendar;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Noam Tenne
@@ -61,7 +66,7 @@ public class TrafficResource {
     private HttpServletResponse httpResponse;
 
     @Autowired
-    private TrafficService trafficService;
+    private InternalTrafficService trafficService;
 
     @GET
     @Path(TrafficRestConstants.STREAM_ROOT)
@@ -105,6 +110,34 @@ public class TrafficResource {
         return transferUsage;
     }
 
+    /**
+     * Returns the traffic of this node aggregated in memory, by repository, by user and by resolution interval.
+     * Defaults to the last hour by minutes.
+     */
+    @GET
+    @Path(TrafficRestConstants.PATH_SUMMARY)
+    @Produces(MediaType.APPLICATION_JSON)
+    public TrafficSummary getTrafficSummary(
+            @DefaultValue("minute") @QueryParam(TrafficRestConstants.PARAM_RESOLUTION) String resolutionName,
+            @QueryParam(TrafficRestConstants.PARAM_START_DATE) Long startLong,
+            @QueryParam(TrafficRestConstants.PARAM_END_DATE) Long endLong) {
+        TrafficCollectorResolution resolution;
+        try {
+            resolution = TrafficCollectorResolution.valueOf(resolutionName.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unknown traffic resolution '" + resolutionName + "'");
+        }
+        long end = endLong != null ? endLong : System.currentTimeMillis() + 1;
+        long start = startLong != null ? startLong : end - TimeUnit.HOURS.toMillis(1);
+        try {
+            return trafficService.getTrafficSummary(resolution, start, end);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new RestException(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+        }
+    }
+
     private void writeEntriesToStream(List<TrafficEntry> trafficEntryList) throws IOException {
         if (!trafficEntryList.isEmpty()) {
             try (OutputStreamWriter writer = new OutputStreamWriter(httpResponse.getOutputStream(), Charsets.UTF_8)) {